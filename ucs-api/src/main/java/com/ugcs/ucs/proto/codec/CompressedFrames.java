@@ -0,0 +1,135 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.ugcs.messaging.api.CorruptedDataException;
+
+/**
+ * Payloads of the compressed and control frames (see {@link Protocol}).
+ */
+final class CompressedFrames {
+
+	static final int HEADER_LENGTH = 16;
+	// compressor id and the message length
+	static final int COMPRESSED_PREFIX_LENGTH = 5;
+
+	private static final CompressionControl.Type[] CONTROL_TYPES = CompressionControl.Type.values();
+
+	private CompressedFrames() {
+	}
+
+	static void writeHeader(byte[] buffer, int version, int instanceId, int messageType, int length) {
+		writeShort(buffer, 0, Protocol.SIGNATURE);
+		writeShort(buffer, 2, version);
+		writeInt(buffer, 4, instanceId);
+		writeInt(buffer, 8, messageType);
+		writeInt(buffer, 12, length);
+	}
+
+	static void writeShort(byte[] buffer, int position, int value) {
+		buffer[position] = (byte)(value >> 8);
+		buffer[position + 1] = (byte)value;
+	}
+
+	static void writeInt(byte[] buffer, int position, int value) {
+		buffer[position] = (byte)(value >> 24);
+		buffer[position + 1] = (byte)(value >> 16);
+		buffer[position + 2] = (byte)(value >> 8);
+		buffer[position + 3] = (byte)value;
+	}
+
+	static byte[] encodeControl(CompressionControl control) {
+		int[] ids = control.getCompressorIds();
+		int length = 2 + ids.length;
+		byte[] frame = new byte[HEADER_LENGTH + length];
+		writeHeader(frame, Protocol.VERSION_COMPRESSED, 0, Protocol.CONTROL_MESSAGE_TYPE, length);
+		frame[HEADER_LENGTH] = (byte)control.getType().ordinal();
+		frame[HEADER_LENGTH + 1] = (byte)ids.length;
+		for (int i = 0; i < ids.length; i++)
+			frame[HEADER_LENGTH + 2 + i] = (byte)ids[i];
+		return frame;
+	}
+
+	/**
+	 * Decodes the control message from the remaining bytes of the buffer.
+	 */
+	static CompressionControl decodeControl(ByteBuffer payload) throws IOException {
+		if (payload.remaining() < 2)
+			throw new CorruptedDataException("Truncated control frame");
+		int type = payload.get() & 0xff;
+		int count = payload.get() & 0xff;
+		// local messages are not received
+		if (type != CompressionControl.Type.OFFER.ordinal() && type != CompressionControl.Type.ACK.ordinal())
+			throw new CorruptedDataException("Unknown control message: " + type);
+		if (payload.remaining() != count)
+			throw new CorruptedDataException("Control frame length mismatch");
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++)
+			ids[i] = payload.get() & 0xff;
+		return new CompressionControl(CONTROL_TYPES[type], ids);
+	}
+
+	/**
+	 * Compresses the message into the frame.
+	 *
+	 * @return frame, or null if the message does not compress
+	 */
+	static byte[] compress(FrameCompressor compressor, byte[] message, int messageOffset, int messageLength,
+			int instanceId, int messageType) {
+		int maxLength = messageLength - COMPRESSED_PREFIX_LENGTH - 1;
+		if (maxLength <= 0)
+			return null;
+		byte[] frame = new byte[HEADER_LENGTH + COMPRESSED_PREFIX_LENGTH + maxLength];
+		int length = compressor.compress(message, messageOffset, messageLength,
+				frame, HEADER_LENGTH + COMPRESSED_PREFIX_LENGTH, maxLength);
+		if (length < 0)
+			return null;
+		int payloadLength = COMPRESSED_PREFIX_LENGTH + length;
+		writeHeader(frame, Protocol.VERSION_COMPRESSED, instanceId, messageType, payloadLength);
+		frame[HEADER_LENGTH] = (byte)compressor.getId();
+		writeInt(frame, HEADER_LENGTH + 1, messageLength);
+		return frame.length == HEADER_LENGTH + payloadLength
+				? frame
+				: Arrays.copyOf(frame, HEADER_LENGTH + payloadLength);
+	}
+
+	/**
+	 * Decompresses the message from the remaining bytes of the buffer.
+	 */
+	static byte[] decompress(FrameCompression compression, ByteBuffer payload, int maxMessageLength)
+			throws IOException {
+		if (compression == null)
+			throw new CorruptedDataException("Compressed frames are not supported");
+		if (payload.remaining() < COMPRESSED_PREFIX_LENGTH)
+			throw new CorruptedDataException("Truncated compressed frame");
+		int compressorId = payload.get() & 0xff;
+		// big-endian, independent of the buffer byte order
+		int messageLength = ((payload.get() & 0xff) << 24)
+				| ((payload.get() & 0xff) << 16)
+				| ((payload.get() & 0xff) << 8)
+				| (payload.get() & 0xff);
+		FrameCompressor compressor = compression.getCompressor(compressorId);
+		if (compressor == null)
+			throw new CorruptedDataException("Unsupported compressor: " + compressorId);
+		if (messageLength < 0 || messageLength > maxMessageLength)
+			throw new CorruptedDataException("Compressed message length out of range: " + messageLength);
+
+		byte[] source;
+		int sourceOffset;
+		int sourceLength = payload.remaining();
+		if (payload.hasArray()) {
+			source = payload.array();
+			sourceOffset = payload.arrayOffset() + payload.position();
+		} else {
+			source = new byte[sourceLength];
+			payload.duplicate().get(source);
+			sourceOffset = 0;
+		}
+		byte[] message = new byte[messageLength];
+		compressor.decompress(source, sourceOffset, sourceLength, message, 0, messageLength);
+		payload.position(payload.limit());
+		return message;
+	}
+}
@@ -0,0 +1,83 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Message of the compression negotiation, sent and received through
+ * the session as any other message. Offers and acknowledgements
+ * are encoded as the control frames; enabling is local to the
+ * encoder, that switches the compression of the following frames
+ * and writes nothing.
+ */
+public final class CompressionControl {
+
+	public enum Type {
+		// methods supported by the client
+		OFFER,
+		// method selected by the server, compresses frames
+		// that follow the acknowledgement
+		ACK,
+		// switches the compression of the local encoder
+		ENABLE
+	}
+
+	/**
+	 * Id of the method, when none of the offered ones is supported.
+	 */
+	public static final int NONE = 0;
+
+	private final Type type;
+	private final int[] compressorIds;
+
+	CompressionControl(Type type, int[] compressorIds) {
+		this.type = type;
+		this.compressorIds = compressorIds;
+	}
+
+	public static CompressionControl offer(FrameCompression compression) {
+		if (compression == null)
+			throw new IllegalArgumentException("compression");
+
+		List<FrameCompressor> compressors = compression.getCompressors();
+		int[] ids = new int[compressors.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = compressors.get(i).getId();
+		return new CompressionControl(Type.OFFER, ids);
+	}
+
+	/**
+	 * @param compressorId id of the selected method, or {@link #NONE}
+	 */
+	public static CompressionControl ack(int compressorId) {
+		return new CompressionControl(Type.ACK, new int[] {compressorId});
+	}
+
+	/**
+	 * @param compressorId id of the method, or {@link #NONE} to disable
+	 *                     the compression
+	 */
+	public static CompressionControl enable(int compressorId) {
+		return new CompressionControl(Type.ENABLE, new int[] {compressorId});
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int[] getCompressorIds() {
+		return compressorIds.clone();
+	}
+
+	/**
+	 * Id of the acknowledged or enabled method.
+	 */
+	public int getCompressorId() {
+		return compressorIds.length > 0 ? compressorIds[0] : NONE;
+	}
+
+	@Override
+	public String toString() {
+		return "<CompressionControl> {" + type + " " + Arrays.toString(compressorIds) + "}";
+	}
+}
@@ -0,0 +1,65 @@
+package com.ugcs.ucs.proto.codec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.MessageEvent;
+import com.ugcs.messaging.api.MessageListener;
+import com.ugcs.messaging.api.MessageSession;
+import com.ugcs.messaging.api.MessageSessionEvent;
+import com.ugcs.messaging.api.MessageSessionListenerAdapter;
+
+/**
+ * Server side of the compression negotiation: answers the offers
+ * of the accepted sessions. Should be added to the acceptor,
+ * which codec factory has the same compression:
+ * <pre>
+ * FrameCompression compression = FrameCompression.defaults();
+ * Acceptor acceptor = new MinaAcceptor(
+ *         new MessageWrapperCodecFactory(new HciMessageMapping(), false, compression), null);
+ * acceptor.addSessionListener(new CompressionNegotiator(compression));
+ * </pre>
+ */
+public class CompressionNegotiator extends MessageSessionListenerAdapter {
+
+	private static final Logger log = LoggerFactory.getLogger(CompressionNegotiator.class);
+
+	private final FrameCompression compression;
+
+	public CompressionNegotiator(FrameCompression compression) {
+		if (compression == null)
+			throw new IllegalArgumentException("compression");
+
+		this.compression = compression;
+	}
+
+	private static boolean isOffer(Object message) {
+		return message instanceof CompressionControl
+				&& ((CompressionControl)message).getType() == CompressionControl.Type.OFFER;
+	}
+
+	@Override
+	public void sessionOpened(MessageSessionEvent event) {
+		event.getSession().addListener(new OfferListener(), CompressionNegotiator::isOffer);
+	}
+
+	private final class OfferListener implements MessageListener {
+
+		@Override
+		public void messageReceived(MessageEvent event) {
+			CompressionControl offer = (CompressionControl)event.getMessage();
+			FrameCompressor compressor = compression.select(offer.getCompressorIds());
+			int compressorId = compressor != null
+					? compressor.getId()
+					: CompressionControl.NONE;
+			MessageSession session = event.getSession();
+			log.debug("Compression negotiated {session: {}, compressor: {}}",
+					session.getRemoteAddress(), compressorId);
+			session.send(CompressionControl.ack(compressorId));
+		}
+
+		@Override
+		public void cancelled() {
+		}
+	}
+}
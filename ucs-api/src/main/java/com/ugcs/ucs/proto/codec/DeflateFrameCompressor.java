@@ -0,0 +1,82 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.ugcs.messaging.api.CorruptedDataException;
+
+/**
+ * Deflate (zlib) compression of the JDK: slower than {@link Lz4FrameCompressor},
+ * but compresses better, for the connections with a low bandwidth.
+ */
+public class DeflateFrameCompressor implements FrameCompressor {
+
+	public static final int ID = 1;
+
+	private final int level;
+
+	public DeflateFrameCompressor() {
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * @param level compression level, from 1 (fastest) to 9 (smallest),
+	 *              or {@link Deflater#DEFAULT_COMPRESSION}
+	 */
+	public DeflateFrameCompressor(int level) {
+		if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+				&& level != Deflater.DEFAULT_COMPRESSION)
+			throw new IllegalArgumentException("level");
+
+		this.level = level;
+	}
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	@Override
+	public int compress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int maxLength) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(source, sourceOffset, sourceLength);
+			deflater.finish();
+			int length = 0;
+			while (!deflater.finished() && length < maxLength)
+				length += deflater.deflate(target, targetOffset + length, maxLength - length);
+			return deflater.finished() ? length : -1;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	@Override
+	public void decompress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int targetLength) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(source, sourceOffset, sourceLength);
+			int length = 0;
+			while (!inflater.finished()) {
+				int n = inflater.inflate(target, targetOffset + length, targetLength - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || length == targetLength))
+					break;
+				length += n;
+			}
+			if (!inflater.finished() || length != targetLength)
+				throw new CorruptedDataException("Deflate data length mismatch");
+		} catch (DataFormatException e) {
+			throw new CorruptedDataException("Corrupted deflate data", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
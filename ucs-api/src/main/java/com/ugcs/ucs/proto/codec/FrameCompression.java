@@ -0,0 +1,91 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compression methods a peer supports, in the order of preference,
+ * and the size of the message, from which the frames are compressed.
+ * Smaller frames, and the frames that do not compress, are sent raw.
+ * <p>
+ * Decoders with the compression decode the compressed frames of the
+ * supported methods. Encoders compress frames only after the method
+ * is negotiated with the peer: client offers its methods with
+ * {@link CompressionControl#offer(FrameCompression)}, and the server
+ * side {@link CompressionNegotiator} acknowledges one of them.
+ */
+public final class FrameCompression {
+
+	public static final int DEFAULT_THRESHOLD = 8 * 1024;
+
+	private static final FrameCompression DEFAULTS = new FrameCompression(DEFAULT_THRESHOLD,
+			new DeflateFrameCompressor(), new Lz4FrameCompressor());
+
+	private final int threshold;
+	private final FrameCompressor[] compressors;
+	// compressors by id
+	private final FrameCompressor[] compressorTable = new FrameCompressor[256];
+
+	/**
+	 * @param threshold min length of the message to compress
+	 * @param compressors compression methods, in the order of preference
+	 */
+	public FrameCompression(int threshold, FrameCompressor... compressors) {
+		if (threshold < 0)
+			throw new IllegalArgumentException("threshold");
+		if (compressors == null || compressors.length == 0)
+			throw new IllegalArgumentException("compressors");
+
+		for (FrameCompressor compressor : compressors) {
+			int id = compressor.getId();
+			if (id < 1 || id > 255)
+				throw new IllegalArgumentException("Compressor id out of range: " + id);
+			if (compressorTable[id] != null)
+				throw new IllegalArgumentException("Duplicate compressor id: " + id);
+			compressorTable[id] = compressor;
+		}
+		this.threshold = threshold;
+		this.compressors = compressors.clone();
+	}
+
+	/**
+	 * Deflate and LZ4, with the {@link #DEFAULT_THRESHOLD}.
+	 */
+	public static FrameCompression defaults() {
+		return DEFAULTS;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public List<FrameCompressor> getCompressors() {
+		return Arrays.asList(compressors.clone());
+	}
+
+	/**
+	 * @return compressor with the id, or null if the method is not supported
+	 */
+	public FrameCompressor getCompressor(int id) {
+		return id >= 0 && id < compressorTable.length
+				? compressorTable[id]
+				: null;
+	}
+
+	/**
+	 * Selects the preferred method of the offered ones.
+	 *
+	 * @return compressor, or null if none of the methods is supported
+	 */
+	public FrameCompressor select(int[] offeredIds) {
+		if (offeredIds == null)
+			return null;
+		for (FrameCompressor compressor : compressors) {
+			for (int id : offeredIds) {
+				if (compressor.getId() == id)
+					return compressor;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,37 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+
+/**
+ * Compression method of the message frames. Implementations
+ * should be thread-safe, as a single instance is shared by the
+ * encoders and decoders of all sessions.
+ *
+ * @see FrameCompression
+ */
+public interface FrameCompressor {
+
+	/**
+	 * Id of the method in the frames and the negotiation messages,
+	 * unique within {@link FrameCompression}, from 1 to 255.
+	 */
+	int getId();
+
+	/**
+	 * Compresses the data into the target array.
+	 *
+	 * @param maxLength max length of the compressed data
+	 * @return length of the compressed data, or -1 if it does not fit
+	 *         the max length
+	 */
+	int compress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int maxLength);
+
+	/**
+	 * Decompresses the data, that should fill the target length exactly.
+	 *
+	 * @throws IOException if the data is corrupted
+	 */
+	void decompress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int targetLength) throws IOException;
+}
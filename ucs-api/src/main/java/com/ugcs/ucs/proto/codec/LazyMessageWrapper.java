@@ -0,0 +1,65 @@
+package com.ugcs.ucs.proto.codec;
+
+import com.google.protobuf.Message;
+
+/**
+ * Wrapper of the received message, that keeps the message bytes
+ * and decodes them on the first call of {@link #getMessage()}.
+ * Header fields are available right away, so messages are selected
+ * by the instance and type ids without decoding, and the messages
+ * nobody takes are never decoded.
+ */
+public class LazyMessageWrapper extends MessageWrapper {
+
+	private final ProtoMessageDecoder protoDecoder;
+	private final ProtoMessageMapping protoMapping;
+
+	// message bytes, released once decoded
+	private byte[] messageData;
+	private volatile Message message;
+
+	public LazyMessageWrapper(byte[] messageData, int instanceId, int messageType,
+			ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping) {
+		super(instanceId, messageType);
+
+		if (messageData == null)
+			throw new IllegalArgumentException("messageData");
+		if (protoDecoder == null)
+			throw new IllegalArgumentException("protoDecoder");
+		if (protoMapping == null)
+			throw new IllegalArgumentException("protoMapping");
+
+		this.messageData = messageData;
+		this.protoDecoder = protoDecoder;
+		this.protoMapping = protoMapping;
+	}
+
+	public boolean isDecoded() {
+		return message != null;
+	}
+
+	/**
+	 * Decodes the message on the first call.
+	 *
+	 * @throws IllegalStateException if the message cannot be decoded
+	 */
+	@Override
+	public Message getMessage() {
+		Message message = this.message;
+		if (message == null) {
+			synchronized (this) {
+				message = this.message;
+				if (message == null) {
+					try {
+						message = protoDecoder.decode(messageData, protoMapping.getDefaultInstance(getMessageType()));
+					} catch (Exception e) {
+						throw new IllegalStateException("Message decoding error, type: " + getMessageType(), e);
+					}
+					this.message = message;
+					messageData = null;
+				}
+			}
+		}
+		return message;
+	}
+}
@@ -0,0 +1,196 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+
+import com.ugcs.messaging.api.CorruptedDataException;
+
+/**
+ * Fast compression in the LZ4 block format: a greedy single pass
+ * matcher, that compresses several times faster than Deflate
+ * at a worse ratio. Data is compatible with the reference LZ4
+ * block decoders.
+ */
+public class Lz4FrameCompressor implements FrameCompressor {
+
+	public static final int ID = 2;
+
+	private static final int MIN_MATCH = 4;
+	// last literals the block should end with
+	private static final int LAST_LITERALS = 5;
+	// last match should start that far from the end
+	private static final int MATCH_FIND_LIMIT = 12;
+	private static final int MAX_OFFSET = 0xffff;
+
+	private static final int HASH_LOG = 14;
+	private static final int SKIP_TRIGGER = 6;
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	private static int readInt(byte[] buffer, int index) {
+		return (buffer[index] & 0xff)
+				| ((buffer[index + 1] & 0xff) << 8)
+				| ((buffer[index + 2] & 0xff) << 16)
+				| ((buffer[index + 3] & 0xff) << 24);
+	}
+
+	private static int hash(int value) {
+		return (value * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	// length of the extra length bytes
+	private static int extraLength(int length) {
+		return length >= 15 ? (length - 15) / 255 + 1 : 0;
+	}
+
+	private static int writeExtraLength(byte[] target, int index, int length) {
+		length -= 15;
+		while (length >= 255) {
+			target[index++] = (byte)255;
+			length -= 255;
+		}
+		target[index++] = (byte)length;
+		return index;
+	}
+
+	// writes literals and a match (if match length is positive),
+	// returns the new target index, or -1 if the sequence does not fit
+	private static int writeSequence(byte[] source, int literalStart, int literalLength,
+			int offset, int matchLength, byte[] target, int index, int targetEnd) {
+		int required = 1 + extraLength(literalLength) + literalLength;
+		if (matchLength > 0)
+			required += 2 + extraLength(matchLength - MIN_MATCH);
+		if (required > targetEnd - index)
+			return -1;
+
+		int tokenIndex = index++;
+		int token = Math.min(literalLength, 15) << 4;
+		if (literalLength >= 15)
+			index = writeExtraLength(target, index, literalLength);
+		System.arraycopy(source, literalStart, target, index, literalLength);
+		index += literalLength;
+		if (matchLength > 0) {
+			target[index++] = (byte)offset;
+			target[index++] = (byte)(offset >>> 8);
+			int length = matchLength - MIN_MATCH;
+			token |= Math.min(length, 15);
+			if (length >= 15)
+				index = writeExtraLength(target, index, length);
+		}
+		target[tokenIndex] = (byte)token;
+		return index;
+	}
+
+	@Override
+	public int compress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int maxLength) {
+		int sourceEnd = sourceOffset + sourceLength;
+		int targetEnd = targetOffset + Math.min(maxLength, target.length - targetOffset);
+		int index = targetOffset;
+		int anchor = sourceOffset;
+
+		if (sourceLength > MATCH_FIND_LIMIT) {
+			// positions + 1, zero is an empty slot
+			int[] table = new int[1 << HASH_LOG];
+			int matchFindEnd = sourceEnd - MATCH_FIND_LIMIT;
+			int matchEnd = sourceEnd - LAST_LITERALS;
+			int position = sourceOffset;
+			while (position < matchFindEnd) {
+				int value = readInt(source, position);
+				int h = hash(value);
+				int reference = table[h] - 1;
+				table[h] = position + 1;
+				if (reference < 0
+						|| position - reference > MAX_OFFSET
+						|| readInt(source, reference) != value) {
+					// steps up on the data that does not compress
+					position += 1 + ((position - anchor) >>> SKIP_TRIGGER);
+					continue;
+				}
+				// extends the match backwards
+				while (position > anchor && reference > sourceOffset
+						&& source[position - 1] == source[reference - 1]) {
+					position--;
+					reference--;
+				}
+				int matchLength = MIN_MATCH;
+				while (position + matchLength < matchEnd
+						&& source[position + matchLength] == source[reference + matchLength])
+					matchLength++;
+
+				index = writeSequence(source, anchor, position - anchor,
+						position - reference, matchLength, target, index, targetEnd);
+				if (index < 0)
+					return -1;
+				position += matchLength;
+				anchor = position;
+			}
+		}
+		index = writeSequence(source, anchor, sourceEnd - anchor, 0, 0, target, index, targetEnd);
+		return index < 0 ? -1 : index - targetOffset;
+	}
+
+	private static int readExtraLength(byte[] source, int[] index, int sourceEnd) throws IOException {
+		int length = 0;
+		int b;
+		do {
+			if (index[0] >= sourceEnd)
+				throw new CorruptedDataException("Truncated LZ4 data");
+			b = source[index[0]++] & 0xff;
+			length += b;
+		} while (b == 255);
+		return length;
+	}
+
+	@Override
+	public void decompress(byte[] source, int sourceOffset, int sourceLength,
+			byte[] target, int targetOffset, int targetLength) throws IOException {
+		int sourceEnd = sourceOffset + sourceLength;
+		int targetEnd = targetOffset + targetLength;
+		int[] index = {sourceOffset};
+		int position = targetOffset;
+		while (true) {
+			if (index[0] >= sourceEnd)
+				throw new CorruptedDataException("Truncated LZ4 data");
+			int token = source[index[0]++] & 0xff;
+
+			// literals
+			int literalLength = token >>> 4;
+			if (literalLength == 15)
+				literalLength += readExtraLength(source, index, sourceEnd);
+			if (literalLength > sourceEnd - index[0] || literalLength > targetEnd - position)
+				throw new CorruptedDataException("Corrupted LZ4 data");
+			System.arraycopy(source, index[0], target, position, literalLength);
+			index[0] += literalLength;
+			position += literalLength;
+			// block ends with the literals
+			if (index[0] == sourceEnd)
+				break;
+
+			// match
+			if (sourceEnd - index[0] < 2)
+				throw new CorruptedDataException("Truncated LZ4 data");
+			int offset = (source[index[0]] & 0xff) | ((source[index[0] + 1] & 0xff) << 8);
+			index[0] += 2;
+			int matchLength = token & 0x0f;
+			if (matchLength == 15)
+				matchLength += readExtraLength(source, index, sourceEnd);
+			matchLength += MIN_MATCH;
+			if (offset == 0 || offset > position - targetOffset || matchLength > targetEnd - position)
+				throw new CorruptedDataException("Corrupted LZ4 data");
+			int reference = position - offset;
+			if (offset >= matchLength) {
+				System.arraycopy(target, reference, target, position, matchLength);
+				position += matchLength;
+			} else {
+				// overlapping match repeats the last bytes
+				for (int i = 0; i < matchLength; i++)
+					target[position++] = target[reference++];
+			}
+		}
+		if (position != targetEnd)
+			throw new CorruptedDataException("LZ4 data length mismatch");
+	}
+}
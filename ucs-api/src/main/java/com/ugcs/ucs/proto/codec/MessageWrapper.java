@@ -6,20 +6,51 @@ import com.google.protobuf.Message;
 
 public class MessageWrapper {
 
+	/**
+	 * Type id of the wrapper, that is not decoded from a frame.
+	 */
+	public static final int UNKNOWN_TYPE = -1;
+
 	private final Message message;
 	private final int instanceId;
+	private final int messageType;
 
 	public MessageWrapper(Message message, int instanceId) {
+		this(message, instanceId, UNKNOWN_TYPE);
+	}
+
+	public MessageWrapper(Message message, int instanceId, int messageType) {
 		Objects.requireNonNull(message);
 
 		this.message = message;
 		this.instanceId = instanceId;
+		this.messageType = messageType;
+	}
+
+	/**
+	 * Wrapper of the message, that is provided by {@link #getMessage()}
+	 * of the subclass.
+	 */
+	protected MessageWrapper(int instanceId, int messageType) {
+		this.message = null;
+		this.instanceId = instanceId;
+		this.messageType = messageType;
 	}
 
 	public int getInstanceId() {
 		return instanceId;
 	}
 
+	/**
+	 * Type id of the message from the frame header, available without
+	 * decoding the message.
+	 *
+	 * @return type id or {@link #UNKNOWN_TYPE}
+	 */
+	public int getMessageType() {
+		return messageType;
+	}
+
 	public Message getMessage() {
 		return message;
 	}
@@ -31,7 +62,7 @@ public class MessageWrapper {
 				.append("\n\tinstanceId: ")
 				.append(Integer.toString(instanceId))
 				.append("\n\tmessage: ")
-				.append(message)
+				.append(getMessage())
 				.append("\n}")
 				.toString();
 	}
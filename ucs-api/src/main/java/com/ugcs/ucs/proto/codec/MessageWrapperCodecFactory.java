@@ -7,23 +7,56 @@ import com.ugcs.messaging.api.MessageEncoder;
 public class MessageWrapperCodecFactory implements CodecFactory {
 
 	private final ProtoMessageMapping protoMapping;
+	private final boolean lazyDecoding;
+	private final FrameCompression compression;
+	private final ResponseStreams responseStreams;
 
 	public MessageWrapperCodecFactory(ProtoMessageMapping protoMapping) {
+		this(protoMapping, false);
+	}
+
+	/**
+	 * @param lazyDecoding decoded messages are {@link LazyMessageWrapper}s
+	 */
+	public MessageWrapperCodecFactory(ProtoMessageMapping protoMapping, boolean lazyDecoding) {
+		this(protoMapping, lazyDecoding, null);
+	}
+
+	/**
+	 * @param compression methods of the frame compression, or null;
+	 *                    frames are compressed once the method
+	 *                    is negotiated (see {@link CompressionControl})
+	 */
+	public MessageWrapperCodecFactory(ProtoMessageMapping protoMapping, boolean lazyDecoding,
+			FrameCompression compression) {
+		this(protoMapping, lazyDecoding, compression, null);
+	}
+
+	/**
+	 * @param responseStreams consumers of the streamed responses, shared
+	 *                        by the decoders, or null if the responses
+	 *                        are decoded whole
+	 */
+	public MessageWrapperCodecFactory(ProtoMessageMapping protoMapping, boolean lazyDecoding,
+			FrameCompression compression, ResponseStreams responseStreams) {
 		if (protoMapping == null)
 			throw new IllegalArgumentException("protoMapping");
 
 		this.protoMapping = protoMapping;
+		this.lazyDecoding = lazyDecoding;
+		this.compression = compression;
+		this.responseStreams = responseStreams;
 	}
 
 	@Override
 	public MessageEncoder getEncoder() {
 		return new MessageWrapperEncoder(
-				new ProtoBinaryEncoder(), protoMapping);
+				new ProtoBinaryEncoder(), protoMapping, compression);
 	}
 
 	@Override
 	public MessageDecoder getDecoder() {
-		return new MessageWrapperDecoder(
-				new ProtoBinaryDecoder(), protoMapping);
+		return new MessageWrapperFrameDecoder(
+				new ProtoBinaryDecoder(), protoMapping, lazyDecoding, compression, responseStreams);
 	}
 }
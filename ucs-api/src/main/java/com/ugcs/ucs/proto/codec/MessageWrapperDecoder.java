@@ -28,9 +28,46 @@ public class MessageWrapperDecoder implements MessageDecoder {
 
 	private final ProtoMessageMapping protoMapping;
 
+	private final boolean lazy;
+
+	private final FrameCompression compression;
+
+	private final ResponseStreams responseStreams;
+
 	private final CircularBuffer decoderBuffer = new CircularBuffer();
 
+	// frame being streamed, if any
+	private StreamedFrame stream;
+
+	private byte[] streamChunk;
+
 	public MessageWrapperDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping) {
+		this(protoDecoder, protoMapping, false);
+	}
+
+	/**
+	 * @param lazy produce {@link LazyMessageWrapper}s, those keep
+	 *             the message bytes to be decoded on demand
+	 */
+	public MessageWrapperDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy) {
+		this(protoDecoder, protoMapping, lazy, null);
+	}
+
+	/**
+	 * @param compression methods of the compressed frames,
+	 *                    or null if those are not supported
+	 */
+	public MessageWrapperDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy,
+			FrameCompression compression) {
+		this(protoDecoder, protoMapping, lazy, compression, null);
+	}
+
+	/**
+	 * @param responseStreams consumers of the streamed responses, or null
+	 *                        if the responses are decoded whole
+	 */
+	public MessageWrapperDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy,
+			FrameCompression compression, ResponseStreams responseStreams) {
 		if (protoDecoder == null)
 			throw new IllegalArgumentException("protoDecoder");
 		if (protoMapping == null)
@@ -38,6 +75,9 @@ public class MessageWrapperDecoder implements MessageDecoder {
 
 		this.protoDecoder = protoDecoder;
 		this.protoMapping = protoMapping;
+		this.lazy = lazy;
+		this.compression = compression;
+		this.responseStreams = responseStreams;
 	}
 
 	private void fillBuffer(ByteBuffer buffer) throws IOException {
@@ -92,6 +132,76 @@ public class MessageWrapperDecoder implements MessageDecoder {
 		return true;
 	}
 
+	// opens the stream of the first frame, if the frame is streamed;
+	// frame header is consumed then
+	private boolean openStream(InputStream in) throws IOException {
+		if (responseStreams == null || in.available() < 16)
+			return false;
+		in.mark(16);
+		int protocolSignature = readShort(in) & 0xffff;
+		int protocolVersion = readShort(in) & 0xffff;
+		int instanceId = readInt(in);
+		int messageType = readInt(in);
+		int messageLength = readInt(in);
+		if (protocolSignature == Protocol.SIGNATURE
+				&& protocolVersion == Protocol.VERSION
+				&& messageLength >= 0 && messageLength <= MAX_MESSAGE_LENGTH)
+			stream = responseStreams.open(instanceId, messageType, messageLength, protoMapping, protoDecoder);
+		if (stream == null)
+			in.reset();
+		return stream != null;
+	}
+
+	// returns false if the buffered data is not enough
+	// to complete the streamed frame
+	private boolean feedStream(InputStream in, List<Object> result) throws IOException {
+		if (streamChunk == null)
+			streamChunk = new byte[8192];
+		while (!stream.isComplete()) {
+			// buffer stream reads are bounded by the data available
+			int length = Math.min(Math.min(streamChunk.length, stream.getRemaining()), in.available());
+			if (length == 0)
+				return false;
+			length = in.read(streamChunk, 0, length);
+			stream.feed(ByteBuffer.wrap(streamChunk, 0, length));
+		}
+
+		Object decodedMessage = null;
+		try {
+			decodedMessage = stream.complete();
+		} catch (Exception e) {
+			if (log.isDebugEnabled())
+				log.error("Decoder error", e);
+			else
+				log.warn("Decoder error: {}", e.getMessage());
+		} finally {
+			stream.release();
+			stream = null;
+		}
+		if (decodedMessage != null) {
+			if (log.isDebugEnabled())
+				log.debug("<--- Decoded message:\n{}", decodedMessage);
+			result.add(decodedMessage);
+		}
+		return true;
+	}
+
+	private Object decodeMessage(byte[] messageData, int instanceId, int messageType) throws Exception {
+		if (!protoMapping.isMapped(messageType))
+			throw new CorruptedDataException("Unknown message type: " + messageType);
+		if (lazy)
+			return new LazyMessageWrapper(messageData, instanceId, messageType, protoDecoder, protoMapping);
+		Message protoMessage = protoDecoder.decode(messageData, protoMapping.getDefaultInstance(messageType));
+		return new MessageWrapper(protoMessage, instanceId, messageType);
+	}
+
+	private Object decodeCompressed(ByteBuffer payload, int instanceId, int messageType) throws Exception {
+		if (messageType == Protocol.CONTROL_MESSAGE_TYPE)
+			return CompressedFrames.decodeControl(payload);
+		byte[] messageData = CompressedFrames.decompress(compression, payload, MAX_MESSAGE_LENGTH);
+		return decodeMessage(messageData, instanceId, messageType);
+	}
+
 	private Object decodeFirst(InputStream in) throws Exception {
 		// header
 		int protocolSignature = readShort(in) & 0xffff;
@@ -113,12 +223,14 @@ public class MessageWrapperDecoder implements MessageDecoder {
 		// checks: signature & version
 		if (protocolSignature != Protocol.SIGNATURE)
 			throw new CorruptedDataException("Protocol signature error");
-		if (protocolVersion != Protocol.VERSION)
+		if (protocolVersion != Protocol.VERSION
+				&& !(protocolVersion == Protocol.VERSION_COMPRESSED && compression != null))
 			throw new CorruptedDataException("Unsupported protocol version: " + protocolVersion);
 
 		// well-formed message received
-		Message protoMessage = protoDecoder.decode(messageData, protoMapping.getMessageClass(messageType));
-		return new MessageWrapper(protoMessage, instanceId);
+		if (protocolVersion == Protocol.VERSION_COMPRESSED)
+			return decodeCompressed(ByteBuffer.wrap(messageData), instanceId, messageType);
+		return decodeMessage(messageData, instanceId, messageType);
 	}
 
 	@Override
@@ -127,7 +239,16 @@ public class MessageWrapperDecoder implements MessageDecoder {
 		InputStream in = decoderBuffer.getInputStream();
 
 		List<Object> result = new ArrayList<>();
-		while (isDecodable(in)) {
+		while (true) {
+			// streamed frames are passed through the buffer
+			// by chunks, as the data arrives
+			if (stream != null || openStream(in)) {
+				if (!feedStream(in, result))
+					break;
+				continue;
+			}
+			if (!isDecodable(in))
+				break;
 			Object decodedMessage = null;
 			try {
 				decodedMessage = decodeFirst(in);
@@ -148,5 +269,9 @@ public class MessageWrapperDecoder implements MessageDecoder {
 
 	@Override
 	public void close() throws Exception {
+		if (stream != null) {
+			stream.release();
+			stream = null;
+		}
 	}
 }
@@ -1,19 +1,37 @@
 package com.ugcs.ucs.proto.codec;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.protobuf.Message;
-import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.StreamingMessageEncoder;
 
-public class MessageWrapperEncoder implements MessageEncoder {
+public class MessageWrapperEncoder implements StreamingMessageEncoder {
 
 	private static final Logger log = LoggerFactory.getLogger(MessageWrapperEncoder.class);
 
+	private static final int HEADER_LENGTH = 16;
+
 	private final ProtoMessageEncoder protoEncoder;
 	private final ProtoMessageMapping protoMapping;
+	private final FrameCompression compression;
+
+	// negotiated compression, null while the frames are sent raw
+	private volatile FrameCompressor compressor;
 
 	public MessageWrapperEncoder(ProtoMessageEncoder protoEncoder, ProtoMessageMapping protoMapping) {
+		this(protoEncoder, protoMapping, null);
+	}
+
+	/**
+	 * @param compression methods, that may be enabled by the
+	 *                    {@link CompressionControl} messages, or null
+	 */
+	public MessageWrapperEncoder(ProtoMessageEncoder protoEncoder, ProtoMessageMapping protoMapping,
+			FrameCompression compression) {
 		if (protoEncoder == null)
 			throw new IllegalArgumentException("protoEncoder");
 		if (protoMapping == null)
@@ -21,6 +39,7 @@ public class MessageWrapperEncoder implements MessageEncoder {
 
 		this.protoEncoder = protoEncoder;
 		this.protoMapping = protoMapping;
+		this.compression = compression;
 	}
 
 	private void writeShort(byte[] buffer, int position, short value) {
@@ -35,31 +54,143 @@ public class MessageWrapperEncoder implements MessageEncoder {
 		buffer[position + 3] = (byte)value;
 	}
 
-	@Override
-	public byte[] encode(Object message) throws Exception {
+	private void writeHeader(byte[] buffer, MessageWrapper messageWrapper, int messageType, int messageLength) {
+		writeShort(buffer, 0, (short)Protocol.SIGNATURE);
+		writeShort(buffer, 2, (short)Protocol.VERSION);
+		writeInt(buffer, 4, messageWrapper.getInstanceId());
+		writeInt(buffer, 8, messageType);
+		writeInt(buffer, 12, messageLength);
+	}
+
+	private static MessageWrapper unwrap(Object message) {
 		if (message == null)
-			return new byte[0];
+			return null;
 		if (!(message instanceof MessageWrapper))
+			return null;
+		return (MessageWrapper)message;
+	}
+
+	private FrameCompressor getCompressor(int compressorId) {
+		if (compressorId == CompressionControl.NONE)
+			return null;
+		FrameCompressor compressor = compression != null
+				? compression.getCompressor(compressorId)
+				: null;
+		if (compressor == null)
+			throw new IllegalStateException("Unsupported compressor: " + compressorId);
+		return compressor;
+	}
+
+	private byte[] encodeControl(CompressionControl control) {
+		if (log.isDebugEnabled())
+			log.debug("---> Encoding message:\n{}", control);
+
+		switch (control.getType()) {
+			case OFFER:
+				return CompressedFrames.encodeControl(control);
+			case ACK:
+				// frames that follow the acknowledgement are compressed
+				FrameCompressor ackCompressor = getCompressor(control.getCompressorId());
+				byte[] frame = CompressedFrames.encodeControl(control);
+				compressor = ackCompressor;
+				return frame;
+			default:
+				compressor = getCompressor(control.getCompressorId());
+				return new byte[0];
+		}
+	}
+
+	private boolean isCompressed(int messageLength) {
+		return compressor != null
+				&& messageLength >= compression.getThreshold();
+	}
+
+	// returns null if the frame is sent raw
+	private byte[] compress(byte[] message, int offset, int length, MessageWrapper messageWrapper, int messageType) {
+		FrameCompressor compressor = this.compressor;
+		if (compressor == null || length < compression.getThreshold())
+			return null;
+		return CompressedFrames.compress(compressor, message, offset, length,
+				messageWrapper.getInstanceId(), messageType);
+	}
+
+	@Override
+	public byte[] encode(Object message) throws Exception {
+		if (message instanceof CompressionControl)
+			return encodeControl((CompressionControl)message);
+
+		MessageWrapper messageWrapper = unwrap(message);
+		if (messageWrapper == null)
 			return new byte[0];
 
 		if (log.isDebugEnabled())
 			log.debug("---> Encoding message:\n{}", message);
 
-		MessageWrapper messageWrapper = (MessageWrapper)message;
 		Message protoMessage = messageWrapper.getMessage();
 		int messageType = protoMapping.getMessageType(protoMessage.getClass());
+		int messageLength = protoEncoder.getEncodedSize(protoMessage);
+		if (messageLength >= 0) {
+			// message is encoded right after the header
+			byte[] buffer = new byte[HEADER_LENGTH + messageLength];
+			writeHeader(buffer, messageWrapper, messageType, messageLength);
+			protoEncoder.encode(protoMessage, ByteBuffer.wrap(buffer, HEADER_LENGTH, messageLength));
+			byte[] compressed = compress(buffer, HEADER_LENGTH, messageLength, messageWrapper, messageType);
+			return compressed != null ? compressed : buffer;
+		}
+
 		byte[] messageData = protoEncoder.encode(protoMessage);
+		byte[] compressed = compress(messageData, 0, messageData.length, messageWrapper, messageType);
+		if (compressed != null)
+			return compressed;
 
-		byte[] buffer = new byte[16 + messageData.length];
-		writeShort(buffer, 0, (short)Protocol.SIGNATURE);
-		writeShort(buffer, 2, (short)Protocol.VERSION);
-		writeInt(buffer, 4, messageWrapper.getInstanceId());
-		writeInt(buffer, 8, messageType);
-		writeInt(buffer, 12, messageData.length);
-		System.arraycopy(messageData, 0, buffer, 16, messageData.length);
+		byte[] buffer = new byte[HEADER_LENGTH + messageData.length];
+		writeHeader(buffer, messageWrapper, messageType, messageData.length);
+		System.arraycopy(messageData, 0, buffer, HEADER_LENGTH, messageData.length);
 		return buffer;
 	}
 
+	@Override
+	public int encodedLength(Object message) throws Exception {
+		if (message instanceof CompressionControl)
+			return -1;
+
+		MessageWrapper messageWrapper = unwrap(message);
+		if (messageWrapper == null)
+			return 0;
+
+		int messageLength = protoEncoder.getEncodedSize(messageWrapper.getMessage());
+		// compressed frames are encoded to arrays
+		return messageLength >= 0 && !isCompressed(messageLength)
+				? HEADER_LENGTH + messageLength
+				: -1;
+	}
+
+	@Override
+	public void encode(Object message, ByteBuffer buffer) throws Exception {
+		MessageWrapper messageWrapper = unwrap(message);
+		if (messageWrapper == null)
+			return;
+
+		if (log.isDebugEnabled())
+			log.debug("---> Encoding message:\n{}", message);
+
+		Message protoMessage = messageWrapper.getMessage();
+		int messageType = protoMapping.getMessageType(protoMessage.getClass());
+		int messageLength = protoEncoder.getEncodedSize(protoMessage);
+		if (messageLength < 0)
+			throw new IllegalStateException("Message size is unknown");
+
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		buffer.putShort((short)Protocol.SIGNATURE);
+		buffer.putShort((short)Protocol.VERSION);
+		buffer.putInt(messageWrapper.getInstanceId());
+		buffer.putInt(messageType);
+		buffer.putInt(messageLength);
+		buffer.order(order);
+		protoEncoder.encode(protoMessage, buffer);
+	}
+
 	@Override
 	public void close() throws Exception {
 	}
@@ -0,0 +1,335 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.Message;
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.messaging.api.CorruptedDataException;
+import com.ugcs.messaging.api.MessageDecoder;
+
+/**
+ * Decoder of the wrapped messages, that parses complete frames in place,
+ * right from the buffer passed to {@link #decode(ByteBuffer)}. Only the
+ * trailing partial frame is copied to be completed by the next buffers.
+ * Decodes the same frames as {@link MessageWrapperDecoder}, including
+ * the streamed ones (see {@link ResponseStreams}). Partial frame buffers
+ * are taken from the default {@link BufferPool}.
+ */
+public class MessageWrapperFrameDecoder implements MessageDecoder {
+
+	private static final Logger log = LoggerFactory.getLogger(MessageWrapperFrameDecoder.class);
+
+	private static final int MAX_MESSAGE_LENGTH = 64 * 1024 * 1024; // 64 MB
+
+	private static final int HEADER_LENGTH = 16;
+
+	// partial frame buffers larger than that are not kept between frames
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final ProtoMessageDecoder protoDecoder;
+
+	private final ProtoMessageMapping protoMapping;
+
+	private final boolean lazy;
+
+	private final FrameCompression compression;
+
+	private final ResponseStreams responseStreams;
+
+	private final BufferPool pool = BufferPool.getDefault();
+
+	// partial frame, in the write mode
+	private ByteBuffer partial;
+
+	// frame being streamed, if any
+	private StreamedFrame stream;
+
+	public MessageWrapperFrameDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping) {
+		this(protoDecoder, protoMapping, false);
+	}
+
+	/**
+	 * @param lazy produce {@link LazyMessageWrapper}s, those keep
+	 *             the message bytes to be decoded on demand
+	 */
+	public MessageWrapperFrameDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy) {
+		this(protoDecoder, protoMapping, lazy, null);
+	}
+
+	/**
+	 * @param compression methods of the compressed frames,
+	 *                    or null if those are not supported
+	 */
+	public MessageWrapperFrameDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy,
+			FrameCompression compression) {
+		this(protoDecoder, protoMapping, lazy, compression, null);
+	}
+
+	/**
+	 * @param responseStreams consumers of the streamed responses, or null
+	 *                        if the responses are decoded whole
+	 */
+	public MessageWrapperFrameDecoder(ProtoMessageDecoder protoDecoder, ProtoMessageMapping protoMapping, boolean lazy,
+			FrameCompression compression, ResponseStreams responseStreams) {
+		if (protoDecoder == null)
+			throw new IllegalArgumentException("protoDecoder");
+		if (protoMapping == null)
+			throw new IllegalArgumentException("protoMapping");
+
+		this.protoDecoder = protoDecoder;
+		this.protoMapping = protoMapping;
+		this.lazy = lazy;
+		this.compression = compression;
+		this.responseStreams = responseStreams;
+	}
+
+	// absolute big-endian reads, independent of the buffer byte order
+
+	private static int getShort(ByteBuffer buffer, int index) {
+		return ((buffer.get(index) & 0xff) << 8)
+				| (buffer.get(index + 1) & 0xff);
+	}
+
+	private static int getInt(ByteBuffer buffer, int index) {
+		return ((buffer.get(index) & 0xff) << 24)
+				| ((buffer.get(index + 1) & 0xff) << 16)
+				| ((buffer.get(index + 2) & 0xff) << 8)
+				| (buffer.get(index + 3) & 0xff);
+	}
+
+	private static int getMessageLength(ByteBuffer buffer, int frameStart) throws CorruptedDataException {
+		int messageLength = getInt(buffer, frameStart + 12);
+		if (messageLength < 0 || messageLength > MAX_MESSAGE_LENGTH)
+			throw new CorruptedDataException("Garbage or corrupted data now receiving in connection");
+		return messageLength;
+	}
+
+	private Object decodeMessage(byte[] messageData, int instanceId, int messageType) throws Exception {
+		if (!protoMapping.isMapped(messageType))
+			throw new CorruptedDataException("Unknown message type: " + messageType);
+		if (lazy)
+			return new LazyMessageWrapper(messageData, instanceId, messageType, protoDecoder, protoMapping);
+		Message protoMessage = protoDecoder.decode(messageData, protoMapping.getDefaultInstance(messageType));
+		return new MessageWrapper(protoMessage, instanceId, messageType);
+	}
+
+	private Object decodeCompressed(ByteBuffer payload, int instanceId, int messageType) throws Exception {
+		if (messageType == Protocol.CONTROL_MESSAGE_TYPE)
+			return CompressedFrames.decodeControl(payload);
+		byte[] messageData = CompressedFrames.decompress(compression, payload, MAX_MESSAGE_LENGTH);
+		return decodeMessage(messageData, instanceId, messageType);
+	}
+
+	// decodes a complete frame at the buffer position,
+	// buffer limit should be the frame end
+	private Object decodeFrame(ByteBuffer buffer) throws Exception {
+		int frameStart = buffer.position();
+
+		// header
+		int protocolSignature = getShort(buffer, frameStart);
+		int protocolVersion = getShort(buffer, frameStart + 2);
+		int instanceId = getInt(buffer, frameStart + 4);
+		int messageType = getInt(buffer, frameStart + 8);
+
+		// checks: signature & version
+		if (protocolSignature != Protocol.SIGNATURE)
+			throw new CorruptedDataException("Protocol signature error");
+		if (protocolVersion != Protocol.VERSION
+				&& !(protocolVersion == Protocol.VERSION_COMPRESSED && compression != null))
+			throw new CorruptedDataException("Unsupported protocol version: " + protocolVersion);
+
+		// well-formed message received
+		buffer.position(frameStart + HEADER_LENGTH);
+		if (protocolVersion == Protocol.VERSION_COMPRESSED)
+			return decodeCompressed(buffer, instanceId, messageType);
+		if (lazy) {
+			// buffer is reused by the transport, message bytes are copied
+			byte[] messageData = new byte[buffer.remaining()];
+			buffer.get(messageData);
+			return decodeMessage(messageData, instanceId, messageType);
+		}
+		Message protoMessage = protoDecoder.decode(buffer, protoMapping.getDefaultInstance(messageType));
+		return new MessageWrapper(protoMessage, instanceId, messageType);
+	}
+
+	private void decodeFrame(ByteBuffer buffer, int frameEnd, List<Object> result) {
+		int limit = buffer.limit();
+		buffer.limit(frameEnd);
+		Object decodedMessage = null;
+		try {
+			decodedMessage = decodeFrame(buffer);
+		} catch (Exception e) {
+			if (log.isDebugEnabled())
+				log.error("Decoder error", e);
+			else
+				log.warn("Decoder error: {}", e.getMessage());
+		} finally {
+			buffer.limit(limit);
+			buffer.position(frameEnd);
+		}
+		if (decodedMessage != null) {
+			if (log.isDebugEnabled())
+				log.debug("<--- Decoded message:\n{}", decodedMessage);
+			result.add(decodedMessage);
+		}
+	}
+
+	// opens the stream of the frame at the index, if the frame is streamed;
+	// frame header should be available
+	private boolean openStream(ByteBuffer buffer, int frameStart) throws CorruptedDataException {
+		if (responseStreams == null
+				|| getShort(buffer, frameStart) != Protocol.SIGNATURE
+				|| getShort(buffer, frameStart + 2) != Protocol.VERSION)
+			return false;
+		stream = responseStreams.open(
+				getInt(buffer, frameStart + 4),
+				getInt(buffer, frameStart + 8),
+				getMessageLength(buffer, frameStart),
+				protoMapping,
+				protoDecoder);
+		return stream != null;
+	}
+
+	// returns false if the buffer has not enough data
+	// to complete the streamed frame
+	private boolean feedStream(ByteBuffer buffer, List<Object> result) {
+		stream.feed(buffer);
+		if (!stream.isComplete())
+			return false;
+
+		Object decodedMessage = null;
+		try {
+			decodedMessage = stream.complete();
+		} catch (Exception e) {
+			if (log.isDebugEnabled())
+				log.error("Decoder error", e);
+			else
+				log.warn("Decoder error: {}", e.getMessage());
+		} finally {
+			stream.release();
+			stream = null;
+		}
+		if (decodedMessage != null) {
+			if (log.isDebugEnabled())
+				log.debug("<--- Decoded message:\n{}", decodedMessage);
+			result.add(decodedMessage);
+		}
+		return true;
+	}
+
+	private ByteBuffer acquirePartial(int capacity) {
+		return ByteBuffer.wrap(pool.acquire(capacity));
+	}
+
+	private void releasePartial() {
+		if (partial != null) {
+			pool.release(partial.array());
+			partial = null;
+		}
+	}
+
+	private void ensurePartialCapacity(int capacity) {
+		if (partial == null) {
+			partial = acquirePartial(Math.max(capacity, HEADER_LENGTH));
+		} else if (partial.capacity() < capacity) {
+			ByteBuffer extended = acquirePartial(capacity);
+			partial.flip();
+			extended.put(partial);
+			releasePartial();
+			partial = extended;
+		}
+	}
+
+	private static void transfer(ByteBuffer source, ByteBuffer target, int length) {
+		int limit = source.limit();
+		source.limit(source.position() + length);
+		target.put(source);
+		source.limit(limit);
+	}
+
+	// returns false if the buffer has not enough data
+	// to complete the partial frame
+	private boolean completePartial(ByteBuffer buffer, List<Object> result) throws IOException {
+		if (partial.position() < HEADER_LENGTH) {
+			transfer(buffer, partial, Math.min(HEADER_LENGTH - partial.position(), buffer.remaining()));
+			if (partial.position() < HEADER_LENGTH)
+				return false;
+			if (openStream(partial, 0)) {
+				partial.clear();
+				return feedStream(buffer, result);
+			}
+		}
+		int frameLength = HEADER_LENGTH + getMessageLength(partial, 0);
+		ensurePartialCapacity(frameLength);
+		transfer(buffer, partial, Math.min(frameLength - partial.position(), buffer.remaining()));
+		if (partial.position() < frameLength)
+			return false;
+
+		partial.flip();
+		decodeFrame(partial, frameLength, result);
+		if (partial.capacity() > MAX_RETAINED_CAPACITY)
+			releasePartial();
+		else
+			partial.clear();
+		return true;
+	}
+
+	@Override
+	public List<Object> decode(ByteBuffer buffer) throws IOException {
+		List<Object> result = new ArrayList<>();
+		if (buffer == null)
+			return result;
+
+		if (stream != null) {
+			if (!feedStream(buffer, result))
+				return result;
+		}
+		if (partial != null && partial.position() > 0) {
+			try {
+				if (!completePartial(buffer, result))
+					return result;
+			} catch (CorruptedDataException e) {
+				partial.clear();
+				throw e;
+			}
+		}
+		// complete frames are parsed in place
+		while (buffer.remaining() >= HEADER_LENGTH) {
+			int frameStart = buffer.position();
+			if (openStream(buffer, frameStart)) {
+				buffer.position(frameStart + HEADER_LENGTH);
+				if (!feedStream(buffer, result))
+					return result;
+				continue;
+			}
+			int frameLength = HEADER_LENGTH + getMessageLength(buffer, frameStart);
+			if (buffer.remaining() < frameLength)
+				break;
+			decodeFrame(buffer, frameStart + frameLength, result);
+		}
+		// trailing partial frame is accumulated
+		if (buffer.hasRemaining()) {
+			int frameLength = buffer.remaining() >= HEADER_LENGTH
+					? HEADER_LENGTH + getMessageLength(buffer, buffer.position())
+					: HEADER_LENGTH;
+			ensurePartialCapacity(frameLength);
+			partial.put(buffer);
+		}
+		return result;
+	}
+
+	@Override
+	public void close() throws Exception {
+		releasePartial();
+		if (stream != null) {
+			stream.release();
+			stream = null;
+		}
+	}
+}
@@ -1,7 +1,8 @@
 package com.ugcs.ucs.proto.codec;
 
-import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 
@@ -9,7 +10,7 @@ public class ProtoBinaryDecoder implements ProtoMessageDecoder {
 
 	@Override
 	public Message decode(byte[] buffer, Class<? extends Message> messageClass) throws InvalidProtocolBufferException {
-		return decode(buffer, createMessageBuilder(messageClass));
+		return decode(buffer, getDefaultInstance(messageClass));
 	}
 
 	@Override
@@ -23,17 +24,37 @@ public class ProtoBinaryDecoder implements ProtoMessageDecoder {
 		return builder.build();
 	}
 
-	private Message.Builder createMessageBuilder(Class<? extends Message> messageClass) {
+	@Override
+	public Message decode(byte[] buffer, Message defaultInstance) throws InvalidProtocolBufferException {
+		if (defaultInstance == null)
+			throw new IllegalArgumentException("Message type not specified");
+		if (buffer == null)
+			return null;
+
+		return defaultInstance.getParserForType().parseFrom(buffer);
+	}
+
+	@Override
+	public Message decode(ByteBuffer buffer, Class<? extends Message> messageClass) throws InvalidProtocolBufferException {
+		return decode(buffer, getDefaultInstance(messageClass));
+	}
+
+	@Override
+	public Message decode(ByteBuffer buffer, Message defaultInstance) throws InvalidProtocolBufferException {
+		if (defaultInstance == null)
+			throw new IllegalArgumentException("Message type not specified");
+		if (buffer == null)
+			return null;
+
+		// parsed in place: coded stream reads heap buffers through
+		// the backing array and direct ones by address
+		return defaultInstance.getParserForType().parseFrom(CodedInputStream.newInstance(buffer));
+	}
+
+	private static Message getDefaultInstance(Class<? extends Message> messageClass) {
 		if (messageClass == null)
 			throw new IllegalArgumentException("Message class not specified");
 
-		Message.Builder builder = null;
-		try {
-			Method method = messageClass.getMethod("newBuilder");
-			builder = (Message.Builder)method.invoke(null);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-		return builder;
+		return ProtoMessageMapping.getDefaultInstance(messageClass);
 	}
 }
@@ -1,5 +1,8 @@
 package com.ugcs.ucs.proto.codec;
 
+import java.nio.ByteBuffer;
+
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 
 public class ProtoBinaryEncoder implements ProtoMessageEncoder {
@@ -11,4 +14,25 @@ public class ProtoBinaryEncoder implements ProtoMessageEncoder {
 
 		return message.toByteArray();
 	}
+
+	@Override
+	public int getEncodedSize(Message message) {
+		if (message == null)
+			return 0;
+
+		// size is memoized by the message
+		return message.getSerializedSize();
+	}
+
+	@Override
+	public void encode(Message message, ByteBuffer buffer) throws Exception {
+		if (message == null)
+			return;
+
+		// coded stream writes both to heap and direct buffers
+		// and moves the buffer position on flush
+		CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+		message.writeTo(out);
+		out.flush();
+	}
 }
@@ -1,21 +1,29 @@
 package com.ugcs.ucs.proto.codec;
 
-import java.lang.reflect.Method;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.UninitializedMessageException;
 import com.googlecode.protobuf.format.JsonFormat;
 import com.googlecode.protobuf.format.JsonFormat.ParseException;
 
+/**
+ * Decodes messages from JSON. Standard JSON is parsed from the bytes
+ * to the binary encoding by the field tables of the message type;
+ * input the parser does not support, including the malformed one,
+ * is merged by the JsonFormat, that reports the errors.
+ */
 public class ProtoJsonDecoder implements ProtoMessageDecoder {
 
-	private final Charset charset = Charset.forName("UTF-8");
-
 	@Override
 	public Message decode(byte[] buffer, Class<? extends Message> messageClass)
 			throws InvalidProtocolBufferException, ParseException {
-		return decode(buffer, createMessageBuilder(messageClass));
+		if (messageClass == null)
+			throw new IllegalArgumentException("Message class not specified");
+
+		return decode(buffer, ProtoMessageMapping.getDefaultInstance(messageClass));
 	}
 
 	@Override
@@ -26,22 +34,56 @@ public class ProtoJsonDecoder implements ProtoMessageDecoder {
 		if (buffer == null)
 			return null;
 
-		String json = new String(buffer, charset);
-		JsonFormat.merge(json, builder);
+		ProtoJsonParser parser = parse(buffer, builder.getDescriptorForType());
+		if (parser == null) {
+			merge(buffer, builder);
+			return builder.build();
+		}
+		try {
+			builder.mergeFrom(parser.getData(), 0, parser.getLength());
+		} finally {
+			parser.release();
+		}
 		return builder.build();
 	}
 
-	private Message.Builder createMessageBuilder(Class<? extends Message> messageClass) {
-		if (messageClass == null)
-			throw new IllegalArgumentException("Message class not specified");
+	@Override
+	public Message decode(byte[] buffer, Message defaultInstance)
+			throws InvalidProtocolBufferException, ParseException {
+		if (defaultInstance == null)
+			throw new IllegalArgumentException("Message type not specified");
+		if (buffer == null)
+			return null;
 
-		Message.Builder builder = null;
+		ProtoJsonParser parser = parse(buffer, defaultInstance.getDescriptorForType());
+		if (parser == null) {
+			Message.Builder builder = defaultInstance.newBuilderForType();
+			merge(buffer, builder);
+			return builder.build();
+		}
+		Message message;
 		try {
-			Method method = messageClass.getMethod("newBuilder");
-			builder = (Message.Builder)method.invoke(null);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+			message = defaultInstance.getParserForType()
+					.parsePartialFrom(parser.getData(), 0, parser.getLength());
+		} finally {
+			parser.release();
 		}
-		return builder;
+		if (!message.isInitialized())
+			throw new UninitializedMessageException(message);
+		return message;
+	}
+
+	// returns null if the json is not supported by the parser
+	private static ProtoJsonParser parse(byte[] buffer, Descriptor descriptor) {
+		try {
+			return ProtoJsonParser.parse(buffer, 0, buffer.length, ProtoJsonFields.of(descriptor));
+		} catch (ProtoJsonFields.UnsupportedJsonException e) {
+			return null;
+		}
+	}
+
+	private static void merge(byte[] buffer, Message.Builder builder) throws ParseException {
+		String json = new String(buffer, StandardCharsets.UTF_8);
+		JsonFormat.merge(json, builder);
 	}
 }
@@ -0,0 +1,228 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles as {@link Double#toString(double)} does: the shortest
+ * decimal, that rounds to the double, in the plain notation from 10^-3
+ * to 10^7 and in the computerized scientific notation otherwise.
+ * <p>
+ * Decimal is found by the Schubfach algorithm (R. Giulietti, "The Schubfach
+ * way to render doubles"), that is the one of the JDK since version 19.
+ * Older versions print a few doubles with more digits than needed, both
+ * of the forms parse to the same double.
+ */
+final class ProtoJsonDoubles {
+
+	/**
+	 * Max length of a formatted double.
+	 */
+	static final int MAX_LENGTH = 24;
+
+	private static final int P = 53;
+	private static final int Q_MIN = -1074;
+	private static final long C_MIN = 1L << (P - 1);
+	private static final long C_TINY = 3;
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+	private static final long MASK_63 = (1L << 63) - 1;
+	private static final long[] POW10 = new long[18];
+
+	// 126-bit approximations of the powers of ten, by k - K_MIN:
+	// g = floor(10^-k * 2^(125 - floor(log2(10^-k)))) + 1
+	private static final long[] G1 = new long[K_MAX - K_MIN + 1];
+	private static final long[] G0 = new long[K_MAX - K_MIN + 1];
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++)
+			POW10[i] = POW10[i - 1] * 10;
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int shift = 125 - flog2pow10(-k);
+			BigInteger g = k <= 0
+					? BigInteger.TEN.pow(-k).shiftLeft(shift)
+					: BigInteger.ONE.shiftLeft(shift).divide(BigInteger.TEN.pow(k));
+			g = g.add(BigInteger.ONE);
+			G1[k - K_MIN] = g.shiftRight(63).longValue();
+			G0[k - K_MIN] = g.longValue() & MASK_63;
+		}
+	}
+
+	private ProtoJsonDoubles() {
+	}
+
+	// floor(e * log10(2))
+	private static int flog10pow2(int e) {
+		return (int)(e * 661_971_961_083L >> 41);
+	}
+
+	// floor(e * log10(2) + log10(3/4))
+	private static int flog10threeQuartersPow2(int e) {
+		return (int)(e * 661_971_961_083L + -274_743_187_321L >> 41);
+	}
+
+	// floor(e * log2(10))
+	private static int flog2pow10(int e) {
+		return (int)(e * 913_124_641_741L >> 38);
+	}
+
+	/**
+	 * Writes the double to the buffer, that has at least
+	 * {@link #MAX_LENGTH} bytes from the offset.
+	 *
+	 * @return offset after the written chars
+	 */
+	static int write(double v, byte[] buffer, int offset) {
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & (C_MIN - 1);
+		int bq = (int)(bits >>> (P - 1)) & 0x7ff;
+		if (bq == 0x7ff)
+			return writeAscii(t != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity", buffer, offset);
+
+		if (bits < 0)
+			buffer[offset++] = '-';
+		if (bq != 0) {
+			// normal
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			// integers
+			if (0 < mq && mq < P) {
+				long f = c >> mq;
+				if (f << mq == c)
+					return writeDecimal(f, 0, buffer, offset);
+			}
+			return toDecimal(-mq, c, 0, buffer, offset);
+		}
+		if (t != 0) {
+			// subnormal
+			return t < C_TINY
+					? toDecimal(Q_MIN, 10 * t, -1, buffer, offset)
+					: toDecimal(Q_MIN, t, 0, buffer, offset);
+		}
+		return writeAscii("0.0", buffer, offset);
+	}
+
+	private static int toDecimal(int q, long c, int dk, byte[] buffer, int offset) {
+		int out = (int)c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != C_MIN || q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			// boundary of the binade, the lower neighbour is closer
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+		long g1 = G1[k - K_MIN];
+		long g0 = G0[k - K_MIN];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if (s >= 100) {
+			// one digit less
+			long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin)
+				return writeDecimal(upin ? sp10 : tp10, k, buffer, offset);
+		}
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win)
+			return writeDecimal(uin ? s : t, k + dk, buffer, offset);
+		// closest of the two
+		long cmp = vb - (s + t << 1);
+		return writeDecimal(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, offset);
+	}
+
+	// rounded to odd g * cp / 2^127
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = Math.multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = Math.multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	// writes f * 10^e
+	private static int writeDecimal(long f, int e, byte[] buffer, int offset) {
+		while (f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+		int n = 1;
+		while (n < POW10.length && f >= POW10[n])
+			n++;
+		// exponent of the first digit
+		int exponent = e + n - 1;
+
+		if (exponent >= 0 && exponent < 7) {
+			// ddd.ddd
+			if (n > exponent + 1)
+				return writeDigits(f, n, exponent, buffer, offset);
+			offset = writeDigits(f, n, -1, buffer, offset);
+			for (int i = n; i <= exponent; i++)
+				buffer[offset++] = '0';
+			buffer[offset++] = '.';
+			buffer[offset++] = '0';
+			return offset;
+		}
+		if (exponent < 0 && exponent >= -3) {
+			// 0.00ddd
+			buffer[offset++] = '0';
+			buffer[offset++] = '.';
+			for (int i = exponent + 1; i < 0; i++)
+				buffer[offset++] = '0';
+			return writeDigits(f, n, -1, buffer, offset);
+		}
+		// d.dddE-nn
+		if (n > 1) {
+			offset = writeDigits(f, n, 0, buffer, offset);
+		} else {
+			buffer[offset++] = (byte)('0' + f);
+			buffer[offset++] = '.';
+			buffer[offset++] = '0';
+		}
+		buffer[offset++] = 'E';
+		if (exponent < 0) {
+			buffer[offset++] = '-';
+			exponent = -exponent;
+		}
+		if (exponent >= 100)
+			buffer[offset++] = (byte)('0' + exponent / 100);
+		if (exponent >= 10)
+			buffer[offset++] = (byte)('0' + exponent / 10 % 10);
+		buffer[offset++] = (byte)('0' + exponent % 10);
+		return offset;
+	}
+
+	// writes n digits of f, with the point after the digit
+	// of the given index, if it is not negative
+	private static int writeDigits(long f, int n, int pointIndex, byte[] buffer, int offset) {
+		int end = offset + n + (pointIndex >= 0 ? 1 : 0);
+		int p = end;
+		for (int i = n - 1; i >= 0; i--) {
+			buffer[--p] = (byte)('0' + f % 10);
+			f /= 10;
+			if (i == pointIndex + 1 && pointIndex >= 0)
+				buffer[--p] = '.';
+		}
+		return end;
+	}
+
+	private static int writeAscii(String s, byte[] buffer, int offset) {
+		for (int i = 0; i < s.length(); i++)
+			buffer[offset++] = (byte)s.charAt(i);
+		return offset;
+	}
+}
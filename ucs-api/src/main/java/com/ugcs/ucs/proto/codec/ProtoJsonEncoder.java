@@ -1,20 +1,28 @@
 package com.ugcs.ucs.proto.codec;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import com.google.protobuf.Message;
 import com.googlecode.protobuf.format.JsonFormat;
 
+/**
+ * Encodes messages to JSON in the format of the JsonFormat. Binary
+ * encoding of the message is printed straight to the bytes by the field
+ * tables of its type; messages with the unknown fields are printed
+ * by the JsonFormat.
+ */
 public class ProtoJsonEncoder implements ProtoMessageEncoder {
 
-	private final Charset charset = Charset.forName("UTF-8");
-
 	@Override
 	public byte[] encode(Message message) {
 		if (message == null)
 			return new byte[0];
 
-		String json = JsonFormat.printToString(message);
-		return json.getBytes(charset);
+		try {
+			return ProtoJsonPrinter.print(message);
+		} catch (ProtoJsonFields.UnsupportedJsonException e) {
+			String json = JsonFormat.printToString(message);
+			return json.getBytes(StandardCharsets.UTF_8);
+		}
 	}
 }
@@ -0,0 +1,202 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Field table of a message type for the JSON codec: lookups by the
+ * field number and by the JSON name, and the encoded names of the
+ * fields and enum values. Tables are cached per message type.
+ */
+final class ProtoJsonFields {
+
+	// field numbers above are looked up in the map
+	private static final int MAX_TABLE_NUMBER = 1024;
+
+	private static final Map<Descriptor, ProtoJsonFields> cache = new ConcurrentHashMap<>();
+
+	private final Field[] fieldTable;
+	private final Map<Integer, Field> sparseFields = new HashMap<>();
+	// open addressing by the name hash
+	private final Field[] nameTable;
+
+	private ProtoJsonFields(Descriptor descriptor) {
+		List<FieldDescriptor> fieldDescriptors = descriptor.getFields();
+		Field[] fields = new Field[fieldDescriptors.size()];
+		int maxNumber = 0;
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = new Field(fieldDescriptors.get(i));
+			if (fields[i].number <= MAX_TABLE_NUMBER)
+				maxNumber = Math.max(maxNumber, fields[i].number);
+		}
+
+		fieldTable = new Field[maxNumber + 1];
+		nameTable = new Field[Integer.highestOneBit(Math.max(1, fields.length)) * 4];
+		for (Field field : fields) {
+			if (field.number <= MAX_TABLE_NUMBER)
+				fieldTable[field.number] = field;
+			else
+				sparseFields.put(field.number, field);
+			int mask = nameTable.length - 1;
+			int slot = hash(field.name, 0, field.name.length) & mask;
+			while (nameTable[slot] != null)
+				slot = (slot + 1) & mask;
+			nameTable[slot] = field;
+		}
+	}
+
+	static ProtoJsonFields of(Descriptor descriptor) {
+		ProtoJsonFields fields = cache.get(descriptor);
+		if (fields == null) {
+			// tables of the nested types are built on demand,
+			// a race builds equal tables
+			fields = new ProtoJsonFields(descriptor);
+			cache.putIfAbsent(descriptor, fields);
+		}
+		return fields;
+	}
+
+	private static int hash(byte[] buffer, int offset, int length) {
+		int h = 0;
+		for (int i = offset; i < offset + length; i++)
+			h = 31 * h + buffer[i];
+		return h ^ (h >>> 16);
+	}
+
+	Field getField(int number) {
+		if (number >= 0 && number < fieldTable.length)
+			return fieldTable[number];
+		return sparseFields.isEmpty() ? null : sparseFields.get(number);
+	}
+
+	Field getField(byte[] buffer, int nameOffset, int nameLength) {
+		int mask = nameTable.length - 1;
+		int slot = hash(buffer, nameOffset, nameLength) & mask;
+		Field field;
+		while ((field = nameTable[slot]) != null) {
+			if (Arrays.equals(field.name, 0, field.name.length, buffer, nameOffset, nameOffset + nameLength))
+				return field;
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	static final class Field {
+
+		final FieldDescriptor descriptor;
+		final int number;
+		final FieldDescriptor.Type type;
+		final boolean repeated;
+		final int wireType;
+		// name as it is printed: "name":
+		final byte[] jsonName;
+		final byte[] name;
+		// varint-encoded tag
+		final byte[] tag;
+
+		// quoted names of the enum values, by number
+		private final byte[][] enumNames;
+		private final Map<Integer, byte[]> sparseEnumNames;
+		private final Map<String, Integer> enumNumbers;
+		private volatile ProtoJsonFields messageFields;
+
+		Field(FieldDescriptor descriptor) {
+			this.descriptor = descriptor;
+			this.number = descriptor.getNumber();
+			this.type = descriptor.getType();
+			this.repeated = descriptor.isRepeated();
+			this.wireType = type.getJavaType() == FieldDescriptor.JavaType.MESSAGE
+					? WireFormat.WIRETYPE_LENGTH_DELIMITED
+					: descriptor.getLiteType().getWireType();
+			this.name = descriptor.getName().getBytes(StandardCharsets.UTF_8);
+			this.jsonName = ("\"" + descriptor.getName() + "\": ").getBytes(StandardCharsets.UTF_8);
+			this.tag = encodeTag(number << 3 | wireType);
+
+			if (type == FieldDescriptor.Type.ENUM) {
+				List<EnumValueDescriptor> values = descriptor.getEnumType().getValues();
+				int maxNumber = 0;
+				for (EnumValueDescriptor value : values) {
+					if (value.getNumber() <= MAX_TABLE_NUMBER)
+						maxNumber = Math.max(maxNumber, value.getNumber());
+				}
+				enumNames = new byte[maxNumber + 1][];
+				sparseEnumNames = new HashMap<>();
+				enumNumbers = new HashMap<>();
+				for (EnumValueDescriptor value : values) {
+					int number = value.getNumber();
+					byte[] name = ("\"" + value.getName() + "\"").getBytes(StandardCharsets.UTF_8);
+					// first of the aliases is printed
+					if (number >= 0 && number <= MAX_TABLE_NUMBER) {
+						if (enumNames[number] == null)
+							enumNames[number] = name;
+					} else {
+						sparseEnumNames.putIfAbsent(number, name);
+					}
+					enumNumbers.put(value.getName(), number);
+				}
+			} else {
+				enumNames = null;
+				sparseEnumNames = null;
+				enumNumbers = null;
+			}
+		}
+
+		private static byte[] encodeTag(int tag) {
+			byte[] buffer = new byte[5];
+			int length = 0;
+			while ((tag & ~0x7f) != 0) {
+				buffer[length++] = (byte)((tag & 0x7f) | 0x80);
+				tag >>>= 7;
+			}
+			buffer[length++] = (byte)tag;
+			return Arrays.copyOf(buffer, length);
+		}
+
+		/**
+		 * @return quoted name of the enum value, or null if the value is unknown
+		 */
+		byte[] getEnumName(int number) {
+			if (number >= 0 && number < enumNames.length)
+				return enumNames[number];
+			return sparseEnumNames.get(number);
+		}
+
+		/**
+		 * @return number of the enum value, or null if the value is unknown
+		 */
+		Integer getEnumNumber(String name) {
+			return enumNumbers.get(name);
+		}
+
+		ProtoJsonFields getMessageFields() {
+			ProtoJsonFields messageFields = this.messageFields;
+			if (messageFields == null) {
+				messageFields = ProtoJsonFields.of(descriptor.getMessageType());
+				this.messageFields = messageFields;
+			}
+			return messageFields;
+		}
+	}
+
+	/**
+	 * Data the codec does not handle, that is passed
+	 * to the JsonFormat instead.
+	 */
+	static final class UnsupportedJsonException extends Exception {
+
+		static final UnsupportedJsonException INSTANCE = new UnsupportedJsonException();
+
+		private UnsupportedJsonException() {
+			super("Unsupported by the streaming JSON codec", null, false, false);
+		}
+	}
+}
@@ -0,0 +1,593 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.ucs.proto.codec.ProtoJsonFields.Field;
+import com.ugcs.ucs.proto.codec.ProtoJsonFields.UnsupportedJsonException;
+
+/**
+ * Parses JSON of a message to its binary encoding. Parser accepts the
+ * standard JSON, as printed by the JsonFormat; other syntax the
+ * JsonFormat is lenient to (unquoted names, hex and octal numbers,
+ * numeric enums, single quotes) is reported as unsupported.
+ */
+final class ProtoJsonParser {
+
+	private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+	// max varint length, reserved for the length of the nested messages
+	private static final int LENGTH_RESERVE = 5;
+
+	private final BufferPool pool;
+	private final byte[] json;
+	private final int end;
+	private int position;
+
+	private byte[] buffer;
+	private int length;
+
+	private ProtoJsonParser(BufferPool pool, byte[] json, int offset, int length) {
+		this.pool = pool;
+		this.json = json;
+		this.position = offset;
+		this.end = offset + length;
+		this.buffer = pool.acquire(length / 2 + 16);
+	}
+
+	/**
+	 * Parses the message to the binary encoding, that is available
+	 * by the {@link #getData()} until the parser is released.
+	 */
+	static ProtoJsonParser parse(byte[] json, int offset, int length, ProtoJsonFields fields)
+			throws UnsupportedJsonException {
+		ProtoJsonParser parser = new ProtoJsonParser(BufferPool.getDefault(), json, offset, length);
+		try {
+			parser.skipWhitespace();
+			parser.parseMessage(fields);
+			parser.skipWhitespace();
+			if (parser.position != parser.end)
+				throw UnsupportedJsonException.INSTANCE;
+			return parser;
+		} catch (UnsupportedJsonException | RuntimeException e) {
+			parser.release();
+			throw e;
+		}
+	}
+
+	byte[] getData() {
+		return buffer;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	void release() {
+		pool.release(buffer);
+	}
+
+	/* output */
+
+	private void ensureCapacity(int n) {
+		if (length + n > buffer.length) {
+			byte[] newBuffer = pool.acquire(Math.max(buffer.length * 2, length + n));
+			System.arraycopy(buffer, 0, newBuffer, 0, length);
+			pool.release(buffer);
+			buffer = newBuffer;
+		}
+	}
+
+	private void write(int b) {
+		ensureCapacity(1);
+		buffer[length++] = (byte)b;
+	}
+
+	private void write(byte[] bytes, int offset, int n) {
+		ensureCapacity(n);
+		System.arraycopy(bytes, offset, buffer, length, n);
+		length += n;
+	}
+
+	private void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7fL) != 0) {
+			buffer[length++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte)value;
+	}
+
+	private void writeFixed32(int value) {
+		ensureCapacity(4);
+		buffer[length++] = (byte)value;
+		buffer[length++] = (byte)(value >> 8);
+		buffer[length++] = (byte)(value >> 16);
+		buffer[length++] = (byte)(value >> 24);
+	}
+
+	private void writeFixed64(long value) {
+		writeFixed32((int)value);
+		writeFixed32((int)(value >> 32));
+	}
+
+	private void writeUtf8(int c) {
+		ensureCapacity(4);
+		if (c < 0x80) {
+			buffer[length++] = (byte)c;
+		} else if (c < 0x800) {
+			buffer[length++] = (byte)(0xc0 | c >> 6);
+			buffer[length++] = (byte)(0x80 | c & 0x3f);
+		} else if (c < 0x10000) {
+			buffer[length++] = (byte)(0xe0 | c >> 12);
+			buffer[length++] = (byte)(0x80 | c >> 6 & 0x3f);
+			buffer[length++] = (byte)(0x80 | c & 0x3f);
+		} else {
+			buffer[length++] = (byte)(0xf0 | c >> 18);
+			buffer[length++] = (byte)(0x80 | c >> 12 & 0x3f);
+			buffer[length++] = (byte)(0x80 | c >> 6 & 0x3f);
+			buffer[length++] = (byte)(0x80 | c & 0x3f);
+		}
+	}
+
+	// value length is written when it is known, to the reserved bytes
+	private int beginLengthDelimited() {
+		ensureCapacity(LENGTH_RESERVE);
+		length += LENGTH_RESERVE;
+		return length;
+	}
+
+	private void endLengthDelimited(int start) {
+		int n = length - start;
+		int varintLength = 1;
+		for (int v = n; (v & ~0x7f) != 0; v >>>= 7)
+			varintLength++;
+		int lengthPosition = start - LENGTH_RESERVE;
+		if (varintLength < LENGTH_RESERVE)
+			System.arraycopy(buffer, start, buffer, lengthPosition + varintLength, n);
+		int p = lengthPosition;
+		while ((n & ~0x7f) != 0) {
+			buffer[p++] = (byte)((n & 0x7f) | 0x80);
+			n >>>= 7;
+		}
+		buffer[p] = (byte)n;
+		length = lengthPosition + varintLength + (length - start);
+	}
+
+	/* input */
+
+	private void skipWhitespace() {
+		while (position < end) {
+			byte b = json[position];
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+				break;
+			position++;
+		}
+	}
+
+	private byte peek() throws UnsupportedJsonException {
+		if (position >= end)
+			throw UnsupportedJsonException.INSTANCE;
+		return json[position];
+	}
+
+	private void expect(int b) throws UnsupportedJsonException {
+		if (peek() != b)
+			throw UnsupportedJsonException.INSTANCE;
+		position++;
+	}
+
+	private boolean consume(byte[] literal) {
+		if (end - position < literal.length
+				|| !Arrays.equals(json, position, position + literal.length, literal, 0, literal.length))
+			return false;
+		position += literal.length;
+		return true;
+	}
+
+	private void parseMessage(ProtoJsonFields fields) throws UnsupportedJsonException {
+		expect('{');
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return;
+		}
+		while (true) {
+			// names are not escaped
+			expect('"');
+			int nameStart = position;
+			while (peek() != '"') {
+				if (json[position] == '\\')
+					throw UnsupportedJsonException.INSTANCE;
+				position++;
+			}
+			Field field = fields.getField(json, nameStart, position - nameStart);
+			position++;
+			skipWhitespace();
+			expect(':');
+			skipWhitespace();
+
+			if (field == null)
+				skipValue();
+			else if (!consume(NULL))
+				parseField(field);
+
+			skipWhitespace();
+			byte b = peek();
+			position++;
+			if (b == '}')
+				return;
+			if (b != ',')
+				throw UnsupportedJsonException.INSTANCE;
+			skipWhitespace();
+		}
+	}
+
+	private void parseField(Field field) throws UnsupportedJsonException {
+		if (!field.repeated) {
+			parseValue(field);
+			return;
+		}
+
+		expect('[');
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return;
+		}
+		while (true) {
+			parseValue(field);
+			skipWhitespace();
+			byte b = peek();
+			position++;
+			if (b == ']')
+				return;
+			if (b != ',')
+				throw UnsupportedJsonException.INSTANCE;
+			skipWhitespace();
+		}
+	}
+
+	private void parseValue(Field field) throws UnsupportedJsonException {
+		write(field.tag, 0, field.tag.length);
+		switch (field.type) {
+			case INT32:
+				writeVarint(parseInteger(Integer.MIN_VALUE, Integer.MAX_VALUE));
+				break;
+			case INT64:
+				writeVarint(parseInteger(Long.MIN_VALUE, Long.MAX_VALUE));
+				break;
+			case UINT32:
+				writeVarint(parseInteger(0, 0xffffffffL));
+				break;
+			case UINT64:
+				writeVarint(parseInteger(0, Long.MAX_VALUE));
+				break;
+			case SINT32:
+				int sint32 = (int)parseInteger(Integer.MIN_VALUE, Integer.MAX_VALUE);
+				writeVarint((sint32 << 1 ^ sint32 >> 31) & 0xffffffffL);
+				break;
+			case SINT64:
+				long sint64 = parseInteger(Long.MIN_VALUE, Long.MAX_VALUE);
+				writeVarint(sint64 << 1 ^ sint64 >> 63);
+				break;
+			case FIXED32:
+				writeFixed32((int)parseInteger(0, 0xffffffffL));
+				break;
+			case SFIXED32:
+				writeFixed32((int)parseInteger(Integer.MIN_VALUE, Integer.MAX_VALUE));
+				break;
+			case FIXED64:
+				writeFixed64(parseInteger(0, Long.MAX_VALUE));
+				break;
+			case SFIXED64:
+				writeFixed64(parseInteger(Long.MIN_VALUE, Long.MAX_VALUE));
+				break;
+			case BOOL:
+				if (consume(TRUE))
+					write(1);
+				else if (consume(FALSE))
+					write(0);
+				else
+					throw UnsupportedJsonException.INSTANCE;
+				break;
+			case FLOAT:
+				writeFixed32(Float.floatToRawIntBits(Float.parseFloat(parseFloatingPoint())));
+				break;
+			case DOUBLE:
+				writeFixed64(Double.doubleToRawLongBits(Double.parseDouble(parseFloatingPoint())));
+				break;
+			case ENUM:
+				Integer number = field.getEnumNumber(parseEnumName());
+				if (number == null)
+					throw UnsupportedJsonException.INSTANCE;
+				writeVarint(number);
+				break;
+			case STRING:
+				int stringStart = beginLengthDelimited();
+				parseString();
+				endLengthDelimited(stringStart);
+				break;
+			case BYTES:
+				int bytesStart = beginLengthDelimited();
+				parseBytes();
+				endLengthDelimited(bytesStart);
+				break;
+			case MESSAGE:
+				int messageStart = beginLengthDelimited();
+				parseMessage(field.getMessageFields());
+				endLengthDelimited(messageStart);
+				break;
+			default:
+				throw UnsupportedJsonException.INSTANCE;
+		}
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	// decimal integers, without the leading zeros, that are
+	// read as octal by the JsonFormat
+	private long parseInteger(long min, long max) throws UnsupportedJsonException {
+		boolean negative = peek() == '-';
+		if (negative)
+			position++;
+		int start = position;
+		long value = 0;
+		while (position < end && isDigit(json[position])) {
+			int digit = json[position++] - '0';
+			// accumulated as negative, to fit the min value
+			if (value < (Long.MIN_VALUE + digit) / 10)
+				throw UnsupportedJsonException.INSTANCE;
+			value = value * 10 - digit;
+		}
+		int digits = position - start;
+		if (digits == 0 || digits > 1 && json[start] == '0')
+			throw UnsupportedJsonException.INSTANCE;
+		if (position < end) {
+			byte b = json[position];
+			if (b == '.' || b == 'e' || b == 'E' || b == 'x' || b == 'X')
+				throw UnsupportedJsonException.INSTANCE;
+		}
+		if (!negative) {
+			if (value == Long.MIN_VALUE)
+				throw UnsupportedJsonException.INSTANCE;
+			value = -value;
+		}
+		if (value < min || value > max)
+			throw UnsupportedJsonException.INSTANCE;
+		return value;
+	}
+
+	private String parseFloatingPoint() throws UnsupportedJsonException {
+		int start = position;
+		while (position < end) {
+			byte b = json[position];
+			if (!isDigit(b) && b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E'
+					&& !(b >= 'a' && b <= 'z') && !(b >= 'A' && b <= 'Z'))
+				break;
+			position++;
+		}
+		String token = new String(json, start, position - start, StandardCharsets.US_ASCII);
+		switch (token) {
+			case "NaN":
+			case "Infinity":
+			case "-Infinity":
+				return token;
+			default:
+				for (int i = 0; i < token.length(); i++) {
+					char c = token.charAt(i);
+					if (c != 'e' && c != 'E' && Character.isLetter(c))
+						throw UnsupportedJsonException.INSTANCE;
+				}
+				if (token.isEmpty() || !isDigit((byte)token.charAt(token.length() - 1)))
+					throw UnsupportedJsonException.INSTANCE;
+				return token;
+		}
+	}
+
+	private String parseEnumName() throws UnsupportedJsonException {
+		expect('"');
+		int start = position;
+		while (peek() != '"') {
+			if (json[position] == '\\')
+				throw UnsupportedJsonException.INSTANCE;
+			position++;
+		}
+		String name = new String(json, start, position - start, StandardCharsets.UTF_8);
+		position++;
+		return name;
+	}
+
+	private int parseHex4() throws UnsupportedJsonException {
+		if (end - position < 4)
+			throw UnsupportedJsonException.INSTANCE;
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(json[position++], 16);
+			if (digit < 0)
+				throw UnsupportedJsonException.INSTANCE;
+			value = value << 4 | digit;
+		}
+		return value;
+	}
+
+	// utf-8 is copied as is
+	private void parseString() throws UnsupportedJsonException {
+		expect('"');
+		while (true) {
+			int run = position;
+			while (run < end && json[run] != '"' && json[run] != '\\') {
+				if (json[run] >= 0 && json[run] < 0x20)
+					throw UnsupportedJsonException.INSTANCE;
+				run++;
+			}
+			write(json, position, run - position);
+			position = run;
+
+			byte b = peek();
+			position++;
+			if (b == '"')
+				return;
+
+			byte escape = peek();
+			position++;
+			switch (escape) {
+				case '"':
+				case '\\':
+					write(escape);
+					break;
+				case 'b':
+					write('\b');
+					break;
+				case 'f':
+					write('\f');
+					break;
+				case 'n':
+					write('\n');
+					break;
+				case 'r':
+					write('\r');
+					break;
+				case 't':
+					write('\t');
+					break;
+				case 'u':
+					int c = parseHex4();
+					if (Character.isHighSurrogate((char)c)) {
+						expect('\\');
+						expect('u');
+						int low = parseHex4();
+						if (!Character.isLowSurrogate((char)low))
+							throw UnsupportedJsonException.INSTANCE;
+						c = Character.toCodePoint((char)c, (char)low);
+					} else if (Character.isLowSurrogate((char)c)) {
+						throw UnsupportedJsonException.INSTANCE;
+					}
+					writeUtf8(c);
+					break;
+				default:
+					throw UnsupportedJsonException.INSTANCE;
+			}
+		}
+	}
+
+	// bytes are printed as ascii, with the escapes of the JsonFormat
+	private void parseBytes() throws UnsupportedJsonException {
+		expect('"');
+		while (true) {
+			byte b = peek();
+			position++;
+			if (b == '"')
+				return;
+			if (b < 0x20)
+				throw UnsupportedJsonException.INSTANCE;
+			if (b != '\\') {
+				write(b);
+				continue;
+			}
+
+			byte escape = peek();
+			position++;
+			switch (escape) {
+				case '"':
+				case '\'':
+				case '\\':
+					write(escape);
+					break;
+				case 'a':
+					write(0x07);
+					break;
+				case 'b':
+					write('\b');
+					break;
+				case 'f':
+					write('\f');
+					break;
+				case 'n':
+					write('\n');
+					break;
+				case 'r':
+					write('\r');
+					break;
+				case 't':
+					write('\t');
+					break;
+				case 'v':
+					write(0x0b);
+					break;
+				case 'u':
+					int c = parseHex4();
+					// bytes above 0x7f are printed sign-extended
+					if (c > 0xff && c < 0xff80)
+						throw UnsupportedJsonException.INSTANCE;
+					write(c);
+					break;
+				default:
+					throw UnsupportedJsonException.INSTANCE;
+			}
+		}
+	}
+
+	private void skipValue() throws UnsupportedJsonException {
+		byte b = peek();
+		if (b == '{' || b == '[') {
+			byte close = b == '{' ? (byte)'}' : (byte)']';
+			position++;
+			skipWhitespace();
+			if (peek() == close) {
+				position++;
+				return;
+			}
+			while (true) {
+				if (close == '}') {
+					skipString();
+					skipWhitespace();
+					expect(':');
+					skipWhitespace();
+				}
+				skipValue();
+				skipWhitespace();
+				byte next = peek();
+				position++;
+				if (next == close)
+					return;
+				if (next != ',')
+					throw UnsupportedJsonException.INSTANCE;
+				skipWhitespace();
+			}
+		}
+		if (b == '"') {
+			skipString();
+			return;
+		}
+		// literals and numbers
+		int start = position;
+		while (position < end) {
+			byte c = json[position];
+			if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t')
+				break;
+			position++;
+		}
+		if (position == start)
+			throw UnsupportedJsonException.INSTANCE;
+	}
+
+	private void skipString() throws UnsupportedJsonException {
+		expect('"');
+		while (true) {
+			byte b = peek();
+			position++;
+			if (b == '"')
+				return;
+			if (b == '\\') {
+				peek();
+				position++;
+			}
+		}
+	}
+}
@@ -0,0 +1,501 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.ucs.proto.codec.ProtoJsonFields.Field;
+import com.ugcs.ucs.proto.codec.ProtoJsonFields.UnsupportedJsonException;
+
+/**
+ * Prints the binary encoding of a message as JSON, in the format
+ * of the JsonFormat: set fields in the order of numbers, enums by name,
+ * strings and bytes escaped the same way.
+ */
+final class ProtoJsonPrinter {
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MIN_INT = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+	// escapes of the ascii chars in strings and bytes, null if printed as is
+	private static final byte[][] STRING_ESCAPES = new byte[128][];
+	private static final byte[][] BYTES_ESCAPES = new byte[128][];
+
+	static {
+		for (int c = 0; c < 0x20; c++) {
+			STRING_ESCAPES[c] = unicodeEscape(c);
+			BYTES_ESCAPES[c] = unicodeEscape(c);
+		}
+		setEscape(STRING_ESCAPES, '\b', "\\b");
+		setEscape(STRING_ESCAPES, '\t', "\\t");
+		setEscape(STRING_ESCAPES, '\n', "\\n");
+		setEscape(STRING_ESCAPES, '\f', "\\f");
+		setEscape(STRING_ESCAPES, '\r', "\\r");
+		setEscape(STRING_ESCAPES, '"', "\\\"");
+		setEscape(STRING_ESCAPES, '\\', "\\\\");
+
+		setEscape(BYTES_ESCAPES, 0x07, "\\a");
+		setEscape(BYTES_ESCAPES, '\b', "\\b");
+		setEscape(BYTES_ESCAPES, '\t', "\\t");
+		setEscape(BYTES_ESCAPES, '\n', "\\n");
+		setEscape(BYTES_ESCAPES, 0x0b, "\\v");
+		setEscape(BYTES_ESCAPES, '\f', "\\f");
+		setEscape(BYTES_ESCAPES, '\r', "\\r");
+		setEscape(BYTES_ESCAPES, '"', "\\\"");
+		setEscape(BYTES_ESCAPES, '\'', "\\'");
+		setEscape(BYTES_ESCAPES, '\\', "\\\\");
+	}
+
+	private final BufferPool pool;
+	private final byte[] data;
+	private final int dataLength;
+	private int position;
+
+	private byte[] buffer;
+	private int length;
+
+	private ProtoJsonPrinter(BufferPool pool, byte[] data, int dataLength) {
+		this.pool = pool;
+		this.data = data;
+		this.dataLength = dataLength;
+		// json of the numeric fields is about 3-4 times longer
+		this.buffer = pool.acquire(dataLength * 4 + 16);
+	}
+
+	private static byte[] unicodeEscape(int c) {
+		return new byte[] {'\\', 'u', HEX[c >> 12 & 0xf], HEX[c >> 8 & 0xf], HEX[c >> 4 & 0xf], HEX[c & 0xf]};
+	}
+
+	private static void setEscape(byte[][] escapes, int c, String escape) {
+		escapes[c] = escape.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	static byte[] print(Message message) throws UnsupportedJsonException {
+		// unknown fields are printed by the JsonFormat
+		if (message.getUnknownFields().getSerializedSize() > 0)
+			throw UnsupportedJsonException.INSTANCE;
+
+		BufferPool pool = BufferPool.getDefault();
+		int size = message.getSerializedSize();
+		byte[] data = pool.acquire(size);
+		ProtoJsonPrinter printer = null;
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(data, 0, size);
+			message.writeTo(out);
+			out.checkNoSpaceLeft();
+
+			printer = new ProtoJsonPrinter(pool, data, size);
+			printer.printMessage(ProtoJsonFields.of(message.getDescriptorForType()), 0, size);
+			return Arrays.copyOf(printer.buffer, printer.length);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			pool.release(data);
+			if (printer != null)
+				pool.release(printer.buffer);
+		}
+	}
+
+	/* output */
+
+	private void ensureCapacity(int n) {
+		if (length + n > buffer.length) {
+			byte[] newBuffer = pool.acquire(Math.max(buffer.length * 2, length + n));
+			System.arraycopy(buffer, 0, newBuffer, 0, length);
+			pool.release(buffer);
+			buffer = newBuffer;
+		}
+	}
+
+	private void write(int b) {
+		ensureCapacity(1);
+		buffer[length++] = (byte)b;
+	}
+
+	private void write(byte[] bytes) {
+		write(bytes, 0, bytes.length);
+	}
+
+	private void write(byte[] bytes, int offset, int n) {
+		ensureCapacity(n);
+		if (n < 16) {
+			// names and short values
+			for (int i = 0; i < n; i++)
+				buffer[length + i] = bytes[offset + i];
+		} else {
+			System.arraycopy(bytes, offset, buffer, length, n);
+		}
+		length += n;
+	}
+
+	private void writeLong(long value) {
+		if (value == (int)value) {
+			writeInt((int)value);
+			return;
+		}
+		if (value == Long.MIN_VALUE) {
+			write(MIN_LONG);
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long v = value; v >= 10; v /= 10)
+			digits++;
+		int end = length + digits;
+		for (int i = end - 1; i >= length; i--) {
+			buffer[i] = (byte)('0' + value % 10);
+			value /= 10;
+		}
+		length = end;
+	}
+
+	private void writeInt(int value) {
+		if (value == Integer.MIN_VALUE) {
+			write(MIN_INT);
+			return;
+		}
+		ensureCapacity(11);
+		if (value < 0) {
+			buffer[length++] = '-';
+			value = -value;
+		}
+		if (value < 10) {
+			buffer[length++] = (byte)('0' + value);
+			return;
+		}
+		int digits = 2;
+		for (int limit = 100; digits < 10 && value >= limit; limit *= 10)
+			digits++;
+		int end = length + digits;
+		for (int i = end - 1; i >= length; i--) {
+			buffer[i] = (byte)('0' + value % 10);
+			value /= 10;
+		}
+		length = end;
+	}
+
+	private void writeAscii(String s) {
+		int n = s.length();
+		ensureCapacity(n);
+		for (int i = 0; i < n; i++)
+			buffer[length++] = (byte)s.charAt(i);
+	}
+
+	private void writeUnicodeEscape(int c) {
+		ensureCapacity(6);
+		buffer[length++] = '\\';
+		buffer[length++] = 'u';
+		buffer[length++] = HEX[c >> 12 & 0xf];
+		buffer[length++] = HEX[c >> 8 & 0xf];
+		buffer[length++] = HEX[c >> 4 & 0xf];
+		buffer[length++] = HEX[c & 0xf];
+	}
+
+	/* input */
+
+	private int readVarint32() throws UnsupportedJsonException {
+		return (int)readVarint64();
+	}
+
+	private long readVarint64() throws UnsupportedJsonException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (position >= dataLength)
+				throw UnsupportedJsonException.INSTANCE;
+			byte b = data[position++];
+			result |= (long)(b & 0x7f) << shift;
+			if (b >= 0)
+				return result;
+		}
+		throw UnsupportedJsonException.INSTANCE;
+	}
+
+	private int readFixed32() throws UnsupportedJsonException {
+		if (position + 4 > dataLength)
+			throw UnsupportedJsonException.INSTANCE;
+		int p = position;
+		position += 4;
+		return (data[p] & 0xff)
+				| (data[p + 1] & 0xff) << 8
+				| (data[p + 2] & 0xff) << 16
+				| (data[p + 3] & 0xff) << 24;
+	}
+
+	private long readFixed64() throws UnsupportedJsonException {
+		return readFixed32() & 0xffffffffL | (long)readFixed32() << 32;
+	}
+
+	private int readLength() throws UnsupportedJsonException {
+		int n = readVarint32();
+		if (n < 0 || n > dataLength - position)
+			throw UnsupportedJsonException.INSTANCE;
+		return n;
+	}
+
+	private void skipValue(int wireType) throws UnsupportedJsonException {
+		switch (wireType) {
+			case WireFormat.WIRETYPE_VARINT:
+				readVarint64();
+				break;
+			case WireFormat.WIRETYPE_FIXED32:
+				readFixed32();
+				break;
+			case WireFormat.WIRETYPE_FIXED64:
+				readFixed64();
+				break;
+			case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+				position += readLength();
+				break;
+			default:
+				throw UnsupportedJsonException.INSTANCE;
+		}
+	}
+
+	/* json */
+
+	private void printMessage(ProtoJsonFields fields, int start, int end) throws UnsupportedJsonException {
+		write('{');
+		printFields(fields, start, end);
+		write('}');
+		position = end;
+	}
+
+	private void printFields(ProtoJsonFields fields, int start, int end) throws UnsupportedJsonException {
+		position = start;
+		boolean first = true;
+		while (position < end) {
+			int tag = readVarint32();
+			Field field = fields.getField(WireFormat.getTagFieldNumber(tag));
+			if (field == null)
+				throw UnsupportedJsonException.INSTANCE;
+			if (!first)
+				write(',');
+			first = false;
+			printField(field, tag, end);
+		}
+	}
+
+	// prints the field value, or consecutive values of the repeated field
+	private void printField(Field field, int tag, int end) throws UnsupportedJsonException {
+		write(field.jsonName);
+		if (!field.repeated) {
+			printValue(field, WireFormat.getTagWireType(tag));
+			return;
+		}
+
+		write('[');
+		boolean first = true;
+		while (true) {
+			int wireType = WireFormat.getTagWireType(tag);
+			if (wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED
+					&& field.wireType != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+				// packed values
+				int valuesEnd = readLength() + position;
+				while (position < valuesEnd) {
+					if (!first)
+						write(',');
+					first = false;
+					printValue(field, field.wireType);
+				}
+				if (position != valuesEnd)
+					throw UnsupportedJsonException.INSTANCE;
+			} else {
+				if (!first)
+					write(',');
+				first = false;
+				printValue(field, wireType);
+			}
+
+			if (position >= end)
+				break;
+			int next = position;
+			int nextTag = readVarint32();
+			if (WireFormat.getTagFieldNumber(nextTag) != field.number) {
+				position = next;
+				break;
+			}
+			tag = nextTag;
+		}
+		write(']');
+	}
+
+	private void printValue(Field field, int wireType) throws UnsupportedJsonException {
+		if (wireType != field.wireType)
+			throw UnsupportedJsonException.INSTANCE;
+
+		switch (field.type) {
+			case INT32:
+				writeInt((int)readVarint64());
+				break;
+			case INT64:
+				writeLong(readVarint64());
+				break;
+			case UINT32:
+				writeLong(readVarint32() & 0xffffffffL);
+				break;
+			case UINT64:
+				writeAscii(Long.toUnsignedString(readVarint64()));
+				break;
+			case SINT32:
+				int sint32 = readVarint32();
+				writeLong((sint32 >>> 1) ^ -(sint32 & 1));
+				break;
+			case SINT64:
+				long sint64 = readVarint64();
+				writeLong((sint64 >>> 1) ^ -(sint64 & 1));
+				break;
+			case FIXED32:
+				writeLong(readFixed32() & 0xffffffffL);
+				break;
+			case SFIXED32:
+				writeLong(readFixed32());
+				break;
+			case FIXED64:
+				writeAscii(Long.toUnsignedString(readFixed64()));
+				break;
+			case SFIXED64:
+				writeLong(readFixed64());
+				break;
+			case BOOL:
+				write(readVarint64() != 0 ? TRUE : FALSE);
+				break;
+			case FLOAT:
+				writeAscii(Float.toString(Float.intBitsToFloat(readFixed32())));
+				break;
+			case DOUBLE:
+				ensureCapacity(ProtoJsonDoubles.MAX_LENGTH);
+				length = ProtoJsonDoubles.write(Double.longBitsToDouble(readFixed64()), buffer, length);
+				break;
+			case ENUM:
+				byte[] enumName = field.getEnumName((int)readVarint64());
+				if (enumName == null)
+					throw UnsupportedJsonException.INSTANCE;
+				write(enumName);
+				break;
+			case STRING:
+				int stringLength = readLength();
+				printString(position, position + stringLength);
+				position += stringLength;
+				break;
+			case BYTES:
+				int bytesLength = readLength();
+				printBytes(position, position + bytesLength);
+				position += bytesLength;
+				break;
+			case MESSAGE:
+				int messageLength = readLength();
+				printMessage(field.getMessageFields(), position, position + messageLength);
+				break;
+			default:
+				throw UnsupportedJsonException.INSTANCE;
+		}
+	}
+
+	private static boolean isContinuation(byte b) {
+		return (b & 0xc0) == 0x80;
+	}
+
+	// utf-8 is copied as is, except the escaped ascii chars and the chars
+	// out of the basic plane, that are escaped as surrogate pairs
+	private void printString(int start, int end) {
+		int mark = length;
+		write('"');
+		int i = start;
+		while (i < end) {
+			// run of the chars printed as is
+			int run = i;
+			while (run < end && data[run] >= 0 && STRING_ESCAPES[data[run]] == null)
+				run++;
+			if (run > i) {
+				write(data, i, run - i);
+				i = run;
+				if (i == end)
+					break;
+			}
+
+			int b = data[i] & 0xff;
+			if (b < 0x80) {
+				write(STRING_ESCAPES[b]);
+				i++;
+			} else if (b >= 0xc2 && b < 0xe0 && i + 1 < end && isContinuation(data[i + 1])) {
+				write(data, i, 2);
+				i += 2;
+			} else if (b >= 0xe0 && b < 0xf0 && i + 2 < end
+					&& isContinuation(data[i + 1]) && isContinuation(data[i + 2])) {
+				int c = (b & 0x0f) << 12 | (data[i + 1] & 0x3f) << 6 | data[i + 2] & 0x3f;
+				if (c < 0x800 || Character.isSurrogate((char)c)) {
+					printMalformedString(mark, start, end);
+					return;
+				}
+				write(data, i, 3);
+				i += 3;
+			} else if (b >= 0xf0 && b < 0xf5 && i + 3 < end && isContinuation(data[i + 1])
+					&& isContinuation(data[i + 2]) && isContinuation(data[i + 3])) {
+				int c = (b & 0x07) << 18 | (data[i + 1] & 0x3f) << 12
+						| (data[i + 2] & 0x3f) << 6 | data[i + 3] & 0x3f;
+				if (c < Character.MIN_SUPPLEMENTARY_CODE_POINT || c > Character.MAX_CODE_POINT) {
+					printMalformedString(mark, start, end);
+					return;
+				}
+				writeUnicodeEscape(Character.highSurrogate(c));
+				writeUnicodeEscape(Character.lowSurrogate(c));
+				i += 4;
+			} else {
+				printMalformedString(mark, start, end);
+				return;
+			}
+		}
+		write('"');
+	}
+
+	// string, that is not a valid utf-8, is printed as decoded
+	// by the message getters, with the replacement chars
+	private void printMalformedString(int mark, int start, int end) {
+		// drop the part printed so far
+		length = mark;
+		write('"');
+		String s = new String(data, start, end - start, StandardCharsets.UTF_8);
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				if (STRING_ESCAPES[c] != null)
+					write(STRING_ESCAPES[c]);
+				else
+					write(c);
+			} else if (Character.isSurrogate(c)) {
+				writeUnicodeEscape(c);
+			} else {
+				byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+				write(bytes);
+			}
+		}
+		write('"');
+	}
+
+	private void printBytes(int start, int end) {
+		write('"');
+		for (int i = start; i < end; i++) {
+			byte b = data[i];
+			if (b < 0) {
+				// sign-extended, as printed by the JsonFormat
+				writeUnicodeEscape(b & 0xffff);
+			} else if (BYTES_ESCAPES[b] != null) {
+				write(BYTES_ESCAPES[b]);
+			} else {
+				write(b);
+			}
+		}
+		write('"');
+	}
+}
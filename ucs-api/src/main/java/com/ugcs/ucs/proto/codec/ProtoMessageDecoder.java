@@ -1,5 +1,7 @@
 package com.ugcs.ucs.proto.codec;
 
+import java.nio.ByteBuffer;
+
 import com.google.protobuf.Message;
 
 public interface ProtoMessageDecoder {
@@ -7,4 +9,28 @@ public interface ProtoMessageDecoder {
 	Message decode(byte[] buffer, Class<? extends Message> messageClass) throws Exception;
 
 	Message decode(byte[] buffer, Message.Builder builder) throws Exception;
+
+	// decodes a message of the default instance type,
+	// see ProtoMessageMapping.getDefaultInstance(int)
+	default Message decode(byte[] buffer, Message defaultInstance) throws Exception {
+		if (defaultInstance == null)
+			throw new IllegalArgumentException("Message type not specified");
+
+		return decode(buffer, defaultInstance.getClass());
+	}
+
+	// decodes remaining bytes of the buffer, buffer position
+	// is left unchanged
+	default Message decode(ByteBuffer buffer, Class<? extends Message> messageClass) throws Exception {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return decode(data, messageClass);
+	}
+
+	default Message decode(ByteBuffer buffer, Message defaultInstance) throws Exception {
+		if (defaultInstance == null)
+			throw new IllegalArgumentException("Message type not specified");
+
+		return decode(buffer, defaultInstance.getClass());
+	}
 }
@@ -1,8 +1,22 @@
 package com.ugcs.ucs.proto.codec;
 
+import java.nio.ByteBuffer;
+
 import com.google.protobuf.Message;
 
 public interface ProtoMessageEncoder {
 
 	byte[] encode(Message message);
+
+	// returns encoded size of the message or -1,
+	// if it is not known without encoding
+	default int getEncodedSize(Message message) {
+		return -1;
+	}
+
+	// encodes message into the buffer, advancing its position
+	// by the encoded size
+	default void encode(Message message, ByteBuffer buffer) throws Exception {
+		buffer.put(encode(message));
+	}
 }
@@ -1,34 +1,178 @@
 package com.ugcs.ucs.proto.codec;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.google.protobuf.Internal;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 
+/**
+ * Mapping of the message type ids to the generated message classes.
+ * <p>
+ * Types are kept in an array indexed by the type id, message classes
+ * may be registered by name, to be loaded on the first use of the type:
+ * a mapping with hundreds of types does not load and initialize all their
+ * classes at once. Reverse lookup by class is cached per class.
+ * Mappings should be put by the constructor of the subclass.
+ */
 public abstract class ProtoMessageMapping {
 
-	private Map<Integer, Class<? extends Message>> typeToClassMap =
-			new HashMap<Integer, Class<? extends Message>>();
-	private Map<Class<? extends Message>, Integer> classToTypeMap =
-			new HashMap<Class<? extends Message>, Integer>();
+	// type ids above are not kept in the array
+	private static final int MAX_TABLE_TYPE = 0xffff;
+
+	private static final ClassValue<Message> defaultInstances = new ClassValue<Message>() {
+		@SuppressWarnings("unchecked")
+		@Override
+		protected Message computeValue(Class<?> type) {
+			return Internal.getDefaultInstance((Class<? extends Message>)type);
+		}
+	};
+
+	// types by id
+	private MessageTypeEntry[] typeTable = new MessageTypeEntry[0];
+	private final Map<Integer, MessageTypeEntry> sparseTypes = new HashMap<>();
+	private final Map<String, Integer> classNameToType = new HashMap<>();
+
+	private final ClassValue<Integer> classToType = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return classNameToType.get(type.getName());
+		}
+	};
 
 	protected void putMapping(Integer messageType, Class<? extends Message> messageClass) {
-		typeToClassMap.put(messageType, messageClass);
-		classToTypeMap.put(messageClass, messageType);
+		if (messageClass == null)
+			throw new IllegalArgumentException("messageClass");
+
+		putEntry(messageType, new MessageTypeEntry(messageClass.getName(), messageClass));
+	}
+
+	/**
+	 * Maps the type to the message class, that is loaded
+	 * when the type is used for the first time.
+	 *
+	 * @param messageClassName binary name of the class,
+	 *                         e.g. {@code com.ugcs.ucs.proto.MessagesProto$Notification}
+	 */
+	protected void putMapping(int messageType, String messageClassName) {
+		if (messageClassName == null)
+			throw new IllegalArgumentException("messageClassName");
+
+		putEntry(messageType, new MessageTypeEntry(messageClassName, null));
+	}
+
+	private void putEntry(int messageType, MessageTypeEntry entry) {
+		if (messageType >= 0 && messageType <= MAX_TABLE_TYPE) {
+			if (messageType >= typeTable.length)
+				typeTable = Arrays.copyOf(typeTable, Math.max(messageType + 1, typeTable.length * 2));
+			typeTable[messageType] = entry;
+		} else {
+			sparseTypes.put(messageType, entry);
+		}
+		classNameToType.put(entry.className, messageType);
+	}
+
+	private MessageTypeEntry getEntry(int messageType) {
+		if (messageType >= 0 && messageType < typeTable.length)
+			return typeTable[messageType];
+		return sparseTypes.get(messageType);
+	}
+
+	/**
+	 * Default instance of the generated message class.
+	 */
+	static Message getDefaultInstance(Class<? extends Message> messageClass) {
+		return defaultInstances.get(messageClass);
+	}
+
+	/**
+	 * Checks whether the type is mapped, without loading its class.
+	 */
+	public boolean isMapped(int messageType) {
+		return getEntry(messageType) != null;
 	}
 
 	public Class<? extends Message> getMessageClass(Integer messageType) {
-		return typeToClassMap.get(messageType);
+		if (messageType == null)
+			return null;
+		MessageTypeEntry entry = getEntry(messageType);
+		return entry != null
+				? entry.getMessageClass(getClass().getClassLoader())
+				: null;
+	}
+
+	/**
+	 * @return default instance of the message type,
+	 *         or null if the type is not mapped
+	 */
+	public Message getDefaultInstance(int messageType) {
+		MessageTypeEntry entry = getEntry(messageType);
+		return entry != null
+				? entry.getDefaultInstance(getClass().getClassLoader())
+				: null;
+	}
+
+	/**
+	 * @return parser of the message type, or null if the type is not mapped
+	 */
+	@SuppressWarnings("unchecked")
+	public Parser<? extends Message> getParser(int messageType) {
+		Message defaultInstance = getDefaultInstance(messageType);
+		return defaultInstance != null
+				? (Parser<? extends Message>)defaultInstance.getParserForType()
+				: null;
 	}
 
 	public Integer getMessageType(Class<? extends Message> messageClass) {
-		return classToTypeMap.get(messageClass);
+		if (messageClass == null)
+			return null;
+		return classToType.get(messageClass);
 	}
 
 	public Integer getMessageType(Message message) {
 		if (message == null)
 			throw new IllegalArgumentException("message");
 
-		return classToTypeMap.get(message.getClass());
+		return classToType.get(message.getClass());
+	}
+
+	/**
+	 * Mapped type, resolved on the first use.
+	 */
+	private static final class MessageTypeEntry {
+
+		final String className;
+		private volatile Class<? extends Message> messageClass;
+		private volatile Message defaultInstance;
+
+		MessageTypeEntry(String className, Class<? extends Message> messageClass) {
+			this.className = className;
+			this.messageClass = messageClass;
+		}
+
+		Class<? extends Message> getMessageClass(ClassLoader classLoader) {
+			Class<? extends Message> messageClass = this.messageClass;
+			if (messageClass == null) {
+				try {
+					// class is initialized with the default instance
+					messageClass = Class.forName(className, false, classLoader).asSubclass(Message.class);
+				} catch (ClassNotFoundException | ClassCastException e) {
+					throw new IllegalStateException("Message class not found: " + className, e);
+				}
+				this.messageClass = messageClass;
+			}
+			return messageClass;
+		}
+
+		Message getDefaultInstance(ClassLoader classLoader) {
+			Message defaultInstance = this.defaultInstance;
+			if (defaultInstance == null) {
+				defaultInstance = ProtoMessageMapping.getDefaultInstance(getMessageClass(classLoader));
+				this.defaultInstance = defaultInstance;
+			}
+			return defaultInstance;
+		}
 	}
 }
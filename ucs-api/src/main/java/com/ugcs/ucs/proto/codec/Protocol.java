@@ -1,9 +1,22 @@
 package com.ugcs.ucs.proto.codec;
 
+/**
+ * Frame header: signature (2 bytes), version (2), message instance id (4),
+ * message type (4) and the message length (4), big-endian.
+ * <p>
+ * Frames of the version 1 carry the raw message. Frames of the version 2
+ * are the compressed messages: compressor id (1 byte), message length (4)
+ * and the compressed data, or the compression negotiation messages
+ * of the {@link #CONTROL_MESSAGE_TYPE}: control type (1 byte), number
+ * of the compressor ids (1) and the ids (1 byte each).
+ */
 public final class Protocol {
 
 	public static final int SIGNATURE = 0x4850; // "HP", stands for "HCI Protobuf"
 	public static final int VERSION = 1;
+	public static final int VERSION_COMPRESSED = 2;
+
+	public static final int CONTROL_MESSAGE_TYPE = -1;
 
 	private Protocol() {
 	}
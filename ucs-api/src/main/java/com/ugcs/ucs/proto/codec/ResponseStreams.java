@@ -0,0 +1,96 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.ugcs.ucs.proto.MessagesProto;
+
+/**
+ * Consumers of the streamed responses, by the instance id of the request.
+ * <p>
+ * Responses those may carry a lot of elements ({@code GetObjectListResponse},
+ * {@code GetTelemetryResponse} and {@code GetVehicleTracksResponse}) are
+ * decoded as their bytes arrive, when a consumer is registered for the
+ * request: elements are passed to the consumer one by one, and the response
+ * is decoded without them. Decoder keeps a single element at a time rather
+ * than the whole frame. Compressed frames are decoded whole.
+ * <p>
+ * Registry is shared by the decoders of all the connections
+ * of a client, see {@link MessageWrapperCodecFactory}.
+ */
+public final class ResponseStreams {
+
+	// streamed field of the response, by the response type
+	private static final Map<Descriptor, FieldDescriptor> elementFields = new HashMap<>();
+
+	static {
+		addElementField(MessagesProto.GetObjectListResponse.getDescriptor(),
+				MessagesProto.GetObjectListResponse.OBJECTS_FIELD_NUMBER);
+		addElementField(MessagesProto.GetTelemetryResponse.getDescriptor(),
+				MessagesProto.GetTelemetryResponse.TELEMETRY_FIELD_NUMBER);
+		addElementField(MessagesProto.GetVehicleTracksResponse.getDescriptor(),
+				MessagesProto.GetVehicleTracksResponse.VEHICLETRACKS_FIELD_NUMBER);
+	}
+
+	private final Map<Integer, Consumer<? super Message>> consumers = new ConcurrentHashMap<>();
+
+	private static void addElementField(Descriptor descriptor, int fieldNumber) {
+		elementFields.put(descriptor, descriptor.findFieldByNumber(fieldNumber));
+	}
+
+	/**
+	 * @return repeated field of the streamed elements,
+	 *         or null if the responses of the type are not streamed
+	 */
+	public static FieldDescriptor getElementField(Descriptor messageType) {
+		if (messageType == null)
+			throw new IllegalArgumentException("messageType");
+
+		return elementFields.get(messageType);
+	}
+
+	/**
+	 * Registers the consumer of the response elements,
+	 * before the request is sent.
+	 */
+	public void register(int instanceId, Consumer<? super Message> consumer) {
+		if (consumer == null)
+			throw new IllegalArgumentException("consumer");
+
+		consumers.put(instanceId, consumer);
+	}
+
+	/**
+	 * Removes the consumer, once the response is received.
+	 *
+	 * @return true if the response was not streamed to the consumer
+	 */
+	public boolean unregister(int instanceId) {
+		return consumers.remove(instanceId) != null;
+	}
+
+	/**
+	 * Takes the consumer of the frame, if the frame is to be streamed.
+	 *
+	 * @return streamed frame, or null if the frame is decoded whole
+	 */
+	StreamedFrame open(int instanceId, int messageType, int messageLength,
+			ProtoMessageMapping protoMapping, ProtoMessageDecoder protoDecoder) {
+		if (consumers.isEmpty() || !protoMapping.isMapped(messageType))
+			return null;
+		Message defaultInstance = protoMapping.getDefaultInstance(messageType);
+		FieldDescriptor elementField = elementFields.get(defaultInstance.getDescriptorForType());
+		if (elementField == null)
+			return null;
+		Consumer<? super Message> consumer = consumers.remove(instanceId);
+		if (consumer == null)
+			return null;
+		return new StreamedFrame(protoDecoder, defaultInstance, elementField, consumer,
+				instanceId, messageType, messageLength);
+	}
+}
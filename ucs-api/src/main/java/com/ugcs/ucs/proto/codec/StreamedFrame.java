@@ -0,0 +1,284 @@
+package com.ugcs.ucs.proto.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.messaging.api.CorruptedDataException;
+
+/**
+ * Frame of a streamed response, decoded field by field as its bytes arrive.
+ * Elements of the repeated field are passed to the consumer, the other
+ * fields make the response, that is decoded when the frame is complete.
+ * Only the field that is not received completely is buffered, in an array
+ * taken from the default {@link BufferPool}.
+ *
+ * @see ResponseStreams
+ */
+final class StreamedFrame {
+
+	private static final Logger log = LoggerFactory.getLogger(StreamedFrame.class);
+
+	// tag and the length varints
+	private static final int MAX_FIELD_HEADER_LENGTH = 15;
+
+	private static final int MAX_VARINT_LENGTH = 10;
+
+	// partial field buffers larger than that are not kept between fields
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final ProtoMessageDecoder protoDecoder;
+	private final Message defaultInstance;
+	private final int elementNumber;
+	private final Message elementDefaultInstance;
+	private final Consumer<? super Message> consumer;
+	private final int instanceId;
+	private final int messageType;
+
+	private final BufferPool pool = BufferPool.getDefault();
+
+	// frame bytes not passed to the decoder yet
+	private int remaining;
+	// partial field, in the write mode
+	private ByteBuffer partial;
+	// encoded fields other than the elements
+	private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+	// rest of the frame is skipped on failure
+	private Exception failure;
+
+	// header of the last measured field
+	private int fieldNumber;
+	private int wireType;
+	private int valueOffset;
+
+	StreamedFrame(ProtoMessageDecoder protoDecoder, Message defaultInstance, FieldDescriptor elementField,
+			Consumer<? super Message> consumer, int instanceId, int messageType, int messageLength) {
+		this.protoDecoder = protoDecoder;
+		this.defaultInstance = defaultInstance;
+		this.elementNumber = elementField.getNumber();
+		this.elementDefaultInstance = defaultInstance.newBuilderForType()
+				.newBuilderForField(elementField)
+				.getDefaultInstanceForType();
+		this.consumer = consumer;
+		this.instanceId = instanceId;
+		this.messageType = messageType;
+		this.remaining = messageLength;
+	}
+
+	int getRemaining() {
+		return remaining;
+	}
+
+	boolean isComplete() {
+		return remaining == 0;
+	}
+
+	/**
+	 * Decodes the frame bytes from the buffer position,
+	 * bytes after the frame end are left in the buffer.
+	 */
+	void feed(ByteBuffer buffer) {
+		int limit = buffer.limit();
+		int frameEnd = buffer.position() + Math.min(buffer.remaining(), remaining);
+		remaining -= frameEnd - buffer.position();
+		buffer.limit(frameEnd);
+		try {
+			if (failure == null)
+				feedFields(buffer);
+		} catch (Exception e) {
+			failure = e;
+			releasePartial();
+		} finally {
+			buffer.limit(limit);
+			buffer.position(frameEnd);
+		}
+	}
+
+	/**
+	 * @return wrapper of the response without the streamed elements
+	 */
+	MessageWrapper complete() throws Exception {
+		if (failure != null)
+			throw failure;
+		if (!isComplete() || (partial != null && partial.position() > 0))
+			throw new CorruptedDataException("Streamed message is truncated");
+
+		Message message = protoDecoder.decode(head.toByteArray(), defaultInstance);
+		return new MessageWrapper(message, instanceId, messageType);
+	}
+
+	void release() {
+		releasePartial();
+	}
+
+	private void feedFields(ByteBuffer buffer) throws Exception {
+		if (partial != null && partial.position() > 0) {
+			if (!completePartial(buffer))
+				return;
+		}
+		// complete fields are decoded in place
+		int length = -1;
+		while (buffer.hasRemaining()) {
+			int start = buffer.position();
+			length = measureField(buffer, start, buffer.limit(), remaining);
+			if (length < 0 || length > buffer.limit() - start)
+				break;
+			decodeField(buffer, start, length);
+			buffer.position(start + length);
+		}
+		// trailing partial field is accumulated
+		if (buffer.hasRemaining()) {
+			ensurePartialCapacity(length < 0 ? MAX_FIELD_HEADER_LENGTH : length);
+			partial.put(buffer);
+		}
+	}
+
+	// returns false if the buffer has not enough data
+	// to complete the partial field
+	private boolean completePartial(ByteBuffer buffer) throws Exception {
+		int length;
+		// header is completed byte by byte, not to take
+		// the bytes of the next field
+		while ((length = measureField(partial, 0, partial.position(), buffer.remaining() + remaining)) < 0) {
+			if (!buffer.hasRemaining())
+				return false;
+			partial.put(buffer.get());
+		}
+		ensurePartialCapacity(length);
+		int count = Math.min(length - partial.position(), buffer.remaining());
+		int limit = buffer.limit();
+		buffer.limit(buffer.position() + count);
+		partial.put(buffer);
+		buffer.limit(limit);
+		if (partial.position() < length)
+			return false;
+
+		decodeField(partial, 0, length);
+		if (partial.capacity() > MAX_RETAINED_CAPACITY)
+			releasePartial();
+		else
+			partial.clear();
+		return true;
+	}
+
+	private void decodeField(ByteBuffer buffer, int start, int length) throws Exception {
+		if (fieldNumber == elementNumber && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+			int position = buffer.position();
+			int limit = buffer.limit();
+			buffer.limit(start + length);
+			buffer.position(start + valueOffset);
+			Message element;
+			try {
+				element = protoDecoder.decode(buffer, elementDefaultInstance);
+			} finally {
+				buffer.limit(limit);
+				buffer.position(position);
+			}
+			try {
+				consumer.accept(element);
+			} catch (Exception e) {
+				log.warn("Element consumer error", e);
+			}
+		} else if (buffer.hasArray()) {
+			head.write(buffer.array(), buffer.arrayOffset() + start, length);
+		} else {
+			for (int i = start; i < start + length; i++)
+				head.write(buffer.get(i));
+		}
+	}
+
+	/**
+	 * Reads the field header at the index.
+	 *
+	 * @param following frame bytes after the limit
+	 * @return length of the field, or -1 if the header is incomplete
+	 */
+	private int measureField(ByteBuffer buffer, int start, int limit, int following) throws CorruptedDataException {
+		int tagEnd = varintEnd(buffer, start, limit);
+		if (tagEnd < 0)
+			return -1;
+		long tag = getVarint(buffer, start);
+		if (tag >>> 3 == 0 || tag >>> 32 != 0)
+			throw new CorruptedDataException("Invalid tag in the streamed message");
+		fieldNumber = (int)(tag >>> 3);
+		wireType = (int)tag & 0x7;
+		valueOffset = tagEnd - start;
+
+		long length;
+		switch (wireType) {
+			case WireFormat.WIRETYPE_VARINT:
+				int valueEnd = varintEnd(buffer, tagEnd, limit);
+				if (valueEnd < 0)
+					return -1;
+				length = valueEnd - start;
+				break;
+			case WireFormat.WIRETYPE_FIXED64:
+				length = valueOffset + 8;
+				break;
+			case WireFormat.WIRETYPE_FIXED32:
+				length = valueOffset + 4;
+				break;
+			case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+				int lengthEnd = varintEnd(buffer, tagEnd, limit);
+				if (lengthEnd < 0)
+					return -1;
+				valueOffset = lengthEnd - start;
+				length = valueOffset + getVarint(buffer, tagEnd);
+				break;
+			default:
+				throw new CorruptedDataException("Unsupported wire type in the streamed message: " + wireType);
+		}
+		// field bytes to the frame end
+		long available = (long)limit - start + following;
+		if (length < 0 || length > available)
+			throw new CorruptedDataException("Field exceeds the streamed message");
+		return (int)length;
+	}
+
+	// returns -1 if the varint is incomplete
+	private static int varintEnd(ByteBuffer buffer, int index, int limit) throws CorruptedDataException {
+		for (int i = 0; i < MAX_VARINT_LENGTH; i++) {
+			if (index + i >= limit)
+				return -1;
+			if ((buffer.get(index + i) & 0x80) == 0)
+				return index + i + 1;
+		}
+		throw new CorruptedDataException("Malformed varint in the streamed message");
+	}
+
+	private static long getVarint(ByteBuffer buffer, int index) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get(index++);
+			value |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+	}
+
+	private void ensurePartialCapacity(int capacity) {
+		if (partial == null) {
+			partial = ByteBuffer.wrap(pool.acquire(Math.max(capacity, MAX_FIELD_HEADER_LENGTH)));
+		} else if (partial.capacity() < capacity) {
+			ByteBuffer extended = ByteBuffer.wrap(pool.acquire(capacity));
+			partial.flip();
+			extended.put(partial);
+			releasePartial();
+			partial = extended;
+		}
+	}
+
+	private void releasePartial() {
+		if (partial != null) {
+			pool.release(partial.array());
+			partial = null;
+		}
+	}
+}
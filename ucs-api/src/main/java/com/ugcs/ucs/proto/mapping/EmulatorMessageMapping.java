@@ -1,14 +1,15 @@
 package com.ugcs.ucs.proto.mapping;
 
-import com.ugcs.ucs.proto.EmulatorProto;
 import com.ugcs.ucs.proto.codec.ProtoMessageMapping;
 
 public class EmulatorMessageMapping extends ProtoMessageMapping {
 
+	private static final String MESSAGES = "com.ugcs.ucs.proto.EmulatorProto$";
+
 	public EmulatorMessageMapping() {
-		putMapping(1, EmulatorProto.GetVehicleParametersRequest.class);
-		putMapping(2, EmulatorProto.GetVehicleParametersResponse.class);
-		putMapping(3, EmulatorProto.GetElevationRequest.class);
-		putMapping(4, EmulatorProto.GetElevationResponse.class);
+		putMapping(1, MESSAGES + "GetVehicleParametersRequest");
+		putMapping(2, MESSAGES + "GetVehicleParametersResponse");
+		putMapping(3, MESSAGES + "GetElevationRequest");
+		putMapping(4, MESSAGES + "GetElevationResponse");
 	}
 }
@@ -1,218 +1,219 @@
 package com.ugcs.ucs.proto.mapping;
 
-import com.ugcs.ucs.proto.MessagesProto;
-import com.ugcs.ucs.proto.MessagesProto.*;
 import com.ugcs.ucs.proto.codec.ProtoMessageMapping;
 
 public class HciMessageMapping extends ProtoMessageMapping {
 
+	// message classes are loaded on the first use
+	private static final String MESSAGES = "com.ugcs.ucs.proto.MessagesProto$";
+
 	public HciMessageMapping() {
-		putMapping(0, MessagesProto.Error.class);
-		putMapping(1, Notification.class);
-		putMapping(2, OperationStatus.class);
-		putMapping(3, OperationStream.class);
-		putMapping(4, OperationStreamRequest.class);
-		putMapping(5, CancelOperationRequest.class);
-		putMapping(6, CancelOperationResponse.class);
+		putMapping(0, MESSAGES + "Error");
+		putMapping(1, MESSAGES + "Notification");
+		putMapping(2, MESSAGES + "OperationStatus");
+		putMapping(3, MESSAGES + "OperationStream");
+		putMapping(4, MESSAGES + "OperationStreamRequest");
+		putMapping(5, MESSAGES + "CancelOperationRequest");
+		putMapping(6, MESSAGES + "CancelOperationResponse");
 
-		putMapping(10, GetObjectListRequest.class);
-		putMapping(11, GetObjectListResponse.class);
-		putMapping(12, GetObjectRequest.class);
-		putMapping(13, GetObjectResponse.class);
-		putMapping(14, CreateOrUpdateObjectRequest.class);
-		putMapping(15, CreateOrUpdateObjectResponse.class);
-		putMapping(16, DeleteObjectRequest.class);
-		putMapping(17, DeleteObjectResponse.class);
-		putMapping(18, UpdateObjectFieldsRequest.class);
-		putMapping(19, UpdateObjectFieldsResponse.class);
-		putMapping(20, AuthorizeHciRequest.class);
-		putMapping(21, AuthorizeHciResponse.class);
-		putMapping(22, LoginRequest.class);
-		putMapping(23, LoginResponse.class);
-		putMapping(24, LogoutRequest.class);
-		putMapping(25, LogoutResponse.class);
-		putMapping(30, GetRasterGridRequest.class);
-		putMapping(31, GetRasterGridResponse.class);
-		putMapping(32, ProcessRouteRequest.class);
-		putMapping(33, ProcessRouteResponse.class);
-		putMapping(34, GetRasterValuesRequest.class);
-		putMapping(35, GetRasterValuesResponse.class);
-		putMapping(36, GetTelemetryRequest.class);
-		putMapping(37, GetTelemetryResponse.class);
-		putMapping(38, GetKmlRouteRepresentationRequest.class);
-		putMapping(39, GetKmlRouteRepresentationResponse.class);
-		putMapping(42, SetHciLocaleRequest.class);
-		putMapping(43, SetHciLocaleResponse.class);
-		putMapping(44, ConvertRouteAltitudesRequest.class);
-		putMapping(45, ConvertRouteAltitudesResponse.class);
-		putMapping(46, GetLineOfSightRequest.class);
-		putMapping(47, GetLineOfSightResponse.class);
-		putMapping(48, GetElevationProfileRequest.class);
-		putMapping(49, GetElevationProfileResponse.class);
-		putMapping(50, GetAdsbAircraftListRequest.class);
-		putMapping(51, GetAdsbAircraftListResponse.class);
-		putMapping(52, SearchPlacesRequest.class);
-		putMapping(53, SearchPlacesResponse.class);
-		putMapping(54, ExportRouteRequest.class);
-		putMapping(55, ExportRouteResponse.class);
-		putMapping(56, ImportRouteRequest.class);
-		putMapping(57, ImportRouteResponse.class);
-		putMapping(58, SubscribeEventRequest.class);
-		putMapping(59, SubscribeEventResponse.class);
-		putMapping(60, UnsubscribeEventRequest.class);
-		putMapping(61, UnsubscribeEventResponse.class);
-		putMapping(62, GetVehicleLogRequest.class);
-		putMapping(63, GetVehicleLogResponse.class);
-		putMapping(64, SendCommandRequest.class);
-		putMapping(65, SendCommandResponse.class);
-		putMapping(66, UploadRouteRequest.class);
-		putMapping(67, UploadRouteResponse.class);
-		putMapping(68, GetLicenseRequest.class);
-		putMapping(69, GetLicenseResponse.class);
-		putMapping(70, ActivateLicenseRequest.class);
-		putMapping(71, ActivateLicenseResponse.class);
-		putMapping(72, ExportMissionRequest.class);
-		putMapping(73, ExportMissionResponse.class);
-		putMapping(74, ImportMissionRequest.class);
-		putMapping(75, ImportMissionResponse.class);
-		putMapping(76, AcquireLockRequest.class);
-		putMapping(77, AcquireLockResponse.class);
-		putMapping(78, ReleaseLockRequest.class);
-		putMapping(79, ReleaseLockResponse.class);
-		putMapping(80, CheckLockRequest.class);
-		putMapping(81, CheckLockResponse.class);
-		putMapping(82, CheckMultipleLocksRequest.class);
-		putMapping(83, CheckMultipleLocksResponse.class);
-		putMapping(84, GetMissionPreferencesRequest.class);
-		putMapping(85, GetMissionPreferencesResponse.class);
-		putMapping(86, UpdateMissionPreferencesRequest.class);
-		putMapping(87, UpdateMissionPreferencesResponse.class);
-		putMapping(88, GetVehicleLogByTimeRangeRequest.class);
-		putMapping(89, GetVehicleLogByTimeRangeResponse.class);
-		putMapping(90, ExportTelemetryRequest.class);
-		putMapping(91, ExportTelemetryResponse.class);
-		putMapping(92, ImportTelemetryRequest.class);
-		putMapping(93, ImportTelemetryResponse.class);
-		putMapping(94, TraceTelemetryFramesRequest.class);
-		putMapping(95, TraceTelemetryFramesResponse.class);
-		putMapping(96, DeleteTelemetryRequest.class);
-		putMapping(97, DeleteTelemetryResponse.class);
-		putMapping(98, DeactivateLicenseRequest.class);
-		putMapping(99, DeactivateLicenseResponse.class);
-		putMapping(100, CheckForUpdatesRequest.class);
-		putMapping(101, CheckForUpdatesResponse.class);
-		putMapping(102, SendStatisticsRequest.class);
-		putMapping(103, SendStatisticsResponse.class);
-		putMapping(106, GetParametersSelectionValuesRequest.class);
-		putMapping(107, GetParametersSelectionValuesResponse.class);
-		putMapping(108, GetAdsbBulbStatusRequest.class);
-		putMapping(109, GetAdsbBulbStatusResponse.class);
-		putMapping(110, CountTelemetryRequest.class);
-		putMapping(111, CountTelemetryResponse.class);
-		putMapping(112, CalculateSplineRequest.class);
-		putMapping(113, CalculateSplineResponse.class);
-		putMapping(114, ChangeRouteVehicleProfileRequest.class);
-		putMapping(115, ChangeRouteVehicleProfileResponse.class);
-		putMapping(116, GetNfzListRequest.class);
-		putMapping(117, GetNfzListResponse.class);
-		putMapping(118, SubmitUtmOperationRequest.class);
-		putMapping(119, SubmitUtmOperationResponse.class);
-		putMapping(120, GetCapabilitiesRequest.class);
-		putMapping(121, GetCapabilitiesResponse.class);
-		putMapping(124, GetMappingRequest.class);
-		putMapping(125, GetMappingResponse.class);
-		putMapping(126, GetVehicleTracksRequest.class);
-		putMapping(127, GetVehicleTracksResponse.class);
-		putMapping(128, GetNativeRouteRequest.class);
-		putMapping(129, GetNativeRouteResponse.class);
-		putMapping(130, GetLocationPassingTimeRequest.class);
-		putMapping(131, GetLocationPassingTimeResponse.class);
-		putMapping(132, GetPolygonAreaRequest.class);
-		putMapping(133, GetPolygonAreaResponse.class);
-		putMapping(134, SplitRouteBySegmentsRequest.class);
-		putMapping(135, SplitRouteBySegmentsResponse.class);
-		putMapping(136, SplitRouteByDistanceRequest.class);
-		putMapping(137, SplitRouteByDistanceResponse.class);
-		putMapping(138, JoinRouteRequest.class);
-		putMapping(139, JoinRouteResponse.class);
-		putMapping(140, ReconstructRouteRequest.class);
-		putMapping(141, ReconstructRouteResponse.class);
-		putMapping(146, SwapElevationOrderRequest.class);
-		putMapping(147, SwapElevationOrderResponse.class);
-		putMapping(148, DeleteVehicleTrackRequest.class);
-		putMapping(149, DeleteVehicleTrackResponse.class);
-		putMapping(150, MergeVehicleTrackRequest.class);
-		putMapping(151, MergeVehicleTrackResponse.class);
-		putMapping(152, CheckLocationRequest.class);
-		putMapping(153, CheckLocationResponse.class);
-		putMapping(154, SplitVehicleTrackRequest.class);
-		putMapping(155, SplitVehicleTrackResponse.class);
-		putMapping(156, GetVehicleVideoLogRequest.class);
-		putMapping(157, GetVehicleVideoLogResponse.class);
-		putMapping(158, ExportTelemetryStreamRequest.class);
-		putMapping(159, ExportTelemetryStreamResponse.class);
-		putMapping(160, ImportTelemetryStreamRequest.class);
-		putMapping(161, ImportTelemetryStreamResponse.class);
-		putMapping(162, GetElevationTilesRequest.class);
-		putMapping(163, GetElevationTilesResponse.class);
-		putMapping(164, ExportRouteToKmlRequest.class);
-		putMapping(165, ExportRouteToKmlResponse.class);
-		putMapping(168, GetTelemetrySnapshotRequest.class);
-		putMapping(169, GetTelemetrySnapshotResponse.class);
-		putMapping(170, GetElevationTilesV2Request.class);
-		putMapping(171, GetElevationTilesV2Response.class);
-		putMapping(172, ExportRouteToWpmlRequest.class);
-		putMapping(173, ExportRouteToWpmlResponse.class);
-		putMapping(174, SplitRouteByCorridorPointRequest.class);
-		putMapping(175, SplitRouteByCorridorPointResponse.class);
-		putMapping(176, GetElevationProfileV2Request.class);
-		putMapping(177, GetElevationProfileV2Response.class);
-		putMapping(178, GetChangelogRequest.class);
-		putMapping(179, GetChangelogResponse.class);
-		putMapping(180, IsTelemetryFieldRegisteredRequest.class);
-		putMapping(181, IsTelemetryFieldRegisteredResponse.class);
-		putMapping(182, ImportMissionOrRouteFromUgcsRequest.class);
-		putMapping(183, ImportMissionOrRouteFromUgcsResponse.class);
-		putMapping(184, ImportMissionFromUgcsRequest.class);
-		putMapping(185, ImportMissionFromUgcsResponse.class);
-		putMapping(186, ImportRouteFromUgcsRequest.class);
-		putMapping(187, ImportRouteFromUgcsResponse.class);
-		putMapping(188, ImportProfilesFromUgcsRequest.class);
-		putMapping(189, ImportProfilesFromUgcsResponse.class);
-		putMapping(190, ImportRouteFromCsvRequest.class);
-		putMapping(191, ImportRouteFromCsvResponse.class);
-		putMapping(192, ImportRouteFromKmlRequest.class);
-		putMapping(193, ImportRouteFromKmlResponse.class);
-		putMapping(194, ExportMissionToUgcsRequest.class);
-		putMapping(195, ExportMissionToUgcsResponse.class);
-		putMapping(196, ExportRouteToUgcsRequest.class);
-		putMapping(197, ExportRouteToUgcsResponse.class);
-		putMapping(198, ExportProfilesToUgcsRequest.class);
-		putMapping(199, ExportProfilesToUgcsResponse.class);
-		putMapping(200, SendFeedbackRequest.class);
-		putMapping(201, SendFeedbackResponse.class);
-		putMapping(202, GetRouteListRequest.class);
-		putMapping(203, GetRouteListResponse.class);
-		putMapping(204, ConfigureAnalyticsRequest.class);
-		putMapping(205, EmptyResponse.class);
-		putMapping(206, ReadAnalyticsConfigurationRequest.class);
-		putMapping(207, ReadAnalyticsConfigurationResponse.class);
-		putMapping(208, SendAnalyticsEventRequest.class);
-		putMapping(209, GetFreeUsageCodeRequest.class);
-		putMapping(210, StartFreeUsageRequest.class);
-		putMapping(211, CheckPermissionRequest.class);
-		putMapping(212, ResolveGsdByAltitudeAglRequest.class);
-		putMapping(213, ResolveGsdByAltitudeAmslRequest.class);
-		putMapping(214, ResolveAltitudeAglByGsdRequest.class);
-		putMapping(215, ResolveAltitudeAmslByGsdRequest.class);
+		putMapping(10, MESSAGES + "GetObjectListRequest");
+		putMapping(11, MESSAGES + "GetObjectListResponse");
+		putMapping(12, MESSAGES + "GetObjectRequest");
+		putMapping(13, MESSAGES + "GetObjectResponse");
+		putMapping(14, MESSAGES + "CreateOrUpdateObjectRequest");
+		putMapping(15, MESSAGES + "CreateOrUpdateObjectResponse");
+		putMapping(16, MESSAGES + "DeleteObjectRequest");
+		putMapping(17, MESSAGES + "DeleteObjectResponse");
+		putMapping(18, MESSAGES + "UpdateObjectFieldsRequest");
+		putMapping(19, MESSAGES + "UpdateObjectFieldsResponse");
+		putMapping(20, MESSAGES + "AuthorizeHciRequest");
+		putMapping(21, MESSAGES + "AuthorizeHciResponse");
+		putMapping(22, MESSAGES + "LoginRequest");
+		putMapping(23, MESSAGES + "LoginResponse");
+		putMapping(24, MESSAGES + "LogoutRequest");
+		putMapping(25, MESSAGES + "LogoutResponse");
+		putMapping(30, MESSAGES + "GetRasterGridRequest");
+		putMapping(31, MESSAGES + "GetRasterGridResponse");
+		putMapping(32, MESSAGES + "ProcessRouteRequest");
+		putMapping(33, MESSAGES + "ProcessRouteResponse");
+		putMapping(34, MESSAGES + "GetRasterValuesRequest");
+		putMapping(35, MESSAGES + "GetRasterValuesResponse");
+		putMapping(36, MESSAGES + "GetTelemetryRequest");
+		putMapping(37, MESSAGES + "GetTelemetryResponse");
+		putMapping(38, MESSAGES + "GetKmlRouteRepresentationRequest");
+		putMapping(39, MESSAGES + "GetKmlRouteRepresentationResponse");
+		putMapping(42, MESSAGES + "SetHciLocaleRequest");
+		putMapping(43, MESSAGES + "SetHciLocaleResponse");
+		putMapping(44, MESSAGES + "ConvertRouteAltitudesRequest");
+		putMapping(45, MESSAGES + "ConvertRouteAltitudesResponse");
+		putMapping(46, MESSAGES + "GetLineOfSightRequest");
+		putMapping(47, MESSAGES + "GetLineOfSightResponse");
+		putMapping(48, MESSAGES + "GetElevationProfileRequest");
+		putMapping(49, MESSAGES + "GetElevationProfileResponse");
+		putMapping(50, MESSAGES + "GetAdsbAircraftListRequest");
+		putMapping(51, MESSAGES + "GetAdsbAircraftListResponse");
+		putMapping(52, MESSAGES + "SearchPlacesRequest");
+		putMapping(53, MESSAGES + "SearchPlacesResponse");
+		putMapping(54, MESSAGES + "ExportRouteRequest");
+		putMapping(55, MESSAGES + "ExportRouteResponse");
+		putMapping(56, MESSAGES + "ImportRouteRequest");
+		putMapping(57, MESSAGES + "ImportRouteResponse");
+		putMapping(58, MESSAGES + "SubscribeEventRequest");
+		putMapping(59, MESSAGES + "SubscribeEventResponse");
+		putMapping(60, MESSAGES + "UnsubscribeEventRequest");
+		putMapping(61, MESSAGES + "UnsubscribeEventResponse");
+		putMapping(62, MESSAGES + "GetVehicleLogRequest");
+		putMapping(63, MESSAGES + "GetVehicleLogResponse");
+		putMapping(64, MESSAGES + "SendCommandRequest");
+		putMapping(65, MESSAGES + "SendCommandResponse");
+		putMapping(66, MESSAGES + "UploadRouteRequest");
+		putMapping(67, MESSAGES + "UploadRouteResponse");
+		putMapping(68, MESSAGES + "GetLicenseRequest");
+		putMapping(69, MESSAGES + "GetLicenseResponse");
+		putMapping(70, MESSAGES + "ActivateLicenseRequest");
+		putMapping(71, MESSAGES + "ActivateLicenseResponse");
+		putMapping(72, MESSAGES + "ExportMissionRequest");
+		putMapping(73, MESSAGES + "ExportMissionResponse");
+		putMapping(74, MESSAGES + "ImportMissionRequest");
+		putMapping(75, MESSAGES + "ImportMissionResponse");
+		putMapping(76, MESSAGES + "AcquireLockRequest");
+		putMapping(77, MESSAGES + "AcquireLockResponse");
+		putMapping(78, MESSAGES + "ReleaseLockRequest");
+		putMapping(79, MESSAGES + "ReleaseLockResponse");
+		putMapping(80, MESSAGES + "CheckLockRequest");
+		putMapping(81, MESSAGES + "CheckLockResponse");
+		putMapping(82, MESSAGES + "CheckMultipleLocksRequest");
+		putMapping(83, MESSAGES + "CheckMultipleLocksResponse");
+		putMapping(84, MESSAGES + "GetMissionPreferencesRequest");
+		putMapping(85, MESSAGES + "GetMissionPreferencesResponse");
+		putMapping(86, MESSAGES + "UpdateMissionPreferencesRequest");
+		putMapping(87, MESSAGES + "UpdateMissionPreferencesResponse");
+		putMapping(88, MESSAGES + "GetVehicleLogByTimeRangeRequest");
+		putMapping(89, MESSAGES + "GetVehicleLogByTimeRangeResponse");
+		putMapping(90, MESSAGES + "ExportTelemetryRequest");
+		putMapping(91, MESSAGES + "ExportTelemetryResponse");
+		putMapping(92, MESSAGES + "ImportTelemetryRequest");
+		putMapping(93, MESSAGES + "ImportTelemetryResponse");
+		putMapping(94, MESSAGES + "TraceTelemetryFramesRequest");
+		putMapping(95, MESSAGES + "TraceTelemetryFramesResponse");
+		putMapping(96, MESSAGES + "DeleteTelemetryRequest");
+		putMapping(97, MESSAGES + "DeleteTelemetryResponse");
+		putMapping(98, MESSAGES + "DeactivateLicenseRequest");
+		putMapping(99, MESSAGES + "DeactivateLicenseResponse");
+		putMapping(100, MESSAGES + "CheckForUpdatesRequest");
+		putMapping(101, MESSAGES + "CheckForUpdatesResponse");
+		putMapping(102, MESSAGES + "SendStatisticsRequest");
+		putMapping(103, MESSAGES + "SendStatisticsResponse");
+		putMapping(106, MESSAGES + "GetParametersSelectionValuesRequest");
+		putMapping(107, MESSAGES + "GetParametersSelectionValuesResponse");
+		putMapping(108, MESSAGES + "GetAdsbBulbStatusRequest");
+		putMapping(109, MESSAGES + "GetAdsbBulbStatusResponse");
+		putMapping(110, MESSAGES + "CountTelemetryRequest");
+		putMapping(111, MESSAGES + "CountTelemetryResponse");
+		putMapping(112, MESSAGES + "CalculateSplineRequest");
+		putMapping(113, MESSAGES + "CalculateSplineResponse");
+		putMapping(114, MESSAGES + "ChangeRouteVehicleProfileRequest");
+		putMapping(115, MESSAGES + "ChangeRouteVehicleProfileResponse");
+		putMapping(116, MESSAGES + "GetNfzListRequest");
+		putMapping(117, MESSAGES + "GetNfzListResponse");
+		putMapping(118, MESSAGES + "SubmitUtmOperationRequest");
+		putMapping(119, MESSAGES + "SubmitUtmOperationResponse");
+		putMapping(120, MESSAGES + "GetCapabilitiesRequest");
+		putMapping(121, MESSAGES + "GetCapabilitiesResponse");
+		putMapping(124, MESSAGES + "GetMappingRequest");
+		putMapping(125, MESSAGES + "GetMappingResponse");
+		putMapping(126, MESSAGES + "GetVehicleTracksRequest");
+		putMapping(127, MESSAGES + "GetVehicleTracksResponse");
+		putMapping(128, MESSAGES + "GetNativeRouteRequest");
+		putMapping(129, MESSAGES + "GetNativeRouteResponse");
+		putMapping(130, MESSAGES + "GetLocationPassingTimeRequest");
+		putMapping(131, MESSAGES + "GetLocationPassingTimeResponse");
+		putMapping(132, MESSAGES + "GetPolygonAreaRequest");
+		putMapping(133, MESSAGES + "GetPolygonAreaResponse");
+		putMapping(134, MESSAGES + "SplitRouteBySegmentsRequest");
+		putMapping(135, MESSAGES + "SplitRouteBySegmentsResponse");
+		putMapping(136, MESSAGES + "SplitRouteByDistanceRequest");
+		putMapping(137, MESSAGES + "SplitRouteByDistanceResponse");
+		putMapping(138, MESSAGES + "JoinRouteRequest");
+		putMapping(139, MESSAGES + "JoinRouteResponse");
+		putMapping(140, MESSAGES + "ReconstructRouteRequest");
+		putMapping(141, MESSAGES + "ReconstructRouteResponse");
+		putMapping(146, MESSAGES + "SwapElevationOrderRequest");
+		putMapping(147, MESSAGES + "SwapElevationOrderResponse");
+		putMapping(148, MESSAGES + "DeleteVehicleTrackRequest");
+		putMapping(149, MESSAGES + "DeleteVehicleTrackResponse");
+		putMapping(150, MESSAGES + "MergeVehicleTrackRequest");
+		putMapping(151, MESSAGES + "MergeVehicleTrackResponse");
+		putMapping(152, MESSAGES + "CheckLocationRequest");
+		putMapping(153, MESSAGES + "CheckLocationResponse");
+		putMapping(154, MESSAGES + "SplitVehicleTrackRequest");
+		putMapping(155, MESSAGES + "SplitVehicleTrackResponse");
+		putMapping(156, MESSAGES + "GetVehicleVideoLogRequest");
+		putMapping(157, MESSAGES + "GetVehicleVideoLogResponse");
+		putMapping(158, MESSAGES + "ExportTelemetryStreamRequest");
+		putMapping(159, MESSAGES + "ExportTelemetryStreamResponse");
+		putMapping(160, MESSAGES + "ImportTelemetryStreamRequest");
+		putMapping(161, MESSAGES + "ImportTelemetryStreamResponse");
+		putMapping(162, MESSAGES + "GetElevationTilesRequest");
+		putMapping(163, MESSAGES + "GetElevationTilesResponse");
+		putMapping(164, MESSAGES + "ExportRouteToKmlRequest");
+		putMapping(165, MESSAGES + "ExportRouteToKmlResponse");
+		putMapping(168, MESSAGES + "GetTelemetrySnapshotRequest");
+		putMapping(169, MESSAGES + "GetTelemetrySnapshotResponse");
+		putMapping(170, MESSAGES + "GetElevationTilesV2Request");
+		putMapping(171, MESSAGES + "GetElevationTilesV2Response");
+		putMapping(172, MESSAGES + "ExportRouteToWpmlRequest");
+		putMapping(173, MESSAGES + "ExportRouteToWpmlResponse");
+		putMapping(174, MESSAGES + "SplitRouteByCorridorPointRequest");
+		putMapping(175, MESSAGES + "SplitRouteByCorridorPointResponse");
+		putMapping(176, MESSAGES + "GetElevationProfileV2Request");
+		putMapping(177, MESSAGES + "GetElevationProfileV2Response");
+		putMapping(178, MESSAGES + "GetChangelogRequest");
+		putMapping(179, MESSAGES + "GetChangelogResponse");
+		putMapping(180, MESSAGES + "IsTelemetryFieldRegisteredRequest");
+		putMapping(181, MESSAGES + "IsTelemetryFieldRegisteredResponse");
+		putMapping(182, MESSAGES + "ImportMissionOrRouteFromUgcsRequest");
+		putMapping(183, MESSAGES + "ImportMissionOrRouteFromUgcsResponse");
+		putMapping(184, MESSAGES + "ImportMissionFromUgcsRequest");
+		putMapping(185, MESSAGES + "ImportMissionFromUgcsResponse");
+		putMapping(186, MESSAGES + "ImportRouteFromUgcsRequest");
+		putMapping(187, MESSAGES + "ImportRouteFromUgcsResponse");
+		putMapping(188, MESSAGES + "ImportProfilesFromUgcsRequest");
+		putMapping(189, MESSAGES + "ImportProfilesFromUgcsResponse");
+		putMapping(190, MESSAGES + "ImportRouteFromCsvRequest");
+		putMapping(191, MESSAGES + "ImportRouteFromCsvResponse");
+		putMapping(192, MESSAGES + "ImportRouteFromKmlRequest");
+		putMapping(193, MESSAGES + "ImportRouteFromKmlResponse");
+		putMapping(194, MESSAGES + "ExportMissionToUgcsRequest");
+		putMapping(195, MESSAGES + "ExportMissionToUgcsResponse");
+		putMapping(196, MESSAGES + "ExportRouteToUgcsRequest");
+		putMapping(197, MESSAGES + "ExportRouteToUgcsResponse");
+		putMapping(198, MESSAGES + "ExportProfilesToUgcsRequest");
+		putMapping(199, MESSAGES + "ExportProfilesToUgcsResponse");
+		putMapping(200, MESSAGES + "SendFeedbackRequest");
+		putMapping(201, MESSAGES + "SendFeedbackResponse");
+		putMapping(202, MESSAGES + "GetRouteListRequest");
+		putMapping(203, MESSAGES + "GetRouteListResponse");
+		putMapping(204, MESSAGES + "ConfigureAnalyticsRequest");
+		putMapping(205, MESSAGES + "EmptyResponse");
+		putMapping(206, MESSAGES + "ReadAnalyticsConfigurationRequest");
+		putMapping(207, MESSAGES + "ReadAnalyticsConfigurationResponse");
+		putMapping(208, MESSAGES + "SendAnalyticsEventRequest");
+		putMapping(209, MESSAGES + "GetFreeUsageCodeRequest");
+		putMapping(210, MESSAGES + "StartFreeUsageRequest");
+		putMapping(211, MESSAGES + "CheckPermissionRequest");
+		putMapping(212, MESSAGES + "ResolveGsdByAltitudeAglRequest");
+		putMapping(213, MESSAGES + "ResolveGsdByAltitudeAmslRequest");
+		putMapping(214, MESSAGES + "ResolveAltitudeAglByGsdRequest");
+		putMapping(215, MESSAGES + "ResolveAltitudeAmslByGsdRequest");
 
-		putMapping(216, SingleValueResponse.class);
-		putMapping(217, GetDeviceIdRequest.class);
-		putMapping(218, GetDeviceIdResponse.class);
-        putMapping(227, GetLicenseImprovementWindowContentRequest.class);
-        putMapping(228, GetLicenseImprovementWindowContentResponse.class);
-		putMapping(231, UploadRouteRequest2.class);
+		putMapping(216, MESSAGES + "SingleValueResponse");
+		putMapping(217, MESSAGES + "GetDeviceIdRequest");
+		putMapping(218, MESSAGES + "GetDeviceIdResponse");
+        putMapping(227, MESSAGES + "GetLicenseImprovementWindowContentRequest");
+        putMapping(228, MESSAGES + "GetLicenseImprovementWindowContentResponse");
+		putMapping(231, MESSAGES + "UploadRouteRequest2");
 
-		putMapping(500, PingRequest.class);
+		putMapping(500, MESSAGES + "PingRequest");
 	}
 }
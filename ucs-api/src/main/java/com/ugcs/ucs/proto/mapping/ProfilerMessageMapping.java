@@ -1,12 +1,13 @@
 package com.ugcs.ucs.proto.mapping;
 
-import com.ugcs.ucs.proto.ProfilerProto;
 import com.ugcs.ucs.proto.codec.ProtoMessageMapping;
 
 public class ProfilerMessageMapping extends ProtoMessageMapping {
 
+	private static final String MESSAGES = "com.ugcs.ucs.proto.ProfilerProto$";
+
 	public ProfilerMessageMapping() {
-		putMapping(1, ProfilerProto.ActionSummaryRequest.class);
-		putMapping(2, ProfilerProto.ActionSummaryResponse.class);
+		putMapping(1, MESSAGES + "ActionSummaryRequest");
+		putMapping(2, MESSAGES + "ActionSummaryResponse");
 	}
 }
@@ -0,0 +1,67 @@
+package com.ugcs.common.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.common.io.Bytes;
+import com.ugcs.common.io.NullOutputStream;
+
+/**
+ * Pooled buffers against plain allocations, run with {@code -prof gc}
+ * to see the allocation rate. Benchmark runs in several threads, so the
+ * shared cache is exercised along with the thread-local one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class BufferPoolBenchmark {
+
+	@Param({"512", "8192", "65536"})
+	private int size;
+
+	private final BufferPool pool = BufferPool.getDefault();
+
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+	}
+
+	@Benchmark
+	public void allocate(Blackhole blackhole) {
+		byte[] buffer = new byte[size];
+		blackhole.consume(buffer);
+	}
+
+	@Benchmark
+	public void pooled(Blackhole blackhole) {
+		byte[] buffer = pool.acquire(size);
+		blackhole.consume(buffer);
+		pool.release(buffer);
+	}
+
+	@Benchmark
+	public long copy() throws Exception {
+		return Bytes.copy(new ByteArrayInputStream(data), new NullOutputStream());
+	}
+}
@@ -0,0 +1,78 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoEventType;
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoSession;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ugcs.messaging.TaskDetails;
+import com.ugcs.messaging.TaskMapper;
+
+/**
+ * Benchmark task: burns CPU and reports its completion. Extends
+ * the {@link IoEvent} to be accepted by the Mina executors, each key
+ * is bound to its own session.
+ */
+final class BenchTask extends IoEvent {
+
+	static final TaskMapper MAPPER = runnable -> ((BenchTask)runnable).details;
+
+	private final TaskDetails details;
+	private final int work;
+	private final CountDownLatch done;
+	private final Semaphore permits;
+
+	private BenchTask(Keys keys, int key, int work, CountDownLatch done, Semaphore permits) {
+		super(IoEventType.MESSAGE_RECEIVED, keys.sessions[key], null);
+
+		this.details = keys.details[key];
+		this.work = work;
+		this.done = done;
+		this.permits = permits;
+	}
+
+	static BenchTask of(Keys keys, int key, int work, CountDownLatch done) {
+		return new BenchTask(keys, key, work, done, null);
+	}
+
+	static BenchTask of(Keys keys, int key, int work, Semaphore permits) {
+		return new BenchTask(keys, key, work, null, permits);
+	}
+
+	@Override
+	public void run() {
+		if (work > 0)
+			Blackhole.consumeCPU(work);
+		if (done != null)
+			done.countDown();
+		if (permits != null)
+			permits.release();
+	}
+
+	/**
+	 * Isolation keys of the tasks: a key has its own session
+	 * and a priority, priorities are spread evenly over the keys.
+	 */
+	static final class Keys {
+
+		private final IoSession[] sessions;
+		private final TaskDetails[] details;
+
+		Keys(int numKeys, int numPriorities) {
+			sessions = new IoSession[numKeys];
+			details = new TaskDetails[numKeys];
+			for (int i = 0; i < numKeys; i++) {
+				sessions[i] = new DummySession();
+				details[i] = new TaskDetails(sessions[i].getId(), i % numPriorities);
+			}
+		}
+
+		int size() {
+			return sessions.length;
+		}
+	}
+}
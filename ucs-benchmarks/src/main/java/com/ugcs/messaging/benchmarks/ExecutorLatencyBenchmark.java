@@ -0,0 +1,93 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-task latency under load: loader threads keep up to {@code inFlight}
+ * tasks queued on random keys, while a probe thread measures round trip
+ * (submit to completion) of single tasks. Percentiles of the
+ * {@code loaded:probe} score are the latency distribution.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorLatencyBenchmark {
+
+	@Param({"GROUPING", "CONCURRENT_GROUPING", "THREAD_POOL", "MINA_ORDERED"})
+	private ExecutorType executor;
+
+	@Param({"16", "1000", "100000"})
+	private int keys;
+
+	@Param({"1", "4"})
+	private int priorities;
+
+	// Blackhole.consumeCPU tokens per task
+	@Param({"0", "1000"})
+	private int work;
+
+	@Param("4")
+	private int threads;
+
+	@Param("256")
+	private int inFlight;
+
+	private ExecutorService service;
+	private BenchTask.Keys taskKeys;
+	private Semaphore permits;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		service = executor.create(threads);
+		taskKeys = new BenchTask.Keys(keys, priorities);
+		permits = new Semaphore(inFlight);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		service.shutdownNow();
+		service.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@Group("loaded")
+	@GroupThreads(2)
+	public void load() throws InterruptedException {
+		permits.acquire();
+		int key = ThreadLocalRandom.current().nextInt(taskKeys.size());
+		service.execute(BenchTask.of(taskKeys, key, work, permits));
+	}
+
+	@Benchmark
+	@Group("loaded")
+	@GroupThreads(1)
+	public void probe() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		int key = ThreadLocalRandom.current().nextInt(taskKeys.size());
+		service.execute(BenchTask.of(taskKeys, key, work, done));
+		done.await();
+	}
+}
@@ -0,0 +1,82 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Task throughput of the executors: a batch of tasks is spread over
+ * the keys round robin and awaited, the score is tasks per second.
+ * Allocation rate per task is reported by the gc profiler
+ * ({@code -prof gc}), a task object itself takes about 40 bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorThroughputBenchmark {
+
+	private static final int BATCH_SIZE = 1024;
+
+	@Param({"GROUPING", "CONCURRENT_GROUPING", "THREAD_POOL", "MINA_ORDERED"})
+	private ExecutorType executor;
+
+	@Param({"1", "16", "1000", "100000"})
+	private int keys;
+
+	@Param({"1", "4"})
+	private int priorities;
+
+	// Blackhole.consumeCPU tokens per task
+	@Param({"0", "1000"})
+	private int work;
+
+	@Param("4")
+	private int threads;
+
+	private ExecutorService service;
+	private BenchTask.Keys taskKeys;
+	private int nextKey;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		service = executor.create(threads);
+		taskKeys = new BenchTask.Keys(keys, priorities);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		service.shutdownNow();
+		service.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void execute() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(BATCH_SIZE);
+		int n = taskKeys.size();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			service.execute(BenchTask.of(taskKeys, nextKey, work, done));
+			if (++nextKey == n)
+				nextKey = 0;
+		}
+		done.await();
+	}
+}
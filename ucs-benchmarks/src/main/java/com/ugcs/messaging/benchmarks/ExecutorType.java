@@ -0,0 +1,62 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.filter.executor.OrderedThreadPoolExecutor;
+
+import com.ugcs.messaging.ConcurrentGroupingThreadPool;
+import com.ugcs.messaging.GroupingThreadPool;
+import com.ugcs.messaging.GroupingVirtualThreadExecutor;
+
+/**
+ * Executors under comparison. All of them, but the {@link #THREAD_POOL},
+ * keep the order of the tasks of the same key.
+ */
+public enum ExecutorType {
+
+	GROUPING {
+		@Override
+		ExecutorService create(int threads) {
+			return new GroupingThreadPool(threads, threads, BenchTask.MAPPER, "grouping");
+		}
+	},
+	GROUPING_BATCH {
+		@Override
+		ExecutorService create(int threads) {
+			GroupingThreadPool pool = new GroupingThreadPool(threads, threads, BenchTask.MAPPER, "grouping");
+			pool.setBatchSize(16, 0L, TimeUnit.NANOSECONDS);
+			return pool;
+		}
+	},
+	CONCURRENT_GROUPING {
+		@Override
+		ExecutorService create(int threads) {
+			return new ConcurrentGroupingThreadPool(threads, threads, BenchTask.MAPPER, "concurrent-grouping");
+		}
+	},
+	// requires a runtime with virtual threads support
+	VIRTUAL {
+		@Override
+		ExecutorService create(int threads) {
+			return new GroupingVirtualThreadExecutor(BenchTask.MAPPER, "virtual");
+		}
+	},
+	// unordered baseline
+	THREAD_POOL {
+		@Override
+		ExecutorService create(int threads) {
+			return Executors.newFixedThreadPool(threads);
+		}
+	},
+	// ordered by sessions only, priorities are ignored
+	MINA_ORDERED {
+		@Override
+		ExecutorService create(int threads) {
+			return new OrderedThreadPoolExecutor(threads, threads);
+		}
+	};
+
+	abstract ExecutorService create(int threads);
+}
@@ -0,0 +1,99 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.MessageDecoder;
+import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.StreamingMessageEncoder;
+
+/**
+ * Codec of the byte array messages, framed by the length prefix.
+ */
+class FrameCodecFactory implements CodecFactory {
+
+	@Override
+	public MessageEncoder getEncoder() {
+		return new Encoder();
+	}
+
+	@Override
+	public MessageDecoder getDecoder() {
+		return new Decoder();
+	}
+
+	private static class Encoder implements StreamingMessageEncoder {
+
+		@Override
+		public int encodedLength(Object message) {
+			return 4 + ((byte[])message).length;
+		}
+
+		@Override
+		public void encode(Object message, ByteBuffer buffer) {
+			byte[] payload = (byte[])message;
+			buffer.putInt(payload.length);
+			buffer.put(payload);
+		}
+
+		@Override
+		public byte[] encode(Object message) {
+			ByteBuffer buffer = ByteBuffer.allocate(encodedLength(message));
+			encode(message, buffer);
+			return buffer.array();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static class Decoder implements MessageDecoder {
+
+		// partial frame, in the write mode
+		private ByteBuffer partial = ByteBuffer.allocate(64 * 1024);
+
+		@Override
+		public List<Object> decode(ByteBuffer buffer) {
+			List<Object> messages = new ArrayList<>();
+			if (partial.position() > 0) {
+				append(buffer);
+				partial.flip();
+				readFrames(partial, messages);
+				partial.compact();
+			} else {
+				readFrames(buffer, messages);
+				append(buffer);
+			}
+			return messages;
+		}
+
+		private void append(ByteBuffer buffer) {
+			if (partial.remaining() < buffer.remaining()) {
+				ByteBuffer extended = ByteBuffer.allocate(partial.position() + buffer.remaining());
+				partial.flip();
+				extended.put(partial);
+				partial = extended;
+			}
+			partial.put(buffer);
+		}
+
+		private static void readFrames(ByteBuffer buffer, List<Object> messages) {
+			while (buffer.remaining() >= 4) {
+				int length = buffer.getInt(buffer.position());
+				if (buffer.remaining() < 4 + length)
+					break;
+				buffer.getInt();
+				byte[] payload = new byte[length];
+				buffer.get(payload);
+				messages.add(payload);
+			}
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
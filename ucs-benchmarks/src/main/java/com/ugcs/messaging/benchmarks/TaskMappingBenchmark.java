@@ -0,0 +1,87 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoEventType;
+import org.apache.mina.core.session.IoSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ugcs.messaging.TaskDetails;
+import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.mina.MinaTaskMappers;
+
+/**
+ * Cost of mapping inbound events to the task details: events of
+ * a few message types over a set of sessions. Run with {@code -prof gc}
+ * to check the mapping allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMappingBenchmark {
+
+	public enum MapperType {
+		SESSIONS,
+		MESSAGE_TYPES,
+		UNORDERED;
+
+		TaskMapper create() {
+			switch (this) {
+				case SESSIONS:
+					return MinaTaskMappers.orderedBySessions();
+				case MESSAGE_TYPES:
+					return MinaTaskMappers.orderedByMessageTypes();
+				default:
+					return MinaTaskMappers.unordered();
+			}
+		}
+	}
+
+	private static final Object[] MESSAGES = {
+			"message", 1, 1L, 1.0, new int[0], new Object()
+	};
+
+	@Param({"SESSIONS", "MESSAGE_TYPES", "UNORDERED"})
+	private MapperType mapper;
+
+	@Param({"16"})
+	private int sessions;
+
+	private TaskMapper taskMapper;
+	private IoEvent[] events;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		taskMapper = mapper.create();
+		events = new IoEvent[sessions * MESSAGES.length];
+		for (int i = 0; i < sessions; i++) {
+			IoSession session = new DummySession();
+			for (int j = 0; j < MESSAGES.length; j++)
+				events[i * MESSAGES.length + j] = new IoEvent(IoEventType.MESSAGE_RECEIVED, session, MESSAGES[j]);
+		}
+	}
+
+	@Benchmark
+	public TaskDetails map() {
+		IoEvent event = events[next];
+		if (++next == events.length)
+			next = 0;
+		return taskMapper.map(event);
+	}
+}
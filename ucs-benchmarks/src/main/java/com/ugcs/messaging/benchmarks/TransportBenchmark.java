@@ -0,0 +1,116 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ugcs.messaging.api.Acceptor;
+import com.ugcs.messaging.api.Connector;
+import com.ugcs.messaging.api.MessageEvent;
+import com.ugcs.messaging.api.MessageListenerAdapter;
+import com.ugcs.messaging.api.MessageSession;
+import com.ugcs.messaging.api.MessageSessionEvent;
+import com.ugcs.messaging.api.MessageSessionListenerAdapter;
+
+/**
+ * Echo over the loopback, Unix domain socket or in-VM: the acceptor sends
+ * every received message back.
+ * {@code roundTrip} is a latency of a single message, {@code pipelined}
+ * is a time per message, when a batch of messages is sent at once.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+	private static final int BATCH_SIZE = 256;
+
+	@Param({"MINA", "NIO", "NIO_UDS", "VM", "VM_SERIALIZED"})
+	private TransportType transport;
+
+	@Param({"16", "4096"})
+	private int messageSize;
+
+	@Param("2")
+	private int ioThreads;
+
+	@Param("4")
+	private int taskThreads;
+
+	private Acceptor acceptor;
+	private Connector connector;
+	private MessageSession session;
+	private final Semaphore received = new Semaphore(0);
+	private byte[] message;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		FrameCodecFactory codecFactory = new FrameCodecFactory();
+		acceptor = transport.newAcceptor(codecFactory, ioThreads, taskThreads);
+		acceptor.addSessionListener(new MessageSessionListenerAdapter() {
+			@Override
+			public void sessionOpened(MessageSessionEvent event) {
+				MessageSession serverSession = event.getSession();
+				serverSession.addListener(new MessageListenerAdapter() {
+					@Override
+					public void messageReceived(MessageEvent event) {
+						serverSession.send(event.getMessage());
+					}
+				});
+			}
+		});
+		SocketAddress address = transport.newAddress();
+		acceptor.start(address);
+
+		connector = transport.newConnector(codecFactory, ioThreads, taskThreads);
+		session = connector.connect(address);
+		session.addListener(new MessageListenerAdapter() {
+			@Override
+			public void messageReceived(MessageEvent event) {
+				received.release();
+			}
+		});
+		message = new byte[messageSize];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		session.close();
+		connector.close();
+		acceptor.close();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	public void roundTrip() throws InterruptedException {
+		session.send(message);
+		received.acquire();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void pipelined() throws InterruptedException {
+		for (int i = 0; i < BATCH_SIZE; i++)
+			session.send(message);
+		received.acquire(BATCH_SIZE);
+	}
+}
@@ -0,0 +1,122 @@
+package com.ugcs.messaging.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ugcs.messaging.api.Acceptor;
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.Connector;
+import com.ugcs.messaging.mina.MinaAcceptor;
+import com.ugcs.messaging.mina.MinaConnector;
+import com.ugcs.messaging.nio.NioAcceptor;
+import com.ugcs.messaging.nio.NioConnector;
+import com.ugcs.messaging.nio.UnixDomainSockets;
+import com.ugcs.messaging.vm.VmAcceptor;
+import com.ugcs.messaging.vm.VmAddress;
+import com.ugcs.messaging.vm.VmConnector;
+
+/**
+ * Transports under the benchmark, with the same number
+ * of the I/O and task threads. NIO_UDS is the NIO transport over a Unix
+ * domain socket (Java 16 or newer). In-VM transports have no I/O threads
+ * and give a baseline without the network.
+ */
+public enum TransportType {
+
+	MINA {
+		@Override
+		Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new MinaConnector(codecFactory, ioThreads, taskThreads, null);
+		}
+
+		@Override
+		Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new MinaAcceptor(codecFactory, ioThreads, taskThreads, null);
+		}
+	},
+	NIO {
+		@Override
+		Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new NioConnector(codecFactory, ioThreads, taskThreads);
+		}
+
+		@Override
+		Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new NioAcceptor(codecFactory, ioThreads, taskThreads);
+		}
+	},
+	NIO_UDS {
+		@Override
+		Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new NioConnector(codecFactory, ioThreads, taskThreads);
+		}
+
+		@Override
+		Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new NioAcceptor(codecFactory, ioThreads, taskThreads);
+		}
+
+		@Override
+		SocketAddress newAddress() {
+			// socket file is removed when the acceptor stops
+			return UnixDomainSockets.address(Path.of(System.getProperty("java.io.tmpdir"),
+					"ucs-benchmark-" + ProcessHandle.current().pid()
+							+ "-" + nextAddress.incrementAndGet() + ".sock"));
+		}
+	},
+	VM {
+		@Override
+		Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new VmConnector(codecFactory, false, taskThreads);
+		}
+
+		@Override
+		Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new VmAcceptor(codecFactory, taskThreads);
+		}
+
+		@Override
+		SocketAddress newAddress() {
+			return newVmAddress();
+		}
+	},
+	VM_SERIALIZED {
+		@Override
+		Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new VmConnector(codecFactory, true, taskThreads);
+		}
+
+		@Override
+		Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads) {
+			return new VmAcceptor(codecFactory, taskThreads);
+		}
+
+		@Override
+		SocketAddress newAddress() {
+			return newVmAddress();
+		}
+	};
+
+	private static final AtomicInteger nextAddress = new AtomicInteger();
+
+	/**
+	 * Address to start an acceptor on, loopback with a free port by default.
+	 */
+	SocketAddress newAddress() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return new InetSocketAddress("127.0.0.1", socket.getLocalPort());
+		}
+	}
+
+	private static SocketAddress newVmAddress() {
+		return new VmAddress("benchmark-" + nextAddress.incrementAndGet());
+	}
+
+	abstract Connector newConnector(CodecFactory codecFactory, int ioThreads, int taskThreads);
+
+	abstract Acceptor newAcceptor(CodecFactory codecFactory, int ioThreads, int taskThreads);
+}
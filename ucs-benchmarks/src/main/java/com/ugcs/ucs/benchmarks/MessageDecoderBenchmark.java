@@ -0,0 +1,125 @@
+package com.ugcs.ucs.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ugcs.messaging.api.MessageDecoder;
+import com.ugcs.ucs.proto.DomainProto;
+import com.ugcs.ucs.proto.MessagesProto;
+import com.ugcs.ucs.proto.codec.MessageWrapper;
+import com.ugcs.ucs.proto.codec.MessageWrapperDecoder;
+import com.ugcs.ucs.proto.codec.MessageWrapperEncoder;
+import com.ugcs.ucs.proto.codec.MessageWrapperFrameDecoder;
+import com.ugcs.ucs.proto.codec.ProtoBinaryDecoder;
+import com.ugcs.ucs.proto.codec.ProtoBinaryEncoder;
+import com.ugcs.ucs.proto.mapping.HciMessageMapping;
+
+/**
+ * Decoding of a stream of wrapped messages, received in chunks of the
+ * given size. Both eager decoders build the same messages, so the difference
+ * in the allocation rate per message ({@code -prof gc}) is the data
+ * copied by the decoder. Lazy decoding is the cost of a message
+ * that is received but never consumed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDecoderBenchmark {
+
+	private static final int NUM_MESSAGES = 64;
+
+	public enum DecoderType {
+		// stream copy into the circular buffer
+		WRAPPER,
+		// in place parsing of the complete frames
+		FRAME,
+		// frames copied to the lazy wrappers, never decoded
+		FRAME_LAZY
+	}
+
+	@Param({"WRAPPER", "FRAME", "FRAME_LAZY"})
+	private DecoderType decoder;
+
+	// number of objects in a GetObjectListResponse
+	@Param({"1", "1000"})
+	private int objects;
+
+	// size of the network reads
+	@Param({"1460", "65536"})
+	private int chunkSize;
+
+	@Param({"false", "true"})
+	private boolean direct;
+
+	private MessageDecoder messageDecoder;
+	private ByteBuffer[] chunks;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		HciMessageMapping mapping = new HciMessageMapping();
+		messageDecoder = decoder == DecoderType.WRAPPER
+				? new MessageWrapperDecoder(new ProtoBinaryDecoder(), mapping)
+				: new MessageWrapperFrameDecoder(new ProtoBinaryDecoder(), mapping,
+						decoder == DecoderType.FRAME_LAZY);
+
+		MessagesProto.GetObjectListResponse.Builder response = MessagesProto.GetObjectListResponse.newBuilder()
+				.setObjectType("Vehicle");
+		for (int i = 0; i < objects; i++) {
+			response.addObjects(DomainProto.DomainObjectWrapper.newBuilder()
+					.setVehicle(DomainProto.Vehicle.newBuilder()
+							.setId(i)
+							.setName("Vehicle " + i)
+							.setTailNumber("T-" + i)));
+		}
+		byte[] frame = new MessageWrapperEncoder(new ProtoBinaryEncoder(), mapping)
+				.encode(new MessageWrapper(response.build(), 1));
+
+		ByteBuffer stream = ByteBuffer.allocate(frame.length * NUM_MESSAGES);
+		for (int i = 0; i < NUM_MESSAGES; i++)
+			stream.put(frame);
+		stream.flip();
+
+		List<ByteBuffer> chunkList = new ArrayList<>();
+		while (stream.hasRemaining()) {
+			int length = Math.min(chunkSize, stream.remaining());
+			ByteBuffer chunk = direct
+					? ByteBuffer.allocateDirect(length)
+					: ByteBuffer.allocate(length);
+			stream.limit(stream.position() + length);
+			chunk.put(stream);
+			chunk.flip();
+			stream.limit(stream.capacity());
+			chunkList.add(chunk);
+		}
+		chunks = chunkList.toArray(new ByteBuffer[0]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_MESSAGES)
+	public void decode(Blackhole blackhole) throws Exception {
+		for (ByteBuffer chunk : chunks) {
+			chunk.rewind();
+			blackhole.consume(messageDecoder.decode(chunk));
+		}
+	}
+}
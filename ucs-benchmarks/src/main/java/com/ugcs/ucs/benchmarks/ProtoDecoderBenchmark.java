@@ -0,0 +1,96 @@
+package com.ugcs.ucs.benchmarks;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Message;
+import com.ugcs.ucs.proto.DomainProto;
+import com.ugcs.ucs.proto.MessagesProto;
+import com.ugcs.ucs.proto.codec.ProtoBinaryDecoder;
+import com.ugcs.ucs.proto.mapping.HciMessageMapping;
+
+/**
+ * Decoding of a message body by its type id: the reflective builder
+ * creation by the message class, as it was done by the decoders before,
+ * against the parser table of the mapping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtoDecoderBenchmark {
+
+	public enum MessageType {
+		// header-sized message
+		SMALL,
+		// GetObjectListResponse with 10 objects
+		LIST
+	}
+
+	@Param({"SMALL", "LIST"})
+	private MessageType message;
+
+	private final HciMessageMapping mapping = new HciMessageMapping();
+	private final ProtoBinaryDecoder decoder = new ProtoBinaryDecoder();
+	private int messageType;
+	private ByteBuffer buffer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Message protoMessage;
+		if (message == MessageType.SMALL) {
+			protoMessage = MessagesProto.AuthorizeHciResponse.newBuilder()
+					.setClientId(42)
+					.build();
+		} else {
+			MessagesProto.GetObjectListResponse.Builder response = MessagesProto.GetObjectListResponse.newBuilder()
+					.setObjectType("Vehicle");
+			for (int i = 0; i < 10; i++) {
+				response.addObjects(DomainProto.DomainObjectWrapper.newBuilder()
+						.setVehicle(DomainProto.Vehicle.newBuilder()
+								.setId(i)
+								.setName("Vehicle " + i)
+								.setTailNumber("T-" + i)));
+			}
+			protoMessage = response.build();
+		}
+		messageType = mapping.getMessageType(protoMessage);
+		buffer = ByteBuffer.wrap(protoMessage.toByteArray());
+	}
+
+	@Benchmark
+	public Message reflective() throws Exception {
+		Class<? extends Message> messageClass = mapping.getMessageClass(messageType);
+		Method method = messageClass.getMethod("newBuilder");
+		Message.Builder builder = (Message.Builder)method.invoke(null);
+		builder.mergeFrom(CodedInputStream.newInstance(buffer));
+		return builder.build();
+	}
+
+	@Benchmark
+	public Message table() throws Exception {
+		return mapping.getParser(messageType).parseFrom(CodedInputStream.newInstance(buffer));
+	}
+
+	@Benchmark
+	public Message decoder() throws Exception {
+		return decoder.decode(buffer, mapping.getDefaultInstance(messageType));
+	}
+}
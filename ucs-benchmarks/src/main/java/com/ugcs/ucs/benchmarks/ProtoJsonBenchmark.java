@@ -0,0 +1,148 @@
+package com.ugcs.ucs.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.Message;
+import com.googlecode.protobuf.format.JsonFormat;
+import com.ugcs.ucs.proto.DomainProto;
+import com.ugcs.ucs.proto.codec.ProtoJsonDecoder;
+import com.ugcs.ucs.proto.codec.ProtoJsonEncoder;
+
+/**
+ * JSON encoding and decoding of the telemetry and route messages:
+ * the string round trip through the JsonFormat, as it was done by the
+ * codec before, against the streaming codec. Both produce the same JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtoJsonBenchmark {
+
+	public enum MessageType {
+		// TelemetryEvent with 100 values of a vehicle
+		TELEMETRY,
+		// ProcessedRoute of 10 segments, 20 waypoints each
+		ROUTE
+	}
+
+	@Param({"TELEMETRY", "ROUTE"})
+	private MessageType message;
+
+	private final ProtoJsonEncoder encoder = new ProtoJsonEncoder();
+	private final ProtoJsonDecoder decoder = new ProtoJsonDecoder();
+	private Message protoMessage;
+	private byte[] json;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		protoMessage = message == MessageType.TELEMETRY
+				? createTelemetryEvent()
+				: createProcessedRoute();
+		json = encoder.encode(protoMessage);
+	}
+
+	private static Message createTelemetryEvent() {
+		DomainProto.TelemetryEvent.Builder event = DomainProto.TelemetryEvent.newBuilder()
+				.setVehicle(DomainProto.Vehicle.newBuilder()
+						.setId(1)
+						.setName("Vehicle 1")
+						.setTailNumber("T-1"));
+		for (int i = 0; i < 100; i++) {
+			DomainProto.Value.Builder value = DomainProto.Value.newBuilder();
+			switch (i % 4) {
+				case 0:
+					value.setDoubleValue(56.95 + i * 1e-6);
+					break;
+				case 1:
+					value.setFloatValue(120.5f + i);
+					break;
+				case 2:
+					value.setIntValue(i);
+					break;
+				default:
+					value.setBoolValue(i % 8 == 3);
+			}
+			event.addTelemetry(DomainProto.Telemetry.newBuilder()
+					.setValue(value)
+					.setTime(1_700_000_000_000L + i)
+					.setTelemetryField(DomainProto.TelemetryField.newBuilder()
+							.setCode("field_" + i)
+							.setSemantic(DomainProto.Semantic.S_LATITUDE)
+							.setSubsystem(DomainProto.Subsystem.S_FLIGHT_CONTROLLER)
+							.setSubsystemId(0)));
+		}
+		return event.build();
+	}
+
+	private static Message createProcessedRoute() {
+		DomainProto.ProcessedRoute.Builder route = DomainProto.ProcessedRoute.newBuilder()
+				.setId(1)
+				.setVersion(1)
+				.setUuid("7c5c2bb2-5b4e-4d64-9b1f-1d0e3f4b8a21")
+				.setEstimatedDistance(12500.5)
+				.setDiameter(3200.25);
+		for (int i = 0; i < 10; i++) {
+			DomainProto.ProcessedSegment.Builder segment = DomainProto.ProcessedSegment.newBuilder()
+					.setId(i)
+					.setVersion(1)
+					.setStatus(DomainProto.RouteProcessingStatus.RPS_PROCESSED)
+					.setEstimatedDistance(1250.0 + i)
+					.setEstimatedTime(300.0 + i)
+					.setAlgorithmCode("Waypoint");
+			for (int j = 0; j < 20; j++) {
+				segment.addSegmentActions(DomainProto.Action.newBuilder()
+						.setId(i * 20 + j)
+						.setWaypoint(DomainProto.Waypoint.newBuilder()
+								.setLatitude(0.9944 + i * 1e-5 + j * 1e-6)
+								.setLongitude(0.4253 + i * 1e-5 - j * 1e-6)
+								.setWgs84Altitude(150.0 + j)
+								.setHeading(1.5707963267948966)
+								.setAcceptanceRadius(2.0)
+								.setTurnType(DomainProto.WaypointTurnType.WTT_STRAIGHT)
+								.setAltitudeFrame(DomainProto.AltitudeFrame.AF_AGL))
+						.setEstimatedTime(12.5 * j));
+			}
+			route.addSegments(segment);
+		}
+		return route.build();
+	}
+
+	@Benchmark
+	public byte[] encodeJsonFormat() {
+		return JsonFormat.printToString(protoMessage).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return encoder.encode(protoMessage);
+	}
+
+	@Benchmark
+	public Message decodeJsonFormat() throws Exception {
+		Message.Builder builder = protoMessage.newBuilderForType();
+		JsonFormat.merge(new String(json, StandardCharsets.UTF_8), builder);
+		return builder.build();
+	}
+
+	@Benchmark
+	public Message decode() throws Exception {
+		return decoder.decode(json, protoMessage.getDefaultInstanceForType());
+	}
+}
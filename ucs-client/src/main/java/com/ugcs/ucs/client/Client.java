@@ -9,11 +9,16 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.Message;
 import com.ugcs.messaging.api.Connector;
 import com.ugcs.messaging.api.MessageEvent;
 import com.ugcs.messaging.api.MessageExecutor;
+import com.ugcs.messaging.api.MessageFuture;
 import com.ugcs.messaging.api.MessageListenerAdapter;
 import com.ugcs.messaging.api.MessageSelector;
 import com.ugcs.messaging.api.MessageSession;
@@ -21,32 +26,102 @@ import com.ugcs.messaging.mina.MinaConnector;
 import com.ugcs.ucs.proto.MessagesProto;
 import com.ugcs.ucs.proto.MessagesProto.Error;
 import com.ugcs.ucs.proto.MessagesProto.Notification;
+import com.ugcs.ucs.proto.codec.CompressionControl;
+import com.ugcs.ucs.proto.codec.FrameCompression;
 import com.ugcs.ucs.proto.codec.MessageWrapper;
 import com.ugcs.ucs.proto.codec.MessageWrapperCodecFactory;
+import com.ugcs.ucs.proto.codec.ResponseStreams;
 import com.ugcs.ucs.proto.mapping.HciMessageMapping;
 
+/**
+ * Client of the UCS server.
+ * <p>
+ * Client may open several connections (stripes) to the server and spread
+ * the requests among them by the {@link StripePolicy}, so a large response
+ * on one connection does not delay the requests on the others.
+ * {@link ClientSession} authorizes every stripe.
+ */
 public class Client implements Closeable {
 
 	private final Connector connector;
 	private final SocketAddress serverAddress;
-	private MessageSession session;
-	private MessageExecutor executor;
-	private int messageInstanceId = 0;
+	private final int stripeCount;
+	private final StripePolicy stripePolicy;
+	private volatile Stripe[] stripes = new Stripe[0];
+	private final StripePolicy.Stripes stripesView = new StripesView();
+	private final AtomicInteger messageInstanceId = new AtomicInteger();
+	private final ResponseStreams responseStreams;
 	private final List<ServerNotificationListener> notificationListeners =
 			new CopyOnWriteArrayList<>();
 
-	private static final long DEFAULT_REQUEST_TIMEOUT = 60_000L;
+	private volatile FrameCompression compression;
+
+	static final long DEFAULT_REQUEST_TIMEOUT = 60_000L;
+	static final long COMPRESSION_NEGOTIATION_TIMEOUT = 5_000L;
 
 	public Client(SocketAddress serverAddress) {
+		this(serverAddress, 1, StripePolicies.leastOutstanding());
+	}
+
+	/**
+	 * Creates a client with the specified number of connections,
+	 * each one is served by its own I/O thread.
+	 */
+	public Client(SocketAddress serverAddress, int stripeCount, StripePolicy stripePolicy) {
+		this(serverAddress, stripeCount, stripePolicy, new ResponseStreams());
+	}
+
+	private Client(SocketAddress serverAddress, int stripeCount, StripePolicy stripePolicy,
+			ResponseStreams responseStreams) {
+		this(serverAddress, new MinaConnector(
+				new MessageWrapperCodecFactory(new HciMessageMapping(), true, FrameCompression.defaults(),
+						responseStreams),
+				Math.max(1, stripeCount),
+				Math.max(1, stripeCount),
+				null),
+				stripeCount,
+				stripePolicy,
+				responseStreams);
+	}
+
+	/**
+	 * Creates a client over the specified transport, e.g.
+	 * {@code new NioConnector(new MessageWrapperCodecFactory(new HciMessageMapping(), true, FrameCompression.defaults()))}.
+	 * Connector is closed along with the client.
+	 */
+	public Client(SocketAddress serverAddress, Connector connector) {
+		this(serverAddress, connector, 1, StripePolicies.leastOutstanding());
+	}
+
+	public Client(SocketAddress serverAddress, Connector connector, int stripeCount, StripePolicy stripePolicy) {
+		this(serverAddress, connector, stripeCount, stripePolicy, null);
+	}
+
+	/**
+	 * @param responseStreams consumers of the streamed responses, those
+	 *                        the codec of the connector decodes, or null
+	 *                        if the responses are decoded whole
+	 */
+	public Client(SocketAddress serverAddress, Connector connector, int stripeCount, StripePolicy stripePolicy,
+			ResponseStreams responseStreams) {
 		if (serverAddress == null)
 			throw new IllegalArgumentException("serverAddress");
+		if (connector == null)
+			throw new IllegalArgumentException("connector");
+		if (stripeCount < 1)
+			throw new IllegalArgumentException("stripeCount");
+		if (stripePolicy == null)
+			throw new IllegalArgumentException("stripePolicy");
 
 		this.serverAddress = serverAddress;
-		this.connector = new MinaConnector(
-				new MessageWrapperCodecFactory(new HciMessageMapping()),
-				1,
-				1,
-				null);
+		this.connector = connector;
+		this.stripeCount = stripeCount;
+		this.stripePolicy = stripePolicy;
+		this.responseStreams = responseStreams;
+	}
+
+	public int getStripeCount() {
+		return stripeCount;
 	}
 
 	public void addNotificationListener(ServerNotificationListener listener) {
@@ -63,50 +138,195 @@ public class Client implements Closeable {
 		notificationListeners.remove(listener);
 	}
 
+	public FrameCompression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Offers the frame compression to the server, when the client connects.
+	 * Codec of the connector should decode the compressed frames of the
+	 * offered methods, as the default one does for the
+	 * {@link FrameCompression#defaults()}. Connections to the servers that
+	 * do not answer the offer in time stay uncompressed.
+	 *
+	 * @param compression compression methods, or null to send no offer
+	 */
+	public void setCompression(FrameCompression compression) {
+		this.compression = compression;
+	}
+
 	public boolean isConnected() {
-		return session != null && session.isOpened();
+		Stripe[] stripes = this.stripes;
+		if (stripes.length == 0)
+			return false;
+		for (Stripe stripe : stripes) {
+			if (!stripe.session.isOpened())
+				return false;
+		}
+		return true;
 	}
 
 	public void connect() throws IOException {
-		if (session != null) {
-			session.close();
-			session = null;
-		}
+		closeStripes();
+		Stripe[] newStripes = new Stripe[stripeCount];
 		try {
-			session = connector.connect(serverAddress);
-			session.addListener(
-					new NotificationDispatcher(),
-					new NotificationSelector());
-
-			executor = new MessageExecutor(session);
+			for (int i = 0; i < stripeCount; i++) {
+				MessageSession session = connector.connect(serverAddress);
+				newStripes[i] = new Stripe(session);
+				session.addListener(
+						new NotificationDispatcher(),
+						new NotificationSelector());
+			}
+			FrameCompression compression = this.compression;
+			if (compression != null)
+				negotiateCompression(newStripes, compression);
 		} catch (Exception e) {
-			if (session != null)
-				session.close();
+			for (Stripe stripe : newStripes) {
+				if (stripe != null)
+					stripe.session.close();
+			}
 			throw new IOException("Connection error", e);
 		}
+		stripes = newStripes;
+	}
+
+	private static boolean isCompressionAck(Object message) {
+		return message instanceof CompressionControl
+				&& ((CompressionControl)message).getType() == CompressionControl.Type.ACK;
+	}
+
+	private static void negotiateCompression(Stripe[] stripes, FrameCompression compression) throws Exception {
+		// offers of all stripes are pending at once,
+		// waiting for the acks within a single timeout
+		MessageFuture[] futures = new MessageFuture[stripes.length];
+		for (int i = 0; i < stripes.length; i++)
+			futures[i] = stripes[i].executor.submit(CompressionControl.offer(compression), Client::isCompressionAck);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMPRESSION_NEGOTIATION_TIMEOUT);
+		for (int i = 0; i < stripes.length; i++) {
+			CompressionControl ack;
+			try {
+				ack = (CompressionControl)futures[i].get(
+						Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				// server does not support the compression
+				futures[i].cancel(true);
+				continue;
+			}
+			int compressorId = ack.getCompressorId();
+			if (compressorId != CompressionControl.NONE)
+				stripes[i].session.send(CompressionControl.enable(compressorId));
+		}
+	}
+
+	private void closeStripes() throws IOException {
+		Stripe[] oldStripes = stripes;
+		stripes = new Stripe[0];
+		for (Stripe stripe : oldStripes)
+			stripe.session.close();
 	}
 
 	@Override
 	public void close() throws IOException {
-		if (session != null)
-			session.close();
+		closeStripes();
 		if (connector != null)
 			connector.close();
 	}
 
-	@SuppressWarnings("unchecked")
 	public <T> T execute(Message message, long timeoutMillis) throws Exception {
+		if (message == null)
+			throw new IllegalArgumentException("message");
+
+		int stripe = stripePolicy.select(message, stripesView);
+		if (stripe < 0 || stripe >= stripeCount)
+			throw new IllegalStateException("Stripe index out of range: " + stripe);
+		return executeOnStripe(message, stripe, timeoutMillis);
+	}
+
+	/**
+	 * Executes the request on the specified stripe, regardless
+	 * of the stripe policy.
+	 */
+	public <T> T executeOnStripe(Message message, int stripe, long timeoutMillis) throws Exception {
+		return executeOnStripe(message, stripe, timeoutMillis, null);
+	}
+
+	/**
+	 * Executes the request, which response elements are passed to the
+	 * consumer one by one, as they are received: objects of the
+	 * {@code GetObjectListResponse}, telemetry of the
+	 * {@code GetTelemetryResponse} or tracks of the
+	 * {@code GetVehicleTracksResponse}. Elements are consumed by the I/O
+	 * thread of the connection, before the method returns.
+	 *
+	 * @return response without the streamed elements
+	 * @see ResponseStreams
+	 */
+	public <T, E extends Message> T execute(Message message, Consumer<? super E> elementConsumer,
+			long timeoutMillis) throws Exception {
+		if (message == null)
+			throw new IllegalArgumentException("message");
+		if (elementConsumer == null)
+			throw new IllegalArgumentException("elementConsumer");
+
+		int stripe = stripePolicy.select(message, stripesView);
+		if (stripe < 0 || stripe >= stripeCount)
+			throw new IllegalStateException("Stripe index out of range: " + stripe);
+		return executeOnStripe(message, stripe, timeoutMillis, elementConsumer);
+	}
+
+	public <T, E extends Message> T execute(Message message, Consumer<? super E> elementConsumer) throws Exception {
+		return execute(message, elementConsumer, DEFAULT_REQUEST_TIMEOUT);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T executeOnStripe(Message message, int stripe, long timeoutMillis,
+			Consumer<?> elementConsumer) throws Exception {
+		Stripe[] stripes = this.stripes;
+		if (stripes.length == 0)
+			throw new IOException("Client is not connected");
+		if (stripe < 0 || stripe >= stripes.length)
+			throw new IllegalArgumentException("stripe");
+
+		Stripe target = stripes[stripe];
 		MessageWrapper request = wrap(message);
 		MessageSelector selector = new ResponseSelector(request);
-		Message response = ((MessageWrapper)executor.submit(request, selector)
-				.get(timeoutMillis, TimeUnit.MILLISECONDS))
-				.getMessage();
+		Consumer<Message> consumer = (Consumer<Message>)elementConsumer;
+		boolean streamed = false;
+		if (consumer != null && responseStreams != null)
+			responseStreams.register(request.getInstanceId(), consumer);
+		Message response;
+		target.outstanding.incrementAndGet();
+		try {
+			response = ((MessageWrapper)target.executor.submit(request, selector)
+					.get(timeoutMillis, TimeUnit.MILLISECONDS))
+					.getMessage();
+		} finally {
+			target.outstanding.decrementAndGet();
+			if (consumer != null && responseStreams != null)
+				streamed = !responseStreams.unregister(request.getInstanceId());
+		}
 		if (response instanceof MessagesProto.Error) {
 			throw buildException((MessagesProto.Error)response);
 		}
+		if (consumer != null && !streamed)
+			response = consumeElements(response, consumer);
 		return (T)response;
 	}
 
+	// passes the elements of the response, that is decoded whole,
+	// to the consumer
+	private static Message consumeElements(Message response, Consumer<Message> consumer) {
+		FieldDescriptor elementField = ResponseStreams.getElementField(response.getDescriptorForType());
+		if (elementField == null)
+			return response;
+		int count = response.getRepeatedFieldCount(elementField);
+		for (int i = 0; i < count; i++)
+			consumer.accept((Message)response.getRepeatedField(elementField, i));
+		return response.toBuilder()
+				.clearField(elementField)
+				.build();
+	}
+
 	private static UcsException buildException(MessagesProto.Error e) {
 		Integer errorCode = null;
 		if (e.hasErrorCode())
@@ -136,16 +356,51 @@ public class Client implements Closeable {
 	}
 
 	private MessageWrapper wrap(Message message) {
-		MessageWrapper messageWrapper = new MessageWrapper(message, messageInstanceId++);
+		MessageWrapper messageWrapper = new MessageWrapper(message, messageInstanceId.getAndIncrement());
 		return messageWrapper;
 	}
 
+	/**
+	 * Connection to the server.
+	 */
+	private static final class Stripe {
+
+		final MessageSession session;
+		final MessageExecutor executor;
+		// requests waiting for the response
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		Stripe(MessageSession session) {
+			this.session = session;
+			this.executor = new MessageExecutor(session);
+		}
+	}
+
+	private final class StripesView implements StripePolicy.Stripes {
+
+		@Override
+		public int size() {
+			return stripeCount;
+		}
+
+		@Override
+		public int getOutstanding(int stripe) {
+			Stripe[] stripes = Client.this.stripes;
+			return stripe < stripes.length
+					? stripes[stripe].outstanding.get()
+					: 0;
+		}
+	}
+
 	class NotificationDispatcher extends MessageListenerAdapter {
 
 		@Override
 		public void messageReceived(MessageEvent messageEvent) {
 			if (!(messageEvent.getMessage() instanceof MessageWrapper))
 				return;
+			// notifications nobody listens to are not decoded
+			if (notificationListeners.isEmpty())
+				return;
 			MessageWrapper wrapper = (MessageWrapper)messageEvent.getMessage();
 			Object message = wrapper.getMessage();
 			if (message instanceof Notification) {
@@ -162,6 +417,9 @@ public class Client implements Closeable {
 
 	static class NotificationSelector implements MessageSelector {
 
+		private static final int NOTIFICATION_TYPE_ID =
+				new HciMessageMapping().getMessageType(Notification.class);
+
 		@Override
 		public boolean select(Object message) {
 			if (message == null)
@@ -170,7 +428,12 @@ public class Client implements Closeable {
 				return false;
 
 			MessageWrapper wrapper = (MessageWrapper)message;
-			return wrapper.getInstanceId() == -1;
+			if (wrapper.getInstanceId() != -1)
+				return false;
+			// selected by the type id, without decoding
+			int messageType = wrapper.getMessageType();
+			return messageType == MessageWrapper.UNKNOWN_TYPE
+					|| messageType == NOTIFICATION_TYPE_ID;
 		}
 	}
 
@@ -184,6 +447,16 @@ public class Client implements Closeable {
 				MessagesProto.CancelOperationResponse.class
 		));
 
+		// type ids of the status messages, to select the responses
+		// without decoding
+		private static final Set<Integer> STATUS_MESSAGE_TYPE_IDS = new HashSet<>();
+
+		static {
+			HciMessageMapping mapping = new HciMessageMapping();
+			for (Class<? extends Message> messageClass : STATUS_MESSAGE_TYPES)
+				STATUS_MESSAGE_TYPE_IDS.add(mapping.getMessageType(messageClass));
+		}
+
 		private int instanceId;
 
 		public ResponseSelector(MessageWrapper request) {
@@ -201,9 +474,12 @@ public class Client implements Closeable {
 				return false;
 
 			MessageWrapper wrapper = (MessageWrapper)message;
-			return wrapper != null
-					&& instanceId == wrapper.getInstanceId()
-					&& wrapper.getMessage() != null
+			if (instanceId != wrapper.getInstanceId())
+				return false;
+			int messageType = wrapper.getMessageType();
+			if (messageType != MessageWrapper.UNKNOWN_TYPE)
+				return !STATUS_MESSAGE_TYPE_IDS.contains(messageType);
+			return wrapper.getMessage() != null
 					&& !STATUS_MESSAGE_TYPES.contains(wrapper.getMessage().getClass());
 		}
 	}
@@ -70,8 +70,12 @@ public class ClientSession {
 						.setMinor(ProtoProtocolVersion.getMinor())
 						.build())
 				.build();
-		AuthorizeHciResponse response = client.execute(request);
+		AuthorizeHciResponse response = client.executeOnStripe(request, 0, Client.DEFAULT_REQUEST_TIMEOUT);
 		clientId = response.getClientId();
+		// other connections are joined to the same client
+		for (int stripe = 1; stripe < client.getStripeCount(); stripe++)
+			client.executeOnStripe(request.toBuilder().setClientId(clientId).build(), stripe,
+					Client.DEFAULT_REQUEST_TIMEOUT);
 	}
 
 	public void login(String login, String password) throws Exception {
@@ -83,13 +87,16 @@ public class ClientSession {
 				.setUserLogin(login)
 				.setUserPassword(password)
 				.build();
-		client.execute(request);
+		for (int stripe = 0; stripe < client.getStripeCount(); stripe++)
+			client.executeOnStripe(request, stripe, Client.DEFAULT_REQUEST_TIMEOUT);
 	}
 
 	public void logout() throws Exception {
 		LogoutRequest request = LogoutRequest.newBuilder()
 				.build();
-		client.execute(request);
+		// every stripe was logged in
+		for (int stripe = 0; stripe < client.getStripeCount(); stripe++)
+			client.executeOnStripe(request, stripe, Client.DEFAULT_REQUEST_TIMEOUT);
 	}
 
 	public List<DomainObjectWrapper> getObjectList(Class<? extends Message> objectType) throws Exception {
@@ -0,0 +1,97 @@
+package com.ugcs.ucs.client;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.Message;
+import com.ugcs.ucs.proto.MessagesProto;
+
+public final class StripePolicies {
+
+	/**
+	 * Requests, that usually get large responses or take long to complete.
+	 */
+	public static final Set<Class<? extends Message>> BULK_REQUEST_TYPES = Collections.unmodifiableSet(
+			new HashSet<>(Arrays.asList(
+					MessagesProto.GetObjectListRequest.class,
+					MessagesProto.ExportTelemetryRequest.class,
+					MessagesProto.ImportTelemetryRequest.class,
+					MessagesProto.GetTelemetryRequest.class,
+					MessagesProto.GetElevationTilesV2Request.class,
+					MessagesProto.GetVehicleLogRequest.class,
+					MessagesProto.GetVehicleLogByTimeRangeRequest.class
+			)));
+
+	private StripePolicies() {
+	}
+
+	/**
+	 * Stripe with the least number of outstanding requests,
+	 * ties are broken in turn.
+	 */
+	public static StripePolicy leastOutstanding() {
+		return new LeastOutstanding(0);
+	}
+
+	/**
+	 * All requests of the same class are executed on the same stripe.
+	 */
+	public static StripePolicy byMessageClass() {
+		return (request, stripes) -> Math.floorMod(request.getClass().getName().hashCode(), stripes.size());
+	}
+
+	/**
+	 * Dedicated lanes: the first stripe is reserved for the control
+	 * requests, requests of the bulk types go to the least loaded
+	 * of the other stripes. A single stripe serves both.
+	 */
+	public static StripePolicy lanes(Set<Class<? extends Message>> bulkTypes) {
+		Objects.requireNonNull(bulkTypes);
+
+		Set<Class<? extends Message>> bulkTypesCopy = new HashSet<>(bulkTypes);
+		StripePolicy bulkLanes = new LeastOutstanding(1);
+		return (request, stripes) -> bulkTypesCopy.contains(request.getClass()) && stripes.size() > 1
+				? bulkLanes.select(request, stripes)
+				: 0;
+	}
+
+	/**
+	 * Dedicated lanes for the {@link #BULK_REQUEST_TYPES}.
+	 */
+	public static StripePolicy lanes() {
+		return lanes(BULK_REQUEST_TYPES);
+	}
+
+	private static final class LeastOutstanding implements StripePolicy {
+
+		private final int first;
+		private final AtomicInteger next = new AtomicInteger();
+
+		LeastOutstanding(int first) {
+			this.first = first;
+		}
+
+		@Override
+		public int select(Message request, Stripes stripes) {
+			int n = stripes.size() - first;
+			if (n <= 1)
+				return first;
+			int offset = Math.floorMod(next.getAndIncrement(), n);
+			int selected = first;
+			int min = Integer.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				int stripe = first + (offset + i) % n;
+				int outstanding = stripes.getOutstanding(stripe);
+				if (outstanding < min) {
+					min = outstanding;
+					selected = stripe;
+				}
+			}
+			return selected;
+		}
+	}
+}
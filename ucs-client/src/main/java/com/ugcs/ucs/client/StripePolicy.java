@@ -0,0 +1,30 @@
+package com.ugcs.ucs.client;
+
+import com.google.protobuf.Message;
+
+/**
+ * Chooses the connection (stripe) of the {@link Client}
+ * to execute a request on. See {@link StripePolicies} for the
+ * common policies.
+ */
+public interface StripePolicy {
+
+	/**
+	 * @return index of the stripe in the range {@code [0, stripes.size())}
+	 */
+	int select(Message request, Stripes stripes);
+
+	/**
+	 * Current state of the client stripes.
+	 */
+	interface Stripes {
+
+		int size();
+
+		/**
+		 * Number of requests executed on the stripe,
+		 * that are waiting for the response.
+		 */
+		int getOutstanding(int stripe);
+	}
+}
@@ -6,11 +6,16 @@ import java.io.OutputStream;
 import java.util.Arrays;
 
 public class ArrayOutputStream extends OutputStream {
+	private static final byte[] EMPTY = new byte[0];
+
 	private byte[] buffer;
 	private int position;
+	// buffer arrays are taken from the pool, if set
+	private final BufferPool pool;
 	
 	public ArrayOutputStream() {
 		buffer = new byte[32];
+		pool = null;
 	}
 	
 	public ArrayOutputStream(int size) {
@@ -18,12 +23,37 @@ public class ArrayOutputStream extends OutputStream {
 			throw new IllegalArgumentException("Negative initial size");
 		
 		buffer = new byte[size];
+		pool = null;
+	}
+
+	/**
+	 * Creates a stream, that takes its buffers from the pool and returns
+	 * them back on growth and on {@link #close()}. Content of the stream
+	 * (including the one of {@link #getInputStream()}) is not available
+	 * after the stream is closed.
+	 */
+	public ArrayOutputStream(int size, BufferPool pool) {
+		if (size < 0)
+			throw new IllegalArgumentException("Negative initial size");
+		if (pool == null)
+			throw new IllegalArgumentException("pool");
+
+		this.pool = pool;
+		buffer = pool.acquire(size);
 	}
 	
 	private void reserve(int n) {
 		if (n > buffer.length) {
 			// exponential buffer growth strategy (x 1.5)
-			buffer = Arrays.copyOf(buffer, Math.max(buffer.length + (buffer.length >> 1), n));
+			int length = Math.max(buffer.length + (buffer.length >> 1), n);
+			if (pool == null) {
+				buffer = Arrays.copyOf(buffer, length);
+			} else {
+				byte[] extended = pool.acquire(length);
+				System.arraycopy(buffer, 0, extended, 0, position);
+				pool.release(buffer);
+				buffer = extended;
+			}
 		}
 	}
 
@@ -63,4 +93,13 @@ public class ArrayOutputStream extends OutputStream {
 	public InputStream getInputStream() {
 		return new ArrayInputStream(buffer, 0, position);
 	}
+
+	@Override
+	public void close() throws IOException {
+		if (pool != null && buffer != EMPTY) {
+			pool.release(buffer);
+			buffer = EMPTY;
+			position = 0;
+		}
+	}
 }
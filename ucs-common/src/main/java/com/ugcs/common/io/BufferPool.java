@@ -0,0 +1,328 @@
+package com.ugcs.common.io;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Pool of byte arrays and direct byte buffers.
+ * <p>
+ * Buffers are grouped by power of two size classes, from the min to the max
+ * size: acquired buffer has the length of the smallest class that fits the
+ * requested one. Requests above the max size are allocated as is and are not
+ * pooled, as well as the heap requests below the min size, for which
+ * an allocation is cheaper than a cache lookup. Released buffers go to a small
+ * per-thread cache first and then to a bounded cache shared by all threads,
+ * so a buffer may be released by another thread than the one that acquired
+ * it. Buffers that do not fit the caches are left to the garbage collector.
+ * <p>
+ * Virtual threads (Java 21 runtime) use the shared cache only: they are
+ * usually short-lived and numerous, so their own caches would hold
+ * the buffers without reusing them.
+ * <p>
+ * Pool does not track acquired buffers: a buffer should not be used after
+ * it is released, and a buffer that is never released is just collected.
+ */
+public final class BufferPool implements BufferPoolMXBean {
+
+	public static final int DEFAULT_MIN_SIZE = 256;
+	public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 4;
+	public static final int DEFAULT_SHARED_CACHE_SIZE = 32;
+
+	private static final BufferPool DEFAULT = new BufferPool();
+
+	private final int minShift;
+	private final int maxShift;
+
+	private final Cache<byte[]> heap;
+	private final Cache<ByteBuffer> direct;
+
+	/* statistics */
+
+	private final LongAdder acquired = new LongAdder();
+	private final LongAdder released = new LongAdder();
+	private final LongAdder allocated = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	public BufferPool() {
+		this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_THREAD_CACHE_SIZE, DEFAULT_SHARED_CACHE_SIZE);
+	}
+
+	/**
+	 * @param minSize         smallest size class, rounded up to a power of two
+	 * @param maxSize         largest size class, rounded up to a power of two
+	 * @param threadCacheSize max number of buffers per size class cached
+	 *                        by a thread
+	 * @param sharedCacheSize max number of buffers per size class cached
+	 *                        for all threads
+	 */
+	public BufferPool(int minSize, int maxSize, int threadCacheSize, int sharedCacheSize) {
+		if (minSize < 1 || minSize > (1 << 30))
+			throw new IllegalArgumentException("minSize");
+		if (maxSize < minSize || maxSize > (1 << 30))
+			throw new IllegalArgumentException("maxSize");
+		if (threadCacheSize < 0)
+			throw new IllegalArgumentException("threadCacheSize");
+		if (sharedCacheSize < 0)
+			throw new IllegalArgumentException("sharedCacheSize");
+
+		this.minShift = shiftOf(minSize);
+		this.maxShift = shiftOf(maxSize);
+		int numClasses = maxShift - minShift + 1;
+		this.heap = new Cache<>(numClasses, threadCacheSize, sharedCacheSize);
+		this.direct = new Cache<>(numClasses, threadCacheSize, sharedCacheSize);
+	}
+
+	public static BufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	// log2 of the smallest power of two not less than size
+	private static int shiftOf(int size) {
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	// size class of the requested length, -1 if it is not pooled
+	private int classOf(int length) {
+		int shift = Math.max(shiftOf(length), minShift);
+		return shift <= maxShift ? shift - minShift : -1;
+	}
+
+	// size class of the released buffer, -1 if it is not a class size
+	private int classOfReleased(int capacity) {
+		if (Integer.bitCount(capacity) != 1)
+			return -1;
+		int shift = Integer.numberOfTrailingZeros(capacity);
+		return shift >= minShift && shift <= maxShift ? shift - minShift : -1;
+	}
+
+	private int classSize(int sizeClass) {
+		return 1 << (sizeClass + minShift);
+	}
+
+	public int getMinSize() {
+		return 1 << minShift;
+	}
+
+	public int getMaxSize() {
+		return 1 << maxShift;
+	}
+
+	/**
+	 * Returns an array of at least the given length.
+	 */
+	public byte[] acquire(int minLength) {
+		if (minLength < 0)
+			throw new IllegalArgumentException("minLength");
+
+		acquired.increment();
+		int sizeClass = minLength >= (1 << minShift) ? classOf(minLength) : -1;
+		if (sizeClass >= 0) {
+			byte[] array = heap.poll(sizeClass);
+			if (array != null)
+				return array;
+		}
+		int length = sizeClass >= 0 ? classSize(sizeClass) : minLength;
+		allocated.increment();
+		allocatedBytes.add(length);
+		return new byte[length];
+	}
+
+	/**
+	 * Returns an array to the pool, arrays of other lengths
+	 * than the size classes are ignored.
+	 */
+	public void release(byte[] array) {
+		if (array == null)
+			return;
+
+		released.increment();
+		int sizeClass = classOfReleased(array.length);
+		if (sizeClass < 0 || !heap.offer(sizeClass, array))
+			dropped.increment();
+	}
+
+	/**
+	 * Returns a cleared direct buffer of at least the given capacity,
+	 * buffer limit is the requested capacity.
+	 */
+	public ByteBuffer acquireDirect(int minCapacity) {
+		if (minCapacity < 0)
+			throw new IllegalArgumentException("minCapacity");
+
+		acquired.increment();
+		int sizeClass = classOf(minCapacity);
+		ByteBuffer buffer = sizeClass >= 0 ? direct.poll(sizeClass) : null;
+		if (buffer == null) {
+			int capacity = sizeClass >= 0 ? classSize(sizeClass) : minCapacity;
+			allocated.increment();
+			allocatedBytes.add(capacity);
+			buffer = ByteBuffer.allocateDirect(capacity);
+		}
+		buffer.clear();
+		buffer.limit(minCapacity);
+		return buffer;
+	}
+
+	/**
+	 * Returns a direct buffer to the pool. Only the buffers acquired
+	 * from the pool should be released, not their slices or duplicates.
+	 */
+	public void releaseDirect(ByteBuffer buffer) {
+		if (buffer == null)
+			return;
+
+		released.increment();
+		int sizeClass = buffer.isDirect() && !buffer.isReadOnly()
+				? classOfReleased(buffer.capacity())
+				: -1;
+		if (sizeClass < 0 || !direct.offer(sizeClass, buffer))
+			dropped.increment();
+	}
+
+	public ObjectName register(String poolName) throws JMException {
+		ObjectName name = new ObjectName("com.ugcs.common:type=BufferPool,name="
+				+ ObjectName.quote(poolName));
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, name);
+		return name;
+	}
+
+	public void unregister(ObjectName name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+
+	/* MXBean */
+
+	@Override
+	public long getAcquireCount() {
+		return acquired.sum();
+	}
+
+	@Override
+	public long getReleaseCount() {
+		return released.sum();
+	}
+
+	@Override
+	public long getAllocateCount() {
+		return allocated.sum();
+	}
+
+	@Override
+	public long getAllocatedBytes() {
+		return allocatedBytes.sum();
+	}
+
+	@Override
+	public long getDropCount() {
+		return dropped.sum();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long acquireCount = acquired.sum();
+		return acquireCount > 0
+				? 1.0 - (double)allocated.sum() / acquireCount
+				: 0.0;
+	}
+
+	@Override
+	public int getSharedCount() {
+		int count = 0;
+		for (int i = 0; i <= maxShift - minShift; i++)
+			count += heap.sharedSize(i) + direct.sharedSize(i);
+		return count;
+	}
+
+	@Override
+	public long getSharedBytes() {
+		long bytes = 0L;
+		for (int i = 0; i <= maxShift - minShift; i++)
+			bytes += (long)classSize(i) * (heap.sharedSize(i) + direct.sharedSize(i));
+		return bytes;
+	}
+
+	/**
+	 * Two-level cache of the buffers of one kind, by size classes.
+	 */
+	private static final class Cache<T> {
+
+		private final int threadCacheSize;
+		private final ArrayBlockingQueue<T>[] shared;
+		private final ThreadLocal<ThreadCache> local;
+
+		@SuppressWarnings("unchecked")
+		Cache(int numClasses, int threadCacheSize, int sharedCacheSize) {
+			this.threadCacheSize = threadCacheSize;
+			this.shared = new ArrayBlockingQueue[numClasses];
+			if (sharedCacheSize > 0) {
+				for (int i = 0; i < numClasses; i++)
+					shared[i] = new ArrayBlockingQueue<>(sharedCacheSize);
+			}
+			this.local = ThreadLocal.withInitial(() -> new ThreadCache(numClasses, threadCacheSize));
+		}
+
+		@SuppressWarnings("unchecked")
+		T poll(int sizeClass) {
+			if (threadCacheSize > 0 && !Threads.isVirtual()) {
+				Object buffer = local.get().poll(sizeClass);
+				if (buffer != null)
+					return (T)buffer;
+			}
+			ArrayBlockingQueue<T> queue = shared[sizeClass];
+			return queue != null ? queue.poll() : null;
+		}
+
+		boolean offer(int sizeClass, T buffer) {
+			if (threadCacheSize > 0 && !Threads.isVirtual() && local.get().offer(sizeClass, buffer))
+				return true;
+			ArrayBlockingQueue<T> queue = shared[sizeClass];
+			return queue != null && queue.offer(buffer);
+		}
+
+		int sharedSize(int sizeClass) {
+			ArrayBlockingQueue<T> queue = shared[sizeClass];
+			return queue != null ? queue.size() : 0;
+		}
+	}
+
+	private static final class ThreadCache {
+
+		private final Object[][] stacks;
+		private final int[] sizes;
+
+		ThreadCache(int numClasses, int capacity) {
+			this.stacks = new Object[numClasses][capacity];
+			this.sizes = new int[numClasses];
+		}
+
+		Object poll(int sizeClass) {
+			int size = sizes[sizeClass];
+			if (size == 0)
+				return null;
+			Object[] stack = stacks[sizeClass];
+			Object buffer = stack[--size];
+			stack[size] = null;
+			sizes[sizeClass] = size;
+			return buffer;
+		}
+
+		boolean offer(int sizeClass, Object buffer) {
+			int size = sizes[sizeClass];
+			Object[] stack = stacks[sizeClass];
+			if (size == stack.length)
+				return false;
+			stack[size] = buffer;
+			sizes[sizeClass] = size + 1;
+			return true;
+		}
+	}
+}
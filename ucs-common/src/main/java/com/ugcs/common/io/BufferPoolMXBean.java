@@ -0,0 +1,26 @@
+package com.ugcs.common.io;
+
+/**
+ * Management interface of the {@link BufferPool}.
+ */
+public interface BufferPoolMXBean {
+
+	long getAcquireCount();
+
+	long getReleaseCount();
+
+	// acquisitions served by new allocations
+	long getAllocateCount();
+
+	long getAllocatedBytes();
+
+	// released buffers not kept by the pool
+	long getDropCount();
+
+	double getHitRatio();
+
+	// buffers kept in the shared cache
+	int getSharedCount();
+
+	long getSharedBytes();
+}
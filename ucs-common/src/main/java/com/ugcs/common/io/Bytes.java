@@ -15,19 +15,24 @@ public final class Bytes {
 	}
 	
 	public static long copy(InputStream in, OutputStream out) throws IOException {
-		byte[] copyBuffer = new byte[COPY_BUFFER_LENGTH];
-		int n = 0;
-		long total = 0;
-		while ((n = in.read(copyBuffer)) != -1) {
-			out.write(copyBuffer, 0, n);
-			total += n;
+		BufferPool pool = BufferPool.getDefault();
+		byte[] copyBuffer = pool.acquire(COPY_BUFFER_LENGTH);
+		try {
+			int n = 0;
+			long total = 0;
+			while ((n = in.read(copyBuffer)) != -1) {
+				out.write(copyBuffer, 0, n);
+				total += n;
+			}
+			return total;
+		} finally {
+			pool.release(copyBuffer);
 		}
-		return total;
 	}
 
 	public static byte[] getBytes(InputStream in) throws IOException {
 		ArrayOutputStream out =
-				new ArrayOutputStream(in.available());
+				new ArrayOutputStream(in.available(), BufferPool.getDefault());
 		try {
 			Bytes.copy(in, out);
 			out.flush();
@@ -9,6 +9,8 @@ public class CircularBuffer {
 	private byte[] buffer;
 	private int head; // first element (exists)
 	private int tail; // first element to insert (doesn't exist)
+	// buffer arrays are taken from the pool, if set
+	private final BufferPool pool;
 	
 	private final InputStream in = new InputStreamAdapter();
 	private final OutputStream out = new OutputStreamAdapter();
@@ -26,6 +28,36 @@ public class CircularBuffer {
 		this.buffer = new byte[capacity + 1];
 		this.head = 0;
 		this.tail = this.head;
+		this.pool = null;
+	}
+
+	/**
+	 * Creates a buffer, that takes its arrays from the pool. Arrays are
+	 * returned back on growth and on {@link #release()}.
+	 */
+	public CircularBuffer(int capacity, BufferPool pool) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity");
+		if (pool == null)
+			throw new IllegalArgumentException("pool");
+
+		this.pool = pool;
+		this.buffer = pool.acquire(capacity + 1);
+		this.head = 0;
+		this.tail = this.head;
+	}
+
+	/**
+	 * Clears the buffer and returns its array to the pool,
+	 * if any. Buffer can be used further, as an empty one.
+	 */
+	public void release() {
+		head = 0;
+		tail = 0;
+		if (pool != null) {
+			pool.release(buffer);
+			buffer = pool.acquire(1);
+		}
 	}
 	
 	public byte[] array() {
@@ -50,7 +82,15 @@ public class CircularBuffer {
 		
 		if (newLength > length) {
 			newLength = Math.max(length + (length >> 1), newLength);
-			buffer = Arrays.copyOf(buffer, newLength);
+			if (pool == null) {
+				buffer = Arrays.copyOf(buffer, newLength);
+			} else {
+				byte[] extended = pool.acquire(newLength);
+				System.arraycopy(buffer, 0, extended, 0, length);
+				pool.release(buffer);
+				buffer = extended;
+				newLength = extended.length;
+			}
 			// overlapping case  
 			if (tail < head) {
 				System.arraycopy(buffer, head, buffer, head + (newLength - length), length - head);
@@ -0,0 +1,18 @@
+package com.ugcs.common.io;
+
+/**
+ * Properties of the current thread, that depend on the runtime version.
+ * <p>
+ * This is a Java 11 baseline version, where all threads are platform ones.
+ * Multi-release artifact replaces it with the Java 21 version, that tells
+ * the virtual threads apart.
+ */
+final class Threads {
+
+	private Threads() {
+	}
+
+	static boolean isVirtual() {
+		return false;
+	}
+}
@@ -0,0 +1,15 @@
+package com.ugcs.common.io;
+
+/**
+ * Properties of the current thread, that depend on the runtime version
+ * (Java 21 version).
+ */
+final class Threads {
+
+	private Threads() {
+	}
+
+	static boolean isVirtual() {
+		return Thread.currentThread().isVirtual();
+	}
+}
@@ -0,0 +1,549 @@
+package com.ugcs.messaging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lock-free execution mode of the {@link GroupingThreadPool}.
+ * <p>
+ * Tasks are grouped by the {@link TaskMapper} exactly as in the
+ * {@link GroupingThreadPool}: tasks of the same group are executed
+ * sequentially in the submission order, groups are processed in parallel
+ * and groups of a higher priority are preferred. Unlike the
+ * {@link GroupingThreadPool}, submission and worker scheduling never take
+ * a global lock: every group is backed by a lock-free multiple-producer
+ * single-consumer {@link SerialTaskQueue} and runnable groups are published through
+ * a concurrent ready queue.
+ */
+public class ConcurrentGroupingThreadPool extends AbstractExecutorService {
+
+	private static final Logger log = LoggerFactory.getLogger(ConcurrentGroupingThreadPool.class);
+
+	private static final long WORKER_KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	/* properties */
+
+	private final int coreWorkers;
+	private final int maxWorkers;
+	private final TaskMapper taskMapper;
+	private final ThreadFactory threadFactory;
+
+	/* state */
+
+	private volatile boolean shutdown = false;
+
+	// all active queues: both assigned to workers and ready
+	private final ConcurrentMap<Object, SerialTaskQueue> queues = new ConcurrentHashMap<>();
+
+	// queues that are not currently assigned to any worker,
+	// grouped by priority, highest priority first
+	// invariant: cannot contain an empty queue
+	private final ConcurrentNavigableMap<Integer, Queue<SerialTaskQueue>> ready =
+			new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+	// number of queues in the ready pool
+	private final AtomicInteger numReady = new AtomicInteger();
+
+	// workers parked in a wait for a ready queue, most recently parked first
+	private final Deque<Worker> idle = new ConcurrentLinkedDeque<>();
+
+	// set of the workers (processing threads)
+	private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger numWorkers = new AtomicInteger();
+
+	/* locks & monitors */
+
+	// termination lock: used by awaitTermination only
+	private final Lock tl = new ReentrantLock();
+
+	// workers set became empty when executor is in the shutdown state
+	private final Condition terminated = tl.newCondition();
+
+	public ConcurrentGroupingThreadPool(int coreWorkers, int maxWorkers, TaskMapper taskMapper) {
+		this(coreWorkers, maxWorkers, taskMapper, Executors.defaultThreadFactory());
+	}
+
+	public ConcurrentGroupingThreadPool(int coreWorkers, int maxWorkers, TaskMapper taskMapper, String poolName) {
+		this(coreWorkers, maxWorkers, taskMapper, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setName(poolName + "-" + thread.getName());
+			return thread;
+		});
+	}
+
+	public ConcurrentGroupingThreadPool(int coreWorkers, int maxWorkers, TaskMapper taskMapper,
+			ThreadFactory threadFactory) {
+		if (coreWorkers < 0
+				|| maxWorkers < 1
+				|| coreWorkers > maxWorkers)
+			throw new IllegalArgumentException();
+		Objects.requireNonNull(taskMapper);
+		Objects.requireNonNull(threadFactory);
+
+		this.coreWorkers = coreWorkers;
+		this.maxWorkers = maxWorkers;
+		this.threadFactory = threadFactory;
+		this.taskMapper = taskMapper;
+	}
+
+	@Override
+	public void execute(Runnable runnable) {
+		Objects.requireNonNull(runnable);
+
+		if (shutdown)
+			rejectTask(runnable);
+
+		TaskDetails taskDetails = taskMapper.map(runnable);
+		if (taskDetails == null)
+			taskDetails = new TaskDetails(runnable, TaskDetails.DEFAULT_PRIORITY);
+		queueTask(runnable, taskDetails.priority, taskDetails);
+		// the last worker could exit on a concurrent shutdown,
+		// before the task was queued
+		if (shutdown)
+			spawnShutdownWorker();
+	}
+
+	private void queueTask(Runnable runnable, int priority, Object isolation) {
+		Objects.requireNonNull(runnable);
+		Objects.requireNonNull(isolation);
+
+		while (true) {
+			// target queue for the task
+			SerialTaskQueue queue = queues.get(isolation);
+			if (queue == null) {
+				SerialTaskQueue newQueue = new SerialTaskQueue(isolation, priority);
+				queue = queues.putIfAbsent(isolation, newQueue);
+				if (queue == null)
+					queue = newQueue;
+			}
+			// reserve a slot in the queue:
+			// queue that has been drained and retired by its worker
+			// cannot accept tasks anymore and should be replaced
+			int size = queue.reserve();
+			if (size < 0) {
+				queues.remove(isolation, queue);
+				continue;
+			}
+			queue.offer(runnable);
+			// the first task makes the queue runnable;
+			// otherwise queue is either ready or assigned to a worker
+			// and there is no need to signal
+			if (size == 0)
+				offerReady(queue, true);
+			return;
+		}
+	}
+
+	private void rejectTask(Runnable runnable) {
+		throw new RejectedExecutionException("Task "
+				+ runnable.toString()
+				+ " rejected from "
+				+ this.toString());
+	}
+
+	/* ready pool */
+
+	private void offerReady(SerialTaskQueue queue, boolean signal) {
+		Queue<SerialTaskQueue> priorityQueue = ready.get(queue.priority);
+		if (priorityQueue == null) {
+			Queue<SerialTaskQueue> newPriorityQueue = new ConcurrentLinkedQueue<>();
+			priorityQueue = ready.putIfAbsent(queue.priority, newPriorityQueue);
+			if (priorityQueue == null)
+				priorityQueue = newPriorityQueue;
+		}
+		priorityQueue.offer(queue);
+		numReady.incrementAndGet();
+		if (signal)
+			signalReadyQueue();
+	}
+
+	private SerialTaskQueue pollReady() {
+		if (numReady.get() == 0)
+			return null;
+		for (Queue<SerialTaskQueue> priorityQueue : ready.values()) {
+			SerialTaskQueue queue = priorityQueue.poll();
+			if (queue != null) {
+				numReady.decrementAndGet();
+				return queue;
+			}
+		}
+		return null;
+	}
+
+	private boolean hasReady(int minPriority) {
+		// dirty check: ready counter may be ahead of the queues
+		// contents, but it is ok as the worker just re-checks
+		if (numReady.get() == 0)
+			return false;
+		for (Map.Entry<Integer, Queue<SerialTaskQueue>> entry : ready.entrySet()) {
+			if (entry.getKey() < minPriority)
+				break;
+			if (!entry.getValue().isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	private void signalReadyQueue() {
+		Worker worker;
+		while ((worker = idle.pollFirst()) != null) {
+			if (worker.wakeUp())
+				return;
+		}
+		// nobody is waiting for a task
+		spawnWorker();
+	}
+
+	/* workers */
+
+	private boolean spawnWorker() {
+		return spawnWorker(false, maxWorkers);
+	}
+
+	private boolean spawnWorker(boolean ignoreShutdown, int limit) {
+		if (!ignoreShutdown && shutdown)
+			return false;
+
+		while (true) {
+			int n = numWorkers.get();
+			if (n >= limit)
+				return false;
+			if (numWorkers.compareAndSet(n, n + 1))
+				break;
+		}
+		Worker worker = null;
+		boolean started = false;
+		try {
+			worker = new Worker();
+			workers.add(worker);
+			worker.thread.start();
+			started = true;
+		} finally {
+			if (!started)
+				removeWorker(worker);
+		}
+		return true;
+	}
+
+	private boolean respawnCoreWorker() {
+		return spawnWorker(true, coreWorkers);
+	}
+
+	// runs the queues left with no workers after the shutdown;
+	// both producers and exiting workers check it, so the one
+	// that comes last sees the other's update
+	private void spawnShutdownWorker() {
+		if (numReady.get() > 0)
+			spawnWorker(true, 1);
+	}
+
+	private void removeWorker(Worker worker) {
+		if (worker != null && !workers.remove(worker))
+			return;
+		if (numWorkers.decrementAndGet() == 0 && shutdown) {
+			tl.lock();
+			try {
+				terminated.signalAll();
+			} finally {
+				tl.unlock();
+			}
+		}
+	}
+
+	private boolean dismissWorker() {
+		while (true) {
+			int n = numWorkers.get();
+			if (!shutdown && n <= coreWorkers)
+				return false;
+			if (numWorkers.compareAndSet(n, n - 1))
+				return true;
+		}
+	}
+
+	// reverts the dismissal, fails if the pool has been
+	// filled up by the spawned workers
+	private boolean undismissWorker() {
+		while (true) {
+			int n = numWorkers.get();
+			if (n >= maxWorkers)
+				return false;
+			if (numWorkers.compareAndSet(n, n + 1))
+				return true;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		Worker worker;
+		while ((worker = idle.pollFirst()) != null)
+			worker.wakeUp();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+
+		// interrupt all workers
+		for (Worker worker : workers) {
+			try {
+				worker.interrupt();
+			} catch (Throwable ignored) {
+				// heavy train
+			}
+		}
+
+		// collect unreachable tasks:
+		// queues are retired to keep them from accepting new tasks
+		List<Runnable> tasks = new ArrayList<>();
+		for (SerialTaskQueue queue : queues.values()) {
+			queue.drainTasks(tasks);
+			queues.remove(queue.isolation, queue);
+		}
+		ready.clear();
+		numReady.set(0);
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && numWorkers.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long t = System.nanoTime() + unit.toNanos(timeout);
+		tl.lock();
+		try {
+			while (true) {
+				if (isTerminated())
+					return true;
+				long nanosTimeout = t - System.nanoTime();
+				if (nanosTimeout <= 0)
+					return false;
+				terminated.awaitNanos(nanosTimeout);
+			}
+		} finally {
+			tl.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		// snapshot is not atomic: counters are read
+		// without any synchronization
+		int numQueues = queues.size();
+		int numTasks = 0;
+		for (SerialTaskQueue queue : queues.values())
+			numTasks += queue.size();
+		int numWaitingQueues = numReady.get();
+
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append(" [");
+		if (isShutdown()) {
+			builder.append(isTerminated() ? "Terminated" : "Shutting down");
+		} else {
+			builder.append("Running");
+		}
+		builder
+				.append(", workers = ")
+				.append(numWorkers.get())
+				.append(", queues = ")
+				.append(numQueues);
+		if (numWaitingQueues > 0) {
+			builder
+					.append(" (")
+					.append(numWaitingQueues)
+					.append(" waiting)");
+		}
+		builder
+				.append(", tasks = ")
+				.append(numTasks)
+				.append("]");
+		return builder.toString();
+	}
+
+	/* Worker */
+
+	private class Worker implements Runnable {
+
+		private final Thread thread;
+
+		// set by the worker before parking,
+		// cleared by the one who wakes the worker up
+		private final AtomicBoolean parked = new AtomicBoolean();
+
+		// worker left the pool on idle timeout
+		private boolean dismissed = false;
+
+		public Worker() {
+			Thread thread = threadFactory.newThread(this);
+			Objects.requireNonNull(thread);
+			this.thread = thread;
+		}
+
+		private void interrupt() {
+			if (thread != null && !thread.isInterrupted()) {
+				try {
+					thread.interrupt();
+				} catch (SecurityException ignore) {
+					// ignored
+				}
+			}
+		}
+
+		private boolean wakeUp() {
+			if (!parked.compareAndSet(true, false))
+				return false; // stale idle entry
+			LockSupport.unpark(thread);
+			return true;
+		}
+
+		private SerialTaskQueue awaitReadyQueue() {
+			long deadline = System.nanoTime() + WORKER_KEEP_ALIVE_NANOS;
+			while (true) {
+				// publish worker as idle before the final check
+				// to not miss a queue offered concurrently
+				parked.set(true);
+				idle.offerFirst(this);
+				SerialTaskQueue queue = pollReady();
+				if (queue != null || shutdown || Thread.currentThread().isInterrupted()) {
+					if (parked.compareAndSet(true, false))
+						idle.removeFirstOccurrence(this);
+					return queue;
+				}
+				LockSupport.parkNanos(this, deadline - System.nanoTime());
+				if (parked.compareAndSet(true, false)) {
+					// timeout, interrupt or spurious wake up
+					idle.removeFirstOccurrence(this);
+					if (Thread.currentThread().isInterrupted())
+						return null;
+					if (deadline - System.nanoTime() <= 0L) {
+						// waiting limit exceeded
+						queue = pollReady();
+						if (queue != null)
+							return queue;
+						if (dismissWorker()) {
+							// producer that offered a queue before the dismissal
+							// could see the worker alive and start none
+							queue = pollReady();
+							if (queue != null && undismissWorker())
+								return queue;
+							// pool is full again, queue goes to the others
+							if (queue != null)
+								offerReady(queue, true);
+							dismissed = true;
+							return null;
+						}
+						deadline = System.nanoTime() + WORKER_KEEP_ALIVE_NANOS;
+					}
+				}
+				queue = pollReady();
+				if (queue != null)
+					return queue;
+			}
+		}
+
+		// returns queue to continue with or null,
+		// if the queue was released
+		private SerialTaskQueue releaseTask(SerialTaskQueue queue) {
+			int size = queue.release();
+			if (size < 0)
+				return null; // retired on shutdownNow
+			if (size == 0) {
+				// retire drained queue; failure means
+				// a concurrent producer has already re-offered it
+				if (queue.retire())
+					queues.remove(queue.isolation, queue);
+				return null;
+			}
+			if (hasReady(queue.priority)) {
+				// some queue of the same or higher priority waits:
+				// let it run and move this one to the ready pool tail;
+				// no need to signal as the worker polls the pool next
+				offerReady(queue, false);
+				return null;
+			}
+			return queue;
+		}
+
+		@Override
+		public void run() {
+			log.info("W-{} START", Thread.currentThread().getName());
+			SerialTaskQueue queue = null;
+			try {
+				while (!Thread.interrupted()) {
+					if (queue == null)
+						queue = pollReady();
+					if (queue == null) {
+						// peek or wait for a ready queue
+						queue = awaitReadyQueue();
+						if (queue == null)
+							break; // dismissed or nothing left to run on shutdown
+					}
+					Runnable runnable = queue.take();
+					if (runnable == null) {
+						queue = null;
+						continue;
+					}
+					try {
+						runnable.run();
+					} finally {
+						queue = releaseTask(queue);
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				removeWorker(this);
+				respawnCoreWorker();
+				throw e;
+			} catch (Throwable e) {
+				removeWorker(this);
+				respawnCoreWorker();
+				throw new Error(e);
+			} finally {
+				if (queue != null)
+					offerReady(queue, true);
+				if (dismissed) {
+					// worker counter was already decremented on dismiss
+					workers.remove(this);
+				} else {
+					removeWorker(this);
+				}
+				if (shutdown)
+					spawnShutdownWorker();
+				log.info("W-{} SHUTDOWN", Thread.currentThread().getName());
+			}
+		}
+	}
+}
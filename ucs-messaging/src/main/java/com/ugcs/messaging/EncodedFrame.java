@@ -0,0 +1,75 @@
+package com.ugcs.messaging;
+
+import java.nio.ByteBuffer;
+
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.StreamingMessageEncoder;
+
+/**
+ * Encoded message of the session implementations that encode messages
+ * themselves. Streaming encoders that know the encoded length write
+ * to an array taken from the buffer pool, that is released when
+ * the frame is written.
+ */
+public final class EncodedFrame {
+
+	public final byte[] array;
+	public final int length;
+	// array is taken from the buffer pool
+	public final boolean pooled;
+
+	private EncodedFrame(byte[] array, int length, boolean pooled) {
+		this.array = array;
+		this.length = length;
+		this.pooled = pooled;
+	}
+
+	/**
+	 * Encodes the message, encoders are not required
+	 * to be thread-safe and should be guarded by the caller.
+	 *
+	 * @return encoded frame, or null if the message
+	 *         is encoded to no data
+	 */
+	public static EncodedFrame encode(MessageEncoder encoder, BufferPool pool, Object message) throws Exception {
+		if (encoder instanceof StreamingMessageEncoder) {
+			StreamingMessageEncoder streamingEncoder = (StreamingMessageEncoder)encoder;
+			int length = streamingEncoder.encodedLength(message);
+			if (length == 0)
+				return null;
+			if (length > 0) {
+				byte[] array = pool.acquire(length);
+				ByteBuffer buffer = ByteBuffer.wrap(array, 0, length);
+				try {
+					streamingEncoder.encode(message, buffer);
+				} catch (Exception e) {
+					pool.release(array);
+					throw e;
+				}
+				if (buffer.position() != length) {
+					pool.release(array);
+					throw new IllegalStateException("Encoded length mismatch: expected "
+							+ length + ", actual " + buffer.position());
+				}
+				return new EncodedFrame(array, length, true);
+			}
+		}
+		byte[] encodedMessage = encoder.encode(message);
+		if (encodedMessage == null || encodedMessage.length == 0)
+			return null;
+		return new EncodedFrame(encodedMessage, encodedMessage.length, false);
+	}
+
+	public ByteBuffer toBuffer() {
+		return ByteBuffer.wrap(array, 0, length);
+	}
+
+	/**
+	 * Returns the array to the pool, if it is taken from there.
+	 */
+	public void release(BufferPool pool) {
+		if (pooled)
+			pool.release(array);
+	}
+}
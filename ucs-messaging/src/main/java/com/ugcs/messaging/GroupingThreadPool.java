@@ -1,7 +1,9 @@
 package com.ugcs.messaging;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -12,11 +14,14 @@ import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -28,13 +33,42 @@ public class GroupingThreadPool extends AbstractExecutorService {
 
 	private static final Logger log = LoggerFactory.getLogger(GroupingThreadPool.class);
 
+	// bounds of the free lists of task nodes and queues
+	private static final int MAX_FREE_TASKS = 1024;
+	private static final int MAX_FREE_QUEUES = 1024;
+
 	/* properties */
 
-	private final int coreWorkers;
-	private final int maxWorkers;
+	private volatile int coreWorkers;
+	private volatile int maxWorkers;
 	private final TaskMapper taskMapper;
 	private final ThreadFactory threadFactory;
 
+	// max number of tasks in a single queue
+	private volatile int queueCapacity = Integer.MAX_VALUE;
+	private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	// queue size watermarks for listeners notification,
+	// 0 disables notifications
+	private volatile int highWatermark = 0;
+	private volatile int lowWatermark = 0;
+
+	private final List<TaskQueueListener> queueListeners = new CopyOnWriteArrayList<>();
+
+	private final GroupingThreadPoolMetrics metrics = new GroupingThreadPoolMetrics(this);
+	private final List<TaskMetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+
+	// max number of tasks a worker runs from its queue
+	// per a queues lock acquisition, and a time limit for such a batch,
+	// 0 for no time limit
+	private volatile int batchSize = 1;
+	private volatile long timeSliceNanos = 0L;
+
+	// time an idle worker waits for a task before it is dismissed
+	private volatile long keepAliveNanos = TimeUnit.SECONDS.toNanos(10);
+
+	private volatile WorkerSizingPolicy sizingPolicy = WorkerSizingPolicy.eager();
+
 	/* state */
 
 	private volatile boolean shutdown = false;
@@ -45,13 +79,46 @@ public class GroupingThreadPool extends AbstractExecutorService {
 	// how to compare two queues to peek most "urgent"
 	private final TaskQueueComparator queueComparator = new TaskQueueComparator();
 
-	// queues that are not currently assigned to any worker
+	// how workers choose between the waiting queues
+	private SchedulingPolicy schedulingPolicy = SchedulingPolicy.priority();
+
+	// queues that are not currently assigned to any worker:
+	// ordered by urgency for the priority policy, round robin
+	// for the fair one
 	// invariant: cannot contain an empty queue
-	private final Queue<TaskQueue> waiting = new PriorityQueue<>(queueComparator);
+	private volatile Queue<TaskQueue> waiting = new PriorityQueue<>(queueComparator);
+
+	// per worker slot waiting pools, used instead of the waiting pool
+	// in the worker affinity mode (null otherwise)
+	private volatile Queue<TaskQueue>[] affineWaiting;
+	private int numAffineWaiting;
+
+	// in the worker affinity mode an idle worker takes a queue bound
+	// to another worker only if that worker has stealThreshold queues waiting
+	private int stealThreshold = 1;
 
 	// set of the workers (processing threads)
 	private final Set<Worker> workers = new HashSet<>();
 
+	// workers by their slots, a slot is an affinity target for the queues;
+	// number of slots is the initial max number of workers
+	private final AtomicReferenceArray<Worker> slots;
+
+	// average queueing delay of the started tasks
+	private volatile long queueDelayNanos;
+
+	// time of the last adaptive spawn, guarded by the queues lock
+	private long grownAt;
+
+	// thread checking queueing delay for the adaptive sizing
+	private Thread sizingController;
+
+	// recycled task nodes and empty queues, reused to avoid
+	// allocations on every task; guarded by the queues lock
+	private Task freeTasks;
+	private int numFreeTasks;
+	private final Deque<TaskQueue> freeQueues = new ArrayDeque<>();
+
 	/* locks & monitors */
 
 	// queues lock:
@@ -63,6 +130,13 @@ public class GroupingThreadPool extends AbstractExecutorService {
 	// signals that a queue in a waiting pool become non-empty
 	private final Condition taskWaiting = ql.newCondition();
 
+	// signals that a task was taken from a queue,
+	// awaited by producers blocked on a full queue
+	private final Condition taskPolled = ql.newCondition();
+
+	// wakes the sizing controller on shutdown or on the policy change
+	private final Condition sizingChanged = ql.newCondition();
+
 	// workers lock:
 	// any changes in a workers set;
 	private final Lock wl = new ReentrantLock();
@@ -94,6 +168,276 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		this.maxWorkers = maxWorkers;
 		this.threadFactory = threadFactory;
 		this.taskMapper = taskMapper;
+		this.slots = new AtomicReferenceArray<>(maxWorkers);
+	}
+
+	/**
+	 * Limits the number of tasks in every isolation queue.
+	 * Queue size is checked on each new task, so the limit does not affect
+	 * tasks that are already queued.
+	 *
+	 * @param capacity       max number of tasks in a queue
+	 * @param overflowPolicy what to do with a task that does not fit the queue
+	 */
+	public void setQueueCapacity(int capacity, OverflowPolicy overflowPolicy) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity");
+		Objects.requireNonNull(overflowPolicy);
+
+		ql.lock();
+		try {
+			this.queueCapacity = capacity;
+			this.overflowPolicy = overflowPolicy;
+			// blocked producers should re-check the limit
+			taskPolled.signalAll();
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Sets queue size watermarks: queue listeners are notified when
+	 * a queue size reaches the high watermark and when the queue then
+	 * shrinks to the low watermark. Can be used to throttle task producers.
+	 *
+	 * @param highWatermark queue size to notify at, 0 to disable notifications
+	 * @param lowWatermark  queue size to notify at after reaching the high watermark
+	 */
+	public void setQueueWatermarks(int highWatermark, int lowWatermark) {
+		if (highWatermark < 0)
+			throw new IllegalArgumentException("highWatermark");
+		if (lowWatermark < 0 || highWatermark > 0 && lowWatermark >= highWatermark)
+			throw new IllegalArgumentException("lowWatermark");
+
+		ql.lock();
+		try {
+			this.highWatermark = highWatermark;
+			this.lowWatermark = lowWatermark;
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	/**
+	 * Lets a worker to run up to {@code batchSize} tasks of its queue without
+	 * taking the queues lock. Workers re-select queues (by priority or
+	 * by the fair policy), check low watermarks and wake blocked producers
+	 * between batches only, so a larger batch trades scheduling latency
+	 * for throughput.
+	 *
+	 * @param batchSize max number of tasks in a batch, 1 to disable batching
+	 * @param timeSlice max time to start batch tasks in, 0 for no limit
+	 * @param unit      time slice unit
+	 */
+	public void setBatchSize(int batchSize, long timeSlice, TimeUnit unit) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize");
+		if (timeSlice < 0)
+			throw new IllegalArgumentException("timeSlice");
+		Objects.requireNonNull(unit);
+
+		this.batchSize = batchSize;
+		this.timeSliceNanos = unit.toNanos(timeSlice);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public long getTimeSlice(TimeUnit unit) {
+		return unit.convert(timeSliceNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Changes the worker number bounds. Max number of workers cannot exceed
+	 * the one specified on the pool construction. Workers above the new
+	 * max size are dismissed as they become idle.
+	 */
+	public void setWorkerBounds(int coreWorkers, int maxWorkers) {
+		if (maxWorkers < 1 || maxWorkers > slots.length())
+			throw new IllegalArgumentException("maxWorkers");
+		if (coreWorkers < 0 || coreWorkers > maxWorkers)
+			throw new IllegalArgumentException("coreWorkers");
+
+		wl.lock();
+		try {
+			this.coreWorkers = coreWorkers;
+			this.maxWorkers = maxWorkers;
+		} finally {
+			wl.unlock();
+		}
+	}
+
+	public int getCoreWorkers() {
+		return coreWorkers;
+	}
+
+	public int getMaxWorkers() {
+		return maxWorkers;
+	}
+
+	public void setKeepAliveTime(long keepAliveTime, TimeUnit unit) {
+		if (keepAliveTime <= 0)
+			throw new IllegalArgumentException("keepAliveTime");
+		Objects.requireNonNull(unit);
+
+		this.keepAliveNanos = unit.toNanos(keepAliveTime);
+	}
+
+	public long getKeepAliveTime(TimeUnit unit) {
+		return unit.convert(keepAliveNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void setWorkerSizingPolicy(WorkerSizingPolicy sizingPolicy) {
+		Objects.requireNonNull(sizingPolicy);
+
+		Thread controller = null;
+		wl.lock();
+		try {
+			this.sizingPolicy = sizingPolicy;
+			if (sizingPolicy.isAdaptive() && sizingController == null && !shutdown) {
+				controller = threadFactory.newThread(new SizingController());
+				Objects.requireNonNull(controller);
+				sizingController = controller;
+			}
+		} finally {
+			wl.unlock();
+		}
+		if (controller != null) {
+			controller.setDaemon(true);
+			controller.start();
+		} else {
+			ql.lock();
+			try {
+				sizingChanged.signalAll();
+			} finally {
+				ql.unlock();
+			}
+		}
+	}
+
+	public WorkerSizingPolicy getWorkerSizingPolicy() {
+		return sizingPolicy;
+	}
+
+	public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+		Objects.requireNonNull(schedulingPolicy);
+
+		ql.lock();
+		try {
+			List<TaskQueue> queued = drainWaiting();
+			this.schedulingPolicy = schedulingPolicy;
+			this.waiting = newWaitingQueue();
+			if (affineWaiting != null)
+				this.affineWaiting = newAffineWaiting();
+			for (TaskQueue queue : queued)
+				offerWaiting(queue);
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	public SchedulingPolicy getSchedulingPolicy() {
+		ql.lock();
+		try {
+			return schedulingPolicy;
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	/**
+	 * Binds task queues to the preferred workers by hashing their affinity keys
+	 * (see {@link TaskDetails#affinity}), so consecutive tasks of a session
+	 * run on the same thread and find its state in the caches. An idle worker
+	 * takes a queue bound to another worker only if that worker has gone
+	 * or has at least {@code stealThreshold} queues waiting for it.
+	 *
+	 * @param affinity       whether to bind queues to the workers
+	 * @param stealThreshold number of waiting queues that makes a worker overloaded
+	 */
+	public void setWorkerAffinity(boolean affinity, int stealThreshold) {
+		if (stealThreshold < 1)
+			throw new IllegalArgumentException("stealThreshold");
+
+		ql.lock();
+		try {
+			List<TaskQueue> queued = drainWaiting();
+			this.stealThreshold = stealThreshold;
+			this.affineWaiting = affinity
+					? newAffineWaiting()
+					: null;
+			for (TaskQueue queue : queued)
+				offerWaiting(queue);
+			// waiting workers should re-check the pools
+			signalAllWorkers();
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	public boolean isWorkerAffinity() {
+		return affineWaiting != null;
+	}
+
+	public int getStealThreshold() {
+		ql.lock();
+		try {
+			return stealThreshold;
+		} finally {
+			ql.unlock();
+		}
+	}
+
+	public void addQueueListener(TaskQueueListener listener) {
+		Objects.requireNonNull(listener);
+
+		queueListeners.add(listener);
+	}
+
+	public void removeQueueListener(TaskQueueListener listener) {
+		Objects.requireNonNull(listener);
+
+		queueListeners.remove(listener);
+	}
+
+	public void addMetricsListener(TaskMetricsListener listener) {
+		Objects.requireNonNull(listener);
+
+		metricsListeners.add(listener);
+	}
+
+	public void removeMetricsListener(TaskMetricsListener listener) {
+		Objects.requireNonNull(listener);
+
+		metricsListeners.remove(listener);
+	}
+
+	public GroupingThreadPoolMetrics getMetrics() {
+		return metrics;
+	}
+
+	// gauges below are read without locks and are approximate,
+	// so they are safe to be polled by monitoring
+
+	public int getWorkerCount() {
+		return workers.size();
+	}
+
+	public int getQueueCount() {
+		return queues.size();
+	}
+
+	public int getWaitingQueueCount() {
+		return waitingCount();
 	}
 
 	@Override
@@ -106,29 +450,41 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		TaskDetails taskDetails = taskMapper.map(runnable);
 		if (taskDetails == null)
 			taskDetails = new TaskDetails(runnable, TaskDetails.DEFAULT_PRIORITY);
-		queueTask(Prioritizable.of(runnable, taskDetails.priority), taskDetails);
+		queueTask(runnable, taskDetails.priority, taskDetails);
 	}
 
-	private void queueTask(Runnable runnable, Object isolation) {
+	private void queueTask(Runnable runnable, int priority, Object isolation) {
 		Objects.requireNonNull(runnable);
 		Objects.requireNonNull(isolation);
 
-		Task task = new Task(runnable, System.nanoTime());
+		long createdAt = System.nanoTime();
 		ql.lock();
 		try {
-			// target queue for the task
-			TaskQueue queue = queues.get(isolation);
-			if (queue == null) {
-				// new queue
-				queue = new TaskQueue(isolation);
-				queue.tasks.offer(task);
+			Task task = newTask(runnable, priority, createdAt);
+			while (true) {
+				// target queue for the task
+				TaskQueue queue = queues.get(isolation);
+				if (queue == null) {
+					// new queue
+					queue = newTaskQueue(isolation);
+					queue.tasks.offer(task);
 
-				queues.put(isolation, queue);
-				waiting.offer(queue);
+					queues.put(isolation, queue);
+					offerWaiting(queue);
+					checkHighWatermark(queue, task);
 
-				// signal: can spawn worker
-				signalWaitingTask(true);
-			} else {
+					// signal: can spawn worker
+					signalWaitingTask(queue);
+					return;
+				}
+				if (queue.tasks.size() >= queueCapacity) {
+					// queue is full
+					OverflowPolicy policy = overflowPolicy;
+					if (policy == OverflowPolicy.REJECT)
+						break;
+					if (!makeRoom(queue, task, policy))
+						continue; // queue may be released while waiting
+				}
 				// target queue exists:
 				// if queue resides in a waiting pool,
 				// it should be non-empty, thus there is no need
@@ -140,35 +496,405 @@ public class GroupingThreadPool extends AbstractExecutorService {
 				// there is no need to signal as it is already
 				// being processed
 				queue.tasks.offer(task);
+				checkHighWatermark(queue, task);
+				return;
 			}
 		} finally {
 			ql.unlock();
 		}
+		// rejected on overflow, out of the lock, as the message
+		// describes the pool
+		rejectTask(runnable);
+	}
+
+	// returns true if the task can be added to the queue,
+	// false if the queue should be re-checked
+	private boolean makeRoom(TaskQueue queue, Task task, OverflowPolicy policy) {
+		switch (policy) {
+			case BLOCK:
+				try {
+					taskPolled.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					rejectTask(task.runnable);
+				}
+				if (shutdown)
+					rejectTask(task.runnable);
+				return false;
+			case DROP_OLDEST:
+			case KEEP_LATEST:
+				// queue head changes, so the waiting queue
+				// should be re-offered to keep the waiting pool order
+				boolean queueWaiting = removeWaiting(queue);
+				int n = policy == OverflowPolicy.DROP_OLDEST
+						? queue.tasks.size() - queueCapacity + 1
+						: queue.tasks.size();
+				for (int i = 0; i < n; i++) {
+					// queue head is the task of the highest priority,
+					// not the oldest one, if the priorities are mixed
+					Task dropped = policy == OverflowPolicy.DROP_OLDEST
+							? pollOldest(queue.tasks)
+							: queue.tasks.poll();
+					if (dropped == null)
+						break;
+					fireTaskDropped(queue, dropped);
+					checkLowWatermark(queue, dropped);
+					recycleTask(dropped);
+				}
+				// queue is not empty: the new task will be offered
+				if (queueWaiting)
+					offerWaiting(queue);
+				return true;
+			default:
+				throw new IllegalStateException("Unexpected overflow policy: " + policy);
+		}
+	}
+
+	private static Task pollOldest(Queue<Task> tasks) {
+		Task oldest = null;
+		for (Task task : tasks) {
+			if (oldest == null || task.createdAt - oldest.createdAt < 0L)
+				oldest = task;
+		}
+		if (oldest != null)
+			tasks.remove(oldest);
+		return oldest;
+	}
+
+	/* task nodes and queues, should be accessed under the queues lock */
+
+	private Task newTask(Runnable runnable, int priority, long createdAt) {
+		Task task = freeTasks;
+		if (task == null)
+			return new Task(runnable, priority, createdAt);
+		freeTasks = task.next;
+		numFreeTasks--;
+		task.next = null;
+		task.runnable = runnable;
+		task.priority = priority;
+		task.createdAt = createdAt;
+		return task;
+	}
+
+	private void recycleTask(Task task) {
+		if (numFreeTasks >= MAX_FREE_TASKS)
+			return;
+		task.runnable = null;
+		task.next = freeTasks;
+		freeTasks = task;
+		numFreeTasks++;
+	}
+
+	private TaskQueue newTaskQueue(Object isolation) {
+		int slot = affinitySlot(isolation);
+		TaskQueue queue = freeQueues.poll();
+		if (queue == null)
+			return new TaskQueue(isolation, slot);
+		queue.reset(isolation, slot);
+		return queue;
+	}
+
+	// queue should be empty and removed from everywhere
+	private void recycleTaskQueue(TaskQueue queue) {
+		if (freeQueues.size() >= MAX_FREE_QUEUES)
+			return;
+		queue.reset(null, 0);
+		freeQueues.push(queue);
+	}
+
+	private int affinitySlot(Object isolation) {
+		Object affinity = isolation;
+		if (isolation instanceof TaskDetails) {
+			TaskDetails details = (TaskDetails)isolation;
+			affinity = details.affinity != null
+					? details.affinity
+					: details.isolation;
+		}
+		int h = affinity.hashCode();
+		return Math.floorMod(h ^ (h >>> 16), slots.length());
+	}
+
+	/* waiting pools, should be accessed under the queues lock */
+
+	private Queue<TaskQueue> newWaitingQueue() {
+		return schedulingPolicy.isFair()
+				? new ArrayDeque<>()
+				: new PriorityQueue<>(queueComparator);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Queue<TaskQueue>[] newAffineWaiting() {
+		Queue<TaskQueue>[] pools = new Queue[slots.length()];
+		for (int i = 0; i < pools.length; i++)
+			pools[i] = newWaitingQueue();
+		return pools;
+	}
+
+	private void offerWaiting(TaskQueue queue) {
+		Queue<TaskQueue>[] pools = affineWaiting;
+		if (pools != null) {
+			pools[queue.slot].offer(queue);
+			numAffineWaiting++;
+		} else {
+			waiting.offer(queue);
+		}
+	}
+
+	private boolean removeWaiting(TaskQueue queue) {
+		Queue<TaskQueue>[] pools = affineWaiting;
+		if (pools != null) {
+			boolean removed = pools[queue.slot].remove(queue);
+			if (removed)
+				numAffineWaiting--;
+			return removed;
+		}
+		return waiting.remove(queue);
+	}
+
+	private List<TaskQueue> drainWaiting() {
+		List<TaskQueue> queued = new ArrayList<>(waiting);
+		waiting.clear();
+		Queue<TaskQueue>[] pools = affineWaiting;
+		if (pools != null) {
+			for (Queue<TaskQueue> pool : pools) {
+				queued.addAll(pool);
+				pool.clear();
+			}
+			numAffineWaiting = 0;
+		}
+		return queued;
+	}
+
+	// can be called without the lock for a dirty check
+	private int waitingCount() {
+		return affineWaiting != null
+				? numAffineWaiting
+				: waiting.size();
+	}
+
+	// queues of the slot can be taken by any worker
+	private boolean isStealable(int slot) {
+		return shutdown
+				|| slots.get(slot) == null
+				|| affineWaiting[slot].size() >= stealThreshold;
+	}
+
+	private Worker findIdleWorker() {
+		for (int i = 0; i < slots.length(); i++) {
+			Worker worker = slots.get(i);
+			if (worker != null && worker.idle)
+				return worker;
+		}
+		return null;
+	}
+
+	// should be called under the queues lock
+	private boolean hasIdleWorker() {
+		return affineWaiting == null
+				? ql.hasWaiters(taskWaiting)
+				: findIdleWorker() != null;
+	}
+
+	// age of the oldest task at the waiting queues heads,
+	// should be called under the queues lock
+	private long getWaitingAge(long now) {
+		long age = 0L;
+		Queue<TaskQueue>[] pools = affineWaiting;
+		if (pools == null) {
+			age = getHeadAge(waiting.peek(), now);
+		} else {
+			for (Queue<TaskQueue> pool : pools)
+				age = Math.max(age, getHeadAge(pool.peek(), now));
+		}
+		return age;
+	}
+
+	private static long getHeadAge(TaskQueue queue, long now) {
+		if (queue == null)
+			return 0L;
+		Task head = queue.tasks.peek();
+		return head != null
+				? now - head.createdAt
+				: 0L;
+	}
+
+	// can a new worker be spawned for a waiting queue,
+	// should be called under the queues lock
+	private boolean shouldGrow() {
+		WorkerSizingPolicy policy = sizingPolicy;
+		if (!policy.isAdaptive())
+			return true;
+		// workers number is read without the lock,
+		// spare spawn is limited by the max size anyway
+		if (workers.size() < Math.max(1, coreWorkers))
+			return true;
+		return queueDelayNanos > policy.getTargetDelayNanos()
+				&& tryGrow(policy, System.nanoTime());
+	}
+
+	// limits adaptive growth to a worker per check period,
+	// so that the delay can reflect the previous spawn;
+	// should be called under the queues lock
+	private boolean tryGrow(WorkerSizingPolicy policy, long now) {
+		if (now - grownAt < policy.getCheckPeriodNanos())
+			return false;
+		grownAt = now;
+		return true;
+	}
+
+	private void observeQueueDelay(long delayNanos) {
+		// lost updates of the concurrent workers are tolerated
+		long average = queueDelayNanos;
+		queueDelayNanos = average + ((delayNanos - average) >> 3);
+	}
+
+	private void signalAllWorkers() {
+		sizingChanged.signalAll();
+		taskWaiting.signalAll();
+		for (int i = 0; i < slots.length(); i++) {
+			Worker worker = slots.get(i);
+			if (worker != null)
+				worker.available.signalAll();
+		}
+	}
+
+	private void checkHighWatermark(TaskQueue queue, Task task) {
+		int watermark = highWatermark;
+		if (watermark > 0 && !queue.highWatermarkReached && queue.tasks.size() >= watermark) {
+			queue.highWatermarkReached = true;
+			fireQueueEvent(queue, task, true);
+		}
+	}
+
+	private void checkLowWatermark(TaskQueue queue, Task task) {
+		if (queue.highWatermarkReached && queue.tasks.size() <= lowWatermark) {
+			queue.highWatermarkReached = false;
+			fireQueueEvent(queue, task, false);
+		}
+	}
+
+	private void fireQueueEvent(TaskQueue queue, Task task, boolean high) {
+		if (queueListeners.isEmpty())
+			return;
+		TaskQueueEvent event = new TaskQueueEvent(this, queue.isolation, queue.tasks.size(), task.runnable);
+		for (TaskQueueListener listener : queueListeners) {
+			try {
+				if (high)
+					listener.highWatermarkReached(event);
+				else
+					listener.lowWatermarkReached(event);
+			} catch (Throwable e) {
+				log.warn("Queue listener error", e);
+			}
+		}
+	}
+
+	private void fireTaskDropped(TaskQueue queue, Task task) {
+		if (queueListeners.isEmpty())
+			return;
+		TaskQueueEvent event = new TaskQueueEvent(this, queue.isolation, queue.tasks.size(), task.runnable);
+		for (TaskQueueListener listener : queueListeners) {
+			try {
+				listener.taskDropped(event);
+			} catch (Throwable e) {
+				log.warn("Queue listener error", e);
+			}
+		}
+	}
+
+	private void signalTaskPolled(TaskQueue queue, Task task) {
+		checkLowWatermark(queue, task);
+		if (ql.hasWaiters(taskPolled))
+			taskPolled.signalAll();
+	}
+
+	private void fireWorkerEvent(boolean spawned) {
+		if (spawned)
+			metrics.workerSpawned();
+		else
+			metrics.workerDismissed();
+		for (TaskMetricsListener listener : metricsListeners) {
+			try {
+				if (spawned)
+					listener.workerSpawned();
+				else
+					listener.workerDismissed();
+			} catch (Throwable e) {
+				log.warn("Metrics listener error", e);
+			}
+		}
 	}
 
 	private void rejectTask(Runnable runnable) {
+		metrics.taskRejected();
+		for (TaskMetricsListener listener : metricsListeners) {
+			try {
+				listener.taskRejected(runnable);
+			} catch (Throwable e) {
+				log.warn("Metrics listener error", e);
+			}
+		}
 		throw new RejectedExecutionException("Task "
 				+ runnable.toString()
 				+ " rejected from "
 				+ this.toString());
 	}
 
-	private void signalWaitingTask(boolean canSpawnWorker) {
+	private void signalWaitingTask(TaskQueue queue) {
 		boolean spawnWorker = false;
 		ql.lock();
 		try {
-			// TODO inaccurate waiters check
-			if (ql.hasWaiters(taskWaiting)) {
-				// somebody is waiting for a task
-				taskWaiting.signal();
+			if (affineWaiting == null) {
+				// TODO inaccurate waiters check
+				if (ql.hasWaiters(taskWaiting)) {
+					// somebody is waiting for a task
+					taskWaiting.signal();
+				} else {
+					spawnWorker = shouldGrow();
+				}
 			} else {
-				spawnWorker = true;
+				Worker owner = slots.get(queue.slot);
+				if (owner != null && owner.idle) {
+					owner.signal();
+				} else if (isStealable(queue.slot)) {
+					Worker worker = findIdleWorker();
+					if (worker != null)
+						worker.signal();
+					else
+						spawnWorker = shouldGrow();
+				}
+				// otherwise the owner takes the queue
+				// when it is done with the current one
 			}
 		} finally {
 			ql.unlock();
 		}
 		if (spawnWorker)
-			spawnWorker();
+			spawnWorker(false, queue.slot);
+	}
+
+	// queues bound to the slot of a gone worker
+	// should be picked up by the others
+	private void signalOrphanedQueues(int slot) {
+		boolean spawnWorker = false;
+		ql.lock();
+		try {
+			Queue<TaskQueue>[] pools = affineWaiting;
+			if (pools == null
+					|| pools[slot].isEmpty()
+					|| slots.get(slot) != null)
+				return;
+			Worker worker = findIdleWorker();
+			if (worker != null)
+				worker.signal();
+			else
+				spawnWorker = true;
+		} finally {
+			ql.unlock();
+		}
+		// queued tasks should be completed on shutdown
+		if (spawnWorker)
+			spawnWorker(true, slot);
 	}
 
 	private boolean addWorker(Worker worker) {
@@ -177,7 +903,10 @@ public class GroupingThreadPool extends AbstractExecutorService {
 
 		wl.lock();
 		try {
-			return workers.add(worker);
+			if (!workers.add(worker))
+				return false;
+			slots.set(worker.slot, worker);
+			return true;
 		} finally {
 			wl.unlock();
 		}
@@ -190,6 +919,8 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		wl.lock();
 		try {
 			boolean removed = workers.remove(worker);
+			if (removed)
+				slots.compareAndSet(worker.slot, worker, null);
 			if (removed && isTerminated())
 				terminated.signalAll();
 			return removed;
@@ -198,11 +929,11 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		}
 	}
 
-	private boolean spawnWorker() {
-		return spawnWorker(false);
+	private boolean spawnWorker(boolean ignoreShutdown) {
+		return spawnWorker(ignoreShutdown, -1);
 	}
 
-	private boolean spawnWorker(boolean ignoreShutdown) {
+	private boolean spawnWorker(boolean ignoreShutdown, int preferredSlot) {
 		if (!ignoreShutdown && shutdown)
 			return false;
 
@@ -211,7 +942,7 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		try {
 			if (workers.size() >= maxWorkers)
 				return false;
-			worker = new Worker();
+			worker = new Worker(freeSlot(preferredSlot));
 			addWorker(worker);
 		} finally {
 			wl.unlock();
@@ -225,9 +956,22 @@ public class GroupingThreadPool extends AbstractExecutorService {
 			if (!started)
 				removeWorker(worker);
 		}
+		fireWorkerEvent(true);
 		return true;
 	}
 
+	// should be called under the workers lock,
+	// there is a free slot while the pool is not full
+	private int freeSlot(int preferredSlot) {
+		if (preferredSlot >= 0 && slots.get(preferredSlot) == null)
+			return preferredSlot;
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) == null)
+				return i;
+		}
+		throw new IllegalStateException("No free worker slots");
+	}
+
 	private boolean respawnCoreWorker() {
 		wl.lock();
 		try {
@@ -249,10 +993,56 @@ public class GroupingThreadPool extends AbstractExecutorService {
 				return false;
 
 			removeWorker(worker);
-			return true;
 		} finally {
 			wl.unlock();
 		}
+		fireWorkerEvent(false);
+		return true;
+	}
+
+	private class SizingController implements Runnable {
+
+		@Override
+		public void run() {
+			while (true) {
+				WorkerSizingPolicy policy;
+				wl.lock();
+				try {
+					policy = sizingPolicy;
+					if (shutdown || !policy.isAdaptive()) {
+						sizingController = null;
+						return;
+					}
+				} finally {
+					wl.unlock();
+				}
+
+				boolean spawnWorker = false;
+				ql.lock();
+				try {
+					sizingChanged.awaitNanos(policy.getCheckPeriodNanos());
+					// oldest waiting task has been waiting too long,
+					// but nobody is going to take it
+					long now = System.nanoTime();
+					if (!shutdown
+							&& !hasIdleWorker()
+							&& getWaitingAge(now) > policy.getTargetDelayNanos())
+						spawnWorker = tryGrow(policy, now);
+				} catch (InterruptedException e) {
+					wl.lock();
+					try {
+						sizingController = null;
+					} finally {
+						wl.unlock();
+					}
+					return;
+				} finally {
+					ql.unlock();
+				}
+				if (spawnWorker)
+					spawnWorker(false);
+			}
+		}
 	}
 
 	@Override
@@ -260,7 +1050,8 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		shutdown = true;
 		ql.lock();
 		try {
-			taskWaiting.signalAll();
+			signalAllWorkers();
+			taskPolled.signalAll();
 		} finally {
 			ql.unlock();
 		}
@@ -294,11 +1085,16 @@ public class GroupingThreadPool extends AbstractExecutorService {
 				TaskQueue queue = entry.getValue();
 				// drain queue
 				Task task;
+				Task last = null;
 				while ((task = queue.tasks.poll()) != null) {
 					tasks.add(task.runnable);
+					last = task;
 				}
+				// let the listeners release the queue backpressure
+				if (last != null)
+					checkLowWatermark(queue, last);
 				// remove queue from everywhere
-				waiting.remove(queue);
+				removeWaiting(queue);
 				iterator.remove();
 			}
 		} finally {
@@ -352,7 +1148,7 @@ public class GroupingThreadPool extends AbstractExecutorService {
 		ql.lock();
 		try {
 			numQueues = queues.size();
-			numWaitingQueues = waiting.size();
+			numWaitingQueues = waitingCount();
 			for (TaskQueue queue : queues.values()) {
 				numTasks += queue.tasks.size();
 				Task mostWaiting = queue.tasks.peek();
@@ -410,12 +1206,94 @@ public class GroupingThreadPool extends AbstractExecutorService {
 
 		private final Thread thread;
 
-		public Worker() {
+		// slot the worker occupies, queues hashed to the slot
+		// are preferably run by the worker in the affinity mode
+		private final int slot;
+
+		// signals that a queue bound to the worker became waiting
+		// or can be stolen by it (affinity mode only)
+		private final Condition available = ql.newCondition();
+
+		// worker is awaiting the available condition
+		private boolean idle;
+
+		// time spent running tasks since the window start,
+		// used to find underutilized workers
+		private long busyNanos;
+		private long windowStartedAt = System.nanoTime();
+
+		// task statistics of the worker
+		private final GroupingThreadPoolMetrics.Recorder recorder = metrics.newRecorder();
+
+		// last task polled from the current queue by a batch,
+		// queue was not checked for a low watermark after that
+		private Task polled;
+
+		// tasks completed since the last locked section,
+		// linked to be recycled in bulk
+		private Task completedTasks;
+
+		public Worker(int slot) {
+			this.slot = slot;
 			Thread thread = threadFactory.newThread(this);
 			Objects.requireNonNull(thread);
 			this.thread = thread;
 		}
 
+		// should be called under the queues lock
+		private void signal() {
+			// cleared here to direct the next signal to another worker
+			idle = false;
+			available.signal();
+		}
+
+		// should be called under the queues lock
+		private long awaitTask(long timeout) throws InterruptedException {
+			if (affineWaiting == null)
+				return taskWaiting.awaitNanos(timeout);
+			idle = true;
+			try {
+				return available.awaitNanos(timeout);
+			} finally {
+				idle = false;
+			}
+		}
+
+		// head of the own waiting pool or of a pool that can be stolen,
+		// should be called under the queues lock
+		private TaskQueue peekWaiting() {
+			Queue<TaskQueue>[] pools = affineWaiting;
+			if (pools == null)
+				return waiting.peek();
+
+			TaskQueue queue = pools[slot].peek();
+			if (queue != null)
+				return queue;
+			// steal from the most loaded pool
+			Queue<TaskQueue> victim = null;
+			for (int i = 0; i < pools.length; i++) {
+				Queue<TaskQueue> pool = pools[i];
+				if (pool.isEmpty() || !isStealable(i))
+					continue;
+				if (victim == null || pool.size() > victim.size())
+					victim = pool;
+			}
+			return victim != null
+					? victim.peek()
+					: null;
+		}
+
+		// polls a queue returned by peekWaiting
+		private TaskQueue pollWaiting(TaskQueue queue) {
+			Queue<TaskQueue>[] pools = affineWaiting;
+			if (pools == null)
+				return waiting.poll();
+
+			pools[queue.slot].poll();
+			numAffineWaiting--;
+			return queue;
+		}
+
 		private void interrupt() {
 			if (thread != null && !thread.isInterrupted()) {
 				try {
@@ -430,32 +1308,33 @@ public class GroupingThreadPool extends AbstractExecutorService {
 			// dirty check:
 			// waiting.size may be invisible to the current thread,
 			// but it is ok, while it has tasks to run
-			if (waiting.isEmpty()
+			if (waitingCount() == 0
 					&& queue != null
 					&& !queue.tasks.isEmpty())
-				return queue;
+				return renewWorkingQueue(queue);
 
 			// try to acquire task from the most waiting queue,
-			// if its priority is higher
+			// if its priority is higher (or the current queue
+			// has spent its turn for the fair policy)
 			ql.lock();
 			try {
-				TaskQueue mostWaiting = waiting.poll();
+				TaskQueue mostWaiting = peekWaiting();
 				if (mostWaiting == null)
-					return queue;
+					return renewWorkingQueue(queue);
 
 				if (queue == null) {
 					// there is no queue assigned to the worker:
-					// switch to the polled waiting queue
-					return mostWaiting;
+					// switch to the most waiting queue
+					return assignWorkingQueue(pollWaiting(mostWaiting));
 				}
 				// queue != null
-				if (queueComparator.compare(mostWaiting, queue) < 0) {
-					// most waiting queue's priority is higher
+				if (shouldYield(queue, mostWaiting)) {
+					// most waiting queue goes first
+					pollWaiting(mostWaiting);
 					releaseWorkingQueue(queue);
-					return mostWaiting;
+					return assignWorkingQueue(mostWaiting);
 				} else {
 					// most waiting queue can wait little more
-					waiting.offer(mostWaiting);
 					return queue;
 				}
 			} finally {
@@ -463,6 +1342,27 @@ public class GroupingThreadPool extends AbstractExecutorService {
 			}
 		}
 
+		private boolean shouldYield(TaskQueue queue, TaskQueue mostWaiting) {
+			if (schedulingPolicy.isFair())
+				return queue.deficit <= 0 || queue.tasks.isEmpty();
+			// most waiting queue's priority is higher
+			return queueComparator.compare(mostWaiting, queue) < 0;
+		}
+
+		private TaskQueue assignWorkingQueue(TaskQueue queue) {
+			// grant a new turn to the queue
+			queue.deficit = schedulingPolicy.getQuantum(queue.isolation);
+			return queue;
+		}
+
+		private TaskQueue renewWorkingQueue(TaskQueue queue) {
+			// nobody is waiting: queue that has spent its turn
+			// goes on with a new one
+			if (queue != null && queue.deficit <= 0)
+				assignWorkingQueue(queue);
+			return queue;
+		}
+
 		private TaskQueue releaseWorkingQueue(TaskQueue queue) {
 			if (queue == null)
 				return null;
@@ -472,10 +1372,11 @@ public class GroupingThreadPool extends AbstractExecutorService {
 				if (queue.tasks.isEmpty()) {
 					// delete empty queue
 					queues.remove(queue.isolation);
+					recycleTaskQueue(queue);
 				} else {
-					waiting.offer(queue);
+					offerWaiting(queue);
 					// TODO is there any waiting worker interested?
-					signalWaitingTask(true);
+					signalWaitingTask(queue);
 				}
 			} finally {
 				ql.unlock();
@@ -483,6 +1384,115 @@ public class GroupingThreadPool extends AbstractExecutorService {
 			return null;
 		}
 
+		// t is a task start time, returns a task completion time
+		// to be used as a start time of the next task in a batch
+		private long runTask(TaskQueue queue, Task task, long t) {
+			long completedAt;
+			boolean failed = true;
+			try {
+				task.runnable.run();
+				failed = false;
+			} finally {
+				completedAt = System.nanoTime();
+				long waitNanos = t - task.createdAt;
+				long runNanos = completedAt - t;
+				busyNanos += runNanos;
+				recorder.taskCompleted(waitNanos, runNanos, failed, completedAt);
+				completedCounter(queue).increment();
+				if (!metricsListeners.isEmpty()) {
+					for (TaskMetricsListener listener : metricsListeners) {
+						try {
+							listener.taskCompleted(queue.isolation, waitNanos, runNanos, failed);
+						} catch (Throwable e) {
+							log.warn("Metrics listener error", e);
+						}
+					}
+				}
+			}
+			return completedAt;
+		}
+
+		// the class counter is resolved by the worker bound to the queue,
+		// out of the pool lock, as the classifier is a user code
+		private LongAdder completedCounter(TaskQueue queue) {
+			LongAdder completed = queue.completed;
+			if (completed == null) {
+				completed = metrics.classCounter(queue.isolation);
+				queue.completed = completed;
+			}
+			return completed;
+		}
+
+		private void runBatch(TaskQueue queue, Task task) {
+			int n = batchSize;
+			long timeSlice = timeSliceNanos;
+			long startedAt = System.nanoTime();
+			long t = startedAt;
+			// the first task of a batch estimates the queueing delay
+			observeQueueDelay(startedAt - task.createdAt);
+			while (true) {
+				t = runTask(queue, task, t);
+				task.next = completedTasks;
+				completedTasks = task;
+				if (--n <= 0 || queue.deficit <= 0)
+					break;
+				if (timeSlice > 0L && t - startedAt >= timeSlice)
+					break;
+				// queue is owned by the worker and is not
+				// in the waiting pool, so its tasks can be polled
+				// without the queues lock
+				task = queue.tasks.poll();
+				if (task == null)
+					break;
+				queue.deficit--;
+				polled = task;
+			}
+		}
+
+		// worker has been busy less than the policy requires
+		// for the last keep-alive window and there is nothing to do,
+		// should be called under the queues lock
+		private boolean isUnderutilized() {
+			WorkerSizingPolicy policy = sizingPolicy;
+			if (!policy.isAdaptive())
+				return false;
+			long now = System.nanoTime();
+			long window = now - windowStartedAt;
+			if (window < keepAliveNanos)
+				return false;
+			boolean underutilized = busyNanos < policy.getMinUtilization() * window
+					&& waitingCount() == 0;
+			windowStartedAt = now;
+			busyNanos = 0L;
+			return underutilized;
+		}
+
+		// should be called under the queues lock,
+		// after the polled task has been flushed
+		private void recycleCompleted() {
+			Task task = completedTasks;
+			completedTasks = null;
+			while (task != null) {
+				Task next = task.next;
+				recycleTask(task);
+				task = next;
+			}
+		}
+
+		private void flushPolled(TaskQueue queue) {
+			if (polled == null)
+				return;
+
+			ql.lock();
+			try {
+				if (queue != null)
+					signalTaskPolled(queue, polled);
+				polled = null;
+			} finally {
+				ql.unlock();
+			}
+		}
+
 		@Override
 		public void run() {
 			log.info("W-{} START", Thread.currentThread().getName());
@@ -494,12 +1504,17 @@ public class GroupingThreadPool extends AbstractExecutorService {
 					ql.lock();
 					try {
 						// peek or wait for a task
-						long timeout = TimeUnit.SECONDS.toNanos(10);
+						long timeout = keepAliveNanos;
+						flushPolled(queue);
+						recycleCompleted();
 						while (true) {
 							queue = selectWorkingQueue(queue);
 							if (queue != null) {
 								task = queue.tasks.poll();
-								if (task == null) {
+								if (task != null) {
+									queue.deficit--;
+									signalTaskPolled(queue, task);
+								} else {
 									queue = releaseWorkingQueue(queue);
 									// queue is set to null on release;
 									// there is no need to re-select a working queue
@@ -517,8 +1532,12 @@ public class GroupingThreadPool extends AbstractExecutorService {
 								break; // task selected
 							if (timeout <= 0L)
 								break; // waiting limit exceeded
+							if (isUnderutilized())
+								break; // can be dismissed
 							try {
-								timeout = taskWaiting.awaitNanos(timeout);
+								// publish statistics before going idle
+								recorder.flush(System.nanoTime());
+								timeout = awaitTask(timeout);
 							} catch (InterruptedException e) {
 								// should be handled as if a thread interrupted status was set to true
 								break main;
@@ -531,7 +1550,7 @@ public class GroupingThreadPool extends AbstractExecutorService {
 						if (dismissWorker(this))
 							break;
 					} else {
-						task.runnable.run();
+						runBatch(queue, task);
 					}
 				}
 			} catch (RuntimeException | Error e) {
@@ -543,8 +1562,17 @@ public class GroupingThreadPool extends AbstractExecutorService {
 				respawnCoreWorker();
 				throw new Error(e);
 			} finally {
+				flushPolled(queue);
+				ql.lock();
+				try {
+					recycleCompleted();
+				} finally {
+					ql.unlock();
+				}
 				releaseWorkingQueue(queue);
 				removeWorker(this);
+				signalOrphanedQueues(slot);
+				recorder.flush(System.nanoTime());
 				log.info("W-{} SHUTDOWN", Thread.currentThread().getName());
 			}
 		}
@@ -552,6 +1580,18 @@ public class GroupingThreadPool extends AbstractExecutorService {
 
 	/* Tasks */
 
+	public enum OverflowPolicy {
+		// producer waits until the queue has a free slot,
+		// tasks of the queue should not be producers of it
+		BLOCK,
+		// new task is rejected with the RejectedExecutionException
+		REJECT,
+		// oldest queued tasks are dropped to fit the new one
+		DROP_OLDEST,
+		// all queued tasks are replaced with the new one
+		KEEP_LATEST
+	}
+
 	public interface Prioritizable extends Runnable {
 		int getPriority();
 
@@ -572,30 +1612,19 @@ public class GroupingThreadPool extends AbstractExecutorService {
 
 	private static class Task implements Comparable<Task> {
 
-		public static final int HIGH_PRIORITY = Integer.MAX_VALUE;
-		public static final int DEFAULT_PRIORITY = 0;
+		private Runnable runnable;
+		private long createdAt;
+		private int priority;
 
-		private final Runnable runnable;
-		private final long createdAt;
-		private final int priority;
-
-		public Task(Runnable runnable) {
-			this(runnable, System.nanoTime());
-		}
+		// next node in a free list
+		private Task next;
 
-		public Task(Runnable runnable, long createdAt) {
+		public Task(Runnable runnable, int priority, long createdAt) {
 			Objects.requireNonNull(runnable);
 
 			this.runnable = runnable;
 			this.createdAt = createdAt;
-			this.priority = extractPriority(runnable);
-		}
-
-		private int extractPriority(Runnable runnable) {
-			if (runnable instanceof Prioritizable) {
-				return ((Prioritizable) runnable).getPriority();
-			}
-			return DEFAULT_PRIORITY; // default priority
+			this.priority = priority;
 		}
 
 		@Override
@@ -622,11 +1651,36 @@ public class GroupingThreadPool extends AbstractExecutorService {
 	private static class TaskQueue {
 
 		private final Queue<Task> tasks;
-		private final Object isolation;
+		private Object isolation;
+
+		// queue size reached the high watermark
+		// and has not dropped to the low one yet
+		private boolean highWatermarkReached;
+
+		// number of tasks the queue can run in the current turn
+		// (fair scheduling only)
+		private int deficit;
 
-		public TaskQueue(Object isolation) {
+		// completed tasks counter of the queue task class,
+		// resolved on the first completed task
+		private LongAdder completed;
+
+		// preferred worker slot
+		private int slot;
+
+		public TaskQueue(Object isolation, int slot) {
 			this.tasks = new PriorityBlockingQueue<>();
 			this.isolation = isolation;
+			this.slot = slot;
+		}
+
+		// rebinds empty queue to another isolation
+		private void reset(Object isolation, int slot) {
+			this.isolation = isolation;
+			this.completed = null;
+			this.slot = slot;
+			this.highWatermarkReached = false;
+			this.deficit = 0;
 		}
 	}
 
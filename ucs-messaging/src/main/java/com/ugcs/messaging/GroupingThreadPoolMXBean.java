@@ -0,0 +1,46 @@
+package com.ugcs.messaging;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link GroupingThreadPool}.
+ * Time values are in microseconds, percentiles are upper estimates.
+ */
+public interface GroupingThreadPoolMXBean {
+
+	int getWorkerCount();
+
+	int getQueueCount();
+
+	int getWaitingQueueCount();
+
+	long getCompletedTaskCount();
+
+	long getFailedTaskCount();
+
+	long getRejectedTaskCount();
+
+	long getSpawnedWorkerCount();
+
+	long getDismissedWorkerCount();
+
+	Map<String, Long> getCompletedTaskCountByClass();
+
+	double getQueueWaitMean();
+
+	long getQueueWaitP50();
+
+	long getQueueWaitP99();
+
+	long getQueueWaitMax();
+
+	double getRunTimeMean();
+
+	long getRunTimeP50();
+
+	long getRunTimeP99();
+
+	long getRunTimeMax();
+
+	void reset();
+}
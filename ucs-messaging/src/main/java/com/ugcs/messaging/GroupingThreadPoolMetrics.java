@@ -0,0 +1,293 @@
+package com.ugcs.messaging;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of a {@link GroupingThreadPool}: task counters, queue wait
+ * and run time histograms. Counters are updated without the pool lock
+ * and can be read at any time, gauges (workers, queues) are read
+ * without the lock as well and are approximate. Task statistics of
+ * a worker are merged into the counters every few hundred tasks, every
+ * second and when the worker becomes idle, so they can lag behind a bit.
+ * <p>
+ * Completed tasks are also counted by the task classes: a class of the task
+ * is derived from the isolation key of its queue by the classifier, once per
+ * queue, out of the pool lock. Default classifier takes the message type
+ * of the session channels (see {@link SessionTaskChannels}), or the simple
+ * class name of the {@link TaskDetails#isolation} for the other tasks.
+ */
+public class GroupingThreadPoolMetrics implements GroupingThreadPoolMXBean {
+
+	private final GroupingThreadPool pool;
+
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder spawned = new LongAdder();
+	private final LongAdder dismissed = new LongAdder();
+
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram runTime = new LatencyHistogram();
+
+	private final ConcurrentMap<String, LongAdder> completedByClass = new ConcurrentHashMap<>();
+	private volatile Function<Object, String> classifier = GroupingThreadPoolMetrics::classOf;
+
+	GroupingThreadPoolMetrics(GroupingThreadPool pool) {
+		this.pool = pool;
+	}
+
+	private static String classOf(Object isolation) {
+		if (SessionTaskChannels.isChannel(isolation)) {
+			Object message = SessionTaskChannels.messageIsolation(isolation);
+			if (message == null)
+				return "SessionEvent";
+			// isolation of the type mappers is the message class,
+			// of the others the message itself
+			return message instanceof Class
+					? ((Class<?>)message).getSimpleName()
+					: message.getClass().getSimpleName();
+		}
+		if (isolation instanceof TaskDetails)
+			isolation = ((TaskDetails)isolation).isolation;
+		return isolation.getClass().getSimpleName();
+	}
+
+	public void setClassifier(Function<Object, String> classifier) {
+		Objects.requireNonNull(classifier);
+
+		this.classifier = classifier;
+	}
+
+	// counter of the completed tasks for the queue isolation key
+	LongAdder classCounter(Object isolation) {
+		String taskClass;
+		try {
+			taskClass = classifier.apply(isolation);
+		} catch (RuntimeException e) {
+			// counted as unclassified, not to fail the task
+			taskClass = null;
+		}
+		if (taskClass == null)
+			taskClass = "";
+		return completedByClass.computeIfAbsent(taskClass, key -> new LongAdder());
+	}
+
+	Recorder newRecorder() {
+		return new Recorder();
+	}
+
+	void taskRejected() {
+		rejected.increment();
+	}
+
+	void workerSpawned() {
+		spawned.increment();
+	}
+
+	void workerDismissed() {
+		dismissed.increment();
+	}
+
+	/**
+	 * Collects statistics of a single worker without synchronization
+	 * and merges it to the shared counters periodically, so a task costs
+	 * a few plain writes instead of several atomic updates.
+	 */
+	final class Recorder {
+
+		// max number of tasks and time between merges
+		private static final int FLUSH_TASKS = 256;
+		private static final long FLUSH_NANOS = 1_000_000_000L;
+
+		private final long[] waitCounts = new long[LatencyHistogram.NUM_BUCKETS];
+		private final long[] runCounts = new long[LatencyHistogram.NUM_BUCKETS];
+		private long waitSum;
+		private long waitMax;
+		private long runSum;
+		private long runMax;
+		private int numCompleted;
+		private int numFailed;
+		private long flushedAt = System.nanoTime();
+
+		private Recorder() {
+		}
+
+		void taskCompleted(long waitNanos, long runNanos, boolean failed, long now) {
+			waitNanos = Math.max(0L, waitNanos);
+			runNanos = Math.max(0L, runNanos);
+			waitCounts[LatencyHistogram.bucketOf(waitNanos)]++;
+			waitSum += waitNanos;
+			waitMax = Math.max(waitMax, waitNanos);
+			runCounts[LatencyHistogram.bucketOf(runNanos)]++;
+			runSum += runNanos;
+			runMax = Math.max(runMax, runNanos);
+			numCompleted++;
+			if (failed)
+				numFailed++;
+			if (numCompleted >= FLUSH_TASKS || now - flushedAt >= FLUSH_NANOS)
+				flush(now);
+		}
+
+		void flush(long now) {
+			flushedAt = now;
+			if (numCompleted == 0)
+				return;
+
+			queueWait.record(waitCounts, waitSum, waitMax);
+			runTime.record(runCounts, runSum, runMax);
+			completed.add(numCompleted);
+			failed.add(numFailed);
+
+			Arrays.fill(waitCounts, 0L);
+			Arrays.fill(runCounts, 0L);
+			waitSum = 0L;
+			waitMax = 0L;
+			runSum = 0L;
+			runMax = 0L;
+			numCompleted = 0;
+			numFailed = 0;
+		}
+	}
+
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	public LatencyHistogram getRunTime() {
+		return runTime;
+	}
+
+	/* JMX */
+
+	public ObjectName register(String poolName) throws JMException {
+		ObjectName name = new ObjectName("com.ugcs.messaging:type=GroupingThreadPool,name="
+				+ ObjectName.quote(poolName));
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, name);
+		return name;
+	}
+
+	public void unregister(ObjectName name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+
+	/* MXBean */
+
+	@Override
+	public int getWorkerCount() {
+		return pool.getWorkerCount();
+	}
+
+	@Override
+	public int getQueueCount() {
+		return pool.getQueueCount();
+	}
+
+	@Override
+	public int getWaitingQueueCount() {
+		return pool.getWaitingQueueCount();
+	}
+
+	@Override
+	public long getCompletedTaskCount() {
+		return completed.sum();
+	}
+
+	@Override
+	public long getFailedTaskCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public long getRejectedTaskCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getSpawnedWorkerCount() {
+		return spawned.sum();
+	}
+
+	@Override
+	public long getDismissedWorkerCount() {
+		return dismissed.sum();
+	}
+
+	@Override
+	public Map<String, Long> getCompletedTaskCountByClass() {
+		Map<String, Long> result = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> entry : completedByClass.entrySet())
+			result.put(entry.getKey(), entry.getValue().sum());
+		return result;
+	}
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	@Override
+	public double getQueueWaitMean() {
+		return queueWait.getMean() / 1000.0;
+	}
+
+	@Override
+	public long getQueueWaitP50() {
+		return toMicros(queueWait.getPercentile(0.5));
+	}
+
+	@Override
+	public long getQueueWaitP99() {
+		return toMicros(queueWait.getPercentile(0.99));
+	}
+
+	@Override
+	public long getQueueWaitMax() {
+		return toMicros(queueWait.getMax());
+	}
+
+	@Override
+	public double getRunTimeMean() {
+		return runTime.getMean() / 1000.0;
+	}
+
+	@Override
+	public long getRunTimeP50() {
+		return toMicros(runTime.getPercentile(0.5));
+	}
+
+	@Override
+	public long getRunTimeP99() {
+		return toMicros(runTime.getPercentile(0.99));
+	}
+
+	@Override
+	public long getRunTimeMax() {
+		return toMicros(runTime.getMax());
+	}
+
+	@Override
+	public void reset() {
+		completed.reset();
+		failed.reset();
+		rejected.reset();
+		spawned.reset();
+		dismissed.reset();
+		queueWait.reset();
+		runTime.reset();
+		for (LongAdder counter : completedByClass.values())
+			counter.reset();
+	}
+}
@@ -0,0 +1,271 @@
+package com.ugcs.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that runs every isolation group on its own thread.
+ * <p>
+ * Tasks are grouped by the {@link TaskMapper} as in the
+ * {@link GroupingThreadPool} and tasks of the same group are executed
+ * sequentially in the submission order. There is no worker limit: a group
+ * that receives a task is drained by a new thread, that terminates as soon
+ * as the group becomes empty. Such a model is intended for virtual threads
+ * (see {@link VirtualThreads}), where a task blocked in a wait does not
+ * hold any platform thread, thus blocking listeners cannot starve other
+ * groups. Priorities are not considered, as groups do not compete
+ * for workers.
+ */
+public class GroupingVirtualThreadExecutor extends AbstractExecutorService {
+
+	private static final Logger log = LoggerFactory.getLogger(GroupingVirtualThreadExecutor.class);
+
+	/* properties */
+
+	private final TaskMapper taskMapper;
+	private final ThreadFactory threadFactory;
+
+	/* state */
+
+	private volatile boolean shutdown = false;
+
+	// all active queues, each one is drained by a separate thread
+	private final ConcurrentMap<Object, SerialTaskQueue> queues = new ConcurrentHashMap<>();
+
+	// number of running drain threads
+	private final AtomicInteger numThreads = new AtomicInteger();
+
+	/* locks & monitors */
+
+	// termination lock: used by awaitTermination only
+	private final Lock tl = new ReentrantLock();
+
+	// all threads completed when executor is in the shutdown state
+	private final Condition terminated = tl.newCondition();
+
+	public GroupingVirtualThreadExecutor(TaskMapper taskMapper, String executorName) {
+		this(taskMapper, VirtualThreads.newThreadFactory(executorName));
+	}
+
+	public GroupingVirtualThreadExecutor(TaskMapper taskMapper, ThreadFactory threadFactory) {
+		Objects.requireNonNull(taskMapper);
+		Objects.requireNonNull(threadFactory);
+
+		this.taskMapper = taskMapper;
+		this.threadFactory = threadFactory;
+	}
+
+	@Override
+	public void execute(Runnable runnable) {
+		Objects.requireNonNull(runnable);
+
+		if (shutdown)
+			rejectTask(runnable);
+
+		TaskDetails taskDetails = taskMapper.map(runnable);
+		if (taskDetails == null)
+			taskDetails = new TaskDetails(runnable, TaskDetails.DEFAULT_PRIORITY);
+		queueTask(runnable, taskDetails);
+	}
+
+	private void queueTask(Runnable runnable, Object isolation) {
+		while (true) {
+			// target queue for the task
+			SerialTaskQueue queue = queues.get(isolation);
+			if (queue == null) {
+				SerialTaskQueue newQueue = new SerialTaskQueue(isolation, TaskDetails.DEFAULT_PRIORITY);
+				queue = queues.putIfAbsent(isolation, newQueue);
+				if (queue == null)
+					queue = newQueue;
+			}
+			int size = queue.reserve();
+			if (size < 0) {
+				// retired queue
+				queues.remove(isolation, queue);
+				continue;
+			}
+			queue.offer(runnable);
+			// the first task starts a thread for the queue
+			if (size == 0)
+				startDrain(queue);
+			return;
+		}
+	}
+
+	private void startDrain(SerialTaskQueue queue) {
+		numThreads.incrementAndGet();
+		boolean started = false;
+		try {
+			Thread thread = threadFactory.newThread(() -> drain(queue));
+			Objects.requireNonNull(thread);
+			thread.start();
+			started = true;
+		} finally {
+			if (!started) {
+				// queue is left scheduled, but nobody will drain it:
+				// retire it to let the next task to start over
+				queue.drain();
+				queues.remove(queue.isolation, queue);
+				threadCompleted();
+			}
+		}
+	}
+
+	private void drain(SerialTaskQueue queue) {
+		try {
+			while (true) {
+				Runnable runnable = queue.take();
+				if (runnable == null)
+					break; // retired on shutdownNow
+				try {
+					runnable.run();
+				} catch (Exception e) {
+					// a thread serves the whole group,
+					// so the failed task should not stop it
+					log.warn("Task error", e);
+				} catch (Error e) {
+					// the thread stops with the error,
+					// the rest of the group is passed to a new one
+					if (releaseTask(queue)) {
+						try {
+							startDrain(queue);
+						} catch (Throwable startError) {
+							e.addSuppressed(startError);
+						}
+					}
+					throw e;
+				}
+				if (!releaseTask(queue))
+					break;
+			}
+		} finally {
+			threadCompleted();
+		}
+	}
+
+	// returns true if the queue has more tasks to drain
+	private boolean releaseTask(SerialTaskQueue queue) {
+		int size = queue.release();
+		if (size < 0)
+			return false;
+		if (size == 0) {
+			// retire drained queue; failure means
+			// a concurrent producer has already reserved a slot
+			// and the queue should be drained further
+			if (queue.retire()) {
+				queues.remove(queue.isolation, queue);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void threadCompleted() {
+		if (numThreads.decrementAndGet() == 0 && shutdown) {
+			tl.lock();
+			try {
+				terminated.signalAll();
+			} finally {
+				tl.unlock();
+			}
+		}
+	}
+
+	private void rejectTask(Runnable runnable) {
+		throw new RejectedExecutionException("Task "
+				+ runnable.toString()
+				+ " rejected from "
+				+ this.toString());
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		if (numThreads.get() == 0) {
+			tl.lock();
+			try {
+				terminated.signalAll();
+			} finally {
+				tl.unlock();
+			}
+		}
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+
+		// collect unreachable tasks:
+		// running tasks complete, but their threads stop after that
+		List<Runnable> tasks = new ArrayList<>();
+		for (SerialTaskQueue queue : queues.values()) {
+			queue.drainTasks(tasks);
+			queues.remove(queue.isolation, queue);
+		}
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && numThreads.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long t = System.nanoTime() + unit.toNanos(timeout);
+		tl.lock();
+		try {
+			while (true) {
+				if (isTerminated())
+					return true;
+				long nanosTimeout = t - System.nanoTime();
+				if (nanosTimeout <= 0)
+					return false;
+				terminated.awaitNanos(nanosTimeout);
+			}
+		} finally {
+			tl.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		int numTasks = 0;
+		for (SerialTaskQueue queue : queues.values())
+			numTasks += queue.size();
+
+		StringBuilder builder = new StringBuilder(super.toString());
+		builder.append(" [");
+		if (isShutdown()) {
+			builder.append(isTerminated() ? "Terminated" : "Shutting down");
+		} else {
+			builder.append("Running");
+		}
+		builder
+				.append(", threads = ")
+				.append(numThreads.get())
+				.append(", tasks = ")
+				.append(numTasks)
+				.append("]");
+		return builder.toString();
+	}
+}
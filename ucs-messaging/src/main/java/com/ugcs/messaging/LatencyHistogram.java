@@ -0,0 +1,101 @@
+package com.ugcs.messaging;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values (nanoseconds) with
+ * power of two buckets: a bucket {@code i} counts values of the range
+ * {@code [2^(i-1), 2^i)}. Percentiles are estimated by the bucket upper
+ * bounds, so the relative error is below 2x, which is enough for alarms
+ * on scheduling latency.
+ */
+public final class LatencyHistogram {
+
+	static final int NUM_BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			buckets[i] = new LongAdder();
+	}
+
+	public void record(long value) {
+		if (value < 0L)
+			value = 0L;
+		buckets[bucketOf(value)].increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	// merges values collected by a single thread,
+	// counts are indexed by buckets
+	void record(long[] counts, long sum, long max) {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			if (counts[i] != 0L)
+				buckets[i].add(counts[i]);
+		}
+		this.sum.add(sum);
+		this.max.accumulate(max);
+	}
+
+	static int bucketOf(long value) {
+		return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	private static long upperBoundOf(int bucket) {
+		return bucket < 63 ? (1L << bucket) - 1L : Long.MAX_VALUE;
+	}
+
+	public long getCount() {
+		long n = 0L;
+		for (LongAdder bucket : buckets)
+			n += bucket.sum();
+		return n;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = getCount();
+		return n > 0L ? (double)sum.sum() / n : 0.0;
+	}
+
+	/**
+	 * @param quantile quantile in the range [0, 1]
+	 * @return upper estimate of the quantile value, 0 if the histogram is empty
+	 */
+	public long getPercentile(double quantile) {
+		if (quantile < 0.0 || quantile > 1.0)
+			throw new IllegalArgumentException("quantile");
+
+		long[] counts = new long[NUM_BUCKETS];
+		long total = 0L;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0L)
+			return 0L;
+		long rank = Math.max(1L, (long)Math.ceil(quantile * total));
+		long n = 0L;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			n += counts[i];
+			if (n >= rank)
+				return Math.min(upperBoundOf(i), getMax());
+		}
+		return getMax();
+	}
+
+	public void reset() {
+		for (LongAdder bucket : buckets)
+			bucket.reset();
+		sum.reset();
+		max.reset();
+	}
+}
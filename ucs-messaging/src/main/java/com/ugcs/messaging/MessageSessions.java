@@ -0,0 +1,26 @@
+package com.ugcs.messaging;
+
+import java.net.SocketAddress;
+
+/**
+ * Helpers of the session implementations.
+ */
+public final class MessageSessions {
+
+	private MessageSessions() {
+	}
+
+	/**
+	 * String representation of the session.
+	 */
+	public static String toString(long sessionId, SocketAddress localAddress, SocketAddress remoteAddress) {
+		return new StringBuilder("{id: ")
+				.append(Long.toString(sessionId))
+				.append(", local: ")
+				.append(localAddress)
+				.append(", remote: ")
+				.append(remoteAddress)
+				.append("}")
+				.toString();
+	}
+}
@@ -0,0 +1,71 @@
+package com.ugcs.messaging;
+
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Defines how {@link GroupingThreadPool} workers choose between
+ * the waiting task queues.
+ * <ul>
+ * <li><b>Priority</b> (default): the queue which head task has the highest
+ * priority (then the oldest one) is selected; a worker switches to a waiting
+ * queue as soon as its head is more urgent than the head of the current queue.
+ * Queues of a lower priority can starve while queues of a higher priority
+ * are non-empty.</li>
+ * <li><b>Weighted fair</b>: deficit round robin over the waiting queues.
+ * On every assignment to a worker a queue is granted {@code quantum * weight}
+ * tasks to run, after that the worker moves the queue to the tail of the
+ * waiting pool, if there are other queues waiting. Weights are assigned
+ * to the queues by their task details, so that isolation classes (e.g.
+ * priorities or channel types) can be given a larger share. Time to start
+ * a task of any queue is bounded by the quanta of the queues ahead of it.</li>
+ * </ul>
+ */
+public final class SchedulingPolicy {
+
+	private static final SchedulingPolicy PRIORITY = new SchedulingPolicy(0, null);
+
+	private final int quantum;
+	private final ToIntFunction<TaskDetails> weigher;
+
+	private SchedulingPolicy(int quantum, ToIntFunction<TaskDetails> weigher) {
+		this.quantum = quantum;
+		this.weigher = weigher;
+	}
+
+	public static SchedulingPolicy priority() {
+		return PRIORITY;
+	}
+
+	public static SchedulingPolicy weightedFair(int quantum) {
+		return weightedFair(quantum, details -> 1);
+	}
+
+	/**
+	 * @param quantum number of tasks a queue of weight 1 runs per turn
+	 * @param weigher maps task details to a queue weight, weights less than 1
+	 *                are treated as 1
+	 * @return fair scheduling policy
+	 */
+	public static SchedulingPolicy weightedFair(int quantum, ToIntFunction<TaskDetails> weigher) {
+		if (quantum < 1)
+			throw new IllegalArgumentException("quantum");
+		Objects.requireNonNull(weigher);
+
+		return new SchedulingPolicy(quantum, weigher);
+	}
+
+	public boolean isFair() {
+		return weigher != null;
+	}
+
+	int getQuantum(Object isolation) {
+		if (weigher == null)
+			return Integer.MAX_VALUE; // turn is not limited
+		int weight = isolation instanceof TaskDetails
+				? weigher.applyAsInt((TaskDetails)isolation)
+				: 1;
+		long quantum = (long)this.quantum * Math.max(1, weight);
+		return (int)Math.min(Integer.MAX_VALUE, quantum);
+	}
+}
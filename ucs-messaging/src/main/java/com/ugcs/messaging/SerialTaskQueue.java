@@ -0,0 +1,167 @@
+package com.ugcs.messaging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free queue of the tasks that belong to one isolation group.
+ * <p>
+ * Tasks are linked into an intrusive multiple-producer single-consumer list
+ * (D. Vyukov's non-blocking MPSC queue): producers only swap the tail
+ * reference, while the head is advanced by the consumer the queue
+ * is currently assigned to. Tasks of a drained queue are collected only
+ * when its consumer is out of a take, and the head is advanced by CAS,
+ * so every task is taken once. Queue ownership is driven by the size counter:
+ * producer that reserves the first slot makes the queue runnable, consumer
+ * that releases the last slot gives the queue up and may retire it.
+ * Retired queue (size of -1) cannot accept tasks anymore and should be
+ * replaced by a new one. A slot is reserved before its task is linked,
+ * so the tasks of a drained queue are collected after the producers
+ * that reserved the slots have linked them.
+ */
+final class SerialTaskQueue {
+
+	final Object isolation;
+	final int priority;
+
+	// number of the tasks reserved in the queue,
+	// -1 when the queue was retired
+	private final AtomicInteger size = new AtomicInteger();
+
+	// number of the producers between a reserve and the offer
+	private final AtomicInteger linking = new AtomicInteger();
+
+	private final AtomicReference<Node> tail;
+	private final AtomicReference<Node> head;
+
+	// held by the one who polls the queue: the consumer in a take
+	// or the collector of the tasks of a drained queue
+	private final AtomicBoolean polling = new AtomicBoolean();
+
+	SerialTaskQueue(Object isolation, int priority) {
+		this.isolation = isolation;
+		this.priority = priority;
+
+		Node stub = new Node(null);
+		this.head = new AtomicReference<>(stub);
+		this.tail = new AtomicReference<>(stub);
+	}
+
+	// returns number of the tasks reserved before the call
+	// (0 means the caller became responsible for scheduling the queue)
+	// or -1, if the queue was retired
+	int reserve() {
+		linking.incrementAndGet();
+		while (true) {
+			int n = size.get();
+			if (n < 0) {
+				linking.decrementAndGet();
+				return -1;
+			}
+			if (size.compareAndSet(n, n + 1))
+				return n;
+		}
+	}
+
+	// should be called for the reserved slot only
+	void offer(Runnable runnable) {
+		Node node = new Node(runnable);
+		Node prev = tail.getAndSet(node);
+		prev.next = node;
+		linking.decrementAndGet();
+	}
+
+	private Runnable poll() {
+		while (true) {
+			Node first = head.get();
+			Node next = first.next;
+			if (next == null)
+				return null;
+			// next becomes a new stub,
+			// its task belongs to the one who moved the head
+			if (head.compareAndSet(first, next)) {
+				Runnable runnable = next.runnable;
+				next.runnable = null;
+				return runnable;
+			}
+		}
+	}
+
+	private void acquirePolling() {
+		while (!polling.compareAndSet(false, true))
+			Thread.onSpinWait();
+	}
+
+	// returns null, if the queue was retired by a drain
+	Runnable take() {
+		acquirePolling();
+		try {
+			// slot is reserved before the task is linked,
+			// so the producer can be a step behind
+			Runnable runnable;
+			while ((runnable = poll()) == null) {
+				if (size.get() < 0)
+					return null;
+				Thread.onSpinWait();
+			}
+			return runnable;
+		} finally {
+			polling.set(false);
+		}
+	}
+
+	// returns number of the tasks left in the queue
+	// (0 means the consumer gave the queue up)
+	// or negative value, if the queue was retired by a drain
+	int release() {
+		return size.decrementAndGet();
+	}
+
+	// retires empty queue, fails if a concurrent producer
+	// has already reserved a new slot
+	boolean retire() {
+		return size.compareAndSet(0, -1);
+	}
+
+	// retires queue unconditionally, returns number
+	// of the tasks that were reserved
+	int drain() {
+		return size.getAndSet(-1);
+	}
+
+	// retires queue and adds the tasks left in it to the list;
+	// tasks are polled when the consumer is out of a take,
+	// the task it has taken last is not collected
+	void drainTasks(List<Runnable> tasks) {
+		if (drain() <= 0)
+			return;
+		// no slots are reserved after the retire,
+		// wait for the reserved ones to be linked
+		while (linking.get() > 0)
+			Thread.onSpinWait();
+		acquirePolling();
+		try {
+			Runnable runnable;
+			while ((runnable = poll()) != null)
+				tasks.add(runnable);
+		} finally {
+			polling.set(false);
+		}
+	}
+
+	int size() {
+		return Math.max(0, size.get());
+	}
+
+	private static final class Node {
+
+		private Runnable runnable;
+		private volatile Node next;
+
+		private Node(Runnable runnable) {
+			this.runnable = runnable;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.ugcs.messaging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Attributes of a session, for the session implementations
+ * that do not keep them in the transport session.
+ */
+public final class SessionAttributes {
+
+	private final ConcurrentMap<Object, Object> attributes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param value attribute value, null removes the attribute
+	 */
+	public <T> void set(Object key, T value) {
+		if (value == null)
+			attributes.remove(key);
+		else
+			attributes.put(key, value);
+	}
+
+	/**
+	 * @return current value of the attribute, or null if the value is set now
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T setIfAbsent(Object key, T value) {
+		return (T)attributes.putIfAbsent(key, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key) {
+		return (T)attributes.get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, T defaultValue) {
+		return (T)attributes.getOrDefault(key, defaultValue);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Supplier<T> supplier) {
+		return (T)attributes.computeIfAbsent(key, k -> supplier.get());
+	}
+}
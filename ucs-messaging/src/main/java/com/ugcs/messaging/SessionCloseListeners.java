@@ -0,0 +1,88 @@
+package com.ugcs.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.CloseListener;
+import com.ugcs.messaging.api.MessageSession;
+import com.ugcs.messaging.api.MessageSessionEvent;
+
+/**
+ * Close state of a session and the listeners waiting for it,
+ * for the session implementations that close themselves.
+ */
+public final class SessionCloseListeners {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionCloseListeners.class);
+
+	private final CountDownLatch closeLatch = new CountDownLatch(1);
+	private final List<CloseListener> listeners = new ArrayList<>();
+
+	public boolean isClosed() {
+		return closeLatch.getCount() == 0;
+	}
+
+	/**
+	 * Adds the listener, or notifies it right away
+	 * if the session is already closed.
+	 */
+	public void add(MessageSession session, CloseListener listener) {
+		boolean closedNow;
+		synchronized (listeners) {
+			closedNow = isClosed();
+			if (!closedNow)
+				listeners.add(listener);
+		}
+		if (closedNow)
+			listener.closed(new MessageSessionEvent(session, session));
+	}
+
+	/**
+	 * Marks the session closed and notifies the listeners.
+	 */
+	public void closed(MessageSession session) {
+		closeLatch.countDown();
+		List<CloseListener> listenersCopy;
+		synchronized (listeners) {
+			listenersCopy = new ArrayList<>(listeners);
+			listeners.clear();
+		}
+		MessageSessionEvent event = new MessageSessionEvent(session, session);
+		for (CloseListener listener : listenersCopy) {
+			try {
+				listener.closed(event);
+			} catch (Throwable ignore) {
+				log.warn("Close listener error", ignore);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the session to close, keeping the interrupt status.
+	 */
+	public void awaitUninterruptibly() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				closeLatch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * @return false if the session is not closed in time
+	 */
+	public boolean await(long timeoutMillis) throws InterruptedException {
+		return closeLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
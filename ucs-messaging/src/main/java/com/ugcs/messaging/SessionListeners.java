@@ -0,0 +1,93 @@
+package com.ugcs.messaging;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.MessageEvent;
+import com.ugcs.messaging.api.MessageListener;
+import com.ugcs.messaging.api.MessageSelector;
+import com.ugcs.messaging.api.MessageSession;
+
+/**
+ * Message listeners of a session, shared by the session
+ * implementations of the transports.
+ */
+public final class SessionListeners {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionListeners.class);
+
+	private static final MessageSelector SELECT_ALL = new MessageSelector() {
+		public boolean select(Object message) {
+			return true;
+		}
+	};
+
+	private final Map<MessageListener, MessageSelector> listeners = new HashMap<>();
+
+	public void add(MessageListener listener) {
+		add(listener, SELECT_ALL);
+	}
+
+	public void add(MessageListener listener, MessageSelector selector) {
+		Objects.requireNonNull(listener);
+		Objects.requireNonNull(selector);
+
+		synchronized (listeners) {
+			listeners.put(listener, selector);
+		}
+	}
+
+	public void remove(MessageListener listener) {
+		synchronized (listeners) {
+			listeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Passes the message to the listeners, which selectors accept it.
+	 */
+	public void messageReceived(MessageSession session, Object message) {
+		List<MessageListener> listenersCopy = new ArrayList<>();
+		synchronized (listeners) {
+			for (Map.Entry<MessageListener, MessageSelector> entry : listeners.entrySet()) {
+				MessageSelector selector = entry.getValue();
+				if (selector == null || selector.select(message))
+					listenersCopy.add(entry.getKey());
+			}
+		}
+		if (listenersCopy.size() == 0) {
+			log.warn("No listener registered for message, message skipped");
+			return;
+		}
+		MessageEvent messageEvent = new MessageEvent(session, session, message);
+		for (MessageListener listener : listenersCopy) {
+			try {
+				listener.messageReceived(messageEvent);
+			} catch (Throwable ignore) {
+				// continue to the next listener
+				log.warn("Listener error", ignore);
+			}
+		}
+	}
+
+	public void cancelAll() {
+		List<MessageListener> listenersCopy = new ArrayList<>();
+		synchronized (listeners) {
+			listenersCopy.addAll(listeners.keySet());
+		}
+		for (MessageListener listener : listenersCopy) {
+			try {
+				listener.cancelled();
+			} catch (Throwable ignore) {
+				// continue to the next listener
+				log.warn("Listener cancellation error", ignore);
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.ugcs.messaging;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ugcs.messaging.api.MessageDetails;
+
+/**
+ * Task details of the session channels, shared by the task mappers
+ * of the transports. Events of a session are isolated from the other
+ * sessions, and within a session are grouped by the channel type
+ * (e.g. incoming and outgoing events) and by the message isolation.
+ * Channels are stored as a session attribute to map the events of the
+ * session without allocations.
+ */
+public final class SessionTaskChannels {
+
+	// max number of message isolations cached per channel type
+	private static final int MAX_CACHED_MESSAGES = 64;
+
+	private final long sessionId;
+
+	// details of the events without messages, by channel type
+	private final TaskDetails[] channels;
+
+	// details by message isolations, by channel type
+	// (null if messages are not cached)
+	private final ConcurrentMap<Object, TaskDetails>[] messageChannels;
+
+	/**
+	 * @param cacheMessages cache details of the message isolations,
+	 *                      those should be a small set of long-living keys
+	 */
+	@SuppressWarnings("unchecked")
+	public SessionTaskChannels(long sessionId, int channelTypes, boolean cacheMessages) {
+		if (channelTypes < 1)
+			throw new IllegalArgumentException("channelTypes");
+
+		this.sessionId = sessionId;
+		channels = new TaskDetails[channelTypes];
+		for (int type = 0; type < channelTypes; type++)
+			channels[type] = newTaskDetails(sessionId, type, null);
+		if (cacheMessages) {
+			messageChannels = new ConcurrentMap[channelTypes];
+			for (int type = 0; type < channelTypes; type++)
+				messageChannels[type] = new ConcurrentHashMap<>();
+		} else {
+			messageChannels = null;
+		}
+	}
+
+	/**
+	 * @param messageDetails details of the event message,
+	 *                       or null if the event has no message
+	 */
+	public TaskDetails get(int channelType, MessageDetails messageDetails) {
+		if (messageDetails == null)
+			return channels[channelType];
+		if (messageChannels == null)
+			return newTaskDetails(sessionId, channelType, messageDetails);
+
+		ConcurrentMap<Object, TaskDetails> cached = messageChannels[channelType];
+		TaskDetails details = cached.get(messageDetails.isolation);
+		if (details != null && details.priority == messageDetails.priority)
+			return details;
+
+		// new isolation or its priority has changed
+		TaskDetails newDetails = newTaskDetails(sessionId, channelType, messageDetails);
+		if (details != null || cached.size() < MAX_CACHED_MESSAGES)
+			cached.put(messageDetails.isolation, newDetails);
+		return newDetails;
+	}
+
+	/**
+	 * Details of the session channel, tasks of the session
+	 * have the session affinity.
+	 */
+	public static TaskDetails newTaskDetails(long sessionId, int channelType, MessageDetails messageDetails) {
+		return new TaskDetails(
+				new TaskChannel(sessionId, channelType, messageDetails != null
+						? messageDetails.isolation
+						: null),
+				messageDetails != null
+						? messageDetails.priority
+						: MessageDetails.DEFAULT_PRIORITY,
+				sessionId);
+	}
+
+	/**
+	 * Message isolation of the session channel (e.g. the message type),
+	 * or null if the isolation is not a session channel or the channel
+	 * has no messages.
+	 */
+	public static Object messageIsolation(Object isolation) {
+		if (isolation instanceof TaskDetails)
+			isolation = ((TaskDetails)isolation).isolation;
+		if (!(isolation instanceof TaskChannel))
+			return null;
+		return ((TaskChannel)isolation).isolation;
+	}
+
+	public static boolean isChannel(Object isolation) {
+		if (isolation instanceof TaskDetails)
+			isolation = ((TaskDetails)isolation).isolation;
+		return isolation instanceof TaskChannel;
+	}
+
+	private static final class TaskChannel {
+
+		private final long sessionId;
+		private final int type;
+		private final Object isolation;
+		private final int hash;
+
+		TaskChannel(long sessionId, int type, Object isolation) {
+			this.sessionId = sessionId;
+			this.type = type;
+			this.isolation = isolation;
+			this.hash = computeHash();
+		}
+
+		private int computeHash() {
+			int h = 1;
+			h = 31 * h + (int)sessionId;
+			h = 31 * h + type;
+			h = 31 * h + (isolation != null
+					? isolation.hashCode()
+					: 0);
+			return h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+			if (!(other instanceof TaskChannel))
+				return false;
+
+			TaskChannel channel = (TaskChannel)other;
+			return sessionId == channel.sessionId
+					&& type == channel.type
+					&& Objects.equals(isolation, channel.isolation);
+		}
+	}
+}
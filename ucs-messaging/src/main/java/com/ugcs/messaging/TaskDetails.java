@@ -8,16 +8,24 @@ public final class TaskDetails {
 
     public final Object isolation;
     public final int priority;
+    // key to bind tasks to a preferred worker (e.g. session id),
+    // isolation is used if not set; not a part of the task identity
+    public final Object affinity;
 
     public TaskDetails(Object isolation) {
         this(isolation, DEFAULT_PRIORITY);
     }
 
     public TaskDetails(Object isolation, int priority) {
+        this(isolation, priority, null);
+    }
+
+    public TaskDetails(Object isolation, int priority, Object affinity) {
         Objects.requireNonNull(isolation);
 
         this.isolation = isolation;
         this.priority = priority;
+        this.affinity = affinity;
     }
 
     @Override
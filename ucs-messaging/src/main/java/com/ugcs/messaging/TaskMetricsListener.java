@@ -0,0 +1,28 @@
+package com.ugcs.messaging;
+
+import java.util.EventListener;
+
+/**
+ * Listener of the {@link GroupingThreadPool} task and worker statistics.
+ * Unlike the {@link TaskQueueListener}, listeners are called by the workers
+ * on every task (rejections are reported by producers), so no event
+ * objects are allocated and implementations should be cheap and thread-safe.
+ */
+public interface TaskMetricsListener extends EventListener {
+
+	/**
+	 * Task completed (normally or with an exception).
+	 *
+	 * @param isolation isolation key of the task queue
+	 * @param waitNanos time the task spent in the queue
+	 * @param runNanos  task run time
+	 * @param failed    whether the task has thrown an exception
+	 */
+	void taskCompleted(Object isolation, long waitNanos, long runNanos, boolean failed);
+
+	void taskRejected(Runnable task);
+
+	void workerSpawned();
+
+	void workerDismissed();
+}
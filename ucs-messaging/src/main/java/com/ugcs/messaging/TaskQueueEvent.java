@@ -0,0 +1,31 @@
+package com.ugcs.messaging;
+
+import java.util.EventObject;
+
+@SuppressWarnings("serial")
+public class TaskQueueEvent extends EventObject {
+
+	private final Object isolation;
+	private final int size;
+	private final Runnable task;
+
+	public TaskQueueEvent(Object source, Object isolation, int size, Runnable task) {
+		super(source);
+
+		this.isolation = isolation;
+		this.size = size;
+		this.task = task;
+	}
+
+	public Object getIsolation() {
+		return isolation;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public Runnable getTask() {
+		return task;
+	}
+}
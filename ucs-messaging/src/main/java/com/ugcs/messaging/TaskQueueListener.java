@@ -0,0 +1,28 @@
+package com.ugcs.messaging;
+
+import java.util.EventListener;
+
+/**
+ * Listener of the per-isolation task queues of the {@link GroupingThreadPool}.
+ * Listeners are invoked under the pool lock and should return quickly.
+ */
+public interface TaskQueueListener extends EventListener {
+
+	/**
+	 * Queue size reached the high watermark.
+	 * Event task is the task that was queued.
+	 */
+	void highWatermarkReached(TaskQueueEvent event);
+
+	/**
+	 * Queue size dropped to the low watermark after reaching the high one,
+	 * also when tasks are dropped or the queue is cleared on shutdownNow.
+	 * Event task is the last task taken from the queue.
+	 */
+	void lowWatermarkReached(TaskQueueEvent event);
+
+	/**
+	 * Task was dropped by the queue overflow policy.
+	 */
+	void taskDropped(TaskQueueEvent event);
+}
@@ -0,0 +1,24 @@
+package com.ugcs.messaging;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of the runtime.
+ * <p>
+ * Virtual threads are available on Java 21 and newer: this is a Java 11
+ * baseline version, that reports them as unsupported. Multi-release artifact
+ * replaces it with the working implementation for the Java 21 runtime.
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return false;
+	}
+
+	public static ThreadFactory newThreadFactory(String name) {
+		throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+	}
+}
@@ -0,0 +1,82 @@
+package com.ugcs.messaging;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when {@link GroupingThreadPool} spawns and dismisses workers
+ * within its core and max bounds.
+ * <ul>
+ * <li><b>Eager</b> (default): a worker is spawned whenever a queue starts
+ * waiting and there are no idle workers; a worker that stays idle for
+ * the keep-alive time is dismissed. Bursts grow the pool to its max size
+ * quickly and round robin wake-ups may keep the extra workers alive.</li>
+ * <li><b>Adaptive</b>: above the core size a worker is spawned only when
+ * the queueing delay exceeds the target: either the average wait of the
+ * started tasks, or the age of the oldest waiting task, which is checked
+ * by a controller thread a few times per target delay. A worker that has
+ * been busy for less than the {@code minUtilization} share
+ * of the keep-alive time is dismissed, when no queues are waiting.</li>
+ * </ul>
+ */
+public final class WorkerSizingPolicy {
+
+	private static final WorkerSizingPolicy EAGER = new WorkerSizingPolicy(0L, 0.0);
+
+	private static final double DEFAULT_MIN_UTILIZATION = 0.25;
+
+	private final long targetDelayNanos;
+	private final double minUtilization;
+
+	private WorkerSizingPolicy(long targetDelayNanos, double minUtilization) {
+		this.targetDelayNanos = targetDelayNanos;
+		this.minUtilization = minUtilization;
+	}
+
+	public static WorkerSizingPolicy eager() {
+		return EAGER;
+	}
+
+	public static WorkerSizingPolicy adaptive(long targetDelay, TimeUnit unit) {
+		return adaptive(targetDelay, unit, DEFAULT_MIN_UTILIZATION);
+	}
+
+	/**
+	 * @param targetDelay    queueing delay to keep tasks within
+	 * @param unit           target delay unit
+	 * @param minUtilization busy time share of the keep-alive time,
+	 *                       a worker below it can be dismissed
+	 * @return adaptive sizing policy
+	 */
+	public static WorkerSizingPolicy adaptive(long targetDelay, TimeUnit unit, double minUtilization) {
+		if (targetDelay <= 0)
+			throw new IllegalArgumentException("targetDelay");
+		Objects.requireNonNull(unit);
+		if (!(minUtilization >= 0.0 && minUtilization < 1.0))
+			throw new IllegalArgumentException("minUtilization");
+
+		return new WorkerSizingPolicy(unit.toNanos(targetDelay), minUtilization);
+	}
+
+	public boolean isAdaptive() {
+		return targetDelayNanos > 0L;
+	}
+
+	public long getTargetDelay(TimeUnit unit) {
+		return unit.convert(targetDelayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public double getMinUtilization() {
+		return minUtilization;
+	}
+
+	long getTargetDelayNanos() {
+		return targetDelayNanos;
+	}
+
+	// how often the controller checks the waiting queues
+	long getCheckPeriodNanos() {
+		long period = targetDelayNanos / 4;
+		return Math.max(TimeUnit.MILLISECONDS.toNanos(1), Math.min(TimeUnit.SECONDS.toNanos(1), period));
+	}
+}
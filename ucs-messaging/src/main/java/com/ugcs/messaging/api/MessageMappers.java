@@ -0,0 +1,53 @@
+package com.ugcs.messaging.api;
+
+/**
+ * Message mappers of the transport task mappers.
+ */
+public final class MessageMappers {
+
+	private static final MessageMapper BY_TYPE = new TypeMapper();
+
+	private static final MessageMapper BY_MESSAGE = new SelfMapper();
+
+	private MessageMappers() {
+	}
+
+	/**
+	 * Messages of the same class share the isolation.
+	 */
+	public static MessageMapper byType() {
+		return BY_TYPE;
+	}
+
+	/**
+	 * Every message is a separate isolation.
+	 */
+	public static MessageMapper byMessage() {
+		return BY_MESSAGE;
+	}
+
+	private static class TypeMapper implements MessageMapper {
+
+		private static final ClassValue<MessageDetails> DETAILS = new ClassValue<>() {
+			@Override
+			protected MessageDetails computeValue(Class<?> type) {
+				return new MessageDetails(type);
+			}
+		};
+
+		@Override
+		public MessageDetails map(Object message) {
+			if (message == null)
+				return null;
+			return DETAILS.get(message.getClass());
+		}
+	}
+
+	private static class SelfMapper implements MessageMapper {
+
+		@Override
+		public MessageDetails map(Object message) {
+			return new MessageDetails(message);
+		}
+	}
+}
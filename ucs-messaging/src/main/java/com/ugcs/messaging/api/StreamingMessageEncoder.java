@@ -0,0 +1,27 @@
+package com.ugcs.messaging.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Message encoder that can serialize messages directly into a buffer
+ * provided by the transport, without intermediate arrays.
+ */
+public interface StreamingMessageEncoder extends MessageEncoder {
+
+	/**
+	 * Returns exact number of bytes the encoded message takes.
+	 *
+	 * @param message message to encode
+	 * @return encoded message length, or -1 if the length cannot be
+	 * determined in advance and the message should be encoded
+	 * with {@link #encode(Object)}
+	 */
+	int encodedLength(Object message) throws Exception;
+
+	/**
+	 * Encodes message into the buffer, starting at its position.
+	 * Buffer should have at least {@link #encodedLength(Object)} bytes
+	 * remaining, position is advanced by the encoded length.
+	 */
+	void encode(Object message, ByteBuffer buffer) throws Exception;
+}
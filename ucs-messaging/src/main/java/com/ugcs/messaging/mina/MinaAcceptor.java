@@ -4,14 +4,13 @@ import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
 import org.apache.mina.core.service.IoProcessor;
 import org.apache.mina.core.service.SimpleIoProcessorPool;
-import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
 import org.apache.mina.filter.executor.ExecutorFilter;
@@ -27,7 +26,6 @@ import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ugcs.messaging.GroupingThreadPool;
 import com.ugcs.messaging.TaskMapper;
 import com.ugcs.messaging.api.Acceptor;
 import com.ugcs.messaging.api.CodecFactory;
@@ -39,7 +37,6 @@ public class MinaAcceptor implements Acceptor {
 
 	private static final int DEFAULT_MAX_IO_THREADS = 4;
 	private static final int DEFAULT_MAX_TASK_THREADS = 32;
-	private static final int DEFAULT_SESSION_IDLE_SECONDS = 3;
 
 	private final SocketAcceptor acceptor;
 	private final MinaAdapter minaAdapter;
@@ -55,8 +52,15 @@ public class MinaAcceptor implements Acceptor {
 
 	public MinaAcceptor(CodecFactory codecFactory, int maxIoThreads, int maxTaskThreads, TaskMapper taskMapper,
 			SSLContext sslContext, KeepAliveMessageFactory keepAliveMessageFactory) {
+		this(codecFactory, maxIoThreads, maxTaskThreads, taskMapper, sslContext, keepAliveMessageFactory,
+				MinaTransportOptions.defaults());
+	}
+
+	public MinaAcceptor(CodecFactory codecFactory, int maxIoThreads, int maxTaskThreads, TaskMapper taskMapper,
+			SSLContext sslContext, KeepAliveMessageFactory keepAliveMessageFactory, MinaTransportOptions options) {
 		this(codecFactory, new SimpleIoProcessorPool<>(NioProcessor.class, maxIoThreads),
-				newExecutor(maxTaskThreads, taskMapper), sslContext, keepAliveMessageFactory);
+				MinaExecutors.newExecutor(maxTaskThreads, taskMapper, "MinaAcceptorPool"), sslContext,
+				keepAliveMessageFactory, options);
 		log.info("Initialized acceptor {max I/O threads: {}, max task threads: {}}",
 				maxIoThreads,
 				maxTaskThreads > 0
@@ -64,11 +68,26 @@ public class MinaAcceptor implements Acceptor {
 						: "unbounded");
 	}
 
+	public MinaAcceptor(CodecFactory codecFactory, int maxIoThreads, ExecutorService executor,
+			SSLContext sslContext, KeepAliveMessageFactory keepAliveMessageFactory) {
+		this(codecFactory, new SimpleIoProcessorPool<>(NioProcessor.class, maxIoThreads), executor, sslContext,
+				keepAliveMessageFactory);
+		log.info("Initialized acceptor {max I/O threads: {}, executor: {}}",
+				maxIoThreads,
+				executor.getClass().getSimpleName());
+	}
+
 	public MinaAcceptor(CodecFactory codecFactory, IoProcessor<NioSession> processor, ExecutorService executor,
 			SSLContext sslContext, KeepAliveMessageFactory keepAliveMessageFactory) {
+		this(codecFactory, processor, executor, sslContext, keepAliveMessageFactory, MinaTransportOptions.defaults());
+	}
+
+	public MinaAcceptor(CodecFactory codecFactory, IoProcessor<NioSession> processor, ExecutorService executor,
+			SSLContext sslContext, KeepAliveMessageFactory keepAliveMessageFactory, MinaTransportOptions options) {
 		Objects.requireNonNull(codecFactory);
 		Objects.requireNonNull(processor);
 		Objects.requireNonNull(executor);
+		Objects.requireNonNull(options);
 
 		acceptor = new NioSocketAcceptor(processor);
 		DefaultIoFilterChainBuilder filters = acceptor.getFilterChain();
@@ -87,17 +106,20 @@ public class MinaAcceptor implements Acceptor {
 		filters.addLast("threadPool", new ExecutorFilter(executor));
 
 		// logging
-		filters.addLast("logger", new LoggingFilter());
+		if (options.isLogging())
+			filters.addLast("logger", new LoggingFilter());
 
 		// keepalive
 		if(keepAliveMessageFactory != null) {
 			KeepAliveFilter keepAliveFilter = new KeepAliveFilter(keepAliveMessageFactory,
 					KeepAliveRequestTimeoutHandler.CLOSE);
-			keepAliveFilter.setRequestTimeout(3);
-			keepAliveFilter.setRequestInterval(2);
+			keepAliveFilter.setRequestTimeout(options.getKeepAliveRequestTimeout());
+			keepAliveFilter.setRequestInterval(options.getKeepAliveRequestInterval());
 			filters.addLast("keepAlive", keepAliveFilter);
 		}
 
+		options.customize(filters);
+
 		// session handler
 		minaAdapter = new MinaAdapter();
 		acceptor.setHandler(minaAdapter);
@@ -107,26 +129,9 @@ public class MinaAcceptor implements Acceptor {
 		acceptor.setCloseOnDeactivation(false);
 		// port reuse when socket is in TIME_WAIT state
 		acceptor.setReuseAddress(true);
-		acceptor.getSessionConfig().setReuseAddress(true);
-		acceptor.getSessionConfig().setKeepAlive(true);
-		acceptor.getSessionConfig().setIdleTime(IdleStatus.BOTH_IDLE, DEFAULT_SESSION_IDLE_SECONDS);
-		// no Nagle's algorithm
-		acceptor.getSessionConfig().setTcpNoDelay(true);
-	}
-
-	private static ExecutorService newExecutor(int maxThreads, TaskMapper taskMapper) {
-		if (taskMapper == null) {
-			// unspecified order
-			// maxThreads = 0 -> unbound pool
-			return maxThreads > 0
-					? Executors.newFixedThreadPool(maxThreads)
-					: Executors.newCachedThreadPool();
-		} else {
-			// tasks are ordered within groups
-			maxThreads = Math.max(1, maxThreads);
-			int coreThreads = Math.max(1, maxThreads / 2);
-			return new GroupingThreadPool(coreThreads, maxThreads, taskMapper, "MinaAcceptorPool");
-		}
+		options.configure(acceptor.getSessionConfig());
+		if (options.getWriteCoalescingBytes() > 0)
+			setWriteCoalescing(options.getWriteCoalescingBytes());
 	}
 
 	public void addSessionListener(MessageSessionListener sessionListener) {
@@ -139,6 +144,21 @@ public class MinaAcceptor implements Acceptor {
 		minaAdapter.removeSessionListener(sessionListener);
 	}
 
+	/**
+	 * Enables merging of the frames queued for a session into single writes
+	 * (see {@link MinaWriteCoalescer}). Should be called before the acceptor is started.
+	 *
+	 * @param maxBytes max size of a merged write, 0 to disable coalescing
+	 */
+	public void setWriteCoalescing(int maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("maxBytes");
+
+		acceptor.setSessionDataStructureFactory(maxBytes > 0
+				? new MinaWriteCoalescer(maxBytes)
+				: new DefaultIoSessionDataStructureFactory());
+	}
+
 	public void start(SocketAddress socketAddress) throws IOException {
 		acceptor.bind(socketAddress);
 	}
@@ -0,0 +1,168 @@
+package com.ugcs.messaging.mina;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+import org.apache.mina.core.buffer.AbstractIoBuffer;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.buffer.IoBufferAllocator;
+
+import com.ugcs.common.io.BufferPool;
+
+/**
+ * Mina buffer allocator backed by the {@link BufferPool}.
+ * <p>
+ * Buffers freed by Mina (written buffers, empty reads) and by the codec
+ * are returned to the pool, so they can be reused by any session
+ * and I/O thread. Buffers that are never freed are just collected,
+ * as well as the wrapped ones, those content is owned by the caller.
+ * Allocator is installed globally by {@link #install()}.
+ */
+public class MinaBufferAllocator implements IoBufferAllocator {
+
+	private final BufferPool pool;
+
+	public MinaBufferAllocator() {
+		this(BufferPool.getDefault());
+	}
+
+	public MinaBufferAllocator(BufferPool pool) {
+		Objects.requireNonNull(pool);
+
+		this.pool = pool;
+	}
+
+	public BufferPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Sets this allocator as the default one for all Mina buffers.
+	 */
+	public MinaBufferAllocator install() {
+		IoBuffer.setAllocator(this);
+		return this;
+	}
+
+	@Override
+	public IoBuffer allocate(int capacity, boolean direct) {
+		return new PooledBuffer(this, allocateNioBuffer(capacity, direct), true);
+	}
+
+	@Override
+	public ByteBuffer allocateNioBuffer(int capacity, boolean direct) {
+		ByteBuffer buffer;
+		if (direct) {
+			buffer = pool.acquireDirect(capacity);
+		} else {
+			buffer = ByteBuffer.wrap(pool.acquire(capacity));
+			buffer.limit(capacity);
+		}
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		return buffer;
+	}
+
+	@Override
+	public IoBuffer wrap(ByteBuffer nioBuffer) {
+		// wrapped content is owned by the caller
+		return new PooledBuffer(this, nioBuffer, false);
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+	private void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.isReadOnly())
+			return;
+		if (buffer.isDirect()) {
+			pool.releaseDirect(buffer);
+		} else if (buffer.hasArray()
+				&& buffer.arrayOffset() == 0
+				&& buffer.capacity() == buffer.array().length) {
+			pool.release(buffer.array());
+		}
+	}
+
+	private static final class PooledBuffer extends AbstractIoBuffer {
+
+		private final MinaBufferAllocator allocator;
+		private ByteBuffer buf;
+		// buf is taken from the pool and should be returned on free
+		private boolean pooled;
+
+		PooledBuffer(MinaBufferAllocator allocator, ByteBuffer buf, boolean pooled) {
+			super(allocator, buf.capacity());
+
+			this.allocator = allocator;
+			this.buf = buf;
+			this.pooled = pooled;
+		}
+
+		// derived buffer, shares the content of the parent
+		PooledBuffer(PooledBuffer parent, ByteBuffer buf) {
+			super(parent);
+
+			this.allocator = parent.allocator;
+			this.buf = buf;
+			this.pooled = false;
+		}
+
+		@Override
+		public ByteBuffer buf() {
+			if (buf == null)
+				throw new IllegalStateException("Buffer has been freed already");
+			return buf;
+		}
+
+		@Override
+		protected void buf(ByteBuffer buf) {
+			// capacity change, new buffer comes from the allocator
+			ByteBuffer oldBuf = this.buf;
+			this.buf = buf;
+			if (pooled)
+				allocator.release(oldBuf);
+			pooled = true;
+		}
+
+		@Override
+		protected IoBuffer duplicate0() {
+			return new PooledBuffer(this, buf().duplicate());
+		}
+
+		@Override
+		protected IoBuffer slice0() {
+			return new PooledBuffer(this, buf().slice());
+		}
+
+		@Override
+		protected IoBuffer asReadOnlyBuffer0() {
+			return new PooledBuffer(this, buf().asReadOnlyBuffer());
+		}
+
+		@Override
+		public byte[] array() {
+			return buf().array();
+		}
+
+		@Override
+		public int arrayOffset() {
+			return buf().arrayOffset();
+		}
+
+		@Override
+		public boolean hasArray() {
+			return buf().hasArray();
+		}
+
+		@Override
+		public void free() {
+			ByteBuffer oldBuf = buf;
+			buf = null;
+			if (pooled)
+				allocator.release(oldBuf);
+			pooled = false;
+		}
+	}
+}
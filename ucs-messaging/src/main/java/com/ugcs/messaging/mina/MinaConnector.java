@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.net.ssl.SSLContext;
 
@@ -13,7 +12,7 @@ import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.service.IoProcessor;
 import org.apache.mina.core.service.SimpleIoProcessorPool;
-import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
 import org.apache.mina.filter.executor.ExecutorFilter;
@@ -26,7 +25,6 @@ import org.apache.mina.transport.socket.nio.NioSocketConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ugcs.messaging.GroupingThreadPool;
 import com.ugcs.messaging.TaskMapper;
 import com.ugcs.messaging.api.CodecFactory;
 import com.ugcs.messaging.api.ConnectListener;
@@ -42,7 +40,6 @@ public class MinaConnector implements Connector {
 
 	private static final int DEFAULT_MAX_IO_THREADS = 4;
 	private static final int DEFAULT_MAX_TASK_THREADS = 16;
-	private static final int DEFAULT_SESSION_IDLE_SECONDS = 3;
 
 	private final SocketConnector connector;
 	private final MinaAdapter minaAdapter;
@@ -59,8 +56,13 @@ public class MinaConnector implements Connector {
 
 	public MinaConnector(CodecFactory codecFactory, int maxIoThreads, int maxTaskThreads, TaskMapper taskMapper,
 			SSLContext sslContext) {
+		this(codecFactory, maxIoThreads, maxTaskThreads, taskMapper, sslContext, MinaTransportOptions.defaults());
+	}
+
+	public MinaConnector(CodecFactory codecFactory, int maxIoThreads, int maxTaskThreads, TaskMapper taskMapper,
+			SSLContext sslContext, MinaTransportOptions options) {
 		this(codecFactory, new SimpleIoProcessorPool<>(NioProcessor.class, maxIoThreads),
-				newExecutor(maxTaskThreads, taskMapper), sslContext);
+				MinaExecutors.newExecutor(maxTaskThreads, taskMapper, "MinaConnectorPool"), sslContext, options);
 		log.info("Initialized connector {max I/O threads: {}, max task threads: {}}",
 				maxIoThreads,
 				maxTaskThreads > 0
@@ -68,11 +70,25 @@ public class MinaConnector implements Connector {
 						: "unbounded");
 	}
 
+	public MinaConnector(CodecFactory codecFactory, int maxIoThreads, ExecutorService executor,
+			SSLContext sslContext) {
+		this(codecFactory, new SimpleIoProcessorPool<>(NioProcessor.class, maxIoThreads), executor, sslContext);
+		log.info("Initialized connector {max I/O threads: {}, executor: {}}",
+				maxIoThreads,
+				executor.getClass().getSimpleName());
+	}
+
 	public MinaConnector(CodecFactory codecFactory, IoProcessor<NioSession> processor, ExecutorService executor,
 			SSLContext sslContext) {
+		this(codecFactory, processor, executor, sslContext, MinaTransportOptions.defaults());
+	}
+
+	public MinaConnector(CodecFactory codecFactory, IoProcessor<NioSession> processor, ExecutorService executor,
+			SSLContext sslContext, MinaTransportOptions options) {
 		Objects.requireNonNull(codecFactory);
 		Objects.requireNonNull(processor);
 		Objects.requireNonNull(executor);
+		Objects.requireNonNull(options);
 
 		this.processor = processor;
 		connector = new NioSocketConnector(processor);
@@ -92,33 +108,19 @@ public class MinaConnector implements Connector {
 		filters.addLast("threadPool", new ExecutorFilter(executor));
 
 		// logging
-		filters.addLast("logger", new LoggingFilter());
+		if (options.isLogging())
+			filters.addLast("logger", new LoggingFilter());
+
+		options.customize(filters);
 
 		// session handler
 		minaAdapter = new MinaAdapter();
 		connector.setHandler(minaAdapter);
 
 		// connector configuration
-		connector.getSessionConfig().setReuseAddress(true);
-		connector.getSessionConfig().setKeepAlive(true);
-		connector.getSessionConfig().setIdleTime(IdleStatus.BOTH_IDLE, DEFAULT_SESSION_IDLE_SECONDS);
-		// no Nagle's algorithm
-		connector.getSessionConfig().setTcpNoDelay(true);
-	}
-
-	private static ExecutorService newExecutor(int maxThreads, TaskMapper taskMapper) {
-		if (taskMapper == null) {
-			// unspecified order
-			// maxThreads = 0 -> unbound pool
-			return maxThreads > 0
-					? Executors.newFixedThreadPool(maxThreads)
-					: Executors.newCachedThreadPool();
-		} else {
-			// tasks are ordered within groups
-			maxThreads = Math.max(1, maxThreads);
-			int coreThreads = Math.max(1, maxThreads / 2);
-			return new GroupingThreadPool(coreThreads, maxThreads, taskMapper, "MinaConnectorPool");
-		}
+		options.configure(connector.getSessionConfig());
+		if (options.getWriteCoalescingBytes() > 0)
+			setWriteCoalescing(options.getWriteCoalescingBytes());
 	}
 
 	public void addSessionListener(MessageSessionListener sessionListener) {
@@ -131,6 +133,21 @@ public class MinaConnector implements Connector {
 		minaAdapter.removeSessionListener(sessionListener);
 	}
 
+	/**
+	 * Enables merging of the frames queued for a session into single writes
+	 * (see {@link MinaWriteCoalescer}). Should be called before the first connect.
+	 *
+	 * @param maxBytes max size of a merged write, 0 to disable coalescing
+	 */
+	public void setWriteCoalescing(int maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("maxBytes");
+
+		connector.setSessionDataStructureFactory(maxBytes > 0
+				? new MinaWriteCoalescer(maxBytes)
+				: new DefaultIoSessionDataStructureFactory());
+	}
+
 	public MessageSession connect(SocketAddress address) throws IOException {
 		Objects.requireNonNull(address);
 
@@ -1,6 +1,7 @@
 package com.ugcs.messaging.mina;
 
 import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.StreamingMessageEncoder;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolEncoder;
@@ -22,17 +23,42 @@ public class MinaEncoder implements ProtocolEncoder {
 
 	@Override
 	public void encode(IoSession session, Object message, ProtocolEncoderOutput out) throws Exception {
-		byte[] encodedMessage;
+		IoBuffer buffer;
 		try {
-			encodedMessage = encoder.encode(message);
+			buffer = encoder instanceof StreamingMessageEncoder
+					? encodeToBuffer((StreamingMessageEncoder)encoder, message)
+					: encodeToArray(encoder, message);
 		} catch (Throwable e) {
 			log.error("Message encoder error", e);
 			throw e;
 		}
-		if (encodedMessage != null && encodedMessage.length > 0) {
-			IoBuffer buffer = IoBuffer.wrap(encodedMessage);
+		if (buffer != null)
 			out.write(buffer);
-		}
+	}
+
+	private static IoBuffer encodeToArray(MessageEncoder encoder, Object message) throws Exception {
+		byte[] encodedMessage = encoder.encode(message);
+		if (encodedMessage == null || encodedMessage.length == 0)
+			return null;
+		return IoBuffer.wrap(encodedMessage);
+	}
+
+	private static IoBuffer encodeToBuffer(StreamingMessageEncoder encoder, Object message) throws Exception {
+		int length = encoder.encodedLength(message);
+		if (length < 0)
+			return encodeToArray(encoder, message);
+		if (length == 0)
+			return null;
+
+		// buffer comes from the Mina allocator,
+		// either heap or direct one depending on its settings
+		IoBuffer buffer = IoBuffer.allocate(length);
+		encoder.encode(message, buffer.buf());
+		if (buffer.position() != length)
+			throw new IllegalStateException("Encoded length mismatch: expected "
+					+ length + ", actual " + buffer.position());
+		buffer.flip();
+		return buffer;
 	}
 
 	@Override
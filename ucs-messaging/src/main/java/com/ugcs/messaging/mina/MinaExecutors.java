@@ -0,0 +1,132 @@
+package com.ugcs.messaging.mina;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.ConcurrentGroupingThreadPool;
+import com.ugcs.messaging.GroupingThreadPool;
+import com.ugcs.messaging.GroupingVirtualThreadExecutor;
+import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.VirtualThreads;
+import com.ugcs.messaging.WorkerSizingPolicy;
+
+/**
+ * Task executors for the {@link MinaConnector} and {@link MinaAcceptor}
+ * filter chains.
+ */
+public final class MinaExecutors {
+
+	private static final Logger log = LoggerFactory.getLogger(MinaExecutors.class);
+
+	private MinaExecutors() {
+	}
+
+	public static ExecutorService newExecutor(int maxThreads, TaskMapper taskMapper, String poolName) {
+		if (taskMapper == null) {
+			// unspecified order
+			// maxThreads = 0 -> unbound pool
+			return maxThreads > 0
+					? Executors.newFixedThreadPool(maxThreads)
+					: Executors.newCachedThreadPool();
+		} else {
+			// tasks are ordered within groups
+			maxThreads = Math.max(1, maxThreads);
+			int coreThreads = Math.max(1, maxThreads / 2);
+			return new GroupingThreadPool(coreThreads, maxThreads, taskMapper, poolName);
+		}
+	}
+
+	/**
+	 * Creates the lock-free variant of the grouping pool, a drop-in
+	 * replacement of the {@link #newExecutor(int, TaskMapper, String)
+	 * pooled} executor for the sessions with many small tasks, where
+	 * the pool-wide lock is contended.
+	 *
+	 * @param maxThreads max number of threads
+	 * @param taskMapper task mapper
+	 * @param poolName   name of the pool threads
+	 * @return concurrent grouping thread pool
+	 */
+	public static ExecutorService newConcurrentExecutor(int maxThreads, TaskMapper taskMapper, String poolName) {
+		if (taskMapper == null)
+			throw new IllegalArgumentException("taskMapper");
+
+		maxThreads = Math.max(1, maxThreads);
+		int coreThreads = Math.max(1, maxThreads / 2);
+		return new ConcurrentGroupingThreadPool(coreThreads, maxThreads, taskMapper, poolName);
+	}
+
+	/**
+	 * Creates a grouping pool that grows above {@code minThreads} only
+	 * when tasks wait longer than the target delay, and shrinks back
+	 * as the workers become underutilized, so bursty loads do not need
+	 * the pool sized for the peak.
+	 *
+	 * @param minThreads    number of threads to keep
+	 * @param maxThreads    max number of threads
+	 * @param taskMapper    task mapper
+	 * @param poolName      name of the pool threads
+	 * @param targetDelay   queueing delay to keep tasks within
+	 * @param keepAliveTime time to dismiss idle or underutilized threads after
+	 * @param unit          time unit
+	 * @return grouping thread pool
+	 */
+	public static GroupingThreadPool newAdaptiveExecutor(int minThreads, int maxThreads, TaskMapper taskMapper,
+			String poolName, long targetDelay, long keepAliveTime, TimeUnit unit) {
+		if (taskMapper == null)
+			throw new IllegalArgumentException("taskMapper");
+
+		GroupingThreadPool pool = new GroupingThreadPool(minThreads, maxThreads, taskMapper, poolName);
+		pool.setKeepAliveTime(keepAliveTime, unit);
+		pool.setWorkerSizingPolicy(WorkerSizingPolicy.adaptive(targetDelay, unit));
+		return pool;
+	}
+
+	/**
+	 * Enables backpressure of the task queues to the session reads: reading
+	 * from a session is suspended while any of its inbound task queues
+	 * holds more than the high watermark number of tasks.
+	 *
+	 * @param pool          session tasks executor
+	 * @param highWatermark queue size to suspend reading at
+	 * @param lowWatermark  queue size to resume reading at
+	 */
+	public static void throttleReads(GroupingThreadPool pool, int highWatermark, int lowWatermark) {
+		if (pool == null)
+			throw new IllegalArgumentException("pool");
+
+		pool.setQueueWatermarks(highWatermark, lowWatermark);
+		pool.addQueueListener(new MinaReadThrottle());
+	}
+
+	/**
+	 * Creates executor that runs each task group on a virtual thread,
+	 * so blocking listeners do not starve the pool. Task groups are defined
+	 * by the task mapper, e.g. {@link MinaTaskMappers#orderedByMessageTypes()}
+	 * keeps the order of the messages of the same type within a session.
+	 * Falls back to the {@link #newExecutor(int, TaskMapper, String) pooled}
+	 * executor of the specified size, if the runtime does not support
+	 * virtual threads.
+	 *
+	 * @param fallbackMaxThreads max threads of the fallback pool
+	 * @param taskMapper         task mapper
+	 * @param poolName           name of the executor threads
+	 * @return executor service
+	 */
+	public static ExecutorService newVirtualThreadExecutor(int fallbackMaxThreads, TaskMapper taskMapper,
+			String poolName) {
+		if (taskMapper == null)
+			throw new IllegalArgumentException("taskMapper");
+
+		if (!VirtualThreads.isSupported()) {
+			log.warn("Virtual threads are not supported by the runtime, "
+					+ "using a thread pool of {} threads", fallbackMaxThreads);
+			return newExecutor(fallbackMaxThreads, taskMapper, poolName);
+		}
+		return new GroupingVirtualThreadExecutor(taskMapper, poolName);
+	}
+}
@@ -2,10 +2,6 @@ package com.ugcs.messaging.mina;
 
 import java.io.IOException;
 import java.net.SocketAddress;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Future;
 import java.util.function.Supplier;
@@ -13,11 +9,10 @@ import java.util.function.Supplier;
 import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.session.IoSession;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import com.ugcs.messaging.MessageSessions;
+import com.ugcs.messaging.SessionListeners;
 import com.ugcs.messaging.api.CloseListener;
-import com.ugcs.messaging.api.MessageEvent;
 import com.ugcs.messaging.api.MessageListener;
 import com.ugcs.messaging.api.MessageSelector;
 import com.ugcs.messaging.api.MessageSession;
@@ -26,16 +21,8 @@ import com.ugcs.messaging.api.MessageSessionEvent;
 
 public class MinaMessageSession implements MessageSession {
 
-	private static final Logger log = LoggerFactory.getLogger(MinaMessageSession.class);
-
 	private final IoSession session;
-	private final Map<MessageListener, MessageSelector> listeners = new HashMap<>();
-
-	private static final MessageSelector SELECT_ALL = new MessageSelector() {
-		public boolean select(Object message) {
-			return true;
-		}
-	};
+	private final SessionListeners listeners = new SessionListeners();
 
 	public MinaMessageSession(IoSession session) {
 		if (session == null)
@@ -60,24 +47,17 @@ public class MinaMessageSession implements MessageSession {
 
 	@Override
 	public void addListener(MessageListener listener) {
-		addListener(listener, SELECT_ALL);
+		listeners.add(listener);
 	}
 
 	@Override
 	public void addListener(MessageListener listener, MessageSelector selector) {
-		Objects.requireNonNull(listener);
-		Objects.requireNonNull(selector);
-
-		synchronized (listeners) {
-			listeners.put(listener, selector);
-		}
+		listeners.add(listener, selector);
 	}
 
 	@Override
 	public void removeListener(MessageListener listener) {
-		synchronized (listeners) {
-			listeners.remove(listener);
-		}
+		listeners.remove(listener);
 	}
 
 	@Override
@@ -158,53 +138,15 @@ public class MinaMessageSession implements MessageSession {
 	}
 
 	protected void messageReceived(Object message) throws Exception {
-		List<MessageListener> listenersCopy = new ArrayList<>();
-		synchronized (listeners) {
-			for (Map.Entry<MessageListener, MessageSelector> entry : listeners.entrySet()) {
-				MessageSelector selector = entry.getValue();
-				if (selector == null || selector.select(message))
-					listenersCopy.add(entry.getKey());
-			}
-		}
-		if (listenersCopy.size() == 0) {
-			log.warn("No listener registered for message, message skipped");
-			return;
-		}
-		MessageEvent messageEvent = new MessageEvent(this, this, message);
-		for (MessageListener listener : listenersCopy) {
-			try {
-				listener.messageReceived(messageEvent);
-			} catch (Throwable ignore) {
-				// continue to the next listener
-				log.warn("Listener error", ignore);
-			}
-		}
+		listeners.messageReceived(this, message);
 	}
 
 	protected void cancelAllListeners() {
-		List<MessageListener> listenersCopy = new ArrayList<>();
-		synchronized (listeners) {
-			listenersCopy.addAll(listeners.keySet());
-		}
-		for (MessageListener listener : listenersCopy) {
-			try {
-				listener.cancelled();
-			} catch (Throwable ignore) {
-				// continue to the next listener
-				log.warn("Listener cancellation error", ignore);
-			}
-		}
+		listeners.cancelAll();
 	}
 
 	@Override
 	public String toString() {
-		return new StringBuilder("{id: ")
-				.append(Long.toString(session.getId()))
-				.append(", local: ")
-				.append(session.getLocalAddress())
-				.append(", remote: ")
-				.append(session.getRemoteAddress())
-				.append("}")
-				.toString();
+		return MessageSessions.toString(session.getId(), session.getLocalAddress(), session.getRemoteAddress());
 	}
 }
@@ -0,0 +1,77 @@
+package com.ugcs.messaging.mina;
+
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.GroupingThreadPool;
+import com.ugcs.messaging.TaskQueueEvent;
+import com.ugcs.messaging.TaskQueueListener;
+
+/**
+ * Propagates backpressure of the {@link GroupingThreadPool} queues to the
+ * network: reading from a session is suspended, when any inbound task queue
+ * of the session reaches the high watermark, and resumed, when all such
+ * queues drop to the low watermark. Unread data is then kept in the socket
+ * buffers and TCP flow control slows down the sending party.
+ * <p>
+ * Requires task mapper that isolates tasks of different sessions
+ * (see {@link MinaTaskMappers}) and watermarks to be set with
+ * {@link GroupingThreadPool#setQueueWatermarks(int, int)}.
+ */
+public class MinaReadThrottle implements TaskQueueListener {
+
+	private static final Logger log = LoggerFactory.getLogger(MinaReadThrottle.class);
+
+	private static final String SUSPENDED_QUEUES_ATTRIBUTE = "suspendedQueues";
+
+	private static IoSession getInboundSession(TaskQueueEvent event) {
+		if (!(event.getTask() instanceof IoEvent))
+			return null;
+		IoEvent ioEvent = (IoEvent)event.getTask();
+		if (MinaTaskMappers.TaskChannelType.of(ioEvent.getType()) != MinaTaskMappers.TaskChannelType.IN)
+			return null;
+		return ioEvent.getSession();
+	}
+
+	@Override
+	public void highWatermarkReached(TaskQueueEvent event) {
+		IoSession session = getInboundSession(event);
+		if (session == null)
+			return;
+
+		synchronized (session) {
+			int suspendedQueues = (int)session.getAttribute(SUSPENDED_QUEUES_ATTRIBUTE, 0);
+			session.setAttribute(SUSPENDED_QUEUES_ATTRIBUTE, suspendedQueues + 1);
+			if (suspendedQueues == 0) {
+				session.suspendRead();
+				log.debug("Session {} reading suspended, {} tasks queued", session.getId(), event.getSize());
+			}
+		}
+	}
+
+	@Override
+	public void lowWatermarkReached(TaskQueueEvent event) {
+		IoSession session = getInboundSession(event);
+		if (session == null)
+			return;
+
+		synchronized (session) {
+			int suspendedQueues = (int)session.getAttribute(SUSPENDED_QUEUES_ATTRIBUTE, 0);
+			if (suspendedQueues == 0)
+				return;
+			session.setAttribute(SUSPENDED_QUEUES_ATTRIBUTE, suspendedQueues - 1);
+			if (suspendedQueues == 1) {
+				session.resumeRead();
+				log.debug("Session {} reading resumed", session.getId());
+			}
+		}
+	}
+
+	@Override
+	public void taskDropped(TaskQueueEvent event) {
+		if (log.isDebugEnabled())
+			log.debug("Task dropped on queue overflow: {}", event.getTask());
+	}
+}
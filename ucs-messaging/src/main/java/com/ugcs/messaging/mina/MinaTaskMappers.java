@@ -1,26 +1,32 @@
 package com.ugcs.messaging.mina;
 
-import java.util.Comparator;
 import java.util.Objects;
 
-import com.ugcs.messaging.TaskDetails;
-import com.ugcs.messaging.api.MessageDetails;
 import org.apache.mina.core.session.IoEvent;
 import org.apache.mina.core.session.IoEventType;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.write.WriteRequest;
 
-import com.ugcs.messaging.api.MessageMapper;
+import com.ugcs.messaging.SessionTaskChannels;
+import com.ugcs.messaging.TaskDetails;
 import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.api.MessageDetails;
+import com.ugcs.messaging.api.MessageMapper;
+import com.ugcs.messaging.api.MessageMappers;
 
+/**
+ * Task mappers of the Mina I/O events, see {@link SessionTaskChannels}:
+ * incoming and outgoing events of a session are the separate channels.
+ */
 public final class MinaTaskMappers {
 
-
 	private MinaTaskMappers() {
 	}
 
 	public static TaskMapper newMapper(MessageMapper messageMapper) {
-		return new SessionMapper(messageMapper);
+		// isolations of a custom mapper are not cached: those may be
+		// derived from the message and should not outlive it
+		return new SessionMapper(messageMapper, false);
 	}
 
 	public static TaskMapper orderedBySessions() {
@@ -28,11 +34,13 @@ public final class MinaTaskMappers {
 	}
 
 	public static TaskMapper orderedByMessageTypes() {
-		return newMapper(new TypeMapper());
+		// message types are a small fixed set
+		return new SessionMapper(MessageMappers.byType(), true);
 	}
 
 	public static TaskMapper unordered() {
-		return newMapper(new SelfMapper());
+		// every message is a separate isolation, nothing to cache
+		return new SessionMapper(MessageMappers.byMessage(), false);
 	}
 
 	/* task mappers */
@@ -40,9 +48,11 @@ public final class MinaTaskMappers {
 	private static class SessionMapper implements TaskMapper {
 
 		private final MessageMapper messageMapper;
+		private final boolean cacheMessages;
 
-		public SessionMapper(MessageMapper messageMapper) {
+		public SessionMapper(MessageMapper messageMapper, boolean cacheMessages) {
 			this.messageMapper = messageMapper;
+			this.cacheMessages = cacheMessages;
 		}
 
 		@Override
@@ -54,12 +64,6 @@ public final class MinaTaskMappers {
 
 			IoEvent event = (IoEvent)runnable;
 
-			// sessionId
-			IoSession session = event.getSession();
-			long sessionId = session != null
-					? session.getId()
-					: 0L;
-
 			// channelType
 			TaskChannelType type = TaskChannelType.of(event.getType());
 
@@ -80,16 +84,28 @@ public final class MinaTaskMappers {
 				}
 			}
 
-			return new TaskDetails(
-					new TaskChannel(sessionId, type, messageDetails),
-					messageDetails != null
-							? messageDetails.priority
-							: MessageDetails.DEFAULT_PRIORITY
-			);
+			IoSession session = event.getSession();
+			if (session == null)
+				return SessionTaskChannels.newTaskDetails(0L, type.ordinal(), messageDetails);
+			return getChannels(session).get(type.ordinal(), messageDetails);
+		}
+
+		private SessionTaskChannels getChannels(IoSession session) {
+			// channels are bound to the mapper, as another mapper
+			// can isolate messages of the same session differently
+			SessionTaskChannels channels = (SessionTaskChannels)session.getAttribute(this);
+			if (channels == null) {
+				SessionTaskChannels newChannels = new SessionTaskChannels(
+						session.getId(), TaskChannelType.values().length, cacheMessages);
+				channels = (SessionTaskChannels)session.setAttributeIfAbsent(this, newChannels);
+				if (channels == null)
+					channels = newChannels;
+			}
+			return channels;
 		}
 	}
 
-	private enum TaskChannelType {
+	enum TaskChannelType {
 		IN,
 		OUT;
 
@@ -106,65 +122,4 @@ public final class MinaTaskMappers {
 			}
 		}
 	}
-
-	private static class TaskChannel {
-
-		private final long sessionId;
-		private final TaskChannelType type;
-		private final Object isolation;
-
-		public TaskChannel(long sessionId, TaskChannelType type, Object isolation) {
-			this.sessionId = sessionId;
-			this.type = type;
-			this.isolation = isolation;
-		}
-
-		@Override
-		public int hashCode() {
-			int h = 1;
-			h = 31 * h + (int)sessionId;
-			h = 31 * h + (type != null
-					? type.hashCode()
-					: 0);
-			h = 31 * h + (isolation != null
-					? isolation.hashCode()
-					: 0);
-			return h;
-		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (this == other)
-				return true;
-			if (!(other instanceof TaskChannel))
-				return false;
-
-			TaskChannel channel = (TaskChannel)other;
-			return sessionId == channel.sessionId
-					&& type == channel.type
-					&& isolation == null
-							? channel.isolation == null
-							: isolation.equals(channel.isolation);
-		}
-	}
-
-	/* message mappers */
-
-	private static class TypeMapper implements MessageMapper {
-
-		@Override
-		public MessageDetails map(Object message) {
-			if (message == null)
-				return null;
-			return new MessageDetails(message.getClass());
-		}
-	}
-
-	private static class SelfMapper implements MessageMapper {
-
-		@Override
-		public MessageDetails map(Object message) {
-			return new MessageDetails(message);
-		}
-	}
 }
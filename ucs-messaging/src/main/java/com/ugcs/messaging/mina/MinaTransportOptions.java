@@ -0,0 +1,330 @@
+package com.ugcs.messaging.mina;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.transport.socket.SocketSessionConfig;
+
+/**
+ * Socket and filter chain settings of the {@link MinaConnector}
+ * and {@link MinaAcceptor}. Options are immutable and created
+ * with the {@link Builder}:
+ * <pre>
+ * MinaTransportOptions options = MinaTransportOptions.builder()
+ *         .sendBufferSize(4 * 1024 * 1024)
+ *         .receiveBufferSize(4 * 1024 * 1024)
+ *         .maxReadBufferSize(1024 * 1024)
+ *         .logging(false)
+ *         .build();
+ * </pre>
+ * Sizes and timeouts set to {@link #DEFAULT} keep the values
+ * of the operating system or Mina.
+ */
+public final class MinaTransportOptions {
+
+	/**
+	 * Value of the option, that is not set explicitly.
+	 */
+	public static final int DEFAULT = -1;
+
+	private static final MinaTransportOptions DEFAULTS = builder().build();
+
+	private final int sendBufferSize;
+	private final int receiveBufferSize;
+	private final int readBufferSize;
+	private final int minReadBufferSize;
+	private final int maxReadBufferSize;
+	private final int idleTimeSeconds;
+	private final int writeTimeoutSeconds;
+	private final boolean tcpNoDelay;
+	private final boolean keepAlive;
+	private final int keepAliveRequestInterval;
+	private final int keepAliveRequestTimeout;
+	private final boolean logging;
+	private final int writeCoalescingBytes;
+	private final Consumer<DefaultIoFilterChainBuilder> filterChainCustomizer;
+
+	private MinaTransportOptions(Builder builder) {
+		this.sendBufferSize = builder.sendBufferSize;
+		this.receiveBufferSize = builder.receiveBufferSize;
+		this.readBufferSize = builder.readBufferSize;
+		this.minReadBufferSize = builder.minReadBufferSize;
+		this.maxReadBufferSize = builder.maxReadBufferSize;
+		this.idleTimeSeconds = builder.idleTimeSeconds;
+		this.writeTimeoutSeconds = builder.writeTimeoutSeconds;
+		this.tcpNoDelay = builder.tcpNoDelay;
+		this.keepAlive = builder.keepAlive;
+		this.keepAliveRequestInterval = builder.keepAliveRequestInterval;
+		this.keepAliveRequestTimeout = builder.keepAliveRequestTimeout;
+		this.logging = builder.logging;
+		this.writeCoalescingBytes = builder.writeCoalescingBytes;
+		this.filterChainCustomizer = builder.filterChainCustomizer;
+	}
+
+	public static MinaTransportOptions defaults() {
+		return DEFAULTS;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public Builder toBuilder() {
+		return new Builder(this);
+	}
+
+	public int getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public int getReadBufferSize() {
+		return readBufferSize;
+	}
+
+	public int getMinReadBufferSize() {
+		return minReadBufferSize;
+	}
+
+	public int getMaxReadBufferSize() {
+		return maxReadBufferSize;
+	}
+
+	public int getIdleTimeSeconds() {
+		return idleTimeSeconds;
+	}
+
+	public int getWriteTimeoutSeconds() {
+		return writeTimeoutSeconds;
+	}
+
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	public int getKeepAliveRequestInterval() {
+		return keepAliveRequestInterval;
+	}
+
+	public int getKeepAliveRequestTimeout() {
+		return keepAliveRequestTimeout;
+	}
+
+	public boolean isLogging() {
+		return logging;
+	}
+
+	public int getWriteCoalescingBytes() {
+		return writeCoalescingBytes;
+	}
+
+	public Consumer<DefaultIoFilterChainBuilder> getFilterChainCustomizer() {
+		return filterChainCustomizer;
+	}
+
+	void configure(SocketSessionConfig config) {
+		config.setReuseAddress(true);
+		config.setKeepAlive(keepAlive);
+		config.setTcpNoDelay(tcpNoDelay);
+		config.setIdleTime(IdleStatus.BOTH_IDLE, idleTimeSeconds);
+		if (sendBufferSize != DEFAULT)
+			config.setSendBufferSize(sendBufferSize);
+		if (receiveBufferSize != DEFAULT)
+			config.setReceiveBufferSize(receiveBufferSize);
+		// max goes first, as min may not exceed it
+		if (maxReadBufferSize != DEFAULT)
+			config.setMaxReadBufferSize(maxReadBufferSize);
+		if (minReadBufferSize != DEFAULT)
+			config.setMinReadBufferSize(minReadBufferSize);
+		if (readBufferSize != DEFAULT)
+			config.setReadBufferSize(readBufferSize);
+		if (writeTimeoutSeconds != DEFAULT)
+			config.setWriteTimeout(writeTimeoutSeconds);
+	}
+
+	void customize(DefaultIoFilterChainBuilder filters) {
+		if (filterChainCustomizer != null)
+			filterChainCustomizer.accept(filters);
+	}
+
+	public static final class Builder {
+
+		private int sendBufferSize = DEFAULT;
+		private int receiveBufferSize = DEFAULT;
+		private int readBufferSize = DEFAULT;
+		private int minReadBufferSize = DEFAULT;
+		private int maxReadBufferSize = DEFAULT;
+		private int idleTimeSeconds = 3;
+		private int writeTimeoutSeconds = DEFAULT;
+		private boolean tcpNoDelay = true;
+		private boolean keepAlive = true;
+		private int keepAliveRequestInterval = 2;
+		private int keepAliveRequestTimeout = 3;
+		private boolean logging = true;
+		private int writeCoalescingBytes = 0;
+		private Consumer<DefaultIoFilterChainBuilder> filterChainCustomizer;
+
+		private Builder() {
+		}
+
+		private Builder(MinaTransportOptions options) {
+			this.sendBufferSize = options.sendBufferSize;
+			this.receiveBufferSize = options.receiveBufferSize;
+			this.readBufferSize = options.readBufferSize;
+			this.minReadBufferSize = options.minReadBufferSize;
+			this.maxReadBufferSize = options.maxReadBufferSize;
+			this.idleTimeSeconds = options.idleTimeSeconds;
+			this.writeTimeoutSeconds = options.writeTimeoutSeconds;
+			this.tcpNoDelay = options.tcpNoDelay;
+			this.keepAlive = options.keepAlive;
+			this.keepAliveRequestInterval = options.keepAliveRequestInterval;
+			this.keepAliveRequestTimeout = options.keepAliveRequestTimeout;
+			this.logging = options.logging;
+			this.writeCoalescingBytes = options.writeCoalescingBytes;
+			this.filterChainCustomizer = options.filterChainCustomizer;
+		}
+
+		private static int checkSize(int value, String name) {
+			if (value < 1 && value != DEFAULT)
+				throw new IllegalArgumentException(name);
+			return value;
+		}
+
+		/**
+		 * Socket send buffer (SO_SNDBUF).
+		 */
+		public Builder sendBufferSize(int sendBufferSize) {
+			this.sendBufferSize = checkSize(sendBufferSize, "sendBufferSize");
+			return this;
+		}
+
+		/**
+		 * Socket receive buffer (SO_RCVBUF).
+		 */
+		public Builder receiveBufferSize(int receiveBufferSize) {
+			this.receiveBufferSize = checkSize(receiveBufferSize, "receiveBufferSize");
+			return this;
+		}
+
+		/**
+		 * Initial size of the buffer a session reads into, Mina adjusts it
+		 * between the min and max sizes by the amount of data read.
+		 */
+		public Builder readBufferSize(int readBufferSize) {
+			this.readBufferSize = checkSize(readBufferSize, "readBufferSize");
+			return this;
+		}
+
+		public Builder minReadBufferSize(int minReadBufferSize) {
+			this.minReadBufferSize = checkSize(minReadBufferSize, "minReadBufferSize");
+			return this;
+		}
+
+		public Builder maxReadBufferSize(int maxReadBufferSize) {
+			this.maxReadBufferSize = checkSize(maxReadBufferSize, "maxReadBufferSize");
+			return this;
+		}
+
+		/**
+		 * Time without reads and writes, after which the session idle
+		 * event is fired; 0 disables idle events.
+		 */
+		public Builder idleTimeSeconds(int idleTimeSeconds) {
+			if (idleTimeSeconds < 0)
+				throw new IllegalArgumentException("idleTimeSeconds");
+
+			this.idleTimeSeconds = idleTimeSeconds;
+			return this;
+		}
+
+		/**
+		 * Time a write may not progress, before the session is closed.
+		 */
+		public Builder writeTimeoutSeconds(int writeTimeoutSeconds) {
+			if (writeTimeoutSeconds < 0 && writeTimeoutSeconds != DEFAULT)
+				throw new IllegalArgumentException("writeTimeoutSeconds");
+
+			this.writeTimeoutSeconds = writeTimeoutSeconds;
+			return this;
+		}
+
+		public Builder tcpNoDelay(boolean tcpNoDelay) {
+			this.tcpNoDelay = tcpNoDelay;
+			return this;
+		}
+
+		/**
+		 * TCP keep-alive (SO_KEEPALIVE).
+		 */
+		public Builder keepAlive(boolean keepAlive) {
+			this.keepAlive = keepAlive;
+			return this;
+		}
+
+		/**
+		 * Keep-alive requests of the acceptor, when it is created
+		 * with a keep-alive message factory.
+		 */
+		public Builder keepAliveRequests(int intervalSeconds, int timeoutSeconds) {
+			if (intervalSeconds < 1)
+				throw new IllegalArgumentException("intervalSeconds");
+			if (timeoutSeconds < 1)
+				throw new IllegalArgumentException("timeoutSeconds");
+
+			this.keepAliveRequestInterval = intervalSeconds;
+			this.keepAliveRequestTimeout = timeoutSeconds;
+			return this;
+		}
+
+		/**
+		 * Adds the logging filter to the chain, on by default.
+		 */
+		public Builder logging(boolean logging) {
+			this.logging = logging;
+			return this;
+		}
+
+		/**
+		 * Max size of a merged write, 0 to disable coalescing
+		 * (see {@link MinaWriteCoalescer}).
+		 */
+		public Builder writeCoalescing(int maxBytes) {
+			if (maxBytes < 0)
+				throw new IllegalArgumentException("maxBytes");
+
+			this.writeCoalescingBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * Called with the built filter chain, to add, replace or remove
+		 * filters. Chain contains filters named "sslFilter" (if SSL is on),
+		 * "codec", "threadPool", "logger" (if logging is on) and
+		 * "keepAlive" (acceptor with keep-alive requests).
+		 */
+		public Builder filterChain(Consumer<DefaultIoFilterChainBuilder> filterChainCustomizer) {
+			Objects.requireNonNull(filterChainCustomizer);
+
+			this.filterChainCustomizer = filterChainCustomizer;
+			return this;
+		}
+
+		public MinaTransportOptions build() {
+			if (minReadBufferSize != DEFAULT
+					&& maxReadBufferSize != DEFAULT
+					&& minReadBufferSize > maxReadBufferSize)
+				throw new IllegalArgumentException("minReadBufferSize > maxReadBufferSize");
+
+			return new MinaTransportOptions(this);
+		}
+	}
+}
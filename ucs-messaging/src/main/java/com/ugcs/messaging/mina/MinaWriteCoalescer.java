@@ -0,0 +1,194 @@
+package com.ugcs.messaging.mina;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteRequestQueue;
+
+/**
+ * Session structures factory that coalesces consecutive frames
+ * of a session into a single write.
+ * <p>
+ * Frames are merged when the I/O processor takes them from the session
+ * write queue: all the encoded frames queued since the last flush cycle
+ * (up to the byte budget) are copied into one buffer and written at once.
+ * Frames are never delayed to wait for the next ones, so an idle session
+ * writes every frame as soon as it is sent, while pipelined or fanned out
+ * frames share syscalls and the lower filters processing.
+ * <p>
+ * Every frame keeps its own write future and message sent event, those
+ * are completed in order, when the merged write completes or fails.
+ */
+public class MinaWriteCoalescer extends DefaultIoSessionDataStructureFactory {
+
+	private final int maxBytes;
+
+	/**
+	 * @param maxBytes max size of a merged write, larger frames
+	 *                 are written as is
+	 */
+	public MinaWriteCoalescer(int maxBytes) {
+		if (maxBytes < 1)
+			throw new IllegalArgumentException("maxBytes");
+
+		this.maxBytes = maxBytes;
+	}
+
+	public int getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public WriteRequestQueue getWriteRequestQueue(IoSession session) throws Exception {
+		return new CoalescingWriteRequestQueue(super.getWriteRequestQueue(session), maxBytes);
+	}
+
+	private static boolean isFrame(WriteRequest request) {
+		return request.getMessage() instanceof IoBuffer;
+	}
+
+	/**
+	 * Write queue of a session, polled by the single I/O processor thread.
+	 */
+	private static final class CoalescingWriteRequestQueue implements WriteRequestQueue {
+
+		private final WriteRequestQueue queue;
+		private final int maxBytes;
+
+		// request taken from the queue, that did not fit
+		// the last merged write; goes first on the next poll
+		private volatile WriteRequest next;
+
+		CoalescingWriteRequestQueue(WriteRequestQueue queue, int maxBytes) {
+			this.queue = queue;
+			this.maxBytes = maxBytes;
+		}
+
+		private WriteRequest pollNext(IoSession session) {
+			WriteRequest request = next;
+			if (request != null) {
+				next = null;
+				return request;
+			}
+			return queue.poll(session);
+		}
+
+		@Override
+		public WriteRequest poll(IoSession session) {
+			WriteRequest first = pollNext(session);
+			if (first == null || !isFrame(first))
+				return first;
+			int size = ((IoBuffer)first.getMessage()).remaining();
+			if (size >= maxBytes)
+				return first;
+
+			List<WriteRequest> requests = null;
+			WriteRequest request;
+			while ((request = pollNext(session)) != null) {
+				if (!isFrame(request)) {
+					next = request;
+					break;
+				}
+				int frameSize = ((IoBuffer)request.getMessage()).remaining();
+				if (size + frameSize > maxBytes) {
+					next = request;
+					break;
+				}
+				if (requests == null) {
+					requests = new ArrayList<>();
+					requests.add(first);
+				}
+				requests.add(request);
+				size += frameSize;
+			}
+			if (requests == null)
+				return first;
+
+			IoBuffer buffer = IoBuffer.allocate(size);
+			for (WriteRequest frame : requests) {
+				// source buffers are consumed as if they were written
+				buffer.put((IoBuffer)frame.getMessage());
+			}
+			buffer.flip();
+			return new CoalescedWriteRequest(session, buffer, requests);
+		}
+
+		@Override
+		public void offer(IoSession session, WriteRequest writeRequest) {
+			queue.offer(session, writeRequest);
+		}
+
+		@Override
+		public boolean isEmpty(IoSession session) {
+			return next == null && queue.isEmpty(session);
+		}
+
+		@Override
+		public void clear(IoSession session) {
+			next = null;
+			queue.clear(session);
+		}
+
+		@Override
+		public void dispose(IoSession session) {
+			next = null;
+			queue.dispose(session);
+		}
+
+		@Override
+		public int size() {
+			return queue.size() + (next != null ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Merged write of the frames. Marked as encoded, so the filter chain
+	 * does not propagate its message sent event: the event is fired for
+	 * every merged frame instead.
+	 */
+	private static final class CoalescedWriteRequest extends DefaultWriteRequest
+			implements IoFutureListener<WriteFuture> {
+
+		private final IoSession session;
+		private final List<WriteRequest> requests;
+
+		CoalescedWriteRequest(IoSession session, IoBuffer buffer, List<WriteRequest> requests) {
+			super(buffer, new DefaultWriteFuture(session));
+
+			this.session = session;
+			this.requests = requests;
+			getFuture().addListener(this);
+		}
+
+		@Override
+		public boolean isEncoded() {
+			return true;
+		}
+
+		@Override
+		public void operationComplete(WriteFuture future) {
+			Throwable error = future.getException();
+			if (error == null && !future.isWritten())
+				return;
+			IoFilterChain filterChain = session.getFilterChain();
+			for (WriteRequest request : requests) {
+				if (error != null)
+					request.getFuture().setException(error);
+				else
+					filterChain.fireMessageSent(request);
+				// frame content has been copied, released
+				// the same way the written buffers are
+				((IoBuffer)request.getMessage()).free();
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.api.Acceptor;
+import com.ugcs.messaging.api.CodecFactory;
+
+/**
+ * Acceptor of the plain NIO transport (see {@link NioConnector}).
+ * Incoming connections are accepted by one of the event loops
+ * and assigned to the loops of the group in turn.
+ * <p>
+ * Can listen on a Unix domain socket (see {@link UnixDomainSockets}),
+ * for the clients of the same host. Socket file is removed when
+ * the acceptor stops, but a file left by a crashed process should be
+ * removed before the start, otherwise the address is in use.
+ * <p>
+ * Unlike the {@code MinaAcceptor}, does not support SSL and keep-alive
+ * filters.
+ */
+public class NioAcceptor extends NioService implements Acceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(NioAcceptor.class);
+
+	private static final int DEFAULT_MAX_TASK_THREADS = 32;
+
+	// bound channels and their loops
+	private final Map<ServerSocketChannel, NioEventLoop> serverChannels = new ConcurrentHashMap<>();
+
+	public NioAcceptor(CodecFactory codecFactory) {
+		this(codecFactory, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_TASK_THREADS);
+	}
+
+	public NioAcceptor(CodecFactory codecFactory, int numLoops, int maxTaskThreads) {
+		this(codecFactory, numLoops, maxTaskThreads, NioTaskMappers.orderedByMessageTypes());
+	}
+
+	public NioAcceptor(CodecFactory codecFactory, int numLoops, int maxTaskThreads, TaskMapper taskMapper) {
+		this(codecFactory, new NioEventLoopGroup(numLoops, "NioAcceptor"),
+				NioConnector.newExecutor(maxTaskThreads, taskMapper, "NioAcceptorPool"),
+				true, true);
+		log.info("Initialized acceptor {event loops: {}, max task threads: {}}",
+				numLoops,
+				maxTaskThreads);
+	}
+
+	public NioAcceptor(CodecFactory codecFactory, int numLoops, ExecutorService executor) {
+		this(codecFactory, new NioEventLoopGroup(numLoops, "NioAcceptor"), executor, true, false);
+		log.info("Initialized acceptor {event loops: {}, executor: {}}",
+				numLoops,
+				executor.getClass().getSimpleName());
+	}
+
+	public NioAcceptor(CodecFactory codecFactory, NioEventLoopGroup loops, ExecutorService executor) {
+		this(codecFactory, loops, executor, false, false);
+	}
+
+	private NioAcceptor(CodecFactory codecFactory, NioEventLoopGroup loops, ExecutorService executor,
+			boolean ownsLoops, boolean ownsExecutor) {
+		super(codecFactory, loops, executor, ownsLoops, ownsExecutor);
+	}
+
+	@Override
+	public void start(SocketAddress socketAddress) throws IOException {
+		ServerSocketChannel serverChannel = UnixDomainSockets.openServerChannel(socketAddress);
+		NioEventLoop loop = loops.next();
+		try {
+			// port reuse when socket is in TIME_WAIT state
+			if (!UnixDomainSockets.isUnixDomain(socketAddress))
+				serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			serverChannel.bind(socketAddress);
+			serverChannel.configureBlocking(false);
+
+			CompletableFuture<Void> registered = new CompletableFuture<>();
+			loop.execute(() -> {
+				try {
+					loop.register(serverChannel, SelectionKey.OP_ACCEPT, key -> accept(serverChannel));
+					registered.complete(null);
+				} catch (Throwable e) {
+					registered.completeExceptionally(e);
+				}
+			});
+			registered.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			serverChannel.close();
+			throw new IOException("Acceptor start interrupted", e);
+		} catch (ExecutionException e) {
+			serverChannel.close();
+			throw new IOException("Acceptor start error", e.getCause());
+		} catch (IOException | RuntimeException e) {
+			serverChannel.close();
+			throw e;
+		}
+		serverChannels.put(serverChannel, loop);
+	}
+
+	private void accept(ServerSocketChannel serverChannel) {
+		while (true) {
+			SocketChannel channel;
+			try {
+				channel = serverChannel.accept();
+			} catch (IOException e) {
+				log.error("Accept error", e);
+				return;
+			}
+			if (channel == null)
+				return;
+			NioEventLoop loop = loops.next();
+			try {
+				loop.execute(() -> {
+					try {
+						openSession(channel, loop, null);
+					} catch (Throwable e) {
+						log.error("Session open error", e);
+						closeQuietly(channel);
+					}
+				});
+			} catch (RuntimeException e) {
+				closeQuietly(channel);
+			}
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Stops accepting new connections, established sessions are kept.
+	 */
+	@Override
+	public void stop() throws IOException {
+		for (ServerSocketChannel serverChannel : serverChannels.keySet()) {
+			NioEventLoop loop = serverChannels.remove(serverChannel);
+			SocketAddress localAddress = serverChannel.getLocalAddress();
+			serverChannel.close();
+			// socket file is not removed with the channel
+			UnixDomainSockets.unlink(localAddress);
+			// socket is released when the loop deregisters the channel
+			if (loop != null)
+				loop.wakeup();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		stop();
+		dispose();
+	}
+}
@@ -0,0 +1,233 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.GroupingThreadPool;
+import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.ConnectListener;
+import com.ugcs.messaging.api.Connector;
+import com.ugcs.messaging.api.MessageSession;
+import com.ugcs.messaging.api.MessageSessionErrorEvent;
+import com.ugcs.messaging.api.MessageSessionEvent;
+
+/**
+ * Connector of the plain NIO transport: sessions are served by the selector
+ * loops of the {@link NioEventLoopGroup}, messages are encoded and decoded
+ * by the codec right on the channel buffers, without a filter chain.
+ * Received messages are passed to the listeners through the executor.
+ * <p>
+ * Besides TCP, connects to the Unix domain socket addresses made by
+ * {@link UnixDomainSockets#address(java.nio.file.Path)}, when running
+ * on Java 16 or newer.
+ * <p>
+ * Unlike the {@code MinaConnector}, does not support SSL.
+ */
+public class NioConnector extends NioService implements Connector {
+
+	private static final Logger log = LoggerFactory.getLogger(NioConnector.class);
+
+	private static final int DEFAULT_MAX_TASK_THREADS = 16;
+
+	private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 60_000L;
+
+	private volatile long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+	public NioConnector(CodecFactory codecFactory) {
+		this(codecFactory, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_TASK_THREADS);
+	}
+
+	public NioConnector(CodecFactory codecFactory, int numLoops, int maxTaskThreads) {
+		this(codecFactory, numLoops, maxTaskThreads, NioTaskMappers.orderedByMessageTypes());
+	}
+
+	public NioConnector(CodecFactory codecFactory, int numLoops, int maxTaskThreads, TaskMapper taskMapper) {
+		this(codecFactory, new NioEventLoopGroup(numLoops, "NioConnector"),
+				newExecutor(maxTaskThreads, taskMapper, "NioConnectorPool"),
+				true, true);
+		log.info("Initialized connector {event loops: {}, max task threads: {}}",
+				numLoops,
+				maxTaskThreads);
+	}
+
+	public NioConnector(CodecFactory codecFactory, int numLoops, ExecutorService executor) {
+		this(codecFactory, new NioEventLoopGroup(numLoops, "NioConnector"), executor, true, false);
+		log.info("Initialized connector {event loops: {}, executor: {}}",
+				numLoops,
+				executor.getClass().getSimpleName());
+	}
+
+	public NioConnector(CodecFactory codecFactory, NioEventLoopGroup loops, ExecutorService executor) {
+		this(codecFactory, loops, executor, false, false);
+	}
+
+	private NioConnector(CodecFactory codecFactory, NioEventLoopGroup loops, ExecutorService executor,
+			boolean ownsLoops, boolean ownsExecutor) {
+		super(codecFactory, loops, executor, ownsLoops, ownsExecutor);
+	}
+
+	public long getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	/**
+	 * Connections not established in time fail
+	 * with the {@link java.util.concurrent.TimeoutException}.
+	 */
+	public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+		if (connectTimeoutMillis <= 0L)
+			throw new IllegalArgumentException("connectTimeoutMillis");
+
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	static ExecutorService newExecutor(int maxThreads, TaskMapper taskMapper, String poolName) {
+		if (taskMapper == null)
+			throw new IllegalArgumentException("taskMapper");
+
+		// tasks are ordered within groups
+		maxThreads = Math.max(1, maxThreads);
+		int coreThreads = Math.max(1, maxThreads / 2);
+		return new GroupingThreadPool(coreThreads, maxThreads, taskMapper, poolName);
+	}
+
+	@Override
+	public MessageSession connect(SocketAddress address) throws IOException {
+		Objects.requireNonNull(address);
+
+		CompletableFuture<NioMessageSession> future = connectAsync(address);
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IOException("Connection error", e.getCause());
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void connectNonBlocking(SocketAddress address, ConnectListener listener) {
+		Objects.requireNonNull(address);
+
+		CompletableFuture<NioMessageSession> future = connectAsync(address);
+		if (listener != null) {
+			future.whenComplete((session, error) -> {
+				if (error != null) {
+					listener.connectError(new MessageSessionErrorEvent(this, null, error));
+					return;
+				}
+				listener.connected(new MessageSessionEvent(this, session));
+			});
+		}
+	}
+
+	private CompletableFuture<NioMessageSession> connectAsync(SocketAddress address) {
+		CompletableFuture<NioMessageSession> future = new CompletableFuture<>();
+		NioEventLoop loop = loops.next();
+		SocketChannel channel = null;
+		try {
+			channel = UnixDomainSockets.openChannel(address);
+			channel.configureBlocking(false);
+			SocketChannel connectingChannel = channel;
+			future.orTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+			future.whenComplete((session, error) -> {
+				// pending connect is dropped on timeout
+				if (error != null)
+					closeInLoop(connectingChannel, loop);
+			});
+			loop.execute(() -> {
+				try {
+					if (connectingChannel.connect(address))
+						complete(future, openSession(connectingChannel, loop, null));
+					else
+						loop.register(connectingChannel, SelectionKey.OP_CONNECT,
+								new PendingConnect(connectingChannel, loop, future));
+				} catch (Throwable e) {
+					closeQuietly(connectingChannel);
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (Throwable e) {
+			if (channel != null)
+				closeQuietly(channel);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	// session opened after the timeout is closed
+	private static void complete(CompletableFuture<NioMessageSession> future, NioMessageSession session) {
+		if (!future.complete(session))
+			session.closeNow();
+	}
+
+	private static void closeInLoop(SocketChannel channel, NioEventLoop loop) {
+		try {
+			loop.execute(() -> closeQuietly(channel));
+		} catch (RejectedExecutionException e) {
+			// loop is closed along with its channels
+			closeQuietly(channel);
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	@Override
+	public void close() {
+		dispose();
+	}
+
+	/**
+	 * Connection in progress, completes on the event loop.
+	 */
+	private final class PendingConnect implements NioEventLoop.Selectable {
+
+		private final SocketChannel channel;
+		private final NioEventLoop loop;
+		private final CompletableFuture<NioMessageSession> future;
+
+		PendingConnect(SocketChannel channel, NioEventLoop loop, CompletableFuture<NioMessageSession> future) {
+			this.channel = channel;
+			this.loop = loop;
+			this.future = future;
+		}
+
+		@Override
+		public void selected(SelectionKey key) {
+			try {
+				if (channel.finishConnect())
+					complete(future, openSession(channel, loop, key));
+			} catch (Throwable e) {
+				key.cancel();
+				closeQuietly(channel);
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.ugcs.messaging.nio;
+
+/**
+ * Session event, passed from the event loop to the executor
+ * of the {@link NioConnector} or {@link NioAcceptor}. Events are mapped
+ * to the task groups with the {@link NioTaskMappers}.
+ */
+public final class NioEvent implements Runnable {
+
+	public enum Type {
+		MESSAGE_RECEIVED,
+		SESSION_IDLE,
+		SESSION_CLOSED,
+		EXCEPTION_CAUGHT
+	}
+
+	private final Type type;
+	private final NioMessageSession session;
+	private final Object message;
+	private final Throwable cause;
+
+	NioEvent(Type type, NioMessageSession session, Object message, Throwable cause) {
+		this.type = type;
+		this.session = session;
+		this.message = message;
+		this.cause = cause;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public NioMessageSession getSession() {
+		return session;
+	}
+
+	/**
+	 * @return received message, null for other events
+	 */
+	public Object getMessage() {
+		return message;
+	}
+
+	public Throwable getCause() {
+		return cause;
+	}
+
+	@Override
+	public void run() {
+		session.service.handle(this);
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + session;
+	}
+}
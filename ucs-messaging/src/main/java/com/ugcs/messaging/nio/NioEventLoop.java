@@ -0,0 +1,193 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector loop, that serves I/O of the registered channels on a single
+ * thread. Other threads pass their work to the loop with
+ * {@link #execute(Runnable)}.
+ */
+final class NioEventLoop implements Runnable {
+
+	private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+	// period of the idle sessions check
+	private static final long IDLE_CHECK_MILLIS = 1000L;
+
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	// max number of buffers in a gathering write
+	private static final int MAX_GATHERED_BUFFERS = 64;
+
+	/**
+	 * Attachment of the selection keys.
+	 */
+	interface Selectable {
+
+		void selected(SelectionKey key);
+	}
+
+	private final Selector selector;
+	private final Thread thread;
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean wakeupPending = new AtomicBoolean();
+	private volatile boolean closed = false;
+
+	/* loop confined */
+
+	// read buffer shared by all sessions of the loop:
+	// decoders consume the whole buffer on every read
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+	private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+	private final List<NioMessageSession> sessions = new ArrayList<>();
+	private long lastIdleCheck = System.currentTimeMillis();
+
+	NioEventLoop(String name) {
+		try {
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open a selector", e);
+		}
+		this.thread = new Thread(this, name);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	boolean inLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	void execute(Runnable task) {
+		if (closed)
+			throw new RejectedExecutionException("Event loop closed");
+
+		tasks.offer(task);
+		if (!inLoop() && wakeupPending.compareAndSet(false, true))
+			selector.wakeup();
+	}
+
+	SelectionKey register(SelectableChannel channel, int ops, Selectable attachment) throws ClosedChannelException {
+		return channel.register(selector, ops, attachment);
+	}
+
+	void wakeup() {
+		if (!inLoop())
+			selector.wakeup();
+	}
+
+	ByteBuffer readBuffer() {
+		return readBuffer;
+	}
+
+	ByteBuffer[] writeBuffers() {
+		return writeBuffers;
+	}
+
+	void sessionOpened(NioMessageSession session) {
+		sessions.add(session);
+	}
+
+	void sessionClosed(NioMessageSession session) {
+		sessions.remove(session);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!closed) {
+				try {
+					if (tasks.isEmpty())
+						selector.select(IDLE_CHECK_MILLIS);
+					else
+						selector.selectNow();
+					wakeupPending.set(false);
+
+					processSelected();
+					runTasks();
+					checkIdle();
+				} catch (Throwable e) {
+					log.error("Event loop error", e);
+				}
+			}
+		} finally {
+			shutdown();
+		}
+	}
+
+	private void processSelected() {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			try {
+				((Selectable)key.attachment()).selected(key);
+			} catch (CancelledKeyException e) {
+				// channel closed concurrently
+			}
+		}
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				log.error("Event loop task error", e);
+			}
+		}
+	}
+
+	private void checkIdle() {
+		long now = System.currentTimeMillis();
+		if (now - lastIdleCheck < IDLE_CHECK_MILLIS)
+			return;
+		lastIdleCheck = now;
+		for (int i = 0; i < sessions.size(); i++)
+			sessions.get(i).checkIdle(now);
+	}
+
+	private void shutdown() {
+		// tasks submitted before the close, e.g. session close requests
+		runTasks();
+		for (NioMessageSession session : new ArrayList<>(sessions))
+			session.closeNow();
+		try {
+			selector.close();
+		} catch (IOException e) {
+			log.warn("Selector close error", e);
+		}
+	}
+
+	void close() {
+		closed = true;
+		selector.wakeup();
+		if (!inLoop()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.ugcs.messaging.nio;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of the selector loops, that serve the sessions of the
+ * {@link NioConnector} or {@link NioAcceptor}. Every session is bound
+ * to a single loop, loops are assigned to new sessions in turn.
+ */
+public class NioEventLoopGroup {
+
+	private final NioEventLoop[] loops;
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Creates a group of one loop per available processor.
+	 */
+	public NioEventLoopGroup(String name) {
+		this(Runtime.getRuntime().availableProcessors(), name);
+	}
+
+	public NioEventLoopGroup(int numLoops, String name) {
+		if (numLoops < 1)
+			throw new IllegalArgumentException("numLoops");
+		if (name == null)
+			throw new IllegalArgumentException("name");
+
+		loops = new NioEventLoop[numLoops];
+		for (int i = 0; i < numLoops; i++)
+			loops[i] = new NioEventLoop(name + "-" + i);
+		for (NioEventLoop loop : loops)
+			loop.start();
+	}
+
+	public int size() {
+		return loops.length;
+	}
+
+	NioEventLoop next() {
+		return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+	}
+
+	/**
+	 * Stops the loops, closing all of their sessions.
+	 */
+	public void close() {
+		for (NioEventLoop loop : loops)
+			loop.close();
+	}
+}
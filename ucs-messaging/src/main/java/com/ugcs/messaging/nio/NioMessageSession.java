@@ -0,0 +1,461 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.messaging.EncodedFrame;
+import com.ugcs.messaging.MessageSessions;
+import com.ugcs.messaging.SessionAttributes;
+import com.ugcs.messaging.SessionCloseListeners;
+import com.ugcs.messaging.SessionListeners;
+import com.ugcs.messaging.api.CloseListener;
+import com.ugcs.messaging.api.MessageDecoder;
+import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.MessageListener;
+import com.ugcs.messaging.api.MessageSelector;
+import com.ugcs.messaging.api.MessageSession;
+
+/**
+ * Session of a socket channel, served by a single event loop.
+ * <p>
+ * Messages are encoded by the sending thread and written right away,
+ * if the session has no pending writes; otherwise the frame is queued
+ * and written by the event loop, along with the other queued frames.
+ * Received data is decoded on the event loop, messages are passed
+ * to the listeners through the executor of the connector or acceptor.
+ */
+public class NioMessageSession implements MessageSession, NioEventLoop.Selectable {
+
+	private static final Logger log = LoggerFactory.getLogger(NioMessageSession.class);
+
+	// max number of reads per a single read event,
+	// to let the other sessions of the loop proceed
+	private static final int MAX_READS_PER_EVENT = 16;
+
+	// max number of bytes passed to a single write: heap buffers
+	// are copied to the direct ones as a whole on every write
+	private static final int MAX_WRITE_BYTES = 256 * 1024;
+
+	private static final AtomicLong nextId = new AtomicLong();
+
+	private final long id = nextId.incrementAndGet();
+
+	final NioService service;
+	private final SocketChannel channel;
+	private final NioEventLoop loop;
+	private final MessageDecoder decoder;
+	private final MessageEncoder encoder;
+	private final BufferPool pool = BufferPool.getDefault();
+
+	private final SocketAddress localAddress;
+	private final SocketAddress remoteAddress;
+
+	private final SessionListeners listeners = new SessionListeners();
+	private final SessionAttributes attributes = new SessionAttributes();
+
+	// loop confined
+	private SelectionKey key;
+
+	/* writes */
+
+	private final Object writeLock = new Object();
+	// guarded by the write lock
+	private final ArrayDeque<NioWriteRequest> writeQueue = new ArrayDeque<>();
+	private boolean flushScheduled = false;
+
+	/* close */
+
+	private volatile boolean closing = false;
+	private volatile boolean closed = false;
+	private final SessionCloseListeners closeListeners = new SessionCloseListeners();
+
+	/* idle */
+
+	private final long idleMillis;
+	private volatile long lastIoTime = System.currentTimeMillis();
+	// loop confined
+	private long lastIdleTime;
+
+	NioMessageSession(NioService service, SocketChannel channel, NioEventLoop loop,
+			MessageDecoder decoder, MessageEncoder encoder, long idleMillis) throws IOException {
+		this.service = service;
+		this.channel = channel;
+		this.loop = loop;
+		this.decoder = decoder;
+		this.encoder = encoder;
+		this.idleMillis = idleMillis;
+		this.localAddress = channel.getLocalAddress();
+		this.remoteAddress = channel.getRemoteAddress();
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public SocketAddress getLocalAddress() {
+		return localAddress;
+	}
+
+	@Override
+	public SocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	@Override
+	public void addListener(MessageListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void addListener(MessageListener listener, MessageSelector selector) {
+		listeners.add(listener, selector);
+	}
+
+	@Override
+	public void removeListener(MessageListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public <T> void setAttribute(Object key, T value) {
+		attributes.set(key, value);
+	}
+
+	<T> T setAttributeIfAbsent(Object key, T value) {
+		return attributes.setIfAbsent(key, value);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key) {
+		return attributes.get(key);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key, T defaultValue) {
+		return attributes.get(key, defaultValue);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key, Supplier<T> supplier) {
+		return attributes.get(key, supplier);
+	}
+
+	@Override
+	public boolean isOpened() {
+		return !closing;
+	}
+
+	/* close */
+
+	@Override
+	public void close() throws IOException {
+		closeNonBlocking(null);
+		if (loop.inLoop()) {
+			// can not wait for the loop on the loop itself
+			return;
+		}
+		closeListeners.awaitUninterruptibly();
+	}
+
+	/**
+	 * Waits for the session to close, returns false on timeout
+	 * or if called on the event loop of the session.
+	 */
+	boolean awaitClosed(long timeoutMillis) throws InterruptedException {
+		if (loop.inLoop())
+			return closeListeners.isClosed();
+		return closeListeners.await(timeoutMillis);
+	}
+
+	@Override
+	public void closeNonBlocking(CloseListener listener) {
+		if (listener != null)
+			closeListeners.add(this, listener);
+		closing = true;
+		runInLoop(this::closeOnFlush);
+	}
+
+	/**
+	 * Closes the session on its loop without flushing the pending writes.
+	 */
+	void closeNowNonBlocking() {
+		runInLoop(this::closeNow);
+	}
+
+	private void runInLoop(Runnable task) {
+		try {
+			loop.execute(task);
+		} catch (RejectedExecutionException e) {
+			// loop is closed along with its sessions
+		}
+	}
+
+	private void closeOnFlush() {
+		synchronized (writeLock) {
+			// otherwise closed by the flush, when the queue is drained
+			if (writeQueue.isEmpty())
+				closeNow();
+		}
+	}
+
+	/**
+	 * Closes the channel, should be called on the event loop.
+	 */
+	void closeNow() {
+		if (closed)
+			return;
+		closing = true;
+		closed = true;
+
+		if (key != null)
+			key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			log.debug("Channel close error", e);
+		}
+		synchronized (writeLock) {
+			NioWriteRequest request;
+			while ((request = writeQueue.poll()) != null) {
+				request.fail(new IOException("Session closed"));
+				release(request);
+			}
+		}
+		try {
+			decoder.close();
+			encoder.close();
+		} catch (Exception e) {
+			log.warn("Codec close error", e);
+		}
+		loop.sessionClosed(this);
+		service.sessionClosed(this);
+
+		closeListeners.closed(this);
+	}
+
+	/* event loop */
+
+	void opened(SelectionKey key) {
+		this.key = key;
+		loop.sessionOpened(this);
+	}
+
+	@Override
+	public void selected(SelectionKey key) {
+		int readyOps = key.readyOps();
+		if ((readyOps & SelectionKey.OP_READ) != 0)
+			read();
+		if (key.isValid() && (readyOps & SelectionKey.OP_WRITE) != 0)
+			flush();
+	}
+
+	private void read() {
+		ByteBuffer buffer = loop.readBuffer();
+		for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+			buffer.clear();
+			int n;
+			try {
+				n = channel.read(buffer);
+			} catch (IOException e) {
+				exceptionCaught(e);
+				return;
+			}
+			if (n < 0) {
+				closeNow();
+				return;
+			}
+			if (n == 0)
+				return;
+			lastIoTime = System.currentTimeMillis();
+
+			buffer.flip();
+			List<Object> messages;
+			try {
+				messages = decoder.decode(buffer);
+			} catch (IOException e) {
+				log.error("Corrupted data received", e);
+				exceptionCaught(e);
+				return;
+			} catch (RuntimeException e) {
+				log.error("Message decoder error", e);
+				exceptionCaught(e);
+				return;
+			}
+			for (int j = 0; j < messages.size(); j++)
+				service.dispatch(new NioEvent(NioEvent.Type.MESSAGE_RECEIVED, this, messages.get(j), null));
+			// socket is drained
+			if (n < buffer.capacity())
+				return;
+		}
+	}
+
+	private void exceptionCaught(Throwable cause) {
+		service.dispatch(new NioEvent(NioEvent.Type.EXCEPTION_CAUGHT, this, null, cause));
+		closeNow();
+	}
+
+	void checkIdle(long now) {
+		if (idleMillis <= 0 || closing)
+			return;
+		if (now - Math.max(lastIoTime, lastIdleTime) >= idleMillis) {
+			lastIdleTime = now;
+			service.dispatch(new NioEvent(NioEvent.Type.SESSION_IDLE, this, null, null));
+		}
+	}
+
+	/* writes */
+
+	@Override
+	public Future<Void> send(Object message) {
+		Objects.requireNonNull(message);
+
+		NioWriteRequest request = new NioWriteRequest();
+		synchronized (writeLock) {
+			if (closing) {
+				request.fail(new IOException("Session closed"));
+				return request;
+			}
+			try {
+				EncodedFrame frame = EncodedFrame.encode(encoder, pool, message);
+				if (frame != null) {
+					request.buffer = frame.toBuffer();
+					request.pooled = frame.pooled ? frame.array : null;
+				}
+			} catch (Exception e) {
+				log.error("Message encoder error", e);
+				request.fail(e);
+				return request;
+			}
+			if (request.buffer == null) {
+				request.complete();
+				return request;
+			}
+			if (writeQueue.isEmpty()) {
+				// nothing is pending, write through
+				try {
+					write(request.buffer);
+				} catch (IOException e) {
+					request.fail(e);
+					release(request);
+					runInLoop(() -> exceptionCaught(e));
+					return request;
+				}
+				if (!request.buffer.hasRemaining()) {
+					lastIoTime = System.currentTimeMillis();
+					written(request);
+					return request;
+				}
+			}
+			writeQueue.add(request);
+			if (!flushScheduled) {
+				flushScheduled = true;
+				runInLoop(this::flush);
+			}
+		}
+		return request;
+	}
+
+	private void written(NioWriteRequest request) {
+		request.complete();
+		release(request);
+	}
+
+	private void release(NioWriteRequest request) {
+		if (request.pooled != null)
+			pool.release(request.pooled);
+		request.pooled = null;
+		request.buffer = null;
+	}
+
+	private int write(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() <= MAX_WRITE_BYTES)
+			return channel.write(buffer);
+		int limit = buffer.limit();
+		buffer.limit(buffer.position() + MAX_WRITE_BYTES);
+		try {
+			return channel.write(buffer);
+		} finally {
+			buffer.limit(limit);
+		}
+	}
+
+	private void flush() {
+		synchronized (writeLock) {
+			flushScheduled = false;
+			if (closed)
+				return;
+
+			ByteBuffer[] buffers = loop.writeBuffers();
+			try {
+				while (!writeQueue.isEmpty()) {
+					// gathering write of the queued frames
+					int n = 0;
+					long bytes = 0L;
+					Iterator<NioWriteRequest> requests = writeQueue.iterator();
+					while (n < buffers.length && requests.hasNext()) {
+						ByteBuffer buffer = requests.next().buffer;
+						if (n > 0 && bytes + buffer.remaining() > MAX_WRITE_BYTES)
+							break;
+						buffers[n++] = buffer;
+						bytes += buffer.remaining();
+					}
+					long written = n == 1
+							? write(buffers[0])
+							: channel.write(buffers, 0, n);
+					Arrays.fill(buffers, 0, n, null);
+					if (written > 0)
+						lastIoTime = System.currentTimeMillis();
+
+					NioWriteRequest request;
+					while ((request = writeQueue.peek()) != null && !request.buffer.hasRemaining())
+						written(writeQueue.poll());
+					// socket buffer is full
+					if (request != null && written == 0)
+						break;
+				}
+			} catch (IOException e) {
+				exceptionCaught(e);
+				return;
+			}
+			boolean pending = !writeQueue.isEmpty();
+			int ops = key.interestOps();
+			key.interestOps(pending
+					? ops | SelectionKey.OP_WRITE
+					: ops & ~SelectionKey.OP_WRITE);
+			if (!pending && closing)
+				closeNow();
+		}
+	}
+
+	/* listeners */
+
+	void messageReceived(Object message) {
+		listeners.messageReceived(this, message);
+	}
+
+	void cancelAllListeners() {
+		listeners.cancelAll();
+	}
+
+	@Override
+	public String toString() {
+		return MessageSessions.toString(id, localAddress, remoteAddress);
+	}
+}
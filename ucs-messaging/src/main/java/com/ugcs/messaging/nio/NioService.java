@@ -0,0 +1,197 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.MessageSessionErrorEvent;
+import com.ugcs.messaging.api.MessageSessionEvent;
+import com.ugcs.messaging.api.MessageSessionListener;
+
+/**
+ * Sessions of the connector or acceptor: session setup on the event loop
+ * and dispatch of the session events to the executor.
+ * <p>
+ * Event loops and executor supplied by the caller stay owned by the caller
+ * and are not stopped on dispose, so they can be shared by several services.
+ */
+abstract class NioService {
+
+	private static final Logger log = LoggerFactory.getLogger(NioService.class);
+
+	private static final int DEFAULT_SESSION_IDLE_SECONDS = 3;
+
+	// max time to flush the pending writes on dispose
+	static final long DISPOSE_FLUSH_MILLIS = 3_000L;
+
+	private final CodecFactory codecFactory;
+	final NioEventLoopGroup loops;
+	final ExecutorService executor;
+	private final boolean ownsLoops;
+	private final boolean ownsExecutor;
+
+	private final List<MessageSessionListener> sessionListeners = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<Long, NioMessageSession> sessions = new ConcurrentHashMap<>();
+
+	NioService(CodecFactory codecFactory, NioEventLoopGroup loops, ExecutorService executor,
+			boolean ownsLoops, boolean ownsExecutor) {
+		Objects.requireNonNull(codecFactory);
+		Objects.requireNonNull(loops);
+		Objects.requireNonNull(executor);
+
+		this.codecFactory = codecFactory;
+		this.loops = loops;
+		this.executor = executor;
+		this.ownsLoops = ownsLoops;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	public void addSessionListener(MessageSessionListener sessionListener) {
+		Objects.requireNonNull(sessionListener);
+
+		sessionListeners.add(sessionListener);
+	}
+
+	public void removeSessionListener(MessageSessionListener sessionListener) {
+		Objects.requireNonNull(sessionListener);
+
+		sessionListeners.remove(sessionListener);
+	}
+
+	/**
+	 * Creates a session of the connected channel, should be called
+	 * on the event loop. Key is the selection key of the channel,
+	 * if it is already registered with the loop.
+	 */
+	NioMessageSession openSession(SocketChannel channel, NioEventLoop loop, SelectionKey key) throws IOException {
+		channel.configureBlocking(false);
+		// Unix domain sockets have no TCP options
+		if (channel.getLocalAddress() instanceof InetSocketAddress) {
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+			// no Nagle's algorithm
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+
+		NioMessageSession session = new NioMessageSession(this, channel, loop,
+				codecFactory.getDecoder(), codecFactory.getEncoder(),
+				DEFAULT_SESSION_IDLE_SECONDS * 1000L);
+		if (key == null) {
+			key = loop.register(channel, SelectionKey.OP_READ, session);
+		} else {
+			key.attach(session);
+			key.interestOps(SelectionKey.OP_READ);
+		}
+		session.opened(key);
+		sessions.put(session.getId(), session);
+
+		MessageSessionEvent sessionEvent = new MessageSessionEvent(this, session);
+		try {
+			for (MessageSessionListener listener : sessionListeners)
+				listener.sessionOpened(sessionEvent);
+		} catch (RuntimeException e) {
+			session.closeNow();
+			throw e;
+		}
+		log.info("Session {} opened {local: {}, remote: {}}",
+				session.getId(),
+				session.getLocalAddress(),
+				session.getRemoteAddress());
+		return session;
+	}
+
+	void sessionClosed(NioMessageSession session) {
+		sessions.remove(session.getId(), session);
+		log.info("Session {} closed {local: {}, remote: {}}",
+				session.getId(),
+				session.getLocalAddress(),
+				session.getRemoteAddress());
+		dispatch(new NioEvent(NioEvent.Type.SESSION_CLOSED, session, null, null));
+	}
+
+	void dispatch(NioEvent event) {
+		try {
+			executor.execute(event);
+		} catch (RejectedExecutionException e) {
+			log.warn("Session event rejected: {}", event);
+		}
+	}
+
+	/* executor */
+
+	void handle(NioEvent event) {
+		NioMessageSession session = event.getSession();
+		switch (event.getType()) {
+			case MESSAGE_RECEIVED:
+				session.messageReceived(event.getMessage());
+				break;
+			case SESSION_IDLE: {
+				MessageSessionEvent sessionEvent = new MessageSessionEvent(this, session);
+				for (MessageSessionListener listener : sessionListeners)
+					listener.sessionIdle(sessionEvent);
+				break;
+			}
+			case SESSION_CLOSED: {
+				// notify session to interrupt pending listeners
+				session.cancelAllListeners();
+
+				MessageSessionEvent sessionEvent = new MessageSessionEvent(this, session);
+				for (MessageSessionListener listener : sessionListeners)
+					listener.sessionClosed(sessionEvent);
+				break;
+			}
+			case EXCEPTION_CAUGHT: {
+				log.error("Session {} error: {}", session, event.getCause());
+
+				MessageSessionEvent sessionEvent = new MessageSessionErrorEvent(
+						this, session, event.getCause());
+				for (MessageSessionListener listener : sessionListeners)
+					listener.sessionError(sessionEvent);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Closes all sessions after their pending writes, waiting for the
+	 * writes up to {@link #DISPOSE_FLUSH_MILLIS}, then stops the event loops
+	 * and the executor, if they were created by the service. Sessions still
+	 * open by then are closed at once, dropping their pending writes.
+	 */
+	void dispose() {
+		for (NioMessageSession session : sessions.values())
+			session.closeNonBlocking(null);
+		long deadline = System.currentTimeMillis() + DISPOSE_FLUSH_MILLIS;
+		try {
+			for (NioMessageSession session : sessions.values()) {
+				long timeout = deadline - System.currentTimeMillis();
+				if (timeout <= 0L || !session.awaitClosed(timeout))
+					break;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (ownsLoops) {
+			loops.close();
+		} else {
+			// shared loops keep running, sessions left are closed on them
+			for (NioMessageSession session : sessions.values())
+				session.closeNowNonBlocking();
+		}
+		if (ownsExecutor)
+			executor.shutdown();
+	}
+}
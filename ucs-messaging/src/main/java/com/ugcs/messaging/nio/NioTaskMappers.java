@@ -0,0 +1,83 @@
+package com.ugcs.messaging.nio;
+
+import java.util.Objects;
+
+import com.ugcs.messaging.SessionTaskChannels;
+import com.ugcs.messaging.TaskDetails;
+import com.ugcs.messaging.TaskMapper;
+import com.ugcs.messaging.api.MessageDetails;
+import com.ugcs.messaging.api.MessageMapper;
+import com.ugcs.messaging.api.MessageMappers;
+
+/**
+ * Task mappers of the {@link NioEvent session events}: events of a session
+ * are isolated from the other sessions, and within a session are grouped
+ * by the message mapper. Events without messages (idle, error, close)
+ * form a separate group of the session. Events of a session make
+ * a single channel, see {@link SessionTaskChannels}.
+ */
+public final class NioTaskMappers {
+
+	private NioTaskMappers() {
+	}
+
+	public static TaskMapper newMapper(MessageMapper messageMapper) {
+		// isolations of a custom mapper are not cached: those may be
+		// derived from the message and should not outlive it
+		return new SessionMapper(messageMapper, false);
+	}
+
+	public static TaskMapper orderedBySessions() {
+		return newMapper(null);
+	}
+
+	public static TaskMapper orderedByMessageTypes() {
+		// message types are a small fixed set
+		return new SessionMapper(MessageMappers.byType(), true);
+	}
+
+	public static TaskMapper unordered() {
+		// every message is a separate isolation, nothing to cache
+		return new SessionMapper(MessageMappers.byMessage(), false);
+	}
+
+	/* task mappers */
+
+	private static class SessionMapper implements TaskMapper {
+
+		private final MessageMapper messageMapper;
+		private final boolean cacheMessages;
+
+		public SessionMapper(MessageMapper messageMapper, boolean cacheMessages) {
+			this.messageMapper = messageMapper;
+			this.cacheMessages = cacheMessages;
+		}
+
+		@Override
+		public TaskDetails map(Runnable runnable) {
+			Objects.requireNonNull(runnable);
+
+			if (!(runnable instanceof NioEvent))
+				throw new IllegalArgumentException();
+
+			NioEvent event = (NioEvent)runnable;
+			MessageDetails messageDetails = null;
+			if (messageMapper != null && event.getMessage() != null)
+				messageDetails = messageMapper.map(event.getMessage());
+			return getChannels(event.getSession()).get(0, messageDetails);
+		}
+
+		private SessionTaskChannels getChannels(NioMessageSession session) {
+			// channels are bound to the mapper, as another mapper
+			// can isolate messages of the same session differently
+			SessionTaskChannels channels = session.getAttribute(this);
+			if (channels == null) {
+				SessionTaskChannels newChannels = new SessionTaskChannels(session.getId(), 1, cacheMessages);
+				channels = session.setAttributeIfAbsent(this, newChannels);
+				if (channels == null)
+					channels = newChannels;
+			}
+			return channels;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.ugcs.messaging.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Encoded message queued for a write, serves as the future
+ * of the {@link NioMessageSession#send(Object)} result.
+ */
+final class NioWriteRequest implements Future<Void> {
+
+	// encoded frame, null if there is nothing to write
+	ByteBuffer buffer;
+	// pooled array of the buffer, returned to the pool when written
+	byte[] pooled;
+
+	private boolean done = false;
+	private Throwable error;
+
+	synchronized void complete() {
+		done = true;
+		notifyAll();
+	}
+
+	synchronized void fail(Throwable error) {
+		if (done)
+			return;
+		this.error = error;
+		done = true;
+		notifyAll();
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	@Override
+	public synchronized Void get() throws InterruptedException, ExecutionException {
+		while (!done)
+			wait();
+		return getOrError();
+	}
+
+	@Override
+	public synchronized Void get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		long t = System.nanoTime() + unit.toNanos(timeout);
+		while (!done) {
+			long nanosTimeout = t - System.nanoTime();
+			if (nanosTimeout <= 0)
+				throw new TimeoutException();
+			TimeUnit.NANOSECONDS.timedWait(this, nanosTimeout);
+		}
+		return getOrError();
+	}
+
+	private Void getOrError() throws ExecutionException {
+		if (error != null)
+			throw new ExecutionException(error);
+		return null;
+	}
+}
@@ -0,0 +1,52 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Access to the Unix domain sockets of the runtime, used by the
+ * {@link NioConnector} and {@link NioAcceptor} for the addresses
+ * made by {@link #address(Path)}.
+ * <p>
+ * Unix domain socket channels are available on Java 16 and newer: this is
+ * a Java 11 baseline version, that reports them as unsupported and opens
+ * TCP channels only. Multi-release artifact replaces it with the working
+ * implementation for the Java 16 runtime.
+ */
+public final class UnixDomainSockets {
+
+	private UnixDomainSockets() {
+	}
+
+	public static boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * Address of the socket file at the specified path.
+	 */
+	public static SocketAddress address(Path path) {
+		throw new UnsupportedOperationException("Unix domain sockets require Java 16 or newer");
+	}
+
+	static boolean isUnixDomain(SocketAddress address) {
+		return false;
+	}
+
+	static SocketChannel openChannel(SocketAddress address) throws IOException {
+		return SocketChannel.open();
+	}
+
+	static ServerSocketChannel openServerChannel(SocketAddress address) throws IOException {
+		return ServerSocketChannel.open();
+	}
+
+	/**
+	 * Removes the socket file of the closed server channel.
+	 */
+	static void unlink(SocketAddress address) throws IOException {
+	}
+}
@@ -0,0 +1,51 @@
+package com.ugcs.messaging.vm;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of the in-VM send, that is known at once:
+ * message is either queued to the peer or failed.
+ */
+final class SendFuture implements Future<Void> {
+
+	static final SendFuture SENT = new SendFuture(null);
+
+	private final Throwable error;
+
+	private SendFuture(Throwable error) {
+		this.error = error;
+	}
+
+	static SendFuture failed(Throwable error) {
+		return new SendFuture(error);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return true;
+	}
+
+	@Override
+	public Void get() throws ExecutionException {
+		if (error != null)
+			throw new ExecutionException(error);
+		return null;
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws ExecutionException {
+		return get();
+	}
+}
@@ -0,0 +1,110 @@
+package com.ugcs.messaging.vm;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.Acceptor;
+import com.ugcs.messaging.api.CodecFactory;
+
+/**
+ * Acceptor of the in-VM connections (see {@link VmConnector}).
+ * Listens on a {@link VmAddress}, that is unique within the JVM.
+ * Whether messages are serialized is decided by the connector.
+ */
+public class VmAcceptor extends VmService implements Acceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(VmAcceptor.class);
+
+	private static final int DEFAULT_MAX_TASK_THREADS = 32;
+
+	// bound acceptors of the JVM
+	private static final ConcurrentMap<VmAddress, VmAcceptor> acceptors = new ConcurrentHashMap<>();
+
+	private static final AtomicLong nextClientId = new AtomicLong();
+
+	private volatile VmAddress address;
+
+	public VmAcceptor(CodecFactory codecFactory) {
+		this(codecFactory, DEFAULT_MAX_TASK_THREADS);
+	}
+
+	public VmAcceptor(CodecFactory codecFactory, int maxTaskThreads) {
+		this(codecFactory, newExecutor(maxTaskThreads, "VmAcceptorPool"));
+		log.info("Initialized acceptor {max task threads: {}}", maxTaskThreads);
+	}
+
+	/**
+	 * @param codecFactory codec of the messages, may be null
+	 *                     if connectors do not serialize messages
+	 * @param executor executor to deliver received messages
+	 */
+	public VmAcceptor(CodecFactory codecFactory, ExecutorService executor) {
+		super(codecFactory, executor);
+	}
+
+	static VmAcceptor lookup(VmAddress address) {
+		return acceptors.get(address);
+	}
+
+	@Override
+	public void start(SocketAddress socketAddress) throws IOException {
+		Objects.requireNonNull(socketAddress);
+		if (!(socketAddress instanceof VmAddress))
+			throw new IllegalArgumentException("socketAddress");
+		if (executor.isShutdown())
+			throw new IOException("Acceptor closed");
+
+		VmAddress vmAddress = (VmAddress)socketAddress;
+		synchronized (this) {
+			if (address != null)
+				throw new IOException("Acceptor is already bound to " + address);
+			if (acceptors.putIfAbsent(vmAddress, this) != null)
+				throw new IOException("Address already in use: " + vmAddress);
+			address = vmAddress;
+		}
+	}
+
+	VmMessageSession accept(VmConnector connector) throws IOException {
+		VmAddress serverAddress = address;
+		if (serverAddress == null || executor.isShutdown())
+			throw new IOException("Connection refused: " + serverAddress);
+
+		VmAddress clientAddress = new VmAddress("client-" + nextClientId.incrementAndGet());
+		boolean serialize = connector.isSerialize();
+		VmMessageSession serverSession = newSession(serverAddress, clientAddress, serialize);
+		VmMessageSession clientSession = connector.newSession(clientAddress, serverAddress, serialize);
+		VmMessageSession.pair(serverSession, clientSession);
+
+		// server side is ready before the client may send anything
+		sessionOpened(serverSession);
+		connector.sessionOpened(clientSession);
+		return clientSession;
+	}
+
+	/**
+	 * Stops accepting new connections, established sessions are kept.
+	 */
+	@Override
+	public void stop() {
+		synchronized (this) {
+			if (address != null) {
+				acceptors.remove(address, this);
+				address = null;
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+		dispose();
+	}
+}
@@ -0,0 +1,43 @@
+package com.ugcs.messaging.vm;
+
+import java.net.SocketAddress;
+import java.util.Objects;
+
+/**
+ * Address of the in-VM acceptor, unique within the JVM.
+ */
+public final class VmAddress extends SocketAddress {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String name;
+
+	public VmAddress(String name) {
+		Objects.requireNonNull(name);
+
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof VmAddress))
+			return false;
+		return name.equals(((VmAddress)other).name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "vm:" + name;
+	}
+}
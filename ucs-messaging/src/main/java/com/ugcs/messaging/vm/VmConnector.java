@@ -0,0 +1,102 @@
+package com.ugcs.messaging.vm;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.ConnectListener;
+import com.ugcs.messaging.api.Connector;
+import com.ugcs.messaging.api.MessageSession;
+import com.ugcs.messaging.api.MessageSessionErrorEvent;
+import com.ugcs.messaging.api.MessageSessionEvent;
+
+/**
+ * Connector to a {@link VmAcceptor} of the same JVM, bound
+ * to a {@link VmAddress}. Messages are passed between the sessions
+ * through memory queues, without any network I/O.
+ * <p>
+ * By default, message objects are passed as is, so the codec is not used.
+ * When serialization is on, every message is encoded by the sender
+ * and decoded by the receiving side, as it would be on the network.
+ * <p>
+ * Sessions have no idle events.
+ */
+public class VmConnector extends VmService implements Connector {
+
+	private static final Logger log = LoggerFactory.getLogger(VmConnector.class);
+
+	private static final int DEFAULT_MAX_TASK_THREADS = 16;
+
+	private final boolean serialize;
+
+	public VmConnector(CodecFactory codecFactory) {
+		this(codecFactory, false);
+	}
+
+	public VmConnector(CodecFactory codecFactory, boolean serialize) {
+		this(codecFactory, serialize, DEFAULT_MAX_TASK_THREADS);
+	}
+
+	public VmConnector(CodecFactory codecFactory, boolean serialize, int maxTaskThreads) {
+		this(codecFactory, serialize, newExecutor(maxTaskThreads, "VmConnectorPool"));
+		log.info("Initialized connector {serialize: {}, max task threads: {}}",
+				serialize,
+				maxTaskThreads);
+	}
+
+	/**
+	 * @param codecFactory codec of the messages, may be null
+	 *                     if messages are not serialized
+	 * @param serialize encode and decode messages of the sessions
+	 * @param executor executor to deliver received messages
+	 */
+	public VmConnector(CodecFactory codecFactory, boolean serialize, ExecutorService executor) {
+		super(codecFactory, executor);
+		if (serialize && codecFactory == null)
+			throw new IllegalArgumentException("codecFactory");
+
+		this.serialize = serialize;
+	}
+
+	public boolean isSerialize() {
+		return serialize;
+	}
+
+	@Override
+	public MessageSession connect(SocketAddress address) throws IOException {
+		Objects.requireNonNull(address);
+		if (!(address instanceof VmAddress))
+			throw new IllegalArgumentException("address");
+		if (executor.isShutdown())
+			throw new IOException("Connector closed");
+
+		VmAcceptor acceptor = VmAcceptor.lookup((VmAddress)address);
+		if (acceptor == null)
+			throw new IOException("Connection refused: " + address);
+		return acceptor.accept(this);
+	}
+
+	@Override
+	public void connectNonBlocking(SocketAddress address, ConnectListener listener) {
+		MessageSession session;
+		try {
+			session = connect(address);
+		} catch (IOException | RuntimeException e) {
+			if (listener != null)
+				listener.connectError(new MessageSessionErrorEvent(this, null, e));
+			return;
+		}
+		if (listener != null)
+			listener.connected(new MessageSessionEvent(this, session));
+	}
+
+	@Override
+	public void close() {
+		dispose();
+	}
+}
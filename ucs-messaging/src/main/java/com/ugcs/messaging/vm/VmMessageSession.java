@@ -0,0 +1,369 @@
+package com.ugcs.messaging.vm;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.common.io.BufferPool;
+import com.ugcs.messaging.EncodedFrame;
+import com.ugcs.messaging.MessageSessions;
+import com.ugcs.messaging.SessionAttributes;
+import com.ugcs.messaging.SessionCloseListeners;
+import com.ugcs.messaging.SessionListeners;
+import com.ugcs.messaging.api.CloseListener;
+import com.ugcs.messaging.api.MessageDecoder;
+import com.ugcs.messaging.api.MessageEncoder;
+import com.ugcs.messaging.api.MessageListener;
+import com.ugcs.messaging.api.MessageSelector;
+import com.ugcs.messaging.api.MessageSession;
+
+/**
+ * One end of an in-VM connection.
+ * <p>
+ * Sent messages are put to the bounded queue of the peer session as is,
+ * or encoded to frames, when the connection serializes messages. A sender
+ * blocks while the peer queue is full, up to the send timeout of the peer
+ * side. Sends from the listeners never block: drain tasks of both sides
+ * share the executors, and listeners waiting for each other's queues
+ * would stall the delivery, so their messages are queued over the capacity.
+ * Every session drains its own queue on the executor of its side, one batch
+ * at a time, so messages of a session are delivered to the listeners
+ * sequentially in the sending order.
+ */
+public class VmMessageSession implements MessageSession {
+
+	private static final Logger log = LoggerFactory.getLogger(VmMessageSession.class);
+
+	// max number of messages delivered by a single drain task,
+	// to let the other sessions of the executor proceed
+	private static final int MAX_DRAIN_BATCH = 64;
+
+	// set while the current thread delivers messages of a session
+	private static final ThreadLocal<Boolean> inDrain = new ThreadLocal<>();
+
+	private static final AtomicLong nextId = new AtomicLong();
+
+	private final long id = nextId.incrementAndGet();
+
+	private final VmService service;
+	private final SocketAddress localAddress;
+	private final SocketAddress remoteAddress;
+	private final long sendTimeoutNanos;
+	// both are null, if messages are passed as is
+	private final MessageEncoder encoder;
+	private final MessageDecoder decoder;
+	private final BufferPool pool = BufferPool.getDefault();
+
+	private final SessionListeners listeners = new SessionListeners();
+	private final SessionAttributes attributes = new SessionAttributes();
+
+	// set once, before the session is opened
+	private VmMessageSession peer;
+
+	/* delivery */
+
+	private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+	// free slots of the queue
+	private final Semaphore slots;
+	// items queued over the capacity by the drain threads
+	private final AtomicInteger overdrawn = new AtomicInteger();
+	private final AtomicBoolean draining = new AtomicBoolean();
+	private final Runnable drainTask = this::drain;
+
+	/* close */
+
+	private volatile boolean closing = false;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private final SessionCloseListeners closeListeners = new SessionCloseListeners();
+
+	VmMessageSession(VmService service, SocketAddress localAddress, SocketAddress remoteAddress,
+			int queueCapacity, long sendTimeoutNanos, MessageEncoder encoder, MessageDecoder decoder) {
+		this.service = service;
+		this.localAddress = localAddress;
+		this.remoteAddress = remoteAddress;
+		this.slots = new Semaphore(queueCapacity);
+		this.sendTimeoutNanos = sendTimeoutNanos;
+		this.encoder = encoder;
+		this.decoder = decoder;
+	}
+
+	static void pair(VmMessageSession a, VmMessageSession b) {
+		a.peer = b;
+		b.peer = a;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public SocketAddress getLocalAddress() {
+		return localAddress;
+	}
+
+	@Override
+	public SocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	@Override
+	public void addListener(MessageListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void addListener(MessageListener listener, MessageSelector selector) {
+		listeners.add(listener, selector);
+	}
+
+	@Override
+	public void removeListener(MessageListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public <T> void setAttribute(Object key, T value) {
+		attributes.set(key, value);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key) {
+		return attributes.get(key);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key, T defaultValue) {
+		return attributes.get(key, defaultValue);
+	}
+
+	@Override
+	public <T> T getAttribute(Object key, Supplier<T> supplier) {
+		return attributes.get(key, supplier);
+	}
+
+	@Override
+	public boolean isOpened() {
+		return !closing;
+	}
+
+	/* close */
+
+	@Override
+	public void close() throws IOException {
+		closeNonBlocking(null);
+		if (inDrain.get() != null) {
+			// drain tasks may share the same thread,
+			// waiting for them here can deadlock
+			return;
+		}
+		closeListeners.awaitUninterruptibly();
+	}
+
+	@Override
+	public void closeNonBlocking(CloseListener listener) {
+		if (listener != null)
+			closeListeners.add(this, listener);
+		// both ends are closed, when the messages
+		// already queued to them are delivered
+		closeOnDrain();
+		peer.closeOnDrain();
+	}
+
+	private void closeOnDrain() {
+		closing = true;
+		scheduleDrain();
+	}
+
+	private void closeNow() {
+		if (!closed.compareAndSet(false, true))
+			return;
+		closing = true;
+
+		Object item;
+		while ((item = poll()) != null)
+			release(item);
+		if (encoder != null) {
+			try {
+				decoder.close();
+				encoder.close();
+			} catch (Exception e) {
+				log.warn("Codec close error", e);
+			}
+		}
+		service.sessionClosed(this);
+
+		closeListeners.closed(this);
+	}
+
+	/* sends */
+
+	@Override
+	public Future<Void> send(Object message) {
+		Objects.requireNonNull(message);
+
+		if (closing)
+			return SendFuture.failed(new IOException("Session closed"));
+		Object item = message;
+		if (encoder != null) {
+			try {
+				item = encode(message);
+			} catch (Exception e) {
+				log.error("Message encoder error", e);
+				return SendFuture.failed(e);
+			}
+			if (item == null)
+				return SendFuture.SENT;
+		}
+		return peer.offer(item);
+	}
+
+	private EncodedFrame encode(Object message) throws Exception {
+		// encoders are not required to be thread-safe
+		synchronized (encoder) {
+			return EncodedFrame.encode(encoder, pool, message);
+		}
+	}
+
+	private Future<Void> offer(Object item) {
+		if (closing) {
+			release(item);
+			return SendFuture.failed(new IOException("Session closed"));
+		}
+		try {
+			if (inDrain.get() != null) {
+				// drain threads do not wait for the queues,
+				// those may be drained by the same threads only
+				if (!slots.tryAcquire())
+					overdrawn.incrementAndGet();
+			} else if (!slots.tryAcquire(sendTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				release(item);
+				return SendFuture.failed(new IOException("Send timed out: session queue is full"));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			release(item);
+			return SendFuture.failed(e);
+		}
+		queue.offer(item);
+		if (closed.get()) {
+			// closed while queueing, the item is dropped
+			// either here or by the close
+			if (queue.remove(item)) {
+				releaseSlot();
+				release(item);
+			}
+			return SendFuture.failed(new IOException("Session closed"));
+		}
+		scheduleDrain();
+		return SendFuture.SENT;
+	}
+
+	private void release(Object item) {
+		if (item instanceof EncodedFrame)
+			((EncodedFrame)item).release(pool);
+	}
+
+	private Object poll() {
+		Object item = queue.poll();
+		if (item != null)
+			releaseSlot();
+		return item;
+	}
+
+	private void releaseSlot() {
+		// items over the capacity go first
+		while (true) {
+			int n = overdrawn.get();
+			if (n == 0) {
+				slots.release();
+				return;
+			}
+			if (overdrawn.compareAndSet(n, n - 1))
+				return;
+		}
+	}
+
+	/* delivery */
+
+	private void scheduleDrain() {
+		if (!draining.compareAndSet(false, true))
+			return;
+		try {
+			service.executor.execute(drainTask);
+		} catch (RejectedExecutionException e) {
+			// executor is shut down, nothing is delivered anymore
+			draining.set(false);
+			closeNow();
+		}
+	}
+
+	private void drain() {
+		inDrain.set(Boolean.TRUE);
+		try {
+			Object item;
+			for (int i = 0; i < MAX_DRAIN_BATCH && (item = poll()) != null; i++) {
+				if (closed.get()) {
+					release(item);
+					continue;
+				}
+				if (decoder != null)
+					decode((EncodedFrame)item);
+				else
+					messageReceived(item);
+			}
+			if (closing && queue.isEmpty())
+				closeNow();
+		} finally {
+			inDrain.remove();
+			draining.set(false);
+		}
+		// items queued after the last poll, but before the flag reset
+		if (!queue.isEmpty() || (closing && !closed.get()))
+			scheduleDrain();
+	}
+
+	private void decode(EncodedFrame frame) {
+		List<Object> messages;
+		try {
+			messages = decoder.decode(frame.toBuffer());
+		} catch (Exception e) {
+			log.error("Message decoder error", e);
+			service.sessionError(this, e);
+			closeNonBlocking(null);
+			return;
+		} finally {
+			release(frame);
+		}
+		for (int i = 0; i < messages.size(); i++)
+			messageReceived(messages.get(i));
+	}
+
+	/* listeners */
+
+	private void messageReceived(Object message) {
+		listeners.messageReceived(this, message);
+	}
+
+	void cancelAllListeners() {
+		listeners.cancelAll();
+	}
+
+	@Override
+	public String toString() {
+		return MessageSessions.toString(id, localAddress, remoteAddress);
+	}
+}
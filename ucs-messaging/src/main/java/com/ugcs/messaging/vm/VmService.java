@@ -0,0 +1,142 @@
+package com.ugcs.messaging.vm;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ugcs.messaging.GroupingThreadPool;
+import com.ugcs.messaging.api.CodecFactory;
+import com.ugcs.messaging.api.MessageSessionErrorEvent;
+import com.ugcs.messaging.api.MessageSessionEvent;
+import com.ugcs.messaging.api.MessageSessionListener;
+
+/**
+ * Sessions of the in-VM connector or acceptor.
+ */
+abstract class VmService {
+
+	private static final Logger log = LoggerFactory.getLogger(VmService.class);
+
+	static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	static final long DEFAULT_SEND_TIMEOUT_MILLIS = 30_000L;
+
+	private final CodecFactory codecFactory;
+	final ExecutorService executor;
+
+	private final List<MessageSessionListener> sessionListeners = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<Long, VmMessageSession> sessions = new ConcurrentHashMap<>();
+
+	private volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private volatile long sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SEND_TIMEOUT_MILLIS);
+
+	VmService(CodecFactory codecFactory, ExecutorService executor) {
+		Objects.requireNonNull(executor);
+
+		this.codecFactory = codecFactory;
+		this.executor = executor;
+	}
+
+	static ExecutorService newExecutor(int maxThreads, String poolName) {
+		// every session is drained by a single task at a time,
+		// so the tasks are isolated from each other
+		maxThreads = Math.max(1, maxThreads);
+		int coreThreads = Math.max(1, maxThreads / 2);
+		return new GroupingThreadPool(coreThreads, maxThreads, runnable -> null, poolName);
+	}
+
+	public void addSessionListener(MessageSessionListener sessionListener) {
+		Objects.requireNonNull(sessionListener);
+
+		sessionListeners.add(sessionListener);
+	}
+
+	public void removeSessionListener(MessageSessionListener sessionListener) {
+		Objects.requireNonNull(sessionListener);
+
+		sessionListeners.remove(sessionListener);
+	}
+
+	/**
+	 * Sets the max number of messages queued to a session of this side,
+	 * applies to the new sessions.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("queueCapacity");
+
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Sets the time a sender waits for the queue of a session of this side
+	 * to get a free slot, before the send fails. Applies to the new sessions.
+	 */
+	public void setSendTimeout(long timeout, TimeUnit unit) {
+		if (timeout < 0)
+			throw new IllegalArgumentException("timeout");
+		Objects.requireNonNull(unit);
+
+		this.sendTimeoutNanos = unit.toNanos(timeout);
+	}
+
+	VmMessageSession newSession(SocketAddress localAddress, SocketAddress remoteAddress, boolean serialize) {
+		if (serialize && codecFactory == null)
+			throw new IllegalStateException("Codec factory is required to serialize messages");
+
+		return new VmMessageSession(this, localAddress, remoteAddress, queueCapacity, sendTimeoutNanos,
+				serialize ? codecFactory.getEncoder() : null,
+				serialize ? codecFactory.getDecoder() : null);
+	}
+
+	void sessionOpened(VmMessageSession session) {
+		sessions.put(session.getId(), session);
+		MessageSessionEvent sessionEvent = new MessageSessionEvent(this, session);
+		for (MessageSessionListener listener : sessionListeners)
+			listener.sessionOpened(sessionEvent);
+		log.debug("Session {} opened {local: {}, remote: {}}",
+				session.getId(),
+				session.getLocalAddress(),
+				session.getRemoteAddress());
+	}
+
+	void sessionClosed(VmMessageSession session) {
+		sessions.remove(session.getId(), session);
+		log.debug("Session {} closed {local: {}, remote: {}}",
+				session.getId(),
+				session.getLocalAddress(),
+				session.getRemoteAddress());
+
+		// notify session to interrupt pending listeners
+		session.cancelAllListeners();
+
+		MessageSessionEvent sessionEvent = new MessageSessionEvent(this, session);
+		for (MessageSessionListener listener : sessionListeners)
+			listener.sessionClosed(sessionEvent);
+	}
+
+	void sessionError(VmMessageSession session, Throwable cause) {
+		log.error("Session {} error: {}", session, cause);
+
+		MessageSessionEvent sessionEvent = new MessageSessionErrorEvent(this, session, cause);
+		for (MessageSessionListener listener : sessionListeners)
+			listener.sessionError(sessionEvent);
+	}
+
+	/**
+	 * Closes all sessions after their queued messages are delivered,
+	 * then stops the executor.
+	 */
+	void dispose() {
+		for (VmMessageSession session : sessions.values())
+			session.closeNonBlocking(null);
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,48 @@
+package com.ugcs.messaging.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Access to the Unix domain sockets of the runtime (Java 16 version).
+ */
+public final class UnixDomainSockets {
+
+	private UnixDomainSockets() {
+	}
+
+	public static boolean isSupported() {
+		return true;
+	}
+
+	public static SocketAddress address(Path path) {
+		return UnixDomainSocketAddress.of(path);
+	}
+
+	static boolean isUnixDomain(SocketAddress address) {
+		return address instanceof UnixDomainSocketAddress;
+	}
+
+	static SocketChannel openChannel(SocketAddress address) throws IOException {
+		return isUnixDomain(address)
+				? SocketChannel.open(StandardProtocolFamily.UNIX)
+				: SocketChannel.open();
+	}
+
+	static ServerSocketChannel openServerChannel(SocketAddress address) throws IOException {
+		return isUnixDomain(address)
+				? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+				: ServerSocketChannel.open();
+	}
+
+	static void unlink(SocketAddress address) throws IOException {
+		if (isUnixDomain(address))
+			Files.deleteIfExists(((UnixDomainSocketAddress)address).getPath());
+	}
+}
@@ -0,0 +1,25 @@
+package com.ugcs.messaging;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of the runtime (Java 21 version).
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return true;
+	}
+
+	public static ThreadFactory newThreadFactory(String name) {
+		Objects.requireNonNull(name);
+
+		return Thread.ofVirtual()
+				.name(name + "-", 0L)
+				.factory();
+	}
+}